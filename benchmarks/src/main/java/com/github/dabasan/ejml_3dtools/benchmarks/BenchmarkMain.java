@@ -0,0 +1,24 @@
+package com.github.dabasan.ejml_3dtools.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar<br>
+ * Accepts the usual JMH command line options and always enables the GC
+ * profiler, so that allocation per operation is reported.
+ * 
+ * @author Daba
+ *
+ */
+public class BenchmarkMain {
+	public static void main(String[] args) throws Exception {
+		var commandLineOptions = new CommandLineOptions(args);
+		var options = new OptionsBuilder().parent(commandLineOptions)
+				.addProfiler(GCProfiler.class).build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,119 @@
+package com.github.dabasan.ejml_3dtools.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.ejml_3dtools.AABBBatch;
+import com.github.dabasan.ejml_3dtools.Frustum;
+import com.github.dabasan.ejml_3dtools.Matrix;
+import com.github.dabasan.ejml_3dtools.ParallelConfig;
+import com.github.dabasan.ejml_3dtools.Vector;
+import com.github.dabasan.ejml_3dtools.VectorBatch;
+
+/**
+ * Benchmarks for frustum culling of many bounding spheres and boxes, per
+ * Vector against plane vectors and per batch
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrustumBenchmark {
+	@Param({"1000", "1000000"})
+	private int size;
+
+	private Vector[] vecs;
+	private VectorBatch centers;
+	private double[] radii;
+	private AABBBatch boxes;
+	private Frustum frustum;
+	private Vector[] planeNormals;
+	private double[] planeDistances;
+	private long[] bits;
+	private int[] indices;
+
+	@Setup
+	public void setup() {
+		var random = new Random(0);
+
+		vecs = new Vector[size];
+		radii = new double[size];
+		boxes = new AABBBatch(size);
+		for (int i = 0; i < size; i++) {
+			double x = random.nextDouble() * 200.0 - 100.0;
+			double y = random.nextDouble() * 200.0 - 100.0;
+			double z = random.nextDouble() * 200.0 - 100.0;
+			double r = random.nextDouble();
+			vecs[i] = new Vector(x, y, z);
+			radii[i] = r;
+			boxes.set(i, x - r, y - r, z - r, x + r, y + r, z + r);
+		}
+		centers = new VectorBatch(vecs);
+
+		frustum = new Frustum(Matrix.createPerspective(Math.PI / 3.0, 16.0 / 9.0, 0.1, 100.0)
+				.mult(Matrix.createLookAt(new Vector(), new Vector(1.0, 0.0, 0.0),
+						new Vector(0.0, 1.0, 0.0))));
+		planeNormals = new Vector[6];
+		planeDistances = new double[6];
+		for (int p = 0; p < 6; p++) {
+			double[] plane = frustum.getPlane(p);
+			planeNormals[p] = new Vector(plane[0], plane[1], plane[2]);
+			planeDistances[p] = plane[3];
+		}
+		bits = new long[(size + 63) / 64];
+		indices = new int[size];
+	}
+
+	@Benchmark
+	public int cullSpheres_Vector() {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			boolean visible = true;
+			for (int p = 0; p < 6 && visible; p++) {
+				visible = vecs[i].dot(planeNormals[p]) + planeDistances[p] >= -radii[i];
+			}
+			if (visible) {
+				indices[count++] = i;
+			}
+		}
+
+		return count;
+	}
+	@Benchmark
+	public long[] cullSpheres_Bitset() {
+		return frustum.cullSpheres(centers, radii, bits);
+	}
+	@Benchmark
+	public long[] cullSpheres_BitsetParallel() {
+		return frustum.cullSpheres(centers, radii, bits, ParallelConfig.getDefault());
+	}
+	@Benchmark
+	public int cullSpheres_Indices() {
+		return frustum.cullSpheres(centers, radii, indices);
+	}
+	@Benchmark
+	public long[] cullAABBs_Bitset() {
+		return frustum.cullAABBs(boxes, bits);
+	}
+	@Benchmark
+	public long[] cullAABBs_BitsetParallel() {
+		return frustum.cullAABBs(boxes, bits, ParallelConfig.getDefault());
+	}
+}
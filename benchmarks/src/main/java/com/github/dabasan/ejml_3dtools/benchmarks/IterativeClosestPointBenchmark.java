@@ -0,0 +1,85 @@
+package com.github.dabasan.ejml_3dtools.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.ejml_3dtools.IterativeClosestPoint;
+import com.github.dabasan.ejml_3dtools.Matrix;
+import com.github.dabasan.ejml_3dtools.ParallelConfig;
+import com.github.dabasan.ejml_3dtools.VectorBatch;
+
+/**
+ * Benchmarks for registering a scan of a smooth surface to another scan of it
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IterativeClosestPointBenchmark {
+	@Param({"10000", "100000"})
+	private int size;
+
+	private VectorBatch source;
+	private IterativeClosestPoint pointToPoint;
+	private IterativeClosestPoint pointToPlane;
+	private IterativeClosestPoint pointToPlaneParallel;
+
+	private static VectorBatch createSurface(int size, Random random) {
+		var ret = new VectorBatch(size);
+		for (int i = 0; i < size; i++) {
+			double x = random.nextDouble() * 6.0 - 3.0;
+			double y = random.nextDouble() * 6.0 - 3.0;
+			ret.set(i, x, y, Math.sin(x) * Math.cos(y) + 0.2 * x * y);
+		}
+
+		return ret;
+	}
+
+	@Setup
+	public void setup() {
+		var random = new Random(0);
+		var target = createSurface(size, random);
+		source = createSurface(size, random)
+				.transformInPlace(Matrix.createTranslationMatrix(0.15, -0.1, 0.05)
+						.mult(Matrix.createRotationMatrix(0.48, 0.6, 0.64, 0.08)));
+
+		pointToPoint = new IterativeClosestPoint(target);
+		pointToPlane = new IterativeClosestPoint(target);
+		pointToPlane.setMethod(IterativeClosestPoint.Method.POINT_TO_PLANE);
+		pointToPlane.getTargetNormals();
+		pointToPlaneParallel = new IterativeClosestPoint(target);
+		pointToPlaneParallel.setMethod(IterativeClosestPoint.Method.POINT_TO_PLANE);
+		pointToPlaneParallel.setParallelConfig(ParallelConfig.getDefault());
+		pointToPlaneParallel.getTargetNormals();
+	}
+
+	@Benchmark
+	public IterativeClosestPoint.Result register_PointToPoint() {
+		return pointToPoint.register(source);
+	}
+	@Benchmark
+	public IterativeClosestPoint.Result register_PointToPlane() {
+		return pointToPlane.register(source);
+	}
+	@Benchmark
+	public IterativeClosestPoint.Result register_PointToPlaneParallel() {
+		return pointToPlaneParallel.register(source);
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.dabasan.ejml_3dtools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.ejml_3dtools.Matrix;
+
+/**
+ * Benchmarks for Matrix
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatrixBenchmark {
+	private Matrix mat1;
+	private Matrix mat2;
+	private Matrix rigid;
+	private double th;
+
+	@Setup
+	public void setup() {
+		mat1 = Matrix.createRandomMatrix();
+		mat2 = Matrix.createRandomMatrix();
+		rigid = Matrix.createTranslationMatrix(1.0, 2.0, 3.0)
+				.mult(Matrix.createRotationMatrix(0.48, 0.6, 0.64, Math.PI / 5.0));
+		th = Math.PI / 5.0;
+	}
+
+	@Benchmark
+	public Matrix mult() {
+		return mat1.mult(mat2);
+	}
+	@Benchmark
+	public Matrix invert() {
+		return mat1.invert();
+	}
+	@Benchmark
+	public Matrix invert_Rigid() {
+		return rigid.invert();
+	}
+	@Benchmark
+	public Matrix createRotationMatrix() {
+		return Matrix.createRotationMatrix(0.48, 0.6, 0.64, th);
+	}
+}
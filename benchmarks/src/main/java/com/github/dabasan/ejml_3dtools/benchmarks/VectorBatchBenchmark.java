@@ -0,0 +1,75 @@
+package com.github.dabasan.ejml_3dtools.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.ejml_3dtools.Matrix;
+import com.github.dabasan.ejml_3dtools.ParallelConfig;
+import com.github.dabasan.ejml_3dtools.Vector;
+import com.github.dabasan.ejml_3dtools.VectorBatch;
+
+/**
+ * Benchmarks for transforming many points, per Vector and per VectorBatch
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBatchBenchmark {
+	@Param({"1000", "1000000"})
+	private int size;
+
+	private Vector[] vecs;
+	private VectorBatch batch;
+	private VectorBatch dst;
+	private Matrix matrix;
+
+	@Setup
+	public void setup() {
+		var random = new Random(0);
+
+		vecs = new Vector[size];
+		for (int i = 0; i < size; i++) {
+			vecs[i] = new Vector(random.nextDouble(), random.nextDouble(), random.nextDouble());
+		}
+		batch = new VectorBatch(vecs);
+		dst = new VectorBatch(size);
+		matrix = Matrix.createRotationMatrix(0.48, 0.6, 0.64, Math.PI / 5.0)
+				.mult(Matrix.createTranslationMatrix(1.0, 2.0, 3.0));
+	}
+
+	@Benchmark
+	public Vector[] transform_Vector() {
+		var ret = new Vector[size];
+		for (int i = 0; i < size; i++) {
+			ret[i] = vecs[i].transform(matrix);
+		}
+
+		return ret;
+	}
+	@Benchmark
+	public VectorBatch transform_VectorBatch() {
+		return batch.transform(matrix, dst);
+	}
+	@Benchmark
+	public VectorBatch transform_VectorBatchParallel() {
+		return batch.transform(matrix, dst, ParallelConfig.getDefault());
+	}
+}
@@ -0,0 +1,66 @@
+package com.github.dabasan.ejml_3dtools.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dabasan.ejml_3dtools.Matrix;
+import com.github.dabasan.ejml_3dtools.Vector;
+
+/**
+ * Benchmarks for Vector
+ * 
+ * @author Daba
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBenchmark {
+	private Vector vec;
+	private Matrix matrix;
+	private double angleV;
+	private double angleH;
+
+	@Setup
+	public void setup() {
+		vec = new Vector(1.5, -2.0, 3.25);
+		matrix = Matrix.createRotationMatrix(0.48, 0.6, 0.64, Math.PI / 5.0)
+				.mult(Matrix.createTranslationMatrix(1.0, 2.0, 3.0));
+		angleV = Math.PI / 7.0;
+		angleH = Math.PI / 3.0;
+	}
+
+	@Benchmark
+	public Vector transform() {
+		return vec.transform(matrix);
+	}
+	@Benchmark
+	public Vector normalize() {
+		return vec.normalize();
+	}
+	@Benchmark
+	public double getAngleH() {
+		return vec.getAngleH();
+	}
+	@Benchmark
+	public double getAngleV() {
+		return vec.getAngleV();
+	}
+	@Benchmark
+	public Vector constructor_Angles() {
+		return new Vector(angleV, angleH);
+	}
+}
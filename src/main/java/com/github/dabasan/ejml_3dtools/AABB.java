@@ -0,0 +1,398 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Axis-aligned bounding box<br>
+ * A box is empty when its minimum is greater than its maximum on any axis.
+ * A box created with the default constructor is empty, and expanding it with
+ * points or unions gives the bounds of them.
+ * 
+ * @author Daba
+ *
+ */
+public class AABB {
+	double minX;
+	double minY;
+	double minZ;
+	double maxX;
+	double maxY;
+	double maxZ;
+
+	/**
+	 * Creates an empty box.
+	 */
+	public AABB() {
+		this.setEmpty();
+	}
+	/**
+	 * Creates a box from its minimum and maximum.
+	 * 
+	 * @param minX
+	 *            Minimum X
+	 * @param minY
+	 *            Minimum Y
+	 * @param minZ
+	 *            Minimum Z
+	 * @param maxX
+	 *            Maximum X
+	 * @param maxY
+	 *            Maximum Y
+	 * @param maxZ
+	 *            Maximum Z
+	 */
+	public AABB(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		this.set(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+	/**
+	 * Creates a box from its minimum and maximum.
+	 * 
+	 * @param min
+	 *            Minimum
+	 * @param max
+	 *            Maximum
+	 */
+	public AABB(Vector min, Vector max) {
+		this.set(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+	}
+	/**
+	 * Creates a box from an AABB instance.
+	 * 
+	 * @param box
+	 *            AABB instance
+	 */
+	public AABB(AABB box) {
+		this.set(box);
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		sb.append("[(");
+		sb.append(minX);
+		sb.append(", ");
+		sb.append(minY);
+		sb.append(", ");
+		sb.append(minZ);
+		sb.append("), (");
+		sb.append(maxX);
+		sb.append(", ");
+		sb.append(maxY);
+		sb.append(", ");
+		sb.append(maxZ);
+		sb.append(")]");
+
+		return sb.toString();
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+	public double getMinY() {
+		return minY;
+	}
+	public double getMinZ() {
+		return minZ;
+	}
+	public double getMaxX() {
+		return maxX;
+	}
+	public double getMaxY() {
+		return maxY;
+	}
+	public double getMaxZ() {
+		return maxZ;
+	}
+	public Vector getMin() {
+		return new Vector(minX, minY, minZ);
+	}
+	public Vector getMax() {
+		return new Vector(maxX, maxY, maxZ);
+	}
+	/**
+	 * Returns the center of this box.
+	 * 
+	 * @return Center
+	 */
+	public Vector getCenter() {
+		return new Vector((minX + maxX) * 0.5, (minY + maxY) * 0.5, (minZ + maxZ) * 0.5);
+	}
+	/**
+	 * Returns the half size of this box on each axis.
+	 * 
+	 * @return Half size
+	 */
+	public Vector getExtent() {
+		return new Vector((maxX - minX) * 0.5, (maxY - minY) * 0.5, (maxZ - minZ) * 0.5);
+	}
+
+	public void set(double minX, double minY, double minZ, double maxX, double maxY,
+			double maxZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+	}
+	public void set(AABB box) {
+		minX = box.minX;
+		minY = box.minY;
+		minZ = box.minZ;
+		maxX = box.maxX;
+		maxY = box.maxY;
+		maxZ = box.maxZ;
+	}
+	/**
+	 * Makes this box empty.
+	 */
+	public void setEmpty() {
+		minX = Double.POSITIVE_INFINITY;
+		minY = Double.POSITIVE_INFINITY;
+		minZ = Double.POSITIVE_INFINITY;
+		maxX = Double.NEGATIVE_INFINITY;
+		maxY = Double.NEGATIVE_INFINITY;
+		maxZ = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Returns true if this box is empty.
+	 * 
+	 * @return true if this box is empty
+	 */
+	public boolean isEmpty() {
+		return minX > maxX || minY > maxY || minZ > maxZ;
+	}
+	/**
+	 * Returns the surface area of this box.
+	 * 
+	 * @return Surface area (0 if this box is empty)
+	 */
+	public double getSurfaceArea() {
+		if (this.isEmpty()) {
+			return 0.0;
+		}
+
+		double dx = maxX - minX;
+		double dy = maxY - minY;
+		double dz = maxZ - minZ;
+
+		return 2.0 * (dx * dy + dy * dz + dz * dx);
+	}
+
+	/**
+	 * Expands this box to contain a point.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 * @return This box
+	 */
+	public AABB expand(double x, double y, double z) {
+		minX = Math.min(minX, x);
+		minY = Math.min(minY, y);
+		minZ = Math.min(minZ, z);
+		maxX = Math.max(maxX, x);
+		maxY = Math.max(maxY, y);
+		maxZ = Math.max(maxZ, z);
+
+		return this;
+	}
+	/**
+	 * Expands this box to contain a point.
+	 * 
+	 * @param point
+	 *            Point
+	 * @return This box
+	 */
+	public AABB expand(Vector point) {
+		return this.expand(point.v[0], point.v[1], point.v[2]);
+	}
+	/**
+	 * Creates a box that contains all of the points in a batch.
+	 * 
+	 * @param points
+	 *            Points
+	 * @return Box (empty if the batch is empty)
+	 */
+	public static AABB createFromPoints(VectorBatch points) {
+		var ret = new AABB();
+		for (int i = 0; i < points.size(); i++) {
+			ret.expand(points.x[i], points.y[i], points.z[i]);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Union
+	 * 
+	 * @param box
+	 *            Box
+	 * @return Box that contains both boxes
+	 */
+	public AABB union(AABB box) {
+		return this.union(box, new AABB());
+	}
+	/**
+	 * Union<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param box
+	 *            Box
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABB union(AABB box, AABB dst) {
+		dst.minX = Math.min(minX, box.minX);
+		dst.minY = Math.min(minY, box.minY);
+		dst.minZ = Math.min(minZ, box.minZ);
+		dst.maxX = Math.max(maxX, box.maxX);
+		dst.maxY = Math.max(maxY, box.maxY);
+		dst.maxZ = Math.max(maxZ, box.maxZ);
+
+		return dst;
+	}
+	/**
+	 * Expands this box to contain another box.
+	 * 
+	 * @param box
+	 *            Box
+	 * @return This box
+	 */
+	public AABB unionInPlace(AABB box) {
+		return this.union(box, this);
+	}
+	/**
+	 * Intersection
+	 * 
+	 * @param box
+	 *            Box
+	 * @return Box shared by both boxes (empty if they do not intersect)
+	 */
+	public AABB intersection(AABB box) {
+		return this.intersection(box, new AABB());
+	}
+	/**
+	 * Intersection<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param box
+	 *            Box
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABB intersection(AABB box, AABB dst) {
+		dst.minX = Math.max(minX, box.minX);
+		dst.minY = Math.max(minY, box.minY);
+		dst.minZ = Math.max(minZ, box.minZ);
+		dst.maxX = Math.min(maxX, box.maxX);
+		dst.maxY = Math.min(maxY, box.maxY);
+		dst.maxZ = Math.min(maxZ, box.maxZ);
+
+		return dst;
+	}
+	/**
+	 * Returns true if this box and another box overlap.<br>
+	 * Boxes that only touch are regarded as overlapping.
+	 * 
+	 * @param box
+	 *            Box
+	 * @return true if the boxes overlap
+	 */
+	public boolean intersects(AABB box) {
+		return minX <= box.maxX && box.minX <= maxX && minY <= box.maxY && box.minY <= maxY
+				&& minZ <= box.maxZ && box.minZ <= maxZ;
+	}
+	/**
+	 * Returns true if this box contains a point.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 * @return true if the point is inside or on the boundary
+	 */
+	public boolean contains(double x, double y, double z) {
+		return minX <= x && x <= maxX && minY <= y && y <= maxY && minZ <= z && z <= maxZ;
+	}
+	/**
+	 * Returns true if this box contains another box.
+	 * 
+	 * @param box
+	 *            Box
+	 * @return true if the box is inside this box
+	 */
+	public boolean contains(AABB box) {
+		return minX <= box.minX && box.maxX <= maxX && minY <= box.minY && box.maxY <= maxY
+				&& minZ <= box.minZ && box.maxZ <= maxZ;
+	}
+
+	/**
+	 * Transforms this box with a matrix.<br>
+	 * The result is the smallest axis-aligned box that contains the
+	 * transformed box. It is computed from the center and the half size with
+	 * the absolute values of the matrix (Arvo's method), which is equivalent
+	 * to transforming the 8 corners. The matrix must be affine.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Transformed box
+	 */
+	public AABB transform(Matrix matrix) {
+		return this.transform(matrix, new AABB());
+	}
+	/**
+	 * Transforms this box with a matrix.<br>
+	 * The result is written to the destination, which may be this box.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABB transform(Matrix matrix, AABB dst) {
+		if (this.isEmpty()) {
+			dst.setEmpty();
+			return dst;
+		}
+
+		double[] m = matrix.m;
+		double cx = (minX + maxX) * 0.5;
+		double cy = (minY + maxY) * 0.5;
+		double cz = (minZ + maxZ) * 0.5;
+		double ex = (maxX - minX) * 0.5;
+		double ey = (maxY - minY) * 0.5;
+		double ez = (maxZ - minZ) * 0.5;
+
+		double ncx = m[0] * cx + m[1] * cy + m[2] * cz + m[3];
+		double ncy = m[4] * cx + m[5] * cy + m[6] * cz + m[7];
+		double ncz = m[8] * cx + m[9] * cy + m[10] * cz + m[11];
+		double nex = Math.abs(m[0]) * ex + Math.abs(m[1]) * ey + Math.abs(m[2]) * ez;
+		double ney = Math.abs(m[4]) * ex + Math.abs(m[5]) * ey + Math.abs(m[6]) * ez;
+		double nez = Math.abs(m[8]) * ex + Math.abs(m[9]) * ey + Math.abs(m[10]) * ez;
+
+		dst.set(ncx - nex, ncy - ney, ncz - nez, ncx + nex, ncy + ney, ncz + nez);
+
+		return dst;
+	}
+	/**
+	 * Transforms this box with a matrix in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This box
+	 */
+	public AABB transformInPlace(Matrix matrix) {
+		return this.transform(matrix, this);
+	}
+}
@@ -0,0 +1,425 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Batch of axis-aligned bounding boxes<br>
+ * The minimum and maximum of each axis are stored in separate arrays
+ * (structure of arrays), so that tens of thousands of boxes can be refitted
+ * without creating AABB instances.<br>
+ * Results agree with the corresponding methods of AABB applied to each
+ * element.
+ * 
+ * @author Daba
+ *
+ */
+public class AABBBatch {
+	final double[] minX;
+	final double[] minY;
+	final double[] minZ;
+	final double[] maxX;
+	final double[] maxY;
+	final double[] maxZ;
+	private final int size;
+
+	/**
+	 * Creates a batch of the size specified.<br>
+	 * All boxes are empty.
+	 * 
+	 * @param size
+	 *            Number of boxes
+	 */
+	public AABBBatch(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Size must not be negative: " + size);
+		}
+
+		minX = new double[size];
+		minY = new double[size];
+		minZ = new double[size];
+		maxX = new double[size];
+		maxY = new double[size];
+		maxZ = new double[size];
+		this.size = size;
+
+		for (int i = 0; i < size; i++) {
+			this.setEmpty(i);
+		}
+	}
+	/**
+	 * Creates a batch that wraps the arrays specified.<br>
+	 * The arrays are not copied, so changes made to them are visible in this
+	 * batch.
+	 * 
+	 * @param minX
+	 *            Minimum X
+	 * @param minY
+	 *            Minimum Y
+	 * @param minZ
+	 *            Minimum Z
+	 * @param maxX
+	 *            Maximum X
+	 * @param maxY
+	 *            Maximum Y
+	 * @param maxZ
+	 *            Maximum Z
+	 */
+	public AABBBatch(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY,
+			double[] maxZ) {
+		int length = minX.length;
+		if (minY.length != length || minZ.length != length || maxX.length != length
+				|| maxY.length != length || maxZ.length != length) {
+			throw new IllegalArgumentException("Arrays must have the same length");
+		}
+
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+		size = length;
+	}
+	/**
+	 * Creates a batch from AABB instances.
+	 * 
+	 * @param boxes
+	 *            AABB instances
+	 */
+	public AABBBatch(AABB[] boxes) {
+		this(boxes.length);
+
+		for (int i = 0; i < size; i++) {
+			this.set(i, boxes[i]);
+		}
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		for (int i = 0; i < size; i++) {
+			sb.append(this.get(i));
+			sb.append("\n");
+		}
+
+		if (size != 0) {
+			sb.setLength(sb.length() - 1);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the number of boxes in this batch.
+	 * 
+	 * @return Size
+	 */
+	public int size() {
+		return size;
+	}
+
+	public double[] getMinXArray() {
+		return minX;
+	}
+	public double[] getMinYArray() {
+		return minY;
+	}
+	public double[] getMinZArray() {
+		return minZ;
+	}
+	public double[] getMaxXArray() {
+		return maxX;
+	}
+	public double[] getMaxYArray() {
+		return maxY;
+	}
+	public double[] getMaxZArray() {
+		return maxZ;
+	}
+
+	/**
+	 * Returns a box in this batch.
+	 * 
+	 * @param index
+	 *            Index
+	 * @return Box
+	 */
+	public AABB get(int index) {
+		return this.get(index, new AABB());
+	}
+	/**
+	 * Returns a box in this batch.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABB get(int index, AABB dst) {
+		dst.set(minX[index], minY[index], minZ[index], maxX[index], maxY[index], maxZ[index]);
+		return dst;
+	}
+	public void set(int index, double minX, double minY, double minZ, double maxX,
+			double maxY, double maxZ) {
+		this.minX[index] = minX;
+		this.minY[index] = minY;
+		this.minZ[index] = minZ;
+		this.maxX[index] = maxX;
+		this.maxY[index] = maxY;
+		this.maxZ[index] = maxZ;
+	}
+	public void set(int index, AABB box) {
+		this.set(index, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+	}
+	/**
+	 * Makes a box in this batch empty.
+	 * 
+	 * @param index
+	 *            Index
+	 */
+	public void setEmpty(int index) {
+		this.set(index, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY);
+	}
+
+	private void checkSize(AABBBatch batch) {
+		if (batch.size != size) {
+			throw new IllegalArgumentException(
+					"Size mismatch: " + size + " and " + batch.size);
+		}
+	}
+
+	/**
+	 * Returns the box that contains all of the boxes in this batch.
+	 * 
+	 * @return Box (empty if this batch is empty)
+	 */
+	public AABB getBounds() {
+		return this.getBounds(new AABB());
+	}
+	/**
+	 * Returns the box that contains all of the boxes in this batch.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABB getBounds(AABB dst) {
+		double x0 = Double.POSITIVE_INFINITY;
+		double y0 = Double.POSITIVE_INFINITY;
+		double z0 = Double.POSITIVE_INFINITY;
+		double x1 = Double.NEGATIVE_INFINITY;
+		double y1 = Double.NEGATIVE_INFINITY;
+		double z1 = Double.NEGATIVE_INFINITY;
+
+		for (int i = 0; i < size; i++) {
+			x0 = Math.min(x0, minX[i]);
+			y0 = Math.min(y0, minY[i]);
+			z0 = Math.min(z0, minZ[i]);
+			x1 = Math.max(x1, maxX[i]);
+			y1 = Math.max(y1, maxY[i]);
+			z1 = Math.max(z1, maxZ[i]);
+		}
+
+		dst.set(x0, y0, z0, x1, y1, z1);
+
+		return dst;
+	}
+
+	/**
+	 * Union of the boxes with the same index
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @return Batch
+	 */
+	public AABBBatch union(AABBBatch batch) {
+		return this.union(batch, new AABBBatch(size));
+	}
+	/**
+	 * Union of the boxes with the same index<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABBBatch union(AABBBatch batch, AABBBatch dst) {
+		this.checkSize(batch);
+		this.checkSize(dst);
+
+		for (int i = 0; i < size; i++) {
+			dst.minX[i] = Math.min(minX[i], batch.minX[i]);
+			dst.minY[i] = Math.min(minY[i], batch.minY[i]);
+			dst.minZ[i] = Math.min(minZ[i], batch.minZ[i]);
+			dst.maxX[i] = Math.max(maxX[i], batch.maxX[i]);
+			dst.maxY[i] = Math.max(maxY[i], batch.maxY[i]);
+			dst.maxZ[i] = Math.max(maxZ[i], batch.maxZ[i]);
+		}
+
+		return dst;
+	}
+	/**
+	 * Expands the boxes in this batch to contain the boxes of another batch in
+	 * place.
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @return This batch
+	 */
+	public AABBBatch unionInPlace(AABBBatch batch) {
+		return this.union(batch, this);
+	}
+
+	/**
+	 * Transforms the boxes in this batch with a matrix.<br>
+	 * Each result is computed in the same way as
+	 * {@link AABB#transform(Matrix, AABB)}. The matrix must be affine.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Transformed boxes
+	 */
+	public AABBBatch transform(Matrix matrix) {
+		return this.transform(matrix, new AABBBatch(size));
+	}
+	/**
+	 * Transforms the boxes in this batch with a matrix.<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABBBatch transform(Matrix matrix, AABBBatch dst) {
+		this.checkSize(dst);
+		this.transform(matrix.m, dst, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Transforms the boxes in this batch with a matrix in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This batch
+	 */
+	public AABBBatch transformInPlace(Matrix matrix) {
+		return this.transform(matrix, this);
+	}
+	/**
+	 * Transforms the boxes in this batch with a matrix in parallel.<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 */
+	public AABBBatch transform(Matrix matrix, AABBBatch dst, ParallelConfig config) {
+		this.checkSize(dst);
+
+		double[] m = matrix.m;
+		config.run(size, (from, to) -> this.transform(m, dst, from, to));
+
+		return dst;
+	}
+	/**
+	 * Transforms each box in this batch with the matrix of the same index.<br>
+	 * This is the typical refit of local bounds with world matrices. The
+	 * result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrices
+	 *            Matrices
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABBBatch transform(Matrix[] matrices, AABBBatch dst) {
+		this.checkSize(matrices);
+		this.checkSize(dst);
+		this.transform(matrices, dst, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Transforms each box in this batch with the matrix of the same index in
+	 * parallel.<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrices
+	 *            Matrices
+	 * @param dst
+	 *            Destination
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 */
+	public AABBBatch transform(Matrix[] matrices, AABBBatch dst, ParallelConfig config) {
+		this.checkSize(matrices);
+		this.checkSize(dst);
+		config.run(size, (from, to) -> this.transform(matrices, dst, from, to));
+
+		return dst;
+	}
+
+	private void checkSize(Matrix[] matrices) {
+		if (matrices.length != size) {
+			throw new IllegalArgumentException(
+					"Size mismatch: " + size + " and " + matrices.length);
+		}
+	}
+
+	private void transform(Matrix[] matrices, AABBBatch dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			this.transform(matrices[i].m, dst, i, i + 1);
+		}
+	}
+	private void transform(double[] m, AABBBatch dst, int from, int to) {
+		double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+		double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+		double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+		double a00 = Math.abs(m00), a01 = Math.abs(m01), a02 = Math.abs(m02);
+		double a10 = Math.abs(m10), a11 = Math.abs(m11), a12 = Math.abs(m12);
+		double a20 = Math.abs(m20), a21 = Math.abs(m21), a22 = Math.abs(m22);
+
+		for (int i = from; i < to; i++) {
+			double x0 = minX[i], y0 = minY[i], z0 = minZ[i];
+			double x1 = maxX[i], y1 = maxY[i], z1 = maxZ[i];
+			if (x0 > x1 || y0 > y1 || z0 > z1) {
+				dst.setEmpty(i);
+				continue;
+			}
+
+			double cx = (x0 + x1) * 0.5;
+			double cy = (y0 + y1) * 0.5;
+			double cz = (z0 + z1) * 0.5;
+			double ex = (x1 - x0) * 0.5;
+			double ey = (y1 - y0) * 0.5;
+			double ez = (z1 - z0) * 0.5;
+
+			double ncx = m00 * cx + m01 * cy + m02 * cz + m03;
+			double ncy = m10 * cx + m11 * cy + m12 * cz + m13;
+			double ncz = m20 * cx + m21 * cy + m22 * cz + m23;
+			double nex = a00 * ex + a01 * ey + a02 * ez;
+			double ney = a10 * ex + a11 * ey + a12 * ez;
+			double nez = a20 * ex + a21 * ey + a22 * ez;
+
+			dst.minX[i] = ncx - nex;
+			dst.minY[i] = ncy - ney;
+			dst.minZ[i] = ncz - nez;
+			dst.maxX[i] = ncx + nex;
+			dst.maxY[i] = ncy + ney;
+			dst.maxZ[i] = ncz + nez;
+		}
+	}
+}
@@ -0,0 +1,679 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Bounding volume hierarchy over triangles or boxes<br>
+ * The tree is built with the binned surface area heuristic and stored in
+ * flat arrays in depth-first order. The left child of an inner node follows
+ * it directly, and every node keeps the index of the node after its subtree,
+ * so queries walk the array without a stack and never allocate. Queries are
+ * thread-safe as long as the tree is not rebuilt or refitted at the same
+ * time.<br>
+ * Triangle vertices and boxes are held by reference. After moving them,
+ * {@link #refit()} updates the node bounds without changing the topology,
+ * and {@link #build()} rebuilds the tree when the primitives have moved a
+ * lot.
+ * 
+ * @author Daba
+ *
+ */
+public class BVH {
+	/**
+	 * Number of bins per axis evaluated for each split
+	 */
+	static final int BIN_COUNT = 16;
+	/**
+	 * Maximum number of primitives in a leaf unless they cannot be split
+	 */
+	static final int MAX_LEAF_SIZE = 4;
+	/**
+	 * Cost of visiting a node relative to testing a primitive
+	 */
+	private static final double TRAVERSAL_COST = 1.0;
+
+	private final TriangleBatch triangles;
+	private final AABBBatch boxes;
+	private final int primitiveCount;
+
+	private final AABBBatch primitiveBounds;
+	private final int[] primitives;
+
+	private final AABBBatch nodeBounds;
+	private final int[] firsts;
+	private final int[] counts;
+	private final int[] skips;
+	private int nodeCount;
+
+	private BVH(TriangleBatch triangles, AABBBatch boxes, int count) {
+		this.triangles = triangles;
+		this.boxes = boxes;
+		primitiveCount = count;
+
+		primitiveBounds = new AABBBatch(count);
+		primitives = new int[count];
+
+		int capacity = Math.max(count * 2 - 1, 0);
+		nodeBounds = new AABBBatch(capacity);
+		firsts = new int[capacity];
+		counts = new int[capacity];
+		skips = new int[capacity];
+
+		this.build();
+	}
+
+	/**
+	 * Builds a tree over triangles.<br>
+	 * The batches are not copied. Triangle i consists of the i-th vectors of
+	 * the batches.
+	 * 
+	 * @param v0
+	 *            First vertices
+	 * @param v1
+	 *            Second vertices
+	 * @param v2
+	 *            Third vertices
+	 * @return Tree
+	 */
+	public static BVH createFromTriangles(VectorBatch v0, VectorBatch v1, VectorBatch v2) {
+		return createFromTriangles(new TriangleBatch(v0, v1, v2));
+	}
+	/**
+	 * Builds a tree over triangles.<br>
+	 * The batch is not copied.
+	 * 
+	 * @param triangles
+	 *            Triangles
+	 * @return Tree
+	 */
+	public static BVH createFromTriangles(TriangleBatch triangles) {
+		return new BVH(triangles, null, triangles.size());
+	}
+	/**
+	 * Builds a tree over an indexed triangle mesh.<br>
+	 * The vertices are copied. Use {@link #setTriangle(int, Vector, Vector,
+	 * Vector)} to move triangles afterward.
+	 * 
+	 * @param vertices
+	 *            Vertices
+	 * @param indices
+	 *            Three vertex indices per triangle
+	 * @return Tree
+	 */
+	public static BVH createFromTriangles(Vector[] vertices, int[] indices) {
+		return createFromTriangles(new TriangleBatch(vertices, indices));
+	}
+	/**
+	 * Builds a tree over boxes.<br>
+	 * The batch is not copied.
+	 * 
+	 * @param boxes
+	 *            Boxes
+	 * @return Tree
+	 */
+	public static BVH createFromBoxes(AABBBatch boxes) {
+		return new BVH(null, boxes, boxes.size());
+	}
+	/**
+	 * Builds a tree over boxes.<br>
+	 * The boxes are copied. Use {@link #setBox(int, AABB)} to move boxes
+	 * afterward.
+	 * 
+	 * @param boxes
+	 *            Boxes
+	 * @return Tree
+	 */
+	public static BVH createFromBoxes(AABB[] boxes) {
+		return createFromBoxes(new AABBBatch(boxes));
+	}
+
+	/**
+	 * Returns the number of primitives.
+	 * 
+	 * @return Number of primitives
+	 */
+	public int size() {
+		return primitiveCount;
+	}
+	/**
+	 * Returns the number of nodes.
+	 * 
+	 * @return Number of nodes
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+	/**
+	 * Returns true if the primitives are triangles.
+	 * 
+	 * @return true for triangles, false for boxes
+	 */
+	public boolean isTriangles() {
+		return boxes == null;
+	}
+	/**
+	 * Returns the box that contains all of the primitives.
+	 * 
+	 * @return Box (empty if there are no primitives)
+	 */
+	public AABB getBounds() {
+		if (nodeCount == 0) {
+			return new AABB();
+		}
+
+		return nodeBounds.get(0);
+	}
+
+	/**
+	 * Moves a triangle.<br>
+	 * Call {@link #refit()} or {@link #build()} after moving primitives.
+	 * 
+	 * @param index
+	 *            Triangle index
+	 * @param p0
+	 *            First vertex
+	 * @param p1
+	 *            Second vertex
+	 * @param p2
+	 *            Third vertex
+	 */
+	public void setTriangle(int index, Vector p0, Vector p1, Vector p2) {
+		if (!this.isTriangles()) {
+			throw new IllegalStateException("This tree is built over boxes");
+		}
+
+		triangles.set(index, p0, p1, p2);
+	}
+	/**
+	 * Moves a box.<br>
+	 * Call {@link #refit()} or {@link #build()} after moving primitives.
+	 * 
+	 * @param index
+	 *            Box index
+	 * @param box
+	 *            Box
+	 */
+	public void setBox(int index, AABB box) {
+		if (this.isTriangles()) {
+			throw new IllegalStateException("This tree is built over triangles");
+		}
+
+		boxes.set(index, box);
+	}
+
+	private void updatePrimitiveBounds() {
+		var b = primitiveBounds;
+
+		if (!this.isTriangles()) {
+			System.arraycopy(boxes.minX, 0, b.minX, 0, primitiveCount);
+			System.arraycopy(boxes.minY, 0, b.minY, 0, primitiveCount);
+			System.arraycopy(boxes.minZ, 0, b.minZ, 0, primitiveCount);
+			System.arraycopy(boxes.maxX, 0, b.maxX, 0, primitiveCount);
+			System.arraycopy(boxes.maxY, 0, b.maxY, 0, primitiveCount);
+			System.arraycopy(boxes.maxZ, 0, b.maxZ, 0, primitiveCount);
+			return;
+		}
+
+		var box = new AABB();
+		for (int i = 0; i < primitiveCount; i++) {
+			b.set(i, triangles.getBounds(i, box));
+		}
+	}
+	private void computeLeafBounds(int node) {
+		var b = primitiveBounds;
+		double x0 = Double.POSITIVE_INFINITY;
+		double y0 = Double.POSITIVE_INFINITY;
+		double z0 = Double.POSITIVE_INFINITY;
+		double x1 = Double.NEGATIVE_INFINITY;
+		double y1 = Double.NEGATIVE_INFINITY;
+		double z1 = Double.NEGATIVE_INFINITY;
+
+		int end = firsts[node] + counts[node];
+		for (int i = firsts[node]; i < end; i++) {
+			int p = primitives[i];
+			x0 = Math.min(x0, b.minX[p]);
+			y0 = Math.min(y0, b.minY[p]);
+			z0 = Math.min(z0, b.minZ[p]);
+			x1 = Math.max(x1, b.maxX[p]);
+			y1 = Math.max(y1, b.maxY[p]);
+			z1 = Math.max(z1, b.maxZ[p]);
+		}
+
+		nodeBounds.set(node, x0, y0, z0, x1, y1, z1);
+	}
+	private static double getHalfArea(double dx, double dy, double dz) {
+		return dx * dy + dy * dz + dz * dx;
+	}
+
+	/**
+	 * Rebuilds the tree from the current primitives.
+	 */
+	public void build() {
+		this.updatePrimitiveBounds();
+		nodeCount = 0;
+		if (primitiveCount == 0) {
+			return;
+		}
+
+		var b = primitiveBounds;
+		var centers = new double[3][primitiveCount];
+		for (int i = 0; i < primitiveCount; i++) {
+			primitives[i] = i;
+			centers[0][i] = (b.minX[i] + b.maxX[i]) * 0.5;
+			centers[1][i] = (b.minY[i] + b.maxY[i]) * 0.5;
+			centers[2][i] = (b.minZ[i] + b.maxZ[i]) * 0.5;
+		}
+
+		var bins = new AABBBatch(BIN_COUNT);
+		var binCounts = new int[BIN_COUNT];
+		var rightCosts = new double[BIN_COUNT];
+		var cmin = new double[3];
+		var cmax = new double[3];
+		var box = new AABB();
+		var bin = new AABB();
+
+		// Ranges waiting to be built. Pushing the right half first makes
+		// the nodes come out in depth-first order.
+		var starts = new int[primitiveCount];
+		var ends = new int[primitiveCount];
+		int top = 0;
+		starts[top] = 0;
+		ends[top] = primitiveCount;
+		top++;
+
+		while (top > 0) {
+			top--;
+			int start = starts[top];
+			int end = ends[top];
+			int node = nodeCount++;
+
+			firsts[node] = start;
+			counts[node] = end - start;
+			this.computeLeafBounds(node);
+
+			int count = end - start;
+			if (count == 1) {
+				continue;
+			}
+
+			cmin[0] = cmin[1] = cmin[2] = Double.POSITIVE_INFINITY;
+			cmax[0] = cmax[1] = cmax[2] = Double.NEGATIVE_INFINITY;
+			for (int i = start; i < end; i++) {
+				int p = primitives[i];
+				for (int a = 0; a < 3; a++) {
+					cmin[a] = Math.min(cmin[a], centers[a][p]);
+					cmax[a] = Math.max(cmax[a], centers[a][p]);
+				}
+			}
+
+			int bestAxis = -1;
+			int bestBin = 0;
+			double bestCost = Double.POSITIVE_INFINITY;
+			for (int a = 0; a < 3; a++) {
+				double extent = cmax[a] - cmin[a];
+				if (!(extent > 0.0)) {
+					continue;
+				}
+
+				double scale = BIN_COUNT / extent;
+				for (int k = 0; k < BIN_COUNT; k++) {
+					bins.setEmpty(k);
+					binCounts[k] = 0;
+				}
+				for (int i = start; i < end; i++) {
+					int p = primitives[i];
+					int k = Math.min((int) ((centers[a][p] - cmin[a]) * scale), BIN_COUNT - 1);
+					binCounts[k]++;
+					bins.minX[k] = Math.min(bins.minX[k], b.minX[p]);
+					bins.minY[k] = Math.min(bins.minY[k], b.minY[p]);
+					bins.minZ[k] = Math.min(bins.minZ[k], b.minZ[p]);
+					bins.maxX[k] = Math.max(bins.maxX[k], b.maxX[p]);
+					bins.maxY[k] = Math.max(bins.maxY[k], b.maxY[p]);
+					bins.maxZ[k] = Math.max(bins.maxZ[k], b.maxZ[p]);
+				}
+
+				// Sweep from the right to get the cost of everything right of
+				// each split, then from the left to combine both sides.
+				box.setEmpty();
+				int rightCount = 0;
+				for (int k = BIN_COUNT - 1; k > 0; k--) {
+					box.unionInPlace(bins.get(k, bin));
+					rightCount += binCounts[k];
+					rightCosts[k] = rightCount == 0
+							? 0.0
+							: rightCount * getHalfArea(box.maxX - box.minX, box.maxY - box.minY,
+									box.maxZ - box.minZ);
+				}
+
+				box.setEmpty();
+				int leftCount = 0;
+				for (int k = 1; k < BIN_COUNT; k++) {
+					box.unionInPlace(bins.get(k - 1, bin));
+					leftCount += binCounts[k - 1];
+					if (leftCount == 0 || leftCount == count) {
+						continue;
+					}
+
+					double cost = leftCount
+							* getHalfArea(box.maxX - box.minX, box.maxY - box.minY,
+									box.maxZ - box.minZ)
+							+ rightCosts[k];
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAxis = a;
+						bestBin = k;
+					}
+				}
+			}
+
+			if (bestAxis < 0) {
+				// All centers coincide, so there is nothing to split.
+				continue;
+			}
+
+			double area = getHalfArea(nodeBounds.maxX[node] - nodeBounds.minX[node],
+					nodeBounds.maxY[node] - nodeBounds.minY[node],
+					nodeBounds.maxZ[node] - nodeBounds.minZ[node]);
+			if (count <= MAX_LEAF_SIZE && TRAVERSAL_COST * area + bestCost >= count * area) {
+				continue;
+			}
+
+			double[] c = centers[bestAxis];
+			double scale = BIN_COUNT / (cmax[bestAxis] - cmin[bestAxis]);
+			int i = start;
+			int j = end - 1;
+			while (i <= j) {
+				int k = Math.min((int) ((c[primitives[i]] - cmin[bestAxis]) * scale),
+						BIN_COUNT - 1);
+				if (k < bestBin) {
+					i++;
+				} else {
+					int tmp = primitives[i];
+					primitives[i] = primitives[j];
+					primitives[j] = tmp;
+					j--;
+				}
+			}
+
+			counts[node] = 0;
+			starts[top] = i;
+			ends[top] = end;
+			top++;
+			starts[top] = start;
+			ends[top] = i;
+			top++;
+		}
+
+		for (int node = nodeCount - 1; node >= 0; node--) {
+			skips[node] = counts[node] != 0 ? node + 1 : skips[skips[node + 1]];
+		}
+	}
+	/**
+	 * Updates the node bounds from the current primitives without changing
+	 * the topology.<br>
+	 * This is much faster than {@link #build()}, but the tree becomes less
+	 * efficient as the primitives move away from where they were when it was
+	 * built.
+	 */
+	public void refit() {
+		this.updatePrimitiveBounds();
+
+		var b = nodeBounds;
+		for (int node = nodeCount - 1; node >= 0; node--) {
+			if (counts[node] != 0) {
+				this.computeLeafBounds(node);
+				continue;
+			}
+
+			int l = node + 1;
+			int r = skips[l];
+			b.minX[node] = Math.min(b.minX[l], b.minX[r]);
+			b.minY[node] = Math.min(b.minY[l], b.minY[r]);
+			b.minZ[node] = Math.min(b.minZ[l], b.minZ[r]);
+			b.maxX[node] = Math.max(b.maxX[l], b.maxX[r]);
+			b.maxY[node] = Math.max(b.maxY[l], b.maxY[r]);
+			b.maxZ[node] = Math.max(b.maxZ[l], b.maxZ[r]);
+		}
+	}
+
+	/**
+	 * Finds the closest primitive hit by a ray.<br>
+	 * Only hits at distances in [0, maxDistance] are reported. The distance
+	 * is in units of the direction, which does not need to be normalized.
+	 * Triangles are hit from both sides.
+	 * 
+	 * @param origin
+	 *            Origin
+	 * @param direction
+	 *            Direction
+	 * @param maxDistance
+	 *            Maximum distance
+	 * @param dst
+	 *            Destination of the result
+	 * @return true if something was hit
+	 */
+	public boolean intersectRay(Vector origin, Vector direction, double maxDistance,
+			RayHit dst) {
+		return this.intersectRay(origin.v[0], origin.v[1], origin.v[2], direction.v[0],
+				direction.v[1], direction.v[2], maxDistance, dst);
+	}
+	/**
+	 * Finds the closest primitive hit by a ray.
+	 * 
+	 * @param ox
+	 *            X of the origin
+	 * @param oy
+	 *            Y of the origin
+	 * @param oz
+	 *            Z of the origin
+	 * @param dx
+	 *            X of the direction
+	 * @param dy
+	 *            Y of the direction
+	 * @param dz
+	 *            Z of the direction
+	 * @param maxDistance
+	 *            Maximum distance
+	 * @param dst
+	 *            Destination of the result
+	 * @return true if something was hit
+	 * @see #intersectRay(Vector, Vector, double, RayHit)
+	 */
+	public boolean intersectRay(double ox, double oy, double oz, double dx, double dy,
+			double dz, double maxDistance, RayHit dst) {
+		dst.clear(maxDistance);
+
+		return this.traverse(ox, oy, oz, dx, dy, dz, maxDistance, dst);
+	}
+	/**
+	 * Returns true if a ray hits any primitive.<br>
+	 * This stops at the first hit found, so it is faster than
+	 * {@link #intersectRay(Vector, Vector, double, RayHit)} for shadow and
+	 * visibility tests.
+	 * 
+	 * @param origin
+	 *            Origin
+	 * @param direction
+	 *            Direction
+	 * @param maxDistance
+	 *            Maximum distance
+	 * @return true if something was hit
+	 */
+	public boolean intersectsRay(Vector origin, Vector direction, double maxDistance) {
+		return this.intersectsRay(origin.v[0], origin.v[1], origin.v[2], direction.v[0],
+				direction.v[1], direction.v[2], maxDistance);
+	}
+	/**
+	 * Returns true if a ray hits any primitive.
+	 * 
+	 * @param ox
+	 *            X of the origin
+	 * @param oy
+	 *            Y of the origin
+	 * @param oz
+	 *            Z of the origin
+	 * @param dx
+	 *            X of the direction
+	 * @param dy
+	 *            Y of the direction
+	 * @param dz
+	 *            Z of the direction
+	 * @param maxDistance
+	 *            Maximum distance
+	 * @return true if something was hit
+	 * @see #intersectsRay(Vector, Vector, double)
+	 */
+	public boolean intersectsRay(double ox, double oy, double oz, double dx, double dy,
+			double dz, double maxDistance) {
+		return this.traverse(ox, oy, oz, dx, dy, dz, maxDistance, null);
+	}
+	/**
+	 * Walks the nodes hit by a ray.<br>
+	 * Without a destination, this returns at the first hit.
+	 */
+	private boolean traverse(double ox, double oy, double oz, double dx, double dy, double dz,
+			double maxDistance, RayHit hit) {
+		double ix = 1.0 / dx;
+		double iy = 1.0 / dy;
+		double iz = 1.0 / dz;
+		var b = nodeBounds;
+		double tMax = maxDistance;
+		boolean found = false;
+
+		int node = 0;
+		while (node < nodeCount) {
+			double tx0 = (b.minX[node] - ox) * ix;
+			double tx1 = (b.maxX[node] - ox) * ix;
+			double ty0 = (b.minY[node] - oy) * iy;
+			double ty1 = (b.maxY[node] - oy) * iy;
+			double tz0 = (b.minZ[node] - oz) * iz;
+			double tz1 = (b.maxZ[node] - oz) * iz;
+			double tNear = Math.max(Math.max(slabNear(tx0, tx1), slabNear(ty0, ty1)),
+					Math.max(slabNear(tz0, tz1), 0.0));
+			double tFar = Math.min(Math.min(slabFar(tx0, tx1), slabFar(ty0, ty1)),
+					Math.min(slabFar(tz0, tz1), tMax));
+
+			if (tNear > tFar) {
+				node = skips[node];
+				continue;
+			}
+			if (counts[node] == 0) {
+				node++;
+				continue;
+			}
+
+			int end = firsts[node] + counts[node];
+			for (int i = firsts[node]; i < end; i++) {
+				int p = primitives[i];
+				double t = this.isTriangles()
+						? triangles.intersect(p, ox, oy, oz, dx, dy, dz, tMax, hit)
+						: this.intersectBox(p, ox, oy, oz, ix, iy, iz, tMax, hit);
+				if (t >= 0.0) {
+					if (hit == null) {
+						return true;
+					}
+
+					tMax = t;
+					found = true;
+				}
+			}
+
+			node = skips[node];
+		}
+
+		return found;
+	}
+	/**
+	 * Returns where a ray enters a slab from the distances to its planes.<br>
+	 * A distance is NaN (0 * infinity) when the ray is parallel to the slab
+	 * and starts on one of its planes. Such a ray lies within the slab, so the
+	 * slab does not limit it.
+	 */
+	private static double slabNear(double t0, double t1) {
+		double t = Math.min(t0, t1);
+		return t == t ? t : Double.NEGATIVE_INFINITY;
+	}
+	/**
+	 * Returns where a ray leaves a slab from the distances to its planes.
+	 * 
+	 * @see #slabNear(double, double)
+	 */
+	private static double slabFar(double t0, double t1) {
+		double t = Math.max(t0, t1);
+		return t == t ? t : Double.POSITIVE_INFINITY;
+	}
+	private double intersectBox(int p, double ox, double oy, double oz, double ix, double iy,
+			double iz, double tMax, RayHit hit) {
+		var b = primitiveBounds;
+		double tx0 = (b.minX[p] - ox) * ix;
+		double tx1 = (b.maxX[p] - ox) * ix;
+		double ty0 = (b.minY[p] - oy) * iy;
+		double ty1 = (b.maxY[p] - oy) * iy;
+		double tz0 = (b.minZ[p] - oz) * iz;
+		double tz1 = (b.maxZ[p] - oz) * iz;
+		double tNear = Math.max(Math.max(slabNear(tx0, tx1), slabNear(ty0, ty1)),
+				Math.max(slabNear(tz0, tz1), 0.0));
+		double tFar = Math.min(Math.min(slabFar(tx0, tx1), slabFar(ty0, ty1)),
+				Math.min(slabFar(tz0, tz1), tMax));
+		if (tNear > tFar) {
+			return -1.0;
+		}
+
+		if (hit != null) {
+			hit.distance = tNear;
+			hit.primitive = p;
+			hit.u = 0.0;
+			hit.v = 0.0;
+		}
+
+		return tNear;
+	}
+
+	/**
+	 * Finds the primitives whose bounds overlap a box.<br>
+	 * Indices are written to the destination as long as it has room. The
+	 * return value is the total number found, so a return value larger than
+	 * the length of the destination means that the query should be repeated
+	 * with a larger array.
+	 * 
+	 * @param box
+	 *            Box
+	 * @param dst
+	 *            Destination of the primitive indices
+	 * @return Number of primitives found
+	 */
+	public int overlap(AABB box, int[] dst) {
+		var b = nodeBounds;
+		var pb = primitiveBounds;
+		int found = 0;
+
+		int node = 0;
+		while (node < nodeCount) {
+			if (b.minX[node] > box.maxX || box.minX > b.maxX[node] || b.minY[node] > box.maxY
+					|| box.minY > b.maxY[node] || b.minZ[node] > box.maxZ
+					|| box.minZ > b.maxZ[node]) {
+				node = skips[node];
+				continue;
+			}
+			if (counts[node] == 0) {
+				node++;
+				continue;
+			}
+
+			int end = firsts[node] + counts[node];
+			for (int i = firsts[node]; i < end; i++) {
+				int p = primitives[i];
+				if (pb.minX[p] <= box.maxX && box.minX <= pb.maxX[p] && pb.minY[p] <= box.maxY
+						&& box.minY <= pb.maxY[p] && pb.minZ[p] <= box.maxZ
+						&& box.minZ <= pb.maxZ[p]) {
+					if (found < dst.length) {
+						dst[found] = p;
+					}
+					found++;
+				}
+			}
+
+			node = skips[node];
+		}
+
+		return found;
+	}
+}
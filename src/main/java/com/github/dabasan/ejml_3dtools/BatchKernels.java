@@ -0,0 +1,111 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Kernels behind the batch operations<br>
+ * This class holds the scalar implementation. On JDK 17 or later, the
+ * multi-release jar also contains {@code SimdBatchKernels}, which overrides
+ * the kernels with the Vector API. It is used when the
+ * {@code jdk.incubator.vector} module is available and the system property
+ * {@value #SIMD_PROPERTY} is not set to false.<br>
+ * Both implementations evaluate the same expressions in the same order, so
+ * their results are identical.
+ * 
+ * @author Daba
+ *
+ */
+class BatchKernels {
+	/**
+	 * System property that disables the SIMD kernels when set to false
+	 */
+	static final String SIMD_PROPERTY = "ejml_3dtools.simd";
+
+	/**
+	 * Kernels selected when this class is loaded
+	 */
+	static final BatchKernels INSTANCE = load();
+
+	private static BatchKernels load() {
+		if (!Boolean.parseBoolean(System.getProperty(SIMD_PROPERTY, "true"))) {
+			return new BatchKernels();
+		}
+
+		try {
+			Class<?> c = Class.forName(BatchKernels.class.getPackageName() + ".SimdBatchKernels");
+			return (BatchKernels) c.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new BatchKernels();
+		}
+	}
+
+	void normalize(double[] x, double[] y, double[] z, double[] dx, double[] dy, double[] dz,
+			int from, int to) {
+		for (int i = from; i < to; i++) {
+			double vx = x[i];
+			double vy = y[i];
+			double vz = z[i];
+			double size = Math.sqrt(vx * vx + vy * vy + vz * vz);
+
+			dx[i] = vx / size;
+			dy[i] = vy / size;
+			dz[i] = vz / size;
+		}
+	}
+	void dot(double[] ax, double[] ay, double[] az, double[] bx, double[] by, double[] bz,
+			double[] dst, int from, int to) {
+		for (int i = from; i < to; i++) {
+			dst[i] = ax[i] * bx[i] + ay[i] * by[i] + az[i] * bz[i];
+		}
+	}
+	void transform(double[] m, double[] x, double[] y, double[] z, double[] dx, double[] dy,
+			double[] dz, int from, int to) {
+		double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+		double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+		double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+
+		for (int i = from; i < to; i++) {
+			double vx = x[i];
+			double vy = y[i];
+			double vz = z[i];
+
+			dx[i] = m00 * vx + m01 * vy + m02 * vz + m03;
+			dy[i] = m10 * vx + m11 * vy + m12 * vz + m13;
+			dz[i] = m20 * vx + m21 * vy + m22 * vz + m23;
+		}
+	}
+	void transformSR(double[] m, double[] x, double[] y, double[] z, double[] dx, double[] dy,
+			double[] dz, int from, int to) {
+		double m00 = m[0], m01 = m[1], m02 = m[2];
+		double m10 = m[4], m11 = m[5], m12 = m[6];
+		double m20 = m[8], m21 = m[9], m22 = m[10];
+
+		for (int i = from; i < to; i++) {
+			double vx = x[i];
+			double vy = y[i];
+			double vz = z[i];
+
+			dx[i] = m00 * vx + m01 * vy + m02 * vz;
+			dy[i] = m10 * vx + m11 * vy + m12 * vz;
+			dz[i] = m20 * vx + m21 * vy + m22 * vz;
+		}
+	}
+	/**
+	 * Multiplies row-major 4x4 matrices element by element of the arrays.<br>
+	 * Each output may be one of its inputs.
+	 * 
+	 * @param a
+	 *            Left-hand sides
+	 * @param b
+	 *            Right-hand sides
+	 * @param c
+	 *            Outputs
+	 * @param from
+	 *            First index (inclusive)
+	 * @param to
+	 *            Last index (exclusive)
+	 */
+	void mult(Matrix[] a, Matrix[] b, Matrix[] c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			Matrix.mult(a[i].m, b[i].m, c[i].m);
+		}
+	}
+}
@@ -0,0 +1,916 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.ejml.data.SingularMatrixException;
+
+/**
+ * Single-precision 4x4 matrix<br>
+ * Counterpart of {@link Matrix} for code that only needs float precision.
+ * Elements are stored in a row-major float array.
+ * 
+ * @author Daba
+ *
+ */
+public class FloatMatrix4 {
+	/**
+	 * Tolerance used by {@link #isRigid()} to test orthonormality
+	 */
+	public static final float RIGID_TOLERANCE = 1.0E-5f;
+
+	final float[] m;
+
+	/**
+	 * All elements are set to 0.
+	 */
+	public FloatMatrix4() {
+		m = new float[16];
+	}
+	/**
+	 * All elements are set to the value specified.
+	 * 
+	 * @param value
+	 *            Value
+	 */
+	public FloatMatrix4(float value) {
+		m = new float[16];
+
+		for (int i = 0; i < 16; i++) {
+			m[i] = value;
+		}
+	}
+	/**
+	 * Creates a matrix from a FloatMatrix4 instance.
+	 * 
+	 * @param mat
+	 *            FloatMatrix4 instance
+	 */
+	public FloatMatrix4(FloatMatrix4 mat) {
+		m = new float[16];
+		System.arraycopy(mat.m, 0, m, 0, 16);
+	}
+	/**
+	 * Creates a matrix from a Matrix instance.<br>
+	 * Each element is rounded to the nearest float.
+	 * 
+	 * @param mat
+	 *            Matrix instance
+	 */
+	public FloatMatrix4(Matrix mat) {
+		m = new float[16];
+		this.set(mat);
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				sb.append(m[i * 4 + j]);
+				sb.append(" ");
+			}
+			sb.append("\n");
+		}
+
+		sb.setLength(sb.length() - 1);
+
+		return sb.toString();
+	}
+
+	private static int index(int row, int col) {
+		if (row < 0 || row >= 4 || col < 0 || col >= 4) {
+			throw new IllegalArgumentException(
+					"Specified element is out of bounds: " + row + " " + col);
+		}
+		return row * 4 + col;
+	}
+
+	public float get(int row, int col) {
+		return m[index(row, col)];
+	}
+
+	public void set(int row, int col, float value) {
+		m[index(row, col)] = value;
+	}
+	public void set(FloatMatrix4 mat) {
+		System.arraycopy(mat.m, 0, m, 0, 16);
+	}
+	/**
+	 * Sets all of the elements from a Matrix instance.<br>
+	 * Each element is rounded to the nearest float.
+	 * 
+	 * @param mat
+	 *            Matrix instance
+	 */
+	public void set(Matrix mat) {
+		for (int i = 0; i < 16; i++) {
+			m[i] = (float) mat.m[i];
+		}
+	}
+
+	/**
+	 * Returns an array containing all of the elements in this matrix.
+	 * 
+	 * @return Array
+	 */
+	public float[] toArray() {
+		var ret = new float[16];
+		System.arraycopy(m, 0, ret, 0, 16);
+
+		return ret;
+	}
+	/**
+	 * Converts this matrix to a double-precision matrix.
+	 * 
+	 * @return Matrix
+	 */
+	public Matrix toMatrix() {
+		return this.toMatrix(new Matrix());
+	}
+	/**
+	 * Converts this matrix to a double-precision matrix.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Matrix toMatrix(Matrix dst) {
+		for (int i = 0; i < 16; i++) {
+			dst.m[i] = m[i];
+		}
+
+		return dst;
+	}
+
+	/**
+	 * Writes the elements of this matrix to a float array.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param offset
+	 *            Index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public float[] toFloatArray(float[] dst, int offset, boolean columnMajor) {
+		if (offset < 0 || offset + 16 > dst.length) {
+			throw new IndexOutOfBoundsException("Not enough space at offset " + offset);
+		}
+
+		if (columnMajor) {
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < 4; j++) {
+					dst[offset + j * 4 + i] = m[i * 4 + j];
+				}
+			}
+		} else {
+			System.arraycopy(m, 0, dst, offset, 16);
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the elements of this matrix to a FloatBuffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public FloatBuffer toFloatBuffer(FloatBuffer dst, int index, boolean columnMajor) {
+		Vector.checkSpace(index, 16, dst.limit());
+
+		if (columnMajor) {
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < 4; j++) {
+					dst.put(index + j * 4 + i, m[i * 4 + j]);
+				}
+			}
+		} else {
+			for (int i = 0; i < 16; i++) {
+				dst.put(index + i, m[i]);
+			}
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the elements of this matrix to a ByteBuffer in the byte order of
+	 * the buffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Byte index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public ByteBuffer toByteBuffer(ByteBuffer dst, int index, boolean columnMajor) {
+		Vector.checkSpace(index, 16 * Float.BYTES, dst.limit());
+
+		if (columnMajor) {
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < 4; j++) {
+					dst.putFloat(index + (j * 4 + i) * Float.BYTES, m[i * 4 + j]);
+				}
+			}
+		} else {
+			for (int i = 0; i < 16; i++) {
+				dst.putFloat(index + i * Float.BYTES, m[i]);
+			}
+		}
+
+		return dst;
+	}
+
+	/**
+	 * Addition
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return Matrix
+	 */
+	public FloatMatrix4 add(FloatMatrix4 mat) {
+		return add(this, mat, new FloatMatrix4());
+	}
+	/**
+	 * Adds a matrix to this matrix in place.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return This matrix
+	 */
+	public FloatMatrix4 addInPlace(FloatMatrix4 mat) {
+		return add(this, mat, this);
+	}
+	/**
+	 * Addition<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param a
+	 *            Matrix
+	 * @param b
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static FloatMatrix4 add(FloatMatrix4 a, FloatMatrix4 b, FloatMatrix4 dst) {
+		for (int i = 0; i < 16; i++) {
+			dst.m[i] = a.m[i] + b.m[i];
+		}
+
+		return dst;
+	}
+	/**
+	 * Subtraction
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return Matrix
+	 */
+	public FloatMatrix4 sub(FloatMatrix4 mat) {
+		return sub(this, mat, new FloatMatrix4());
+	}
+	/**
+	 * Subtracts a matrix from this matrix in place.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return This matrix
+	 */
+	public FloatMatrix4 subInPlace(FloatMatrix4 mat) {
+		return sub(this, mat, this);
+	}
+	/**
+	 * Subtraction<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param a
+	 *            Matrix
+	 * @param b
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static FloatMatrix4 sub(FloatMatrix4 a, FloatMatrix4 b, FloatMatrix4 dst) {
+		for (int i = 0; i < 16; i++) {
+			dst.m[i] = a.m[i] - b.m[i];
+		}
+
+		return dst;
+	}
+	/**
+	 * Multiplication
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return Multiplied matrix
+	 */
+	public FloatMatrix4 mult(FloatMatrix4 mat) {
+		return mult(this, mat, new FloatMatrix4());
+	}
+	/**
+	 * Multiplies this matrix by a matrix in place.<br>
+	 * This matrix is the left-hand side of the multiplication.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return This matrix
+	 */
+	public FloatMatrix4 multInPlace(FloatMatrix4 mat) {
+		return mult(this, mat, this);
+	}
+	/**
+	 * Multiplication<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param a
+	 *            Left-hand side
+	 * @param b
+	 *            Right-hand side
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static FloatMatrix4 mult(FloatMatrix4 a, FloatMatrix4 b, FloatMatrix4 dst) {
+		mult(a.m, b.m, dst.m);
+		return dst;
+	}
+	/**
+	 * Multiplies two row-major 4x4 arrays.<br>
+	 * All elements of the inputs are read before the output is written, so
+	 * the output may be one of the inputs.
+	 * 
+	 * @param a
+	 *            Left-hand side
+	 * @param b
+	 *            Right-hand side
+	 * @param c
+	 *            Output
+	 */
+	static void mult(float[] a, float[] b, float[] c) {
+		float a00 = a[0], a01 = a[1], a02 = a[2], a03 = a[3];
+		float a10 = a[4], a11 = a[5], a12 = a[6], a13 = a[7];
+		float a20 = a[8], a21 = a[9], a22 = a[10], a23 = a[11];
+		float a30 = a[12], a31 = a[13], a32 = a[14], a33 = a[15];
+		float b00 = b[0], b01 = b[1], b02 = b[2], b03 = b[3];
+		float b10 = b[4], b11 = b[5], b12 = b[6], b13 = b[7];
+		float b20 = b[8], b21 = b[9], b22 = b[10], b23 = b[11];
+		float b30 = b[12], b31 = b[13], b32 = b[14], b33 = b[15];
+
+		c[0] = a00 * b00 + a01 * b10 + a02 * b20 + a03 * b30;
+		c[1] = a00 * b01 + a01 * b11 + a02 * b21 + a03 * b31;
+		c[2] = a00 * b02 + a01 * b12 + a02 * b22 + a03 * b32;
+		c[3] = a00 * b03 + a01 * b13 + a02 * b23 + a03 * b33;
+		c[4] = a10 * b00 + a11 * b10 + a12 * b20 + a13 * b30;
+		c[5] = a10 * b01 + a11 * b11 + a12 * b21 + a13 * b31;
+		c[6] = a10 * b02 + a11 * b12 + a12 * b22 + a13 * b32;
+		c[7] = a10 * b03 + a11 * b13 + a12 * b23 + a13 * b33;
+		c[8] = a20 * b00 + a21 * b10 + a22 * b20 + a23 * b30;
+		c[9] = a20 * b01 + a21 * b11 + a22 * b21 + a23 * b31;
+		c[10] = a20 * b02 + a21 * b12 + a22 * b22 + a23 * b32;
+		c[11] = a20 * b03 + a21 * b13 + a22 * b23 + a23 * b33;
+		c[12] = a30 * b00 + a31 * b10 + a32 * b20 + a33 * b30;
+		c[13] = a30 * b01 + a31 * b11 + a32 * b21 + a33 * b31;
+		c[14] = a30 * b02 + a31 * b12 + a32 * b22 + a33 * b32;
+		c[15] = a30 * b03 + a31 * b13 + a32 * b23 + a33 * b33;
+	}
+
+	/**
+	 * Transposes this matrix.
+	 * 
+	 * @return Transposed matrix
+	 */
+	public FloatMatrix4 transpose() {
+		return transpose(this, new FloatMatrix4());
+	}
+	/**
+	 * Transposes this matrix in place.
+	 * 
+	 * @return This matrix
+	 */
+	public FloatMatrix4 transposeInPlace() {
+		return transpose(this, this);
+	}
+	/**
+	 * Transposes a matrix.<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static FloatMatrix4 transpose(FloatMatrix4 mat, FloatMatrix4 dst) {
+		float[] a = mat.m;
+		float[] b = dst.m;
+
+		for (int i = 0; i < 4; i++) {
+			b[i * 5] = a[i * 5];
+			for (int j = i + 1; j < 4; j++) {
+				float upper = a[i * 4 + j];
+				float lower = a[j * 4 + i];
+				b[i * 4 + j] = lower;
+				b[j * 4 + i] = upper;
+			}
+		}
+
+		return dst;
+	}
+	/**
+	 * Inverts this matrix.<br>
+	 * Rigid and affine matrices are detected and inverted with
+	 * {@link #invertRigid()} and {@link #invertAffine()}. Other matrices are
+	 * inverted with the closed-form cofactor expansion.
+	 * 
+	 * @return Inverse matrix
+	 */
+	public FloatMatrix4 invert() {
+		return invert(this, new FloatMatrix4());
+	}
+	/**
+	 * Inverts this matrix in place.
+	 * 
+	 * @return This matrix
+	 */
+	public FloatMatrix4 invertInPlace() {
+		return invert(this, this);
+	}
+	/**
+	 * Inverts a matrix.<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 * @throws SingularMatrixException
+	 *             If the matrix is singular
+	 */
+	public static FloatMatrix4 invert(FloatMatrix4 mat, FloatMatrix4 dst) {
+		if (mat.isRigid()) {
+			return invertRigid(mat, dst);
+		} else if (mat.isAffine()) {
+			return invertAffine(mat, dst);
+		}
+
+		float[] a = mat.m;
+		float a00 = a[0], a01 = a[1], a02 = a[2], a03 = a[3];
+		float a10 = a[4], a11 = a[5], a12 = a[6], a13 = a[7];
+		float a20 = a[8], a21 = a[9], a22 = a[10], a23 = a[11];
+		float a30 = a[12], a31 = a[13], a32 = a[14], a33 = a[15];
+
+		float s0 = a00 * a11 - a10 * a01;
+		float s1 = a00 * a12 - a10 * a02;
+		float s2 = a00 * a13 - a10 * a03;
+		float s3 = a01 * a12 - a11 * a02;
+		float s4 = a01 * a13 - a11 * a03;
+		float s5 = a02 * a13 - a12 * a03;
+		float c5 = a22 * a33 - a32 * a23;
+		float c4 = a21 * a33 - a31 * a23;
+		float c3 = a21 * a32 - a31 * a22;
+		float c2 = a20 * a33 - a30 * a23;
+		float c1 = a20 * a32 - a30 * a22;
+		float c0 = a20 * a31 - a30 * a21;
+
+		float det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+		float invDet = 1.0f / det;
+		if (det == 0.0f || !Float.isFinite(invDet)) {
+			throw new SingularMatrixException();
+		}
+
+		float[] b = dst.m;
+		b[0] = (a11 * c5 - a12 * c4 + a13 * c3) * invDet;
+		b[1] = (-a01 * c5 + a02 * c4 - a03 * c3) * invDet;
+		b[2] = (a31 * s5 - a32 * s4 + a33 * s3) * invDet;
+		b[3] = (-a21 * s5 + a22 * s4 - a23 * s3) * invDet;
+		b[4] = (-a10 * c5 + a12 * c2 - a13 * c1) * invDet;
+		b[5] = (a00 * c5 - a02 * c2 + a03 * c1) * invDet;
+		b[6] = (-a30 * s5 + a32 * s2 - a33 * s1) * invDet;
+		b[7] = (a20 * s5 - a22 * s2 + a23 * s1) * invDet;
+		b[8] = (a10 * c4 - a11 * c2 + a13 * c0) * invDet;
+		b[9] = (-a00 * c4 + a01 * c2 - a03 * c0) * invDet;
+		b[10] = (a30 * s4 - a31 * s2 + a33 * s0) * invDet;
+		b[11] = (-a20 * s4 + a21 * s2 - a23 * s0) * invDet;
+		b[12] = (-a10 * c3 + a11 * c1 - a12 * c0) * invDet;
+		b[13] = (a00 * c3 - a01 * c1 + a02 * c0) * invDet;
+		b[14] = (-a30 * s3 + a31 * s1 - a32 * s0) * invDet;
+		b[15] = (a20 * s3 - a21 * s1 + a22 * s0) * invDet;
+
+		return dst;
+	}
+	/**
+	 * Inverts this matrix assuming it is affine.<br>
+	 * The upper-left 3x3 block and the translation are inverted, and the
+	 * bottom row is set to (0, 0, 0, 1).
+	 * 
+	 * @return Inverse matrix
+	 */
+	public FloatMatrix4 invertAffine() {
+		return invertAffine(this, new FloatMatrix4());
+	}
+	/**
+	 * Inverts a matrix assuming it is affine.<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 * @throws SingularMatrixException
+	 *             If the upper-left 3x3 block is singular
+	 */
+	public static FloatMatrix4 invertAffine(FloatMatrix4 mat, FloatMatrix4 dst) {
+		float[] a = mat.m;
+		float a00 = a[0], a01 = a[1], a02 = a[2], t0 = a[3];
+		float a10 = a[4], a11 = a[5], a12 = a[6], t1 = a[7];
+		float a20 = a[8], a21 = a[9], a22 = a[10], t2 = a[11];
+
+		float c00 = a11 * a22 - a12 * a21;
+		float c01 = a12 * a20 - a10 * a22;
+		float c02 = a10 * a21 - a11 * a20;
+
+		float det = a00 * c00 + a01 * c01 + a02 * c02;
+		float invDet = 1.0f / det;
+		if (det == 0.0f || !Float.isFinite(invDet)) {
+			throw new SingularMatrixException();
+		}
+
+		float b00 = c00 * invDet;
+		float b01 = (a02 * a21 - a01 * a22) * invDet;
+		float b02 = (a01 * a12 - a02 * a11) * invDet;
+		float b10 = c01 * invDet;
+		float b11 = (a00 * a22 - a02 * a20) * invDet;
+		float b12 = (a02 * a10 - a00 * a12) * invDet;
+		float b20 = c02 * invDet;
+		float b21 = (a01 * a20 - a00 * a21) * invDet;
+		float b22 = (a00 * a11 - a01 * a10) * invDet;
+
+		float[] b = dst.m;
+		b[0] = b00;
+		b[1] = b01;
+		b[2] = b02;
+		b[3] = -(b00 * t0 + b01 * t1 + b02 * t2);
+		b[4] = b10;
+		b[5] = b11;
+		b[6] = b12;
+		b[7] = -(b10 * t0 + b11 * t1 + b12 * t2);
+		b[8] = b20;
+		b[9] = b21;
+		b[10] = b22;
+		b[11] = -(b20 * t0 + b21 * t1 + b22 * t2);
+		b[12] = 0.0f;
+		b[13] = 0.0f;
+		b[14] = 0.0f;
+		b[15] = 1.0f;
+
+		return dst;
+	}
+	/**
+	 * Inverts this matrix assuming it is rigid (rotation and translation
+	 * only).<br>
+	 * The rotation is transposed and the translation is rotated back and
+	 * negated.
+	 * 
+	 * @return Inverse matrix
+	 */
+	public FloatMatrix4 invertRigid() {
+		return invertRigid(this, new FloatMatrix4());
+	}
+	/**
+	 * Inverts a matrix assuming it is rigid (rotation and translation
+	 * only).<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static FloatMatrix4 invertRigid(FloatMatrix4 mat, FloatMatrix4 dst) {
+		float[] a = mat.m;
+		float a00 = a[0], a01 = a[1], a02 = a[2], t0 = a[3];
+		float a10 = a[4], a11 = a[5], a12 = a[6], t1 = a[7];
+		float a20 = a[8], a21 = a[9], a22 = a[10], t2 = a[11];
+
+		float[] b = dst.m;
+		b[0] = a00;
+		b[1] = a10;
+		b[2] = a20;
+		b[3] = -(a00 * t0 + a10 * t1 + a20 * t2);
+		b[4] = a01;
+		b[5] = a11;
+		b[6] = a21;
+		b[7] = -(a01 * t0 + a11 * t1 + a21 * t2);
+		b[8] = a02;
+		b[9] = a12;
+		b[10] = a22;
+		b[11] = -(a02 * t0 + a12 * t1 + a22 * t2);
+		b[12] = 0.0f;
+		b[13] = 0.0f;
+		b[14] = 0.0f;
+		b[15] = 1.0f;
+
+		return dst;
+	}
+
+	/**
+	 * Returns true if the bottom row of this matrix is exactly (0, 0, 0, 1).
+	 * 
+	 * @return true if this matrix is affine
+	 */
+	public boolean isAffine() {
+		return m[12] == 0.0f && m[13] == 0.0f && m[14] == 0.0f && m[15] == 1.0f;
+	}
+	/**
+	 * Returns true if this matrix is affine and its upper-left 3x3 block is
+	 * orthonormal within {@link #RIGID_TOLERANCE}.
+	 * 
+	 * @return true if this matrix is rigid
+	 */
+	public boolean isRigid() {
+		if (!this.isAffine()) {
+			return false;
+		}
+
+		float a00 = m[0], a01 = m[1], a02 = m[2];
+		float a10 = m[4], a11 = m[5], a12 = m[6];
+		float a20 = m[8], a21 = m[9], a22 = m[10];
+
+		return Math.abs(a00 * a00 + a10 * a10 + a20 * a20 - 1.0f) <= RIGID_TOLERANCE
+				&& Math.abs(a01 * a01 + a11 * a11 + a21 * a21 - 1.0f) <= RIGID_TOLERANCE
+				&& Math.abs(a02 * a02 + a12 * a12 + a22 * a22 - 1.0f) <= RIGID_TOLERANCE
+				&& Math.abs(a00 * a01 + a10 * a11 + a20 * a21) <= RIGID_TOLERANCE
+				&& Math.abs(a00 * a02 + a10 * a12 + a20 * a22) <= RIGID_TOLERANCE
+				&& Math.abs(a01 * a02 + a11 * a12 + a21 * a22) <= RIGID_TOLERANCE;
+	}
+
+	/**
+	 * Creates an identity matrix.
+	 * 
+	 * @return Identity matrix
+	 */
+	public static FloatMatrix4 createIdentityMatrix() {
+		var ret = new FloatMatrix4();
+		ret.m[0] = 1.0f;
+		ret.m[5] = 1.0f;
+		ret.m[10] = 1.0f;
+		ret.m[15] = 1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates a translation matrix.
+	 * 
+	 * @param translationX
+	 *            Translation X
+	 * @param translationY
+	 *            Translation Y
+	 * @param translationZ
+	 *            Translation Z
+	 * @return Translation matrix
+	 */
+	public static FloatMatrix4 createTranslationMatrix(float translationX, float translationY,
+			float translationZ) {
+		var ret = createIdentityMatrix();
+		ret.m[3] = translationX;
+		ret.m[7] = translationY;
+		ret.m[11] = translationZ;
+
+		return ret;
+	}
+	/**
+	 * Creates a scaling matrix.
+	 * 
+	 * @param scaleX
+	 *            Scale X
+	 * @param scaleY
+	 *            Scale Y
+	 * @param scaleZ
+	 *            Scale Z
+	 * @return Scaling matrix
+	 */
+	public static FloatMatrix4 createScalingMatrix(float scaleX, float scaleY, float scaleZ) {
+		var ret = new FloatMatrix4();
+		ret.m[0] = scaleX;
+		ret.m[5] = scaleY;
+		ret.m[10] = scaleZ;
+		ret.m[15] = 1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates a perspective projection matrix.<br>
+	 * The camera looks down the negative Z-axis, and the view volume is mapped
+	 * to the cube from -1 to 1 in normalized device coordinates.
+	 * 
+	 * @param fovY
+	 *            Vertical field of view (radian)
+	 * @param aspect
+	 *            Aspect ratio (width / height)
+	 * @param near
+	 *            Distance to the near plane
+	 * @param far
+	 *            Distance to the far plane
+	 * @return Perspective matrix
+	 */
+	public static FloatMatrix4 createPerspective(float fovY, float aspect, float near,
+			float far) {
+		float f = (float) (1.0 / Math.tan(fovY / 2.0));
+
+		var ret = new FloatMatrix4();
+		ret.m[0] = f / aspect;
+		ret.m[5] = f;
+		ret.m[10] = (far + near) / (near - far);
+		ret.m[11] = 2.0f * far * near / (near - far);
+		ret.m[14] = -1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates an orthographic projection matrix.<br>
+	 * The camera looks down the negative Z-axis, and the view volume is mapped
+	 * to the cube from -1 to 1 in normalized device coordinates.
+	 * 
+	 * @param left
+	 *            Left plane
+	 * @param right
+	 *            Right plane
+	 * @param bottom
+	 *            Bottom plane
+	 * @param top
+	 *            Top plane
+	 * @param near
+	 *            Distance to the near plane
+	 * @param far
+	 *            Distance to the far plane
+	 * @return Orthographic matrix
+	 */
+	public static FloatMatrix4 createOrthographic(float left, float right, float bottom,
+			float top, float near, float far) {
+		var ret = new FloatMatrix4();
+		ret.m[0] = 2.0f / (right - left);
+		ret.m[3] = -(right + left) / (right - left);
+		ret.m[5] = 2.0f / (top - bottom);
+		ret.m[7] = -(top + bottom) / (top - bottom);
+		ret.m[10] = -2.0f / (far - near);
+		ret.m[11] = -(far + near) / (far - near);
+		ret.m[15] = 1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates a view matrix for a camera at a position looking at a target.
+	 * 
+	 * @param eye
+	 *            Position of the camera
+	 * @param target
+	 *            Point the camera looks at
+	 * @param up
+	 *            Up direction
+	 * @return View matrix
+	 */
+	public static FloatMatrix4 createLookAt(FloatVector3 eye, FloatVector3 target,
+			FloatVector3 up) {
+		var f = target.sub(eye).normalizeInPlace();
+		var s = f.cross(up).normalizeInPlace();
+		var u = s.cross(f);
+
+		var ret = new FloatMatrix4();
+		ret.m[0] = s.x;
+		ret.m[1] = s.y;
+		ret.m[2] = s.z;
+		ret.m[3] = -s.dot(eye);
+		ret.m[4] = u.x;
+		ret.m[5] = u.y;
+		ret.m[6] = u.z;
+		ret.m[7] = -u.dot(eye);
+		ret.m[8] = -f.x;
+		ret.m[9] = -f.y;
+		ret.m[10] = -f.z;
+		ret.m[11] = f.dot(eye);
+		ret.m[15] = 1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates a matrix for rotation around the X-axis.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return Rotation matrix
+	 */
+	public static FloatMatrix4 createRotationXMatrix(float th) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+
+		var ret = new FloatMatrix4();
+		ret.m[0] = 1.0f;
+		ret.m[5] = cosTh;
+		ret.m[6] = -sinTh;
+		ret.m[9] = sinTh;
+		ret.m[10] = cosTh;
+		ret.m[15] = 1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates a matrix for rotation around the Y-axis.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return Rotation matrix
+	 */
+	public static FloatMatrix4 createRotationYMatrix(float th) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+
+		var ret = new FloatMatrix4();
+		ret.m[0] = cosTh;
+		ret.m[2] = sinTh;
+		ret.m[5] = 1.0f;
+		ret.m[8] = -sinTh;
+		ret.m[10] = cosTh;
+		ret.m[15] = 1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates a matrix for rotation around the Z-axis.
+	 * 
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return Rotation matrix
+	 */
+	public static FloatMatrix4 createRotationZMatrix(float th) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+
+		var ret = new FloatMatrix4();
+		ret.m[0] = cosTh;
+		ret.m[1] = -sinTh;
+		ret.m[4] = sinTh;
+		ret.m[5] = cosTh;
+		ret.m[10] = 1.0f;
+		ret.m[15] = 1.0f;
+
+		return ret;
+	}
+	/**
+	 * Creates a matrix for rotation around an arbitrary axis.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return Rotation matrix
+	 */
+	public static FloatMatrix4 createRotationMatrix(float axisX, float axisY, float axisZ,
+			float th) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+		float oneMinusCos = 1.0f - cosTh;
+
+		var ret = new FloatMatrix4();
+		float[] m = ret.m;
+		m[0] = cosTh + axisX * axisX * oneMinusCos;
+		m[1] = axisX * axisY * oneMinusCos - axisZ * sinTh;
+		m[2] = axisX * axisZ * oneMinusCos + axisY * sinTh;
+		m[4] = axisY * axisX * oneMinusCos + axisZ * sinTh;
+		m[5] = cosTh + axisY * axisY * oneMinusCos;
+		m[6] = axisY * axisZ * oneMinusCos - axisX * sinTh;
+		m[8] = axisZ * axisX * oneMinusCos - axisY * sinTh;
+		m[9] = axisZ * axisY * oneMinusCos + axisX * sinTh;
+		m[10] = cosTh + axisZ * axisZ * oneMinusCos;
+		m[15] = 1.0f;
+
+		return ret;
+	}
+}
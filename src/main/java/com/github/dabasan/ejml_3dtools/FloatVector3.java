@@ -0,0 +1,795 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Single-precision vector<br>
+ * Counterpart of {@link Vector} for code that only needs float precision. X,
+ * Y and Z are stored in float fields, and W is implicitly 1.
+ * 
+ * @author Daba
+ *
+ */
+public class FloatVector3 {
+	float x;
+	float y;
+	float z;
+
+	/**
+	 * X, Y and Z elements are set to 0.
+	 */
+	public FloatVector3() {
+	}
+	/**
+	 * Each element is set to the specified value.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 */
+	public FloatVector3(float x, float y, float z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+	/**
+	 * Creates a normalized vector from its angles.
+	 * 
+	 * @param angleV
+	 *            Vertical angle (radian)
+	 * @param angleH
+	 *            Horizontal angle (radian)
+	 */
+	public FloatVector3(float angleV, float angleH) {
+		float x = (float) Math.cos(angleH);
+		float y = (float) Math.sin(angleV);
+		float z = (float) -Math.sin(angleH);
+		float size = (float) Math.sqrt(x * x + y * y + z * z);
+
+		this.x = x / size;
+		this.y = y / size;
+		this.z = z / size;
+	}
+	/**
+	 * Creates a vector from a FloatVector3 instance.
+	 * 
+	 * @param vec
+	 *            FloatVector3 instance
+	 */
+	public FloatVector3(FloatVector3 vec) {
+		x = vec.x;
+		y = vec.y;
+		z = vec.z;
+	}
+	/**
+	 * Creates a vector from a Vector instance.<br>
+	 * Each element is rounded to the nearest float.
+	 * 
+	 * @param vec
+	 *            Vector instance
+	 */
+	public FloatVector3(Vector vec) {
+		this.set(vec);
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		sb.append("(");
+		sb.append(x);
+		sb.append(", ");
+		sb.append(y);
+		sb.append(", ");
+		sb.append(z);
+		sb.append(")");
+
+		return sb.toString();
+	}
+
+	public float getX() {
+		return x;
+	}
+	public float getY() {
+		return y;
+	}
+	public float getZ() {
+		return z;
+	}
+
+	public void set(float x, float y, float z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+	public void set(FloatVector3 vec) {
+		x = vec.x;
+		y = vec.y;
+		z = vec.z;
+	}
+	/**
+	 * Sets X, Y and Z from a Vector instance.<br>
+	 * Each element is rounded to the nearest float.
+	 * 
+	 * @param vec
+	 *            Vector instance
+	 */
+	public void set(Vector vec) {
+		x = (float) vec.v[0];
+		y = (float) vec.v[1];
+		z = (float) vec.v[2];
+	}
+	public void setX(float value) {
+		x = value;
+	}
+	public void setY(float value) {
+		y = value;
+	}
+	public void setZ(float value) {
+		z = value;
+	}
+
+	/**
+	 * Returns an array containing all of the elements in this vector.
+	 * 
+	 * @return Array
+	 */
+	public float[] toArray() {
+		return new float[]{x, y, z};
+	}
+	/**
+	 * Converts this vector to a double-precision vector.
+	 * 
+	 * @return Vector
+	 */
+	public Vector toVector() {
+		return this.toVector(new Vector());
+	}
+	/**
+	 * Converts this vector to a double-precision vector.<br>
+	 * W of the destination is set to 1.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector toVector(Vector dst) {
+		dst.v[0] = x;
+		dst.v[1] = y;
+		dst.v[2] = z;
+		dst.v[3] = 1.0;
+
+		return dst;
+	}
+
+	/**
+	 * Writes X, Y and Z of this vector to a float array.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param offset
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public float[] toFloatArray(float[] dst, int offset) {
+		if (offset < 0 || offset + 3 > dst.length) {
+			throw new IndexOutOfBoundsException("Not enough space at offset " + offset);
+		}
+
+		dst[offset] = x;
+		dst[offset + 1] = y;
+		dst[offset + 2] = z;
+
+		return dst;
+	}
+	/**
+	 * Writes X, Y and Z of this vector to a FloatBuffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public FloatBuffer toFloatBuffer(FloatBuffer dst, int index) {
+		Vector.checkSpace(index, 3, dst.limit());
+
+		dst.put(index, x);
+		dst.put(index + 1, y);
+		dst.put(index + 2, z);
+
+		return dst;
+	}
+	/**
+	 * Writes X, Y and Z of this vector to a ByteBuffer in the byte order of
+	 * the buffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Byte index of the first element written
+	 * @return Destination
+	 */
+	public ByteBuffer toByteBuffer(ByteBuffer dst, int index) {
+		Vector.checkSpace(index, 3 * Float.BYTES, dst.limit());
+
+		dst.putFloat(index, x);
+		dst.putFloat(index + Float.BYTES, y);
+		dst.putFloat(index + Float.BYTES * 2, z);
+
+		return dst;
+	}
+
+	/**
+	 * Returns the squared size of this vector.
+	 * 
+	 * @return Squared size
+	 */
+	public float getSquareSize() {
+		return x * x + y * y + z * z;
+	}
+	/**
+	 * Returns the size of this vector.
+	 * 
+	 * @return Size
+	 */
+	public float getSize() {
+		return (float) Math.sqrt(x * x + y * y + z * z);
+	}
+
+	/**
+	 * Normalize
+	 * 
+	 * @return Normalized vector
+	 */
+	public FloatVector3 normalize() {
+		return this.normalize(new FloatVector3());
+	}
+	/**
+	 * Normalize<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 normalize(FloatVector3 dst) {
+		float size = (float) Math.sqrt(x * x + y * y + z * z);
+
+		dst.x = x / size;
+		dst.y = y / size;
+		dst.z = z / size;
+
+		return dst;
+	}
+	/**
+	 * Normalizes this vector in place.
+	 * 
+	 * @return This vector
+	 */
+	public FloatVector3 normalizeInPlace() {
+		return this.normalize(this);
+	}
+
+	/**
+	 * Addition
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return Vector
+	 */
+	public FloatVector3 add(FloatVector3 v) {
+		return this.add(v, new FloatVector3());
+	}
+	/**
+	 * Addition<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 add(FloatVector3 v, FloatVector3 dst) {
+		dst.x = x + v.x;
+		dst.y = y + v.y;
+		dst.z = z + v.z;
+
+		return dst;
+	}
+	/**
+	 * Adds a vector to this vector in place.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return This vector
+	 */
+	public FloatVector3 addInPlace(FloatVector3 v) {
+		return this.add(v, this);
+	}
+	/**
+	 * Subtraction
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return Vector
+	 */
+	public FloatVector3 sub(FloatVector3 v) {
+		return this.sub(v, new FloatVector3());
+	}
+	/**
+	 * Subtraction<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 sub(FloatVector3 v, FloatVector3 dst) {
+		dst.x = x - v.x;
+		dst.y = y - v.y;
+		dst.z = z - v.z;
+
+		return dst;
+	}
+	/**
+	 * Subtracts a vector from this vector in place.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return This vector
+	 */
+	public FloatVector3 subInPlace(FloatVector3 v) {
+		return this.sub(v, this);
+	}
+	/**
+	 * Scales this vector.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @return Scaled vector
+	 */
+	public FloatVector3 scale(float scale) {
+		return this.scale(scale, new FloatVector3());
+	}
+	/**
+	 * Scales this vector.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 scale(float scale, FloatVector3 dst) {
+		dst.x = x * scale;
+		dst.y = y * scale;
+		dst.z = z * scale;
+
+		return dst;
+	}
+	/**
+	 * Scales this vector in place.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @return This vector
+	 */
+	public FloatVector3 scaleInPlace(float scale) {
+		return this.scale(scale, this);
+	}
+	/**
+	 * Cross product
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return Vector
+	 */
+	public FloatVector3 cross(FloatVector3 v) {
+		return this.cross(v, new FloatVector3());
+	}
+	/**
+	 * Cross product<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 cross(FloatVector3 v, FloatVector3 dst) {
+		float a1 = x;
+		float a2 = y;
+		float a3 = z;
+		float b1 = v.x;
+		float b2 = v.y;
+		float b3 = v.z;
+
+		dst.x = a2 * b3 - b2 * a3;
+		dst.y = a3 * b1 - b3 * a1;
+		dst.z = a1 * b2 - b1 * a2;
+
+		return dst;
+	}
+	/**
+	 * Replaces this vector with its cross product with another vector.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return This vector
+	 */
+	public FloatVector3 crossInPlace(FloatVector3 v) {
+		return this.cross(v, this);
+	}
+	/**
+	 * Dot product
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return Dot product (float value)
+	 */
+	public float dot(FloatVector3 v) {
+		return x * v.x + y * v.y + z * v.z;
+	}
+
+	/**
+	 * Returns the vertical angle of this vector.
+	 * 
+	 * @return Vertical angle (radian)
+	 */
+	public float getAngleV() {
+		float xzSquareSize = x * x + z * z;
+		float cosTh = xzSquareSize / (this.getSize() * (float) Math.sqrt(xzSquareSize));
+
+		return (float) Math.acos(cosTh);
+	}
+	/**
+	 * Returns the horizontal angle of this vector.
+	 * 
+	 * @return Horizontal angle (radian)
+	 */
+	public float getAngleH() {
+		float cosTh = x / (float) Math.sqrt(x * x + z * z);
+		float th = (float) Math.acos(cosTh);
+
+		if (z >= 0.0f) {
+			th *= (-1.0f);
+		}
+
+		return th;
+	}
+
+	/**
+	 * Transforms a vector with a matrix.<br>
+	 * The vector is treated as a point with W = 1. W of the result is
+	 * discarded, so use {@link #project(FloatMatrix4)} for projection
+	 * matrices.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Transformed vector
+	 */
+	public FloatVector3 transform(FloatMatrix4 matrix) {
+		return this.transform(matrix, new FloatVector3());
+	}
+	/**
+	 * Transforms a vector with a matrix.<br>
+	 * The vector is treated as a point with W = 1. The result is written to
+	 * the destination, which may be this vector.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 transform(FloatMatrix4 matrix, FloatVector3 dst) {
+		float[] m = matrix.m;
+		float x = this.x;
+		float y = this.y;
+		float z = this.z;
+
+		dst.x = m[0] * x + m[1] * y + m[2] * z + m[3];
+		dst.y = m[4] * x + m[5] * y + m[6] * z + m[7];
+		dst.z = m[8] * x + m[9] * y + m[10] * z + m[11];
+
+		return dst;
+	}
+	/**
+	 * Transforms this vector with a matrix in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This vector
+	 */
+	public FloatVector3 transformInPlace(FloatMatrix4 matrix) {
+		return this.transform(matrix, this);
+	}
+	/**
+	 * Transforms a vector with a matrix and divides the result by W.<br>
+	 * This gives normalized device coordinates for a projection matrix.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Projected vector
+	 */
+	public FloatVector3 project(FloatMatrix4 matrix) {
+		return this.project(matrix, new FloatVector3());
+	}
+	/**
+	 * Transforms a vector with a matrix and divides the result by W.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 project(FloatMatrix4 matrix, FloatVector3 dst) {
+		float[] m = matrix.m;
+		float x = this.x;
+		float y = this.y;
+		float z = this.z;
+		float invW = 1.0f / (m[12] * x + m[13] * y + m[14] * z + m[15]);
+
+		dst.x = (m[0] * x + m[1] * y + m[2] * z + m[3]) * invW;
+		dst.y = (m[4] * x + m[5] * y + m[6] * z + m[7]) * invW;
+		dst.z = (m[8] * x + m[9] * y + m[10] * z + m[11]) * invW;
+
+		return dst;
+	}
+	/**
+	 * Applies scaling and rotation to this vector (no translation).
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Transformed vector
+	 */
+	public FloatVector3 transformSR(FloatMatrix4 matrix) {
+		return this.transformSR(matrix, new FloatVector3());
+	}
+	/**
+	 * Applies scaling and rotation to this vector (no translation).<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 transformSR(FloatMatrix4 matrix, FloatVector3 dst) {
+		float[] m = matrix.m;
+		float x = this.x;
+		float y = this.y;
+		float z = this.z;
+
+		dst.x = m[0] * x + m[1] * y + m[2] * z;
+		dst.y = m[4] * x + m[5] * y + m[6] * z;
+		dst.z = m[8] * x + m[9] * y + m[10] * z;
+
+		return dst;
+	}
+	/**
+	 * Applies scaling and rotation to this vector in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This vector
+	 */
+	public FloatVector3 transformSRInPlace(FloatMatrix4 matrix) {
+		return this.transformSR(matrix, this);
+	}
+
+	/**
+	 * Rotates this vector around the X axis.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return Rotated vector
+	 */
+	public FloatVector3 rotX(float th) {
+		return this.rotX(th, new FloatVector3());
+	}
+	/**
+	 * Rotates this vector around the X axis.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 rotX(float th, FloatVector3 dst) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+		float y = this.y;
+		float z = this.z;
+
+		dst.x = x;
+		dst.y = cosTh * y - sinTh * z;
+		dst.z = sinTh * y + cosTh * z;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around the X axis in place.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return This vector
+	 */
+	public FloatVector3 rotXInPlace(float th) {
+		return this.rotX(th, this);
+	}
+	/**
+	 * Rotates this vector around the Y axis.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return Rotated vector
+	 */
+	public FloatVector3 rotY(float th) {
+		return this.rotY(th, new FloatVector3());
+	}
+	/**
+	 * Rotates this vector around the Y axis.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 rotY(float th, FloatVector3 dst) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+		float x = this.x;
+		float z = this.z;
+
+		dst.x = cosTh * x + sinTh * z;
+		dst.y = y;
+		dst.z = -sinTh * x + cosTh * z;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around the Y axis in place.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return This vector
+	 */
+	public FloatVector3 rotYInPlace(float th) {
+		return this.rotY(th, this);
+	}
+	/**
+	 * Rotates this vector around the Z axis.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return Rotated vector
+	 */
+	public FloatVector3 rotZ(float th) {
+		return this.rotZ(th, new FloatVector3());
+	}
+	/**
+	 * Rotates this vector around the Z axis.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 rotZ(float th, FloatVector3 dst) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+		float x = this.x;
+		float y = this.y;
+
+		dst.x = cosTh * x - sinTh * y;
+		dst.y = sinTh * x + cosTh * y;
+		dst.z = z;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around the Z axis in place.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return This vector
+	 */
+	public FloatVector3 rotZInPlace(float th) {
+		return this.rotZ(th, this);
+	}
+	/**
+	 * Rotates this vector around an axis specified.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return Rotated vector
+	 */
+	public FloatVector3 rot(float axisX, float axisY, float axisZ, float th) {
+		return this.rot(axisX, axisY, axisZ, th, new FloatVector3());
+	}
+	/**
+	 * Rotates this vector around an axis specified.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public FloatVector3 rot(float axisX, float axisY, float axisZ, float th, FloatVector3 dst) {
+		float cosTh = (float) Math.cos(th);
+		float sinTh = (float) Math.sin(th);
+		float x = this.x;
+		float y = this.y;
+		float z = this.z;
+		float oneMinusCos = 1.0f - cosTh;
+		float xy = axisX * axisY * oneMinusCos;
+		float xz = axisX * axisZ * oneMinusCos;
+		float yz = axisY * axisZ * oneMinusCos;
+
+		dst.x = (cosTh + axisX * axisX * oneMinusCos) * x + (xy - axisZ * sinTh) * y
+				+ (xz + axisY * sinTh) * z;
+		dst.y = (xy + axisZ * sinTh) * x + (cosTh + axisY * axisY * oneMinusCos) * y
+				+ (yz - axisX * sinTh) * z;
+		dst.z = (xz - axisY * sinTh) * x + (yz + axisX * sinTh) * y
+				+ (cosTh + axisZ * axisZ * oneMinusCos) * z;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around an axis specified in place.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return This vector
+	 */
+	public FloatVector3 rotInPlace(float axisX, float axisY, float axisZ, float th) {
+		return this.rot(axisX, axisY, axisZ, th, this);
+	}
+}
@@ -0,0 +1,491 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * View frustum<br>
+ * The six planes are extracted from a view-projection matrix that maps the
+ * view volume to the cube from -1 to 1 in normalized device coordinates, as
+ * the matrices created by {@link Matrix#createPerspective(double, double,
+ * double, double)} and {@link Matrix#createOrthographic(double, double,
+ * double, double, double, double)} do. Each plane is normalized and stored
+ * as (a, b, c, d), and a point (x, y, z) is inside it when ax + by + cz + d
+ * is not negative.<br>
+ * Tests against boxes and spheres are conservative: objects near the edges
+ * of the frustum may be reported as intersecting even when they are just
+ * outside.<br>
+ * Batches of spheres and boxes stored as structure of arrays can be culled at
+ * once. The result is written either as a bitset, where bit (i % 64) of word
+ * (i / 64) is set if the object i may be visible, or as a list of the indices
+ * of the objects that may be visible.
+ * 
+ * @author Daba
+ *
+ */
+public class Frustum {
+	public static final int LEFT = 0;
+	public static final int RIGHT = 1;
+	public static final int BOTTOM = 2;
+	public static final int TOP = 3;
+	public static final int NEAR = 4;
+	public static final int FAR = 5;
+
+	final double[] planes = new double[24];
+
+	/**
+	 * Creates a frustum from a view-projection matrix.
+	 * 
+	 * @param viewProjection
+	 *            Projection matrix multiplied by the view matrix
+	 */
+	public Frustum(Matrix viewProjection) {
+		this.set(viewProjection);
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		for (int i = 0; i < 6; i++) {
+			sb.append("(");
+			sb.append(planes[i * 4]);
+			sb.append(", ");
+			sb.append(planes[i * 4 + 1]);
+			sb.append(", ");
+			sb.append(planes[i * 4 + 2]);
+			sb.append(", ");
+			sb.append(planes[i * 4 + 3]);
+			sb.append(")\n");
+		}
+		sb.setLength(sb.length() - 1);
+
+		return sb.toString();
+	}
+
+	/**
+	 * Extracts the planes from a view-projection matrix.
+	 * 
+	 * @param viewProjection
+	 *            Projection matrix multiplied by the view matrix
+	 */
+	public void set(Matrix viewProjection) {
+		double[] m = viewProjection.m;
+
+		// Each plane is the sum or difference of the last row and one of the
+		// others (Gribb and Hartmann).
+		for (int i = 0; i < 3; i++) {
+			for (int c = 0; c < 4; c++) {
+				planes[i * 8 + c] = m[12 + c] + m[i * 4 + c];
+				planes[i * 8 + 4 + c] = m[12 + c] - m[i * 4 + c];
+			}
+		}
+
+		for (int i = 0; i < 6; i++) {
+			int p = i * 4;
+			double length = Math.sqrt(planes[p] * planes[p] + planes[p + 1] * planes[p + 1]
+					+ planes[p + 2] * planes[p + 2]);
+			for (int c = 0; c < 4; c++) {
+				planes[p + c] /= length;
+			}
+		}
+	}
+
+	/**
+	 * Returns a plane.
+	 * 
+	 * @param index
+	 *            One of {@link #LEFT}, {@link #RIGHT}, {@link #BOTTOM},
+	 *            {@link #TOP}, {@link #NEAR} and {@link #FAR}
+	 * @return Plane as (a, b, c, d)
+	 */
+	public double[] getPlane(int index) {
+		if (index < 0 || index >= 6) {
+			throw new IndexOutOfBoundsException("Plane index out of bounds: " + index);
+		}
+
+		var ret = new double[4];
+		System.arraycopy(planes, index * 4, ret, 0, 4);
+
+		return ret;
+	}
+
+	/**
+	 * Returns true if a point is inside this frustum.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 * @return true if the point is inside or on the boundary
+	 */
+	public boolean contains(double x, double y, double z) {
+		return this.intersectsSphere(x, y, z, 0.0);
+	}
+	/**
+	 * Returns true if a point is inside this frustum.
+	 * 
+	 * @param point
+	 *            Point
+	 * @return true if the point is inside or on the boundary
+	 */
+	public boolean contains(Vector point) {
+		return this.contains(point.v[0], point.v[1], point.v[2]);
+	}
+	/**
+	 * Returns true if a sphere may intersect this frustum.
+	 * 
+	 * @param x
+	 *            X of the center
+	 * @param y
+	 *            Y of the center
+	 * @param z
+	 *            Z of the center
+	 * @param radius
+	 *            Radius
+	 * @return false if the sphere is outside this frustum
+	 */
+	public boolean intersectsSphere(double x, double y, double z, double radius) {
+		for (int p = 0; p < 24; p += 4) {
+			double d = planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3];
+			if (d < -radius) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+	/**
+	 * Returns true if a sphere may intersect this frustum.
+	 * 
+	 * @param center
+	 *            Center
+	 * @param radius
+	 *            Radius
+	 * @return false if the sphere is outside this frustum
+	 */
+	public boolean intersectsSphere(Vector center, double radius) {
+		return this.intersectsSphere(center.v[0], center.v[1], center.v[2], radius);
+	}
+	/**
+	 * Returns true if a box may intersect this frustum.<br>
+	 * For each plane, only the corner of the box farthest along the normal is
+	 * tested.
+	 * 
+	 * @param minX
+	 *            Minimum X
+	 * @param minY
+	 *            Minimum Y
+	 * @param minZ
+	 *            Minimum Z
+	 * @param maxX
+	 *            Maximum X
+	 * @param maxY
+	 *            Maximum Y
+	 * @param maxZ
+	 *            Maximum Z
+	 * @return false if the box is outside this frustum
+	 */
+	public boolean intersectsAABB(double minX, double minY, double minZ, double maxX,
+			double maxY, double maxZ) {
+		for (int p = 0; p < 24; p += 4) {
+			double a = planes[p], b = planes[p + 1], c = planes[p + 2];
+			double x = a >= 0.0 ? maxX : minX;
+			double y = b >= 0.0 ? maxY : minY;
+			double z = c >= 0.0 ? maxZ : minZ;
+			if (a * x + b * y + c * z + planes[p + 3] < 0.0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+	/**
+	 * Returns true if a box may intersect this frustum.
+	 * 
+	 * @param box
+	 *            Box
+	 * @return false if the box is outside this frustum
+	 */
+	public boolean intersectsAABB(AABB box) {
+		return this.intersectsAABB(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+	}
+
+	private static void checkSize(String name, int length, int size) {
+		if (length != size) {
+			throw new IllegalArgumentException(
+					"Size mismatch: " + size + " and " + length + " " + name);
+		}
+	}
+	private static void checkBitsetSize(long[] dst, int size) {
+		int words = (size + 63) >>> 6;
+		if (dst.length < words) {
+			throw new IllegalArgumentException(
+					"Bitset too small: " + dst.length + " words for " + size + " objects");
+		}
+	}
+	private static int toIndices(long[] bits, int size, int[] dst) {
+		int count = 0;
+		int words = (size + 63) >>> 6;
+		for (int w = 0; w < words; w++) {
+			count = toIndices(bits[w], w << 6, dst, count);
+		}
+
+		return count;
+	}
+	private static int toIndices(long word, int base, int[] dst, int count) {
+		while (word != 0L) {
+			if (count < dst.length) {
+				dst[count] = base + Long.numberOfTrailingZeros(word);
+			}
+			count++;
+			word &= word - 1L;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Culls spheres against this frustum.<br>
+	 * The bits for the spheres that may intersect this frustum are set, and
+	 * the other bits of the words covering the batch are cleared.
+	 * 
+	 * @param centers
+	 *            Centers
+	 * @param radii
+	 *            Radii
+	 * @param dst
+	 *            Destination bitset, at least (size + 63) / 64 words long
+	 * @return Destination
+	 */
+	public long[] cullSpheres(VectorBatch centers, double[] radii, long[] dst) {
+		int size = centers.size();
+		checkSize("radii", radii.length, size);
+		checkBitsetSize(dst, size);
+		this.cullSpheres(centers, radii, dst, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Culls spheres against this frustum in parallel.<br>
+	 * Each task covers a whole number of words of the bitset.
+	 * 
+	 * @param centers
+	 *            Centers
+	 * @param radii
+	 *            Radii
+	 * @param dst
+	 *            Destination bitset, at least (size + 63) / 64 words long
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 * @see #cullSpheres(VectorBatch, double[], long[])
+	 */
+	public long[] cullSpheres(VectorBatch centers, double[] radii, long[] dst,
+			ParallelConfig config) {
+		int size = centers.size();
+		checkSize("radii", radii.length, size);
+		checkBitsetSize(dst, size);
+		config.run(size, 64, (from, to) -> this.cullSpheres(centers, radii, dst, from, to));
+
+		return dst;
+	}
+	/**
+	 * Culls spheres against this frustum and lists the ones that may be
+	 * visible.<br>
+	 * The indices are written in ascending order as long as the destination
+	 * has room. The return value is the total number of spheres that may be
+	 * visible.
+	 * 
+	 * @param centers
+	 *            Centers
+	 * @param radii
+	 *            Radii
+	 * @param dst
+	 *            Destination of the indices
+	 * @return Number of spheres that may be visible
+	 */
+	public int cullSpheres(VectorBatch centers, double[] radii, int[] dst) {
+		int size = centers.size();
+		checkSize("radii", radii.length, size);
+
+		int count = 0;
+		for (int from = 0; from < size; from += 64) {
+			long word = this.cullSpheres(centers, radii, from, Math.min(from + 64, size));
+			count = toIndices(word, from, dst, count);
+		}
+
+		return count;
+	}
+	/**
+	 * Culls spheres against this frustum in parallel and lists the ones that
+	 * may be visible.<br>
+	 * The spheres are tested into a temporary bitset in parallel, which is
+	 * then converted to indices on the calling thread.
+	 * 
+	 * @param centers
+	 *            Centers
+	 * @param radii
+	 *            Radii
+	 * @param dst
+	 *            Destination of the indices
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Number of spheres that may be visible
+	 * @see #cullSpheres(VectorBatch, double[], int[])
+	 */
+	public int cullSpheres(VectorBatch centers, double[] radii, int[] dst,
+			ParallelConfig config) {
+		int size = centers.size();
+		var bits = this.cullSpheres(centers, radii, new long[(size + 63) >>> 6], config);
+
+		return toIndices(bits, size, dst);
+	}
+	private void cullSpheres(VectorBatch centers, double[] radii, long[] dst, int from,
+			int to) {
+		for (int i = from; i < to; i += 64) {
+			dst[i >>> 6] = this.cullSpheres(centers, radii, i, Math.min(i + 64, to));
+		}
+	}
+	private long cullSpheres(VectorBatch centers, double[] radii, int from, int to) {
+		double[] x = centers.x, y = centers.y, z = centers.z;
+		double[] p = planes;
+		double a0 = p[0], b0 = p[1], c0 = p[2], d0 = p[3];
+		double a1 = p[4], b1 = p[5], c1 = p[6], d1 = p[7];
+		double a2 = p[8], b2 = p[9], c2 = p[10], d2 = p[11];
+		double a3 = p[12], b3 = p[13], c3 = p[14], d3 = p[15];
+		double a4 = p[16], b4 = p[17], c4 = p[18], d4 = p[19];
+		double a5 = p[20], b5 = p[21], c5 = p[22], d5 = p[23];
+
+		long word = 0L;
+		for (int i = from; i < to; i++) {
+			double px = x[i], py = y[i], pz = z[i], r = -radii[i];
+
+			// Non-short-circuit operators keep the loop free of branches.
+			boolean visible = a0 * px + b0 * py + c0 * pz + d0 >= r
+					& a1 * px + b1 * py + c1 * pz + d1 >= r
+					& a2 * px + b2 * py + c2 * pz + d2 >= r
+					& a3 * px + b3 * py + c3 * pz + d3 >= r
+					& a4 * px + b4 * py + c4 * pz + d4 >= r
+					& a5 * px + b5 * py + c5 * pz + d5 >= r;
+			if (visible) {
+				word |= 1L << (i - from);
+			}
+		}
+
+		return word;
+	}
+
+	/**
+	 * Culls boxes against this frustum.<br>
+	 * The bits for the boxes that may intersect this frustum are set, and the
+	 * other bits of the words covering the batch are cleared. Empty boxes are
+	 * never visible.
+	 * 
+	 * @param boxes
+	 *            Boxes
+	 * @param dst
+	 *            Destination bitset, at least (size + 63) / 64 words long
+	 * @return Destination
+	 */
+	public long[] cullAABBs(AABBBatch boxes, long[] dst) {
+		int size = boxes.size();
+		checkBitsetSize(dst, size);
+		this.cullAABBs(boxes, dst, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Culls boxes against this frustum in parallel.<br>
+	 * Each task covers a whole number of words of the bitset.
+	 * 
+	 * @param boxes
+	 *            Boxes
+	 * @param dst
+	 *            Destination bitset, at least (size + 63) / 64 words long
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 * @see #cullAABBs(AABBBatch, long[])
+	 */
+	public long[] cullAABBs(AABBBatch boxes, long[] dst, ParallelConfig config) {
+		int size = boxes.size();
+		checkBitsetSize(dst, size);
+		config.run(size, 64, (from, to) -> this.cullAABBs(boxes, dst, from, to));
+
+		return dst;
+	}
+	/**
+	 * Culls boxes against this frustum and lists the ones that may be
+	 * visible.<br>
+	 * The indices are written in ascending order as long as the destination
+	 * has room. The return value is the total number of boxes that may be
+	 * visible.
+	 * 
+	 * @param boxes
+	 *            Boxes
+	 * @param dst
+	 *            Destination of the indices
+	 * @return Number of boxes that may be visible
+	 */
+	public int cullAABBs(AABBBatch boxes, int[] dst) {
+		int size = boxes.size();
+
+		int count = 0;
+		for (int from = 0; from < size; from += 64) {
+			long word = this.cullAABBs(boxes, from, Math.min(from + 64, size));
+			count = toIndices(word, from, dst, count);
+		}
+
+		return count;
+	}
+	/**
+	 * Culls boxes against this frustum in parallel and lists the ones that
+	 * may be visible.<br>
+	 * The boxes are tested into a temporary bitset in parallel, which is then
+	 * converted to indices on the calling thread.
+	 * 
+	 * @param boxes
+	 *            Boxes
+	 * @param dst
+	 *            Destination of the indices
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Number of boxes that may be visible
+	 * @see #cullAABBs(AABBBatch, int[])
+	 */
+	public int cullAABBs(AABBBatch boxes, int[] dst, ParallelConfig config) {
+		int size = boxes.size();
+		var bits = this.cullAABBs(boxes, new long[(size + 63) >>> 6], config);
+
+		return toIndices(bits, size, dst);
+	}
+	private void cullAABBs(AABBBatch boxes, long[] dst, int from, int to) {
+		for (int i = from; i < to; i += 64) {
+			dst[i >>> 6] = this.cullAABBs(boxes, i, Math.min(i + 64, to));
+		}
+	}
+	private long cullAABBs(AABBBatch boxes, int from, int to) {
+		double[] minX = boxes.minX, minY = boxes.minY, minZ = boxes.minZ;
+		double[] maxX = boxes.maxX, maxY = boxes.maxY, maxZ = boxes.maxZ;
+
+		long word = 0L;
+		for (int i = from; i < to; i++) {
+			double x0 = minX[i], y0 = minY[i], z0 = minZ[i];
+			double x1 = maxX[i], y1 = maxY[i], z1 = maxZ[i];
+			boolean visible = x0 <= x1 & y0 <= y1 & z0 <= z1;
+
+			for (int p = 0; p < 24; p += 4) {
+				double a = planes[p], b = planes[p + 1], c = planes[p + 2];
+				double x = a >= 0.0 ? x1 : x0;
+				double y = b >= 0.0 ? y1 : y0;
+				double z = c >= 0.0 ? z1 : z0;
+				visible &= a * x + b * y + c * z + planes[p + 3] >= 0.0;
+			}
+			if (visible) {
+				word |= 1L << (i - from);
+			}
+		}
+
+		return word;
+	}
+}
@@ -0,0 +1,168 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Rotation around a fixed axis that advances by a fixed angle<br>
+ * The cosine and sine of the accumulated angle are updated by the angle
+ * addition formulas, so no trigonometric function is evaluated per step. They
+ * are renormalized periodically to keep rounding errors from building up.
+ * 
+ * @author Daba
+ *
+ */
+public class IncrementalRotator {
+	/**
+	 * Default number of steps between renormalizations
+	 */
+	public static final int DEFAULT_RENORMALIZATION_INTERVAL = 64;
+
+	private final double axisX;
+	private final double axisY;
+	private final double axisZ;
+	private final double cosStep;
+	private final double sinStep;
+	private final int renormalizationInterval;
+
+	private double cosTh;
+	private double sinTh;
+	private int stepCount;
+
+	/**
+	 * Creates a rotator with the default renormalization interval.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param step
+	 *            Angle advanced by a step (radian)
+	 */
+	public IncrementalRotator(double axisX, double axisY, double axisZ, double step) {
+		this(axisX, axisY, axisZ, step, DEFAULT_RENORMALIZATION_INTERVAL);
+	}
+	/**
+	 * Creates a rotator.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param step
+	 *            Angle advanced by a step (radian)
+	 * @param renormalizationInterval
+	 *            Number of steps between renormalizations
+	 */
+	public IncrementalRotator(double axisX, double axisY, double axisZ, double step,
+			int renormalizationInterval) {
+		if (renormalizationInterval <= 0) {
+			throw new IllegalArgumentException(
+					"Renormalization interval must be positive: " + renormalizationInterval);
+		}
+
+		this.axisX = axisX;
+		this.axisY = axisY;
+		this.axisZ = axisZ;
+		cosStep = Math.cos(step);
+		sinStep = Math.sin(step);
+		this.renormalizationInterval = renormalizationInterval;
+
+		this.reset();
+	}
+
+	/**
+	 * Sets the accumulated angle back to 0.
+	 */
+	public void reset() {
+		cosTh = 1.0;
+		sinTh = 0.0;
+		stepCount = 0;
+	}
+	/**
+	 * Advances the accumulated angle by a step.
+	 */
+	public void step() {
+		double c = cosTh * cosStep - sinTh * sinStep;
+		double s = sinTh * cosStep + cosTh * sinStep;
+
+		if (++stepCount == renormalizationInterval) {
+			double size = Math.sqrt(c * c + s * s);
+			c /= size;
+			s /= size;
+			stepCount = 0;
+		}
+
+		cosTh = c;
+		sinTh = s;
+	}
+
+	/**
+	 * Returns the cosine of the accumulated angle.
+	 * 
+	 * @return Cosine
+	 */
+	public double getCos() {
+		return cosTh;
+	}
+	/**
+	 * Returns the sine of the accumulated angle.
+	 * 
+	 * @return Sine
+	 */
+	public double getSin() {
+		return sinTh;
+	}
+	/**
+	 * Returns the accumulated angle in the range of -PI to PI.
+	 * 
+	 * @return Angle (radian)
+	 */
+	public double getAngle() {
+		return Math.atan2(sinTh, cosTh);
+	}
+
+	/**
+	 * Rotates a vector by the accumulated angle.
+	 * 
+	 * @param vec
+	 *            Vector
+	 * @return Rotated vector
+	 */
+	public Vector rotate(Vector vec) {
+		return vec.rot(axisX, axisY, axisZ, cosTh, sinTh, new Vector());
+	}
+	/**
+	 * Rotates a vector by the accumulated angle.<br>
+	 * The result is written to the destination, which may be the input
+	 * vector.
+	 * 
+	 * @param vec
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector rotate(Vector vec, Vector dst) {
+		return vec.rot(axisX, axisY, axisZ, cosTh, sinTh, dst);
+	}
+	/**
+	 * Creates a matrix for rotation by the accumulated angle.
+	 * 
+	 * @return Rotation matrix
+	 */
+	public Matrix toMatrix() {
+		return Matrix.createRotationMatrix(axisX, axisY, axisZ, cosTh, sinTh, new Matrix());
+	}
+	/**
+	 * Creates a matrix for rotation by the accumulated angle.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Matrix toMatrix(Matrix dst) {
+		return Matrix.createRotationMatrix(axisX, axisY, axisZ, cosTh, sinTh, dst);
+	}
+}
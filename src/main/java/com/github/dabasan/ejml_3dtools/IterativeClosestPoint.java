@@ -0,0 +1,850 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.util.Arrays;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.factory.LinearSolverFactory_DDRM;
+import org.ejml.interfaces.linsol.LinearSolverDense;
+
+/**
+ * Registration of a source point cloud to a target point cloud with the
+ * iterative closest point algorithm<br>
+ * Each iteration pairs the source points, moved by the current estimate, with
+ * their nearest target points, rejects the pairs that are too far apart and
+ * updates the estimate with the transformation that best aligns the remaining
+ * pairs. The target is indexed with a {@link KDTree} once and reused by every
+ * registration.<br>
+ * Two error metrics are supported. {@link Method#POINT_TO_POINT} minimizes the
+ * distances between paired points with {@link RigidAlignment}.
+ * {@link Method#POINT_TO_PLANE} minimizes the distances from the source
+ * points to the tangent planes of the target, which usually converges in far
+ * fewer iterations on smooth surfaces. The normals of the target are
+ * estimated from their neighbors unless they are given.<br>
+ * The source points are moved and paired in parallel when a
+ * {@link ParallelConfig} is set. Instances are not thread-safe.
+ * 
+ * @author Daba
+ *
+ */
+public class IterativeClosestPoint {
+	/**
+	 * Error metric minimized in each iteration
+	 */
+	public enum Method {
+		/**
+		 * Sum of the squared distances between paired points
+		 */
+		POINT_TO_POINT,
+		/**
+		 * Sum of the squared distances from the source points to the tangent
+		 * planes at the paired target points
+		 */
+		POINT_TO_PLANE
+	}
+
+	/**
+	 * Result of a registration
+	 */
+	public static class Result {
+		private final Matrix matrix;
+		private final int iterations;
+		private final double rmsError;
+		private final int correspondenceCount;
+		private final boolean converged;
+
+		Result(Matrix matrix, int iterations, double rmsError, int correspondenceCount,
+				boolean converged) {
+			this.matrix = matrix;
+			this.iterations = iterations;
+			this.rmsError = rmsError;
+			this.correspondenceCount = correspondenceCount;
+			this.converged = converged;
+		}
+
+		@Override
+		public String toString() {
+			return "iterations: " + iterations + ", rms error: " + rmsError
+					+ ", correspondences: " + correspondenceCount + ", converged: " + converged;
+		}
+
+		/**
+		 * Returns the transformation that maps the source onto the target.
+		 * 
+		 * @return Matrix
+		 */
+		public Matrix getMatrix() {
+			return new Matrix(matrix);
+		}
+		/**
+		 * Returns the number of iterations run.
+		 * 
+		 * @return Number of iterations
+		 */
+		public int getIterations() {
+			return iterations;
+		}
+		/**
+		 * Returns the root mean square of the distances between the pairs
+		 * used in the last iteration.
+		 * 
+		 * @return RMS error (NaN if no iteration was run)
+		 */
+		public double getRMSError() {
+			return rmsError;
+		}
+		/**
+		 * Returns the number of pairs used in the last iteration.
+		 * 
+		 * @return Number of pairs
+		 */
+		public int getCorrespondenceCount() {
+			return correspondenceCount;
+		}
+		/**
+		 * Returns true if the RMS error stopped improving or became
+		 * negligible before the maximum number of iterations.
+		 * 
+		 * @return true if converged
+		 */
+		public boolean isConverged() {
+			return converged;
+		}
+	}
+
+	/**
+	 * Default maximum number of iterations
+	 */
+	public static final int DEFAULT_MAX_ITERATIONS = 50;
+	/**
+	 * Default relative change of the RMS error below which the registration
+	 * is considered converged
+	 */
+	public static final double DEFAULT_TOLERANCE = 1.0E-6;
+	/**
+	 * Default number of neighbors used to estimate a normal
+	 */
+	public static final int DEFAULT_NORMAL_NEIGHBORS = 10;
+
+	private static final int PLANE_SUM_WIDTH = 27;
+
+	private final VectorBatch target;
+	private KDTree tree;
+	private VectorBatch targetNormals;
+
+	private Method method;
+	private int maxIterations;
+	private double tolerance;
+	private int sampleStep;
+	private double maxCorrespondenceDistance;
+	private double trimRatio;
+	private int normalNeighbors;
+	private ParallelConfig config;
+
+	/**
+	 * Creates an engine that registers point clouds to a target.
+	 * 
+	 * @param target
+	 *            Target points
+	 */
+	public IterativeClosestPoint(Vector[] target) {
+		this(new VectorBatch(target));
+	}
+	/**
+	 * Creates an engine that registers point clouds to a target.<br>
+	 * The batch is referenced, not copied, and must not be changed while
+	 * this engine is in use.
+	 * 
+	 * @param target
+	 *            Target points
+	 */
+	public IterativeClosestPoint(VectorBatch target) {
+		if (target.size() == 0) {
+			throw new IllegalArgumentException("Target must not be empty");
+		}
+
+		this.target = target;
+
+		method = Method.POINT_TO_POINT;
+		maxIterations = DEFAULT_MAX_ITERATIONS;
+		tolerance = DEFAULT_TOLERANCE;
+		sampleStep = 1;
+		maxCorrespondenceDistance = Double.POSITIVE_INFINITY;
+		trimRatio = 1.0;
+		normalNeighbors = DEFAULT_NORMAL_NEIGHBORS;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+	public void setMethod(Method method) {
+		if (method == null) {
+			throw new IllegalArgumentException("Method must not be null");
+		}
+		this.method = method;
+	}
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations <= 0) {
+			throw new IllegalArgumentException(
+					"Maximum number of iterations must be positive: " + maxIterations);
+		}
+		this.maxIterations = maxIterations;
+	}
+	public double getTolerance() {
+		return tolerance;
+	}
+	/**
+	 * Sets the tolerance of the convergence test.<br>
+	 * The registration stops when the RMS error changes by less than this
+	 * fraction between iterations, or when it falls below this fraction of
+	 * the spread of the source points.
+	 * 
+	 * @param tolerance
+	 *            Tolerance
+	 */
+	public void setTolerance(double tolerance) {
+		if (!(tolerance >= 0.0)) {
+			throw new IllegalArgumentException("Tolerance must not be negative: " + tolerance);
+		}
+		this.tolerance = tolerance;
+	}
+	public int getSampleStep() {
+		return sampleStep;
+	}
+	/**
+	 * Sets the subsampling of the source.<br>
+	 * Only every sampleStep-th source point is paired and aligned.
+	 * 
+	 * @param sampleStep
+	 *            Step between the source points used
+	 */
+	public void setSampleStep(int sampleStep) {
+		if (sampleStep <= 0) {
+			throw new IllegalArgumentException("Sample step must be positive: " + sampleStep);
+		}
+		this.sampleStep = sampleStep;
+	}
+	public double getMaxCorrespondenceDistance() {
+		return maxCorrespondenceDistance;
+	}
+	/**
+	 * Sets the distance beyond which pairs are rejected as outliers.
+	 * 
+	 * @param maxCorrespondenceDistance
+	 *            Maximum distance between paired points
+	 */
+	public void setMaxCorrespondenceDistance(double maxCorrespondenceDistance) {
+		if (!(maxCorrespondenceDistance > 0.0)) {
+			throw new IllegalArgumentException(
+					"Maximum correspondence distance must be positive: "
+							+ maxCorrespondenceDistance);
+		}
+		this.maxCorrespondenceDistance = maxCorrespondenceDistance;
+	}
+	public double getTrimRatio() {
+		return trimRatio;
+	}
+	/**
+	 * Sets the fraction of the pairs kept in each iteration.<br>
+	 * Only the closest pairs are kept, which rejects the parts of the source
+	 * that do not overlap the target (trimmed ICP). 1 keeps all the pairs.
+	 * 
+	 * @param trimRatio
+	 *            Fraction in (0, 1]
+	 */
+	public void setTrimRatio(double trimRatio) {
+		if (!(trimRatio > 0.0 && trimRatio <= 1.0)) {
+			throw new IllegalArgumentException("Trim ratio must be in (0, 1]: " + trimRatio);
+		}
+		this.trimRatio = trimRatio;
+	}
+	public int getNormalNeighbors() {
+		return normalNeighbors;
+	}
+	/**
+	 * Sets the number of neighbors used to estimate the normals of the
+	 * target.<br>
+	 * Normals already estimated are discarded.
+	 * 
+	 * @param normalNeighbors
+	 *            Number of neighbors including the point itself
+	 */
+	public void setNormalNeighbors(int normalNeighbors) {
+		if (normalNeighbors < 3) {
+			throw new IllegalArgumentException(
+					"At least 3 neighbors are required: " + normalNeighbors);
+		}
+		this.normalNeighbors = normalNeighbors;
+		targetNormals = null;
+	}
+	/**
+	 * Returns the normals of the target, estimating them if necessary.
+	 * 
+	 * @return Normals
+	 */
+	public VectorBatch getTargetNormals() {
+		this.ensureTargetNormals();
+		return targetNormals;
+	}
+	/**
+	 * Sets the normals of the target used by the point-to-plane metric.<br>
+	 * The normals must have unit length. Their orientation does not matter.
+	 * 
+	 * @param targetNormals
+	 *            Normals (null to estimate them from the neighbors)
+	 */
+	public void setTargetNormals(VectorBatch targetNormals) {
+		if (targetNormals != null && targetNormals.size() != target.size()) {
+			throw new IllegalArgumentException(
+					"Size mismatch: " + target.size() + " and " + targetNormals.size());
+		}
+		this.targetNormals = targetNormals;
+	}
+	public ParallelConfig getParallelConfig() {
+		return config;
+	}
+	/**
+	 * Sets the parallel execution settings.<br>
+	 * The k-d tree, the normals, the transformation of the source points, the
+	 * search for pairs and the alignment run in parallel.
+	 * 
+	 * @param config
+	 *            Parallel execution settings (null to run on the calling
+	 *            thread)
+	 */
+	public void setParallelConfig(ParallelConfig config) {
+		this.config = config;
+	}
+
+	private void ensureTree() {
+		if (tree == null) {
+			tree = new KDTree(target, config);
+		}
+	}
+	private void ensureTargetNormals() {
+		if (targetNormals != null) {
+			return;
+		}
+
+		this.ensureTree();
+		var normals = new VectorBatch(target.size());
+		if (config == null) {
+			this.estimateNormals(normals, 0, target.size());
+		} else {
+			config.run(target.size(), (from, to) -> this.estimateNormals(normals, from, to));
+		}
+		targetNormals = normals;
+	}
+	private void estimateNormals(VectorBatch normals, int from, int to) {
+		var indices = new int[normalNeighbors];
+		var squaredDistances = new double[normalNeighbors];
+		var covariance = new double[6];
+		var normal = new double[3];
+
+		for (int i = from; i < to; i++) {
+			int count = tree.findNearest(target.x[i], target.y[i], target.z[i], normalNeighbors,
+					indices, squaredDistances);
+
+			double cx = 0.0, cy = 0.0, cz = 0.0;
+			for (int j = 0; j < count; j++) {
+				cx += target.x[indices[j]];
+				cy += target.y[indices[j]];
+				cz += target.z[indices[j]];
+			}
+			cx /= count;
+			cy /= count;
+			cz /= count;
+
+			double xx = 0.0, xy = 0.0, xz = 0.0, yy = 0.0, yz = 0.0, zz = 0.0;
+			for (int j = 0; j < count; j++) {
+				double dx = target.x[indices[j]] - cx;
+				double dy = target.y[indices[j]] - cy;
+				double dz = target.z[indices[j]] - cz;
+				xx += dx * dx;
+				xy += dx * dy;
+				xz += dx * dz;
+				yy += dy * dy;
+				yz += dy * dz;
+				zz += dz * dz;
+			}
+			covariance[0] = xx;
+			covariance[1] = xy;
+			covariance[2] = xz;
+			covariance[3] = yy;
+			covariance[4] = yz;
+			covariance[5] = zz;
+
+			getSmallestEigenvector(covariance, normal);
+			normals.x[i] = normal[0];
+			normals.y[i] = normal[1];
+			normals.z[i] = normal[2];
+		}
+	}
+	/**
+	 * Computes a unit eigenvector for the smallest eigenvalue of a symmetric
+	 * 3x3 matrix.<br>
+	 * The eigenvalues are computed in closed form, and the eigenvector is the
+	 * longest cross product of two rows of (A - lambda I).
+	 * 
+	 * @param a
+	 *            Upper triangle of the matrix (xx, xy, xz, yy, yz, zz)
+	 * @param dst
+	 *            Destination of the eigenvector
+	 */
+	static void getSmallestEigenvector(double[] a, double[] dst) {
+		double a00 = a[0], a01 = a[1], a02 = a[2], a11 = a[3], a12 = a[4], a22 = a[5];
+
+		double q = (a00 + a11 + a22) / 3.0;
+		double p1 = a01 * a01 + a02 * a02 + a12 * a12;
+		double d0 = a00 - q, d1 = a11 - q, d2 = a22 - q;
+		double p = Math.sqrt((d0 * d0 + d1 * d1 + d2 * d2 + 2.0 * p1) / 6.0);
+		if (p == 0.0) {
+			dst[0] = 0.0;
+			dst[1] = 0.0;
+			dst[2] = 1.0;
+			return;
+		}
+
+		double b00 = d0 / p, b11 = d1 / p, b22 = d2 / p;
+		double b01 = a01 / p, b02 = a02 / p, b12 = a12 / p;
+		double r = (b00 * (b11 * b22 - b12 * b12) - b01 * (b01 * b22 - b12 * b02)
+				+ b02 * (b01 * b12 - b11 * b02)) * 0.5;
+		double phi = Math.acos(Math.max(-1.0, Math.min(1.0, r))) / 3.0;
+		double lambda = q + 2.0 * p * Math.cos(phi + 2.0 * Math.PI / 3.0);
+
+		double r0x = a00 - lambda, r0y = a01, r0z = a02;
+		double r1x = a01, r1y = a11 - lambda, r1z = a12;
+		double r2x = a02, r2y = a12, r2z = a22 - lambda;
+
+		double c0x = r0y * r1z - r0z * r1y;
+		double c0y = r0z * r1x - r0x * r1z;
+		double c0z = r0x * r1y - r0y * r1x;
+		double c1x = r0y * r2z - r0z * r2y;
+		double c1y = r0z * r2x - r0x * r2z;
+		double c1z = r0x * r2y - r0y * r2x;
+		double c2x = r1y * r2z - r1z * r2y;
+		double c2y = r1z * r2x - r1x * r2z;
+		double c2z = r1x * r2y - r1y * r2x;
+		double n0 = c0x * c0x + c0y * c0y + c0z * c0z;
+		double n1 = c1x * c1x + c1y * c1y + c1z * c1z;
+		double n2 = c2x * c2x + c2y * c2y + c2z * c2z;
+
+		double x, y, z, n;
+		if (n0 >= n1 && n0 >= n2) {
+			x = c0x;
+			y = c0y;
+			z = c0z;
+			n = n0;
+		} else if (n1 >= n2) {
+			x = c1x;
+			y = c1y;
+			z = c1z;
+			n = n1;
+		} else {
+			x = c2x;
+			y = c2y;
+			z = c2z;
+			n = n2;
+		}
+
+		if (n == 0.0) {
+			// The smallest eigenvalue is repeated, as for points on a line, so
+			// any vector perpendicular to the longest row will do.
+			double l0 = r0x * r0x + r0y * r0y + r0z * r0z;
+			double l1 = r1x * r1x + r1y * r1y + r1z * r1z;
+			double l2 = r2x * r2x + r2y * r2y + r2z * r2z;
+			double rx = l0 >= l1 && l0 >= l2 ? r0x : l1 >= l2 ? r1x : r2x;
+			double ry = l0 >= l1 && l0 >= l2 ? r0y : l1 >= l2 ? r1y : r2y;
+			double rz = l0 >= l1 && l0 >= l2 ? r0z : l1 >= l2 ? r1z : r2z;
+			if (Math.abs(rx) <= Math.abs(ry) && Math.abs(rx) <= Math.abs(rz)) {
+				x = 0.0;
+				y = rz;
+				z = -ry;
+			} else if (Math.abs(ry) <= Math.abs(rz)) {
+				x = -rz;
+				y = 0.0;
+				z = rx;
+			} else {
+				x = ry;
+				y = -rx;
+				z = 0.0;
+			}
+			n = x * x + y * y + z * z;
+		}
+
+		double inv = 1.0 / Math.sqrt(n);
+		dst[0] = x * inv;
+		dst[1] = y * inv;
+		dst[2] = z * inv;
+	}
+
+	/**
+	 * Registers a source point cloud to the target.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @return Result
+	 */
+	public Result register(Vector[] source) {
+		return this.register(new VectorBatch(source));
+	}
+	/**
+	 * Registers a source point cloud to the target starting from an initial
+	 * estimate.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @param initial
+	 *            Initial estimate of the transformation
+	 * @return Result
+	 */
+	public Result register(Vector[] source, Matrix initial) {
+		return this.register(new VectorBatch(source), initial);
+	}
+	/**
+	 * Registers a source point cloud to the target.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @return Result
+	 */
+	public Result register(VectorBatch source) {
+		return this.register(source, Matrix.createIdentityMatrix());
+	}
+	/**
+	 * Registers a source point cloud to the target starting from an initial
+	 * estimate.<br>
+	 * The registration converges when the relative change of the RMS error
+	 * falls below the tolerance, or when the RMS error falls below the
+	 * tolerance times the spread of the source points. It stops without
+	 * converging when the maximum number of iterations is reached or when too
+	 * few pairs are left after the outliers are rejected.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @param initial
+	 *            Initial estimate of the transformation
+	 * @return Result
+	 */
+	public Result register(VectorBatch source, Matrix initial) {
+		int sampleCount = (source.size() + sampleStep - 1) / sampleStep;
+		if (sampleCount == 0) {
+			throw new IllegalArgumentException("Source must not be empty");
+		}
+
+		this.ensureTree();
+		boolean plane = method == Method.POINT_TO_PLANE;
+		if (plane) {
+			this.ensureTargetNormals();
+		}
+
+		var samples = new VectorBatch(sampleCount);
+		for (int i = 0; i < sampleCount; i++) {
+			int s = i * sampleStep;
+			samples.x[i] = source.x[s];
+			samples.y[i] = source.y[s];
+			samples.z[i] = source.z[s];
+		}
+		double spread = getSpread(samples);
+		var moved = new VectorBatch(sampleCount);
+		var nearest = new int[sampleCount];
+		var squaredDistances = new double[sampleCount];
+		double[] selectBuffer = trimRatio < 1.0 ? new double[sampleCount] : null;
+		var pairs = new Pairs(sampleCount, plane);
+
+		int minPairs = plane ? 6 : 3;
+		var current = new Matrix(initial);
+		var increment = new Matrix();
+		double rmsError = Double.NaN;
+		double previousRMSError = Double.NaN;
+		int iterations = 0;
+		boolean converged = false;
+
+		while (iterations < maxIterations) {
+			if (config == null) {
+				samples.transform(current, moved);
+				tree.findNearest(moved, 1, nearest, squaredDistances);
+			} else {
+				samples.transform(current, moved, config);
+				tree.findNearest(moved, 1, nearest, squaredDistances, config);
+			}
+
+			double threshold = maxCorrespondenceDistance * maxCorrespondenceDistance;
+			if (selectBuffer != null) {
+				int keep = Math.max((int) Math.ceil(sampleCount * trimRatio), 1);
+				System.arraycopy(squaredDistances, 0, selectBuffer, 0, sampleCount);
+				threshold = Math.min(threshold, select(selectBuffer, keep - 1));
+			}
+
+			double sum = pairs.gather(moved, nearest, squaredDistances, threshold);
+			if (pairs.count < minPairs) {
+				break;
+			}
+
+			iterations++;
+			rmsError = Math.sqrt(sum / pairs.count);
+
+			if (plane) {
+				this.solvePointToPlane(pairs, increment);
+			} else {
+				RigidAlignment.align(pairs.px, pairs.py, pairs.pz, pairs.qx, pairs.qy, pairs.qz,
+						pairs.count, false, config, pairs.workspace, increment);
+			}
+			Matrix.mult(increment, current, current);
+
+			if (rmsError <= tolerance * spread
+					|| Math.abs(previousRMSError - rmsError) <= tolerance * previousRMSError) {
+				converged = true;
+				break;
+			}
+			previousRMSError = rmsError;
+		}
+
+		return new Result(current, iterations, rmsError, pairs.count, converged);
+	}
+
+	/**
+	 * Returns the root mean square of the distances of points from their
+	 * centroid.
+	 */
+	private static double getSpread(VectorBatch points) {
+		int size = points.size();
+		double cx = 0.0, cy = 0.0, cz = 0.0;
+		for (int i = 0; i < size; i++) {
+			cx += points.x[i];
+			cy += points.y[i];
+			cz += points.z[i];
+		}
+		cx /= size;
+		cy /= size;
+		cz /= size;
+
+		double sum = 0.0;
+		for (int i = 0; i < size; i++) {
+			double dx = points.x[i] - cx, dy = points.y[i] - cy, dz = points.z[i] - cz;
+			sum += dx * dx + dy * dy + dz * dz;
+		}
+
+		return Math.sqrt(sum / size);
+	}
+
+	/**
+	 * Pairs of moved source points and target points kept in an iteration,
+	 * and the buffers used to solve for the increment<br>
+	 * One instance serves all the iterations of a registration.
+	 */
+	private class Pairs {
+		final double[] px, py, pz;
+		final double[] qx, qy, qz;
+		final double[] nx, ny, nz;
+		int count;
+
+		// Point-to-point
+		final RigidAlignment.Workspace workspace;
+
+		// Point-to-plane
+		final double[] planeSums;
+		final DMatrixRMaj ata;
+		final DMatrixRMaj atb;
+		final DMatrixRMaj solution;
+		final LinearSolverDense<DMatrixRMaj> solver;
+
+		Pairs(int capacity, boolean plane) {
+			px = new double[capacity];
+			py = new double[capacity];
+			pz = new double[capacity];
+			qx = new double[capacity];
+			qy = new double[capacity];
+			qz = new double[capacity];
+			nx = plane ? new double[capacity] : null;
+			ny = plane ? new double[capacity] : null;
+			nz = plane ? new double[capacity] : null;
+
+			workspace = plane ? null : new RigidAlignment.Workspace();
+			planeSums = plane ? new double[PLANE_SUM_WIDTH] : null;
+			ata = plane ? new DMatrixRMaj(6, 6) : null;
+			atb = plane ? new DMatrixRMaj(6, 1) : null;
+			solution = plane ? new DMatrixRMaj(6, 1) : null;
+			solver = plane ? LinearSolverFactory_DDRM.pseudoInverse(true) : null;
+		}
+
+		/**
+		 * Collects the pairs within a squared distance.
+		 * 
+		 * @return Sum of the squared distances of the pairs collected
+		 */
+		double gather(VectorBatch moved, int[] nearest, double[] squaredDistances,
+				double threshold) {
+			double sum = 0.0;
+			int c = 0;
+
+			for (int i = 0; i < nearest.length; i++) {
+				int j = nearest[i];
+				if (j < 0 || squaredDistances[i] > threshold) {
+					continue;
+				}
+
+				px[c] = moved.x[i];
+				py[c] = moved.y[i];
+				pz[c] = moved.z[i];
+				qx[c] = target.x[j];
+				qy[c] = target.y[j];
+				qz[c] = target.z[j];
+				if (nx != null) {
+					nx[c] = targetNormals.x[j];
+					ny[c] = targetNormals.y[j];
+					nz[c] = targetNormals.z[j];
+				}
+				sum += squaredDistances[i];
+				c++;
+			}
+			count = c;
+
+			return sum;
+		}
+	}
+
+	/**
+	 * Finds the k-th smallest value, reordering the array.
+	 */
+	private static double select(double[] values, int k) {
+		int lo = 0, hi = values.length - 1;
+		while (lo < hi) {
+			double pivot = values[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (values[i] < pivot) {
+					i++;
+				}
+				while (values[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					double t = values[i];
+					values[i] = values[j];
+					values[j] = t;
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				break;
+			}
+		}
+
+		return values[k];
+	}
+
+	/**
+	 * Computes the increment that minimizes the point-to-plane error,
+	 * linearized for small rotations (Low, 2004).<br>
+	 * The points are centered on the centroid of the source points first, so
+	 * that the rotation and the translation are well separated.
+	 */
+	private void solvePointToPlane(Pairs pairs, Matrix dst) {
+		int count = pairs.count;
+		double cx = 0.0, cy = 0.0, cz = 0.0;
+		for (int i = 0; i < count; i++) {
+			cx += pairs.px[i];
+			cy += pairs.py[i];
+			cz += pairs.pz[i];
+		}
+		double ox = cx / count, oy = cy / count, oz = cz / count;
+
+		double[] s = pairs.planeSums;
+		if (config == null) {
+			Arrays.fill(s, 0.0);
+			sumPointToPlane(pairs, ox, oy, oz, 0, count, s, 0);
+		} else {
+			s = config.sum(count, PLANE_SUM_WIDTH, (from, to, sums, offset) -> sumPointToPlane(
+					pairs, ox, oy, oz, from, to, sums, offset));
+		}
+
+		// Upper triangle of A^T A followed by A^T b
+		DMatrixRMaj ata = pairs.ata;
+		DMatrixRMaj atb = pairs.atb;
+		int k = 0;
+		for (int r = 0; r < 6; r++) {
+			for (int c = r; c < 6; c++) {
+				ata.set(r, c, s[k]);
+				ata.set(c, r, s[k]);
+				k++;
+			}
+		}
+		for (int r = 0; r < 6; r++) {
+			atb.set(r, 0, -s[k + r]);
+		}
+
+		// The pseudo-inverse leaves unconstrained motions, such as sliding
+		// along a plane, at zero.
+		DMatrixRMaj x = pairs.solution;
+		if (!pairs.solver.setA(ata)) {
+			throw new IllegalArgumentException("Points must be finite");
+		}
+		pairs.solver.solve(atb, x);
+
+		double wx = x.get(0), wy = x.get(1), wz = x.get(2);
+		double angle = Math.sqrt(wx * wx + wy * wy + wz * wz);
+		if (angle > 0.0) {
+			Matrix.createRotationMatrix(wx / angle, wy / angle, wz / angle, Math.cos(angle),
+					Math.sin(angle), dst);
+		} else {
+			Matrix.createRotationMatrix(1.0, 0.0, 0.0, 1.0, 0.0, dst);
+		}
+
+		// p' = R (p - o) + t + o
+		double[] m = dst.m;
+		m[3] = x.get(3) + ox - (m[0] * ox + m[1] * oy + m[2] * oz);
+		m[7] = x.get(4) + oy - (m[4] * ox + m[5] * oy + m[6] * oz);
+		m[11] = x.get(5) + oz - (m[8] * ox + m[9] * oy + m[10] * oz);
+	}
+	private static void sumPointToPlane(Pairs pairs, double ox, double oy, double oz, int from,
+			int to, double[] sums, int offset) {
+		for (int i = from; i < to; i++) {
+			double px = pairs.px[i] - ox, py = pairs.py[i] - oy, pz = pairs.pz[i] - oz;
+			double nx = pairs.nx[i], ny = pairs.ny[i], nz = pairs.nz[i];
+			double a0 = py * nz - pz * ny;
+			double a1 = pz * nx - px * nz;
+			double a2 = px * ny - py * nx;
+			double b = (pairs.px[i] - pairs.qx[i]) * nx + (pairs.py[i] - pairs.qy[i]) * ny
+					+ (pairs.pz[i] - pairs.qz[i]) * nz;
+
+			// Row a = (a0, a1, a2, nx, ny, nz)
+			int k = offset;
+			sums[k++] += a0 * a0;
+			sums[k++] += a0 * a1;
+			sums[k++] += a0 * a2;
+			sums[k++] += a0 * nx;
+			sums[k++] += a0 * ny;
+			sums[k++] += a0 * nz;
+			sums[k++] += a1 * a1;
+			sums[k++] += a1 * a2;
+			sums[k++] += a1 * nx;
+			sums[k++] += a1 * ny;
+			sums[k++] += a1 * nz;
+			sums[k++] += a2 * a2;
+			sums[k++] += a2 * nx;
+			sums[k++] += a2 * ny;
+			sums[k++] += a2 * nz;
+			sums[k++] += nx * nx;
+			sums[k++] += nx * ny;
+			sums[k++] += nx * nz;
+			sums[k++] += ny * ny;
+			sums[k++] += ny * nz;
+			sums[k++] += nz * nz;
+			sums[k++] += a0 * b;
+			sums[k++] += a1 * b;
+			sums[k++] += a2 * b;
+			sums[k++] += nx * b;
+			sums[k++] += ny * b;
+			sums[k] += nz * b;
+		}
+	}
+}
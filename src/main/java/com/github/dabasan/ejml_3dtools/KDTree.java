@@ -0,0 +1,516 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * k-d tree over a static set of points<br>
+ * The points are copied and reordered so that the tree is implicit: the node
+ * for a range [lo, hi) of the arrays is the median at (lo + hi) / 2, and its
+ * children are the ranges on either side. Each node splits on the axis along
+ * which its range is widest. The tree is balanced, so queries recurse at most
+ * log2(n) + 1 levels deep.<br>
+ * Queries write the original indices of the points into buffers provided by
+ * the caller and do not allocate. They are thread-safe.
+ * 
+ * @author Daba
+ *
+ */
+public class KDTree {
+	private final double[] coords;
+	private final int[] indices;
+	private final byte[] axes;
+	private final int size;
+
+	/**
+	 * Builds a tree over points.
+	 * 
+	 * @param points
+	 *            Points
+	 */
+	public KDTree(Vector[] points) {
+		this(new VectorBatch(points));
+	}
+	/**
+	 * Builds a tree over points.
+	 * 
+	 * @param x
+	 *            X elements
+	 * @param y
+	 *            Y elements
+	 * @param z
+	 *            Z elements
+	 */
+	public KDTree(double[] x, double[] y, double[] z) {
+		this(new VectorBatch(x, y, z));
+	}
+	/**
+	 * Builds a tree over points.
+	 * 
+	 * @param points
+	 *            Points
+	 */
+	public KDTree(VectorBatch points) {
+		this(points, null);
+	}
+	/**
+	 * Builds a tree over points in parallel.<br>
+	 * Subtrees larger than the chunk size are built as separate tasks. The
+	 * tree is built on the calling thread if the number of points is below
+	 * the threshold.
+	 * 
+	 * @param points
+	 *            Points
+	 * @param config
+	 *            Parallel execution settings
+	 */
+	public KDTree(VectorBatch points, ParallelConfig config) {
+		size = points.size();
+		coords = new double[size * 3];
+		indices = new int[size];
+		axes = new byte[size];
+
+		for (int i = 0; i < size; i++) {
+			coords[i * 3] = points.x[i];
+			coords[i * 3 + 1] = points.y[i];
+			coords[i * 3 + 2] = points.z[i];
+			indices[i] = i;
+		}
+
+		if (config == null || size < config.getThreshold()) {
+			this.build(0, size);
+		} else {
+			config.getPool().invoke(new BuildAction(0, size, config.getChunkSize()));
+		}
+	}
+
+	private class BuildAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int lo;
+		private final int hi;
+		private final int chunkSize;
+
+		public BuildAction(int lo, int hi, int chunkSize) {
+			this.lo = lo;
+			this.hi = hi;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= chunkSize) {
+				build(lo, hi);
+				return;
+			}
+
+			int mid = split(lo, hi);
+			invokeAll(new BuildAction(lo, mid, chunkSize),
+					new BuildAction(mid + 1, hi, chunkSize));
+		}
+	}
+
+	private void build(int lo, int hi) {
+		while (hi - lo > 1) {
+			int mid = this.split(lo, hi);
+			this.build(lo, mid);
+			lo = mid + 1;
+		}
+	}
+	/**
+	 * Chooses the axis of the node for [lo, hi) and moves the median along it
+	 * to the middle of the range.
+	 */
+	private int split(int lo, int hi) {
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		double minZ = Double.POSITIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (int i = lo; i < hi; i++) {
+			double x = coords[i * 3], y = coords[i * 3 + 1], z = coords[i * 3 + 2];
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+			minZ = Math.min(minZ, z);
+			maxZ = Math.max(maxZ, z);
+		}
+
+		double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+		int axis = dx >= dy && dx >= dz ? 0 : dy >= dz ? 1 : 2;
+		int mid = (lo + hi) >>> 1;
+
+		this.select(lo, hi - 1, mid, axis);
+		axes[mid] = (byte) axis;
+
+		return mid;
+	}
+	/**
+	 * Quickselect that moves the k-th point along an axis to index k in
+	 * [left, right].
+	 */
+	private void select(int left, int right, int k, int axis) {
+		while (right > left) {
+			int m = (left + right) >>> 1;
+			if (coords[m * 3 + axis] < coords[left * 3 + axis]) {
+				this.swap(m, left);
+			}
+			if (coords[right * 3 + axis] < coords[left * 3 + axis]) {
+				this.swap(right, left);
+			}
+			if (coords[right * 3 + axis] < coords[m * 3 + axis]) {
+				this.swap(right, m);
+			}
+
+			double pivot = coords[m * 3 + axis];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coords[i * 3 + axis] < pivot) {
+					i++;
+				}
+				while (coords[j * 3 + axis] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					this.swap(i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+	private void swap(int i, int j) {
+		int a = i * 3;
+		int b = j * 3;
+		for (int c = 0; c < 3; c++) {
+			double tmp = coords[a + c];
+			coords[a + c] = coords[b + c];
+			coords[b + c] = tmp;
+		}
+
+		int tmp = indices[i];
+		indices[i] = indices[j];
+		indices[j] = tmp;
+	}
+
+	/**
+	 * Returns the number of points.
+	 * 
+	 * @return Number of points
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the k nearest points.<br>
+	 * The indices of the points and their squared distances are written to
+	 * the buffers in ascending order of distance. Both buffers must have room
+	 * for k elements.
+	 * 
+	 * @param point
+	 *            Query point
+	 * @param k
+	 *            Number of points to find
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances
+	 * @return Number of points found (less than k only if the tree has fewer
+	 *         points)
+	 */
+	public int findNearest(Vector point, int k, int[] indices, double[] squaredDistances) {
+		return this.findNearest(point.v[0], point.v[1], point.v[2], k, indices,
+				squaredDistances);
+	}
+	/**
+	 * Finds the k nearest points.
+	 * 
+	 * @param x
+	 *            X of the query point
+	 * @param y
+	 *            Y of the query point
+	 * @param z
+	 *            Z of the query point
+	 * @param k
+	 *            Number of points to find
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances
+	 * @return Number of points found
+	 * @see #findNearest(Vector, int, int[], double[])
+	 */
+	public int findNearest(double x, double y, double z, int k, int[] indices,
+			double[] squaredDistances) {
+		checkBuffers(k, indices.length, squaredDistances.length);
+
+		return this.findNearest(x, y, z, k, indices, squaredDistances, 0);
+	}
+	private static void checkBuffers(int k, int indexLength, int distanceLength) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("k must be positive: " + k);
+		}
+		if (indexLength < k || distanceLength < k) {
+			throw new IllegalArgumentException("Buffers must have room for " + k + " points");
+		}
+	}
+	/**
+	 * Finds the k nearest points into the buffers from the offset specified.
+	 */
+	private int findNearest(double x, double y, double z, int k, int[] dstIndices,
+			double[] dstDistances, int offset) {
+		int count = this.searchNearest(0, size, x, y, z, k, dstIndices, dstDistances, offset, 0);
+
+		// The buffers hold a max-heap. Sorting it in place gives ascending
+		// order.
+		for (int n = count - 1; n > 0; n--) {
+			swap(dstIndices, dstDistances, offset, offset + n);
+			siftDown(dstIndices, dstDistances, offset, 0, n);
+		}
+
+		return count;
+	}
+	private int searchNearest(int lo, int hi, double x, double y, double z, int k,
+			int[] dstIndices, double[] dstDistances, int offset, int count) {
+		if (lo >= hi) {
+			return count;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		double px = coords[mid * 3], py = coords[mid * 3 + 1], pz = coords[mid * 3 + 2];
+		double d = (px - x) * (px - x) + (py - y) * (py - y) + (pz - z) * (pz - z);
+
+		if (count < k) {
+			int i = count++;
+			dstIndices[offset + i] = indices[mid];
+			dstDistances[offset + i] = d;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (dstDistances[offset + parent] >= dstDistances[offset + i]) {
+					break;
+				}
+				swap(dstIndices, dstDistances, offset + parent, offset + i);
+				i = parent;
+			}
+		} else if (d < dstDistances[offset]) {
+			dstIndices[offset] = indices[mid];
+			dstDistances[offset] = d;
+			siftDown(dstIndices, dstDistances, offset, 0, count);
+		}
+
+		if (hi - lo == 1) {
+			return count;
+		}
+
+		int axis = axes[mid];
+		double diff = (axis == 0 ? x : axis == 1 ? y : z) - coords[mid * 3 + axis];
+		if (diff < 0.0) {
+			count = this.searchNearest(lo, mid, x, y, z, k, dstIndices, dstDistances, offset,
+					count);
+			if (count < k || diff * diff < dstDistances[offset]) {
+				count = this.searchNearest(mid + 1, hi, x, y, z, k, dstIndices, dstDistances,
+						offset, count);
+			}
+		} else {
+			count = this.searchNearest(mid + 1, hi, x, y, z, k, dstIndices, dstDistances,
+					offset, count);
+			if (count < k || diff * diff < dstDistances[offset]) {
+				count = this.searchNearest(lo, mid, x, y, z, k, dstIndices, dstDistances, offset,
+						count);
+			}
+		}
+
+		return count;
+	}
+	private static void siftDown(int[] dstIndices, double[] dstDistances, int offset, int i,
+			int count) {
+		while (true) {
+			int largest = i;
+			int l = i * 2 + 1;
+			int r = l + 1;
+			if (l < count && dstDistances[offset + l] > dstDistances[offset + largest]) {
+				largest = l;
+			}
+			if (r < count && dstDistances[offset + r] > dstDistances[offset + largest]) {
+				largest = r;
+			}
+			if (largest == i) {
+				return;
+			}
+
+			swap(dstIndices, dstDistances, offset + i, offset + largest);
+			i = largest;
+		}
+	}
+	private static void swap(int[] dstIndices, double[] dstDistances, int i, int j) {
+		int index = dstIndices[i];
+		dstIndices[i] = dstIndices[j];
+		dstIndices[j] = index;
+
+		double distance = dstDistances[i];
+		dstDistances[i] = dstDistances[j];
+		dstDistances[j] = distance;
+	}
+
+	/**
+	 * Finds the k nearest points of each query point.<br>
+	 * The results of query i are written to the buffers from index i * k in
+	 * ascending order of distance. If the tree has fewer than k points, the
+	 * rest of each row is filled with -1 and positive infinity.
+	 * 
+	 * @param points
+	 *            Query points
+	 * @param k
+	 *            Number of points to find per query
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances
+	 */
+	public void findNearest(VectorBatch points, int k, int[] indices,
+			double[] squaredDistances) {
+		checkBuffers(points, k, indices, squaredDistances);
+		this.findNearest(points, k, indices, squaredDistances, 0, points.size());
+	}
+	/**
+	 * Finds the k nearest points of each query point in parallel.
+	 * 
+	 * @param points
+	 *            Query points
+	 * @param k
+	 *            Number of points to find per query
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances
+	 * @param config
+	 *            Parallel execution settings
+	 * @see #findNearest(VectorBatch, int, int[], double[])
+	 */
+	public void findNearest(VectorBatch points, int k, int[] indices, double[] squaredDistances,
+			ParallelConfig config) {
+		checkBuffers(points, k, indices, squaredDistances);
+		config.run(points.size(),
+				(from, to) -> this.findNearest(points, k, indices, squaredDistances, from, to));
+	}
+	private static void checkBuffers(VectorBatch points, int k, int[] indices,
+			double[] squaredDistances) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("k must be positive: " + k);
+		}
+
+		long length = (long) points.size() * k;
+		if (indices.length < length || squaredDistances.length < length) {
+			throw new IllegalArgumentException("Buffers must have room for " + length + " points");
+		}
+	}
+	private void findNearest(VectorBatch points, int k, int[] dstIndices,
+			double[] dstDistances, int from, int to) {
+		for (int i = from; i < to; i++) {
+			int offset = i * k;
+			int count = this.findNearest(points.x[i], points.y[i], points.z[i], k, dstIndices,
+					dstDistances, offset);
+			for (int j = count; j < k; j++) {
+				dstIndices[offset + j] = -1;
+				dstDistances[offset + j] = Double.POSITIVE_INFINITY;
+			}
+		}
+	}
+
+	/**
+	 * Finds the points within a radius.<br>
+	 * The indices of the points and their squared distances are written to
+	 * the buffers in no particular order as long as they have room. The
+	 * return value is the total number found, so a return value larger than
+	 * the length of the buffers means that the query should be repeated with
+	 * larger ones.
+	 * 
+	 * @param point
+	 *            Query point
+	 * @param radius
+	 *            Radius (points at exactly this distance are included)
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances (may be null)
+	 * @return Number of points found
+	 */
+	public int findWithinRadius(Vector point, double radius, int[] indices,
+			double[] squaredDistances) {
+		return this.findWithinRadius(point.v[0], point.v[1], point.v[2], radius, indices,
+				squaredDistances);
+	}
+	/**
+	 * Finds the points within a radius.
+	 * 
+	 * @param x
+	 *            X of the query point
+	 * @param y
+	 *            Y of the query point
+	 * @param z
+	 *            Z of the query point
+	 * @param radius
+	 *            Radius
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances (may be null)
+	 * @return Number of points found
+	 * @see #findWithinRadius(Vector, double, int[], double[])
+	 */
+	public int findWithinRadius(double x, double y, double z, double radius, int[] indices,
+			double[] squaredDistances) {
+		if (squaredDistances != null && squaredDistances.length < indices.length) {
+			throw new IllegalArgumentException("Buffers must have the same length");
+		}
+
+		return this.searchRadius(0, size, x, y, z, radius * radius, indices, squaredDistances,
+				0);
+	}
+	private int searchRadius(int lo, int hi, double x, double y, double z, double r2,
+			int[] dstIndices, double[] dstDistances, int count) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			double px = coords[mid * 3], py = coords[mid * 3 + 1], pz = coords[mid * 3 + 2];
+			double d = (px - x) * (px - x) + (py - y) * (py - y) + (pz - z) * (pz - z);
+			if (d <= r2) {
+				if (count < dstIndices.length) {
+					dstIndices[count] = indices[mid];
+					if (dstDistances != null) {
+						dstDistances[count] = d;
+					}
+				}
+				count++;
+			}
+
+			int axis = axes[mid];
+			double diff = (axis == 0 ? x : axis == 1 ? y : z) - coords[mid * 3 + axis];
+			boolean both = diff * diff <= r2;
+
+			// Recurse into one side and continue with the other in this loop.
+			if (diff < 0.0) {
+				if (both) {
+					count = this.searchRadius(mid + 1, hi, x, y, z, r2, dstIndices, dstDistances,
+							count);
+				}
+				hi = mid;
+			} else {
+				if (both) {
+					count = this.searchRadius(lo, mid, x, y, z, r2, dstIndices, dstDistances,
+							count);
+				}
+				lo = mid + 1;
+			}
+		}
+
+		return count;
+	}
+}
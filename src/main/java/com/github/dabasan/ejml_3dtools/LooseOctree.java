@@ -0,0 +1,570 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.util.Arrays;
+
+/**
+ * Loose octree of points and spheres for dynamic sets<br>
+ * Each node covers a cubic cell, but its bounds are loosened to twice the
+ * size of the cell. An item is stored in the deepest node whose cell half
+ * size is not smaller than the radius of the item, in the cell that contains
+ * its center. The item then fits in the loose bounds of the node, so an item
+ * is stored in exactly one node and moving it rarely changes the node.
+ * Points are items with a radius of 0 and go to the deepest level.<br>
+ * Items are identified by the integer handles returned by
+ * {@link #insert(double, double, double, double)}. Items whose center is
+ * outside the root cell are kept in the root.<br>
+ * Nodes and items are kept in arrays and recycled through free lists, so
+ * inserting, removing and moving items do not allocate once the arrays have
+ * grown to the working size. Nodes are allocated in blocks of 8 siblings and
+ * returned to the pool when their subtree becomes empty. Queries are
+ * thread-safe as long as the tree is not modified at the same time.
+ * 
+ * @author Daba
+ *
+ */
+public class LooseOctree {
+	private static final int NONE = -1;
+	private static final int MAX_DEPTH = 30;
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private final double rootHalfSize;
+	private final int maxDepth;
+
+	// Nodes. Node 0 is the root, and the others are allocated in blocks of 8.
+	private int nodeCapacity;
+	private double[] nodeCenters;
+	private byte[] nodeDepths;
+	private int[] nodeParents;
+	private int[] nodeChildren;
+	private int[] nodeHeads;
+	private int[] nodeItemCounts;
+	private int[] nodeTotalCounts;
+	private int nodeBlockCount;
+	private int freeBlock;
+	private int freeBlockCount;
+
+	// Items
+	private int itemCapacity;
+	private double[] itemCoords;
+	private int[] itemNodes;
+	private int[] itemNexts;
+	private int[] itemPrevs;
+	private int itemCount;
+	private int itemEnd;
+	private int freeItem;
+
+	/**
+	 * Creates an empty tree.
+	 * 
+	 * @param center
+	 *            Center of the root cell
+	 * @param halfSize
+	 *            Half of the edge length of the root cell
+	 * @param maxDepth
+	 *            Maximum depth of the nodes (the root is at depth 0)
+	 */
+	public LooseOctree(Vector center, double halfSize, int maxDepth) {
+		if (!(halfSize > 0.0)) {
+			throw new IllegalArgumentException("Half size must be positive: " + halfSize);
+		}
+		if (maxDepth < 0 || maxDepth > MAX_DEPTH) {
+			throw new IllegalArgumentException(
+					"Max depth must be from 0 to " + MAX_DEPTH + ": " + maxDepth);
+		}
+
+		rootHalfSize = halfSize;
+		this.maxDepth = maxDepth;
+
+		this.growNodes(1 + 8 * 8);
+		nodeCenters[0] = center.v[0];
+		nodeCenters[1] = center.v[1];
+		nodeCenters[2] = center.v[2];
+		this.initNode(0, NONE, 0);
+		freeBlock = NONE;
+
+		this.growItems(DEFAULT_CAPACITY);
+		freeItem = NONE;
+	}
+
+	private void growNodes(int capacity) {
+		nodeCenters = Arrays.copyOf(nodeCenters == null ? new double[0] : nodeCenters,
+				capacity * 3);
+		nodeDepths = Arrays.copyOf(nodeDepths == null ? new byte[0] : nodeDepths, capacity);
+		nodeParents = Arrays.copyOf(nodeParents == null ? new int[0] : nodeParents, capacity);
+		nodeChildren = Arrays.copyOf(nodeChildren == null ? new int[0] : nodeChildren,
+				capacity);
+		nodeHeads = Arrays.copyOf(nodeHeads == null ? new int[0] : nodeHeads, capacity);
+		nodeItemCounts = Arrays.copyOf(nodeItemCounts == null ? new int[0] : nodeItemCounts,
+				capacity);
+		nodeTotalCounts = Arrays.copyOf(
+				nodeTotalCounts == null ? new int[0] : nodeTotalCounts, capacity);
+		nodeCapacity = capacity;
+	}
+	private void growItems(int capacity) {
+		itemCoords = Arrays.copyOf(itemCoords == null ? new double[0] : itemCoords,
+				capacity * 4);
+		itemNodes = Arrays.copyOf(itemNodes == null ? new int[0] : itemNodes, capacity);
+		itemNexts = Arrays.copyOf(itemNexts == null ? new int[0] : itemNexts, capacity);
+		itemPrevs = Arrays.copyOf(itemPrevs == null ? new int[0] : itemPrevs, capacity);
+		itemCapacity = capacity;
+	}
+	private void initNode(int node, int parent, int depth) {
+		nodeDepths[node] = (byte) depth;
+		nodeParents[node] = parent;
+		nodeChildren[node] = NONE;
+		nodeHeads[node] = NONE;
+		nodeItemCounts[node] = 0;
+		nodeTotalCounts[node] = 0;
+	}
+
+	/**
+	 * Creates the 8 children of a node.
+	 */
+	private int allocateChildren(int node) {
+		int first;
+		if (freeBlock != NONE) {
+			first = freeBlock;
+			freeBlock = nodeChildren[first];
+			freeBlockCount--;
+		} else {
+			first = 1 + nodeBlockCount * 8;
+			if (first + 8 > nodeCapacity) {
+				this.growNodes(Math.max(first + 8, nodeCapacity * 2));
+			}
+			nodeBlockCount++;
+		}
+
+		int depth = nodeDepths[node] + 1;
+		double quarter = this.getHalfSize(depth);
+		for (int i = 0; i < 8; i++) {
+			int child = first + i;
+			nodeCenters[child * 3] = nodeCenters[node * 3]
+					+ ((i & 1) != 0 ? quarter : -quarter);
+			nodeCenters[child * 3 + 1] = nodeCenters[node * 3 + 1]
+					+ ((i & 2) != 0 ? quarter : -quarter);
+			nodeCenters[child * 3 + 2] = nodeCenters[node * 3 + 2]
+					+ ((i & 4) != 0 ? quarter : -quarter);
+			this.initNode(child, node, depth);
+		}
+
+		nodeChildren[node] = first;
+		return first;
+	}
+	private void freeChildren(int node) {
+		int first = nodeChildren[node];
+		nodeChildren[node] = NONE;
+
+		nodeChildren[first] = freeBlock;
+		freeBlock = first;
+		freeBlockCount++;
+	}
+	private double getHalfSize(int depth) {
+		return Math.scalb(rootHalfSize, -depth);
+	}
+
+	/**
+	 * Returns the number of items.
+	 * 
+	 * @return Number of items
+	 */
+	public int size() {
+		return itemCount;
+	}
+	/**
+	 * Returns the number of nodes in use, including the root.
+	 * 
+	 * @return Number of nodes
+	 */
+	public int getNodeCount() {
+		return 1 + (nodeBlockCount - freeBlockCount) * 8;
+	}
+	/**
+	 * Returns true if a handle refers to an item in this tree.
+	 * 
+	 * @param item
+	 *            Handle
+	 * @return true if the item exists
+	 */
+	public boolean contains(int item) {
+		return item >= 0 && item < itemEnd && itemNodes[item] != NONE;
+	}
+	private void checkItem(int item) {
+		if (!this.contains(item)) {
+			throw new IllegalArgumentException("No such item: " + item);
+		}
+	}
+	public Vector getPosition(int item) {
+		this.checkItem(item);
+		return new Vector(itemCoords[item * 4], itemCoords[item * 4 + 1],
+				itemCoords[item * 4 + 2]);
+	}
+	public double getRadius(int item) {
+		this.checkItem(item);
+		return itemCoords[item * 4 + 3];
+	}
+
+	/**
+	 * Finds the node that an item belongs to, creating nodes as needed.
+	 */
+	private int findNode(double x, double y, double z, double radius) {
+		int depth = 0;
+		double half = rootHalfSize;
+		while (depth < maxDepth && radius <= half * 0.5) {
+			half *= 0.5;
+			depth++;
+		}
+
+		double cx = nodeCenters[0], cy = nodeCenters[1], cz = nodeCenters[2];
+		if (Math.abs(x - cx) > rootHalfSize || Math.abs(y - cy) > rootHalfSize
+				|| Math.abs(z - cz) > rootHalfSize) {
+			return 0;
+		}
+
+		int node = 0;
+		for (int d = 0; d < depth; d++) {
+			int first = nodeChildren[node];
+			if (first == NONE) {
+				first = this.allocateChildren(node);
+			}
+
+			int octant = (x >= nodeCenters[node * 3] ? 1 : 0)
+					| (y >= nodeCenters[node * 3 + 1] ? 2 : 0)
+					| (z >= nodeCenters[node * 3 + 2] ? 4 : 0);
+			node = first + octant;
+		}
+
+		return node;
+	}
+	/**
+	 * Returns true if an item would stay in the node it is in.
+	 */
+	private boolean fits(int node, double x, double y, double z, double radius) {
+		int depth = nodeDepths[node];
+		double half = this.getHalfSize(depth);
+		if (radius > half || (depth < maxDepth && radius <= half * 0.5)) {
+			return false;
+		}
+
+		return Math.abs(x - nodeCenters[node * 3]) <= half
+				&& Math.abs(y - nodeCenters[node * 3 + 1]) <= half
+				&& Math.abs(z - nodeCenters[node * 3 + 2]) <= half;
+	}
+	private void link(int item, int node) {
+		itemNodes[item] = node;
+		itemPrevs[item] = NONE;
+		itemNexts[item] = nodeHeads[node];
+		if (nodeHeads[node] != NONE) {
+			itemPrevs[nodeHeads[node]] = item;
+		}
+		nodeHeads[node] = item;
+		nodeItemCounts[node]++;
+
+		for (int n = node; n != NONE; n = nodeParents[n]) {
+			nodeTotalCounts[n]++;
+		}
+	}
+	private void unlink(int item) {
+		int node = itemNodes[item];
+		int prev = itemPrevs[item];
+		int next = itemNexts[item];
+		if (prev != NONE) {
+			itemNexts[prev] = next;
+		} else {
+			nodeHeads[node] = next;
+		}
+		if (next != NONE) {
+			itemPrevs[next] = prev;
+		}
+		nodeItemCounts[node]--;
+		itemNodes[item] = NONE;
+
+		// Return the children of nodes that no longer hold anything below
+		// them. Emptied children have already returned their own.
+		for (int n = node; n != NONE; n = nodeParents[n]) {
+			nodeTotalCounts[n]--;
+			if (nodeChildren[n] != NONE && nodeTotalCounts[n] == nodeItemCounts[n]) {
+				this.freeChildren(n);
+			}
+		}
+	}
+
+	/**
+	 * Inserts a point.
+	 * 
+	 * @param position
+	 *            Position
+	 * @return Handle of the item
+	 */
+	public int insert(Vector position) {
+		return this.insert(position.v[0], position.v[1], position.v[2], 0.0);
+	}
+	/**
+	 * Inserts a sphere.
+	 * 
+	 * @param center
+	 *            Center
+	 * @param radius
+	 *            Radius
+	 * @return Handle of the item
+	 */
+	public int insert(Vector center, double radius) {
+		return this.insert(center.v[0], center.v[1], center.v[2], radius);
+	}
+	/**
+	 * Inserts a sphere.
+	 * 
+	 * @param x
+	 *            X of the center
+	 * @param y
+	 *            Y of the center
+	 * @param z
+	 *            Z of the center
+	 * @param radius
+	 *            Radius (0 for a point)
+	 * @return Handle of the item
+	 */
+	public int insert(double x, double y, double z, double radius) {
+		if (!(radius >= 0.0)) {
+			throw new IllegalArgumentException("Radius must not be negative: " + radius);
+		}
+
+		int item;
+		if (freeItem != NONE) {
+			item = freeItem;
+			freeItem = itemNexts[item];
+		} else {
+			if (itemEnd == itemCapacity) {
+				this.growItems(itemCapacity * 2);
+			}
+			item = itemEnd++;
+		}
+
+		itemCoords[item * 4] = x;
+		itemCoords[item * 4 + 1] = y;
+		itemCoords[item * 4 + 2] = z;
+		itemCoords[item * 4 + 3] = radius;
+		this.link(item, this.findNode(x, y, z, radius));
+		itemCount++;
+
+		return item;
+	}
+	/**
+	 * Removes an item.<br>
+	 * The handle may be returned by later insertions.
+	 * 
+	 * @param item
+	 *            Handle of the item
+	 */
+	public void remove(int item) {
+		this.checkItem(item);
+
+		this.unlink(item);
+		itemNexts[item] = freeItem;
+		freeItem = item;
+		itemCount--;
+	}
+	/**
+	 * Moves a point.
+	 * 
+	 * @param item
+	 *            Handle of the item
+	 * @param position
+	 *            New position
+	 */
+	public void move(int item, Vector position) {
+		this.move(item, position.v[0], position.v[1], position.v[2], 0.0);
+	}
+	/**
+	 * Moves and resizes a sphere.
+	 * 
+	 * @param item
+	 *            Handle of the item
+	 * @param center
+	 *            New center
+	 * @param radius
+	 *            New radius
+	 */
+	public void move(int item, Vector center, double radius) {
+		this.move(item, center.v[0], center.v[1], center.v[2], radius);
+	}
+	/**
+	 * Moves and resizes a sphere.<br>
+	 * The item keeps its handle. If it stays in the same node, only its
+	 * coordinates are updated.
+	 * 
+	 * @param item
+	 *            Handle of the item
+	 * @param x
+	 *            X of the new center
+	 * @param y
+	 *            Y of the new center
+	 * @param z
+	 *            Z of the new center
+	 * @param radius
+	 *            New radius
+	 */
+	public void move(int item, double x, double y, double z, double radius) {
+		this.checkItem(item);
+		if (!(radius >= 0.0)) {
+			throw new IllegalArgumentException("Radius must not be negative: " + radius);
+		}
+
+		itemCoords[item * 4] = x;
+		itemCoords[item * 4 + 1] = y;
+		itemCoords[item * 4 + 2] = z;
+		itemCoords[item * 4 + 3] = radius;
+
+		int node = itemNodes[item];
+		if (node != 0 && this.fits(node, x, y, z, radius)) {
+			return;
+		}
+
+		// Unlink first, since unlinking may return nodes on the new path to
+		// the pool.
+		this.unlink(item);
+		this.link(item, this.findNode(x, y, z, radius));
+	}
+	/**
+	 * Removes all items.
+	 */
+	public void clear() {
+		this.initNode(0, NONE, 0);
+		nodeBlockCount = 0;
+		freeBlock = NONE;
+		freeBlockCount = 0;
+
+		Arrays.fill(itemNodes, 0, itemEnd, NONE);
+		itemCount = 0;
+		itemEnd = 0;
+		freeItem = NONE;
+	}
+
+	/**
+	 * Finds the items that intersect a sphere.<br>
+	 * The handles are written to the destination as long as it has room. The
+	 * return value is the total number found, so a return value larger than
+	 * the length of the destination means that the query should be repeated
+	 * with a larger array.
+	 * 
+	 * @param center
+	 *            Center
+	 * @param radius
+	 *            Radius
+	 * @param dst
+	 *            Destination of the handles
+	 * @return Number of items found
+	 */
+	public int findInSphere(Vector center, double radius, int[] dst) {
+		return this.findInSphere(center.v[0], center.v[1], center.v[2], radius, dst);
+	}
+	/**
+	 * Finds the items that intersect a sphere.
+	 * 
+	 * @param x
+	 *            X of the center
+	 * @param y
+	 *            Y of the center
+	 * @param z
+	 *            Z of the center
+	 * @param radius
+	 *            Radius
+	 * @param dst
+	 *            Destination of the handles
+	 * @return Number of items found
+	 * @see #findInSphere(Vector, double, int[])
+	 */
+	public int findInSphere(double x, double y, double z, double radius, int[] dst) {
+		return this.findInSphere(0, x, y, z, radius, dst, 0);
+	}
+	private int findInSphere(int node, double x, double y, double z, double radius, int[] dst,
+			int count) {
+		for (int item = nodeHeads[node]; item != NONE; item = itemNexts[item]) {
+			double dx = itemCoords[item * 4] - x;
+			double dy = itemCoords[item * 4 + 1] - y;
+			double dz = itemCoords[item * 4 + 2] - z;
+			double r = radius + itemCoords[item * 4 + 3];
+			if (dx * dx + dy * dy + dz * dz <= r * r) {
+				if (count < dst.length) {
+					dst[count] = item;
+				}
+				count++;
+			}
+		}
+
+		int first = nodeChildren[node];
+		if (first == NONE) {
+			return count;
+		}
+
+		double loose = this.getHalfSize(nodeDepths[node] + 1) * 2.0;
+		for (int child = first; child < first + 8; child++) {
+			if (nodeTotalCounts[child] == 0) {
+				continue;
+			}
+
+			// Distance from the sphere to the loose bounds of the child
+			double d2 = 0.0;
+			for (int a = 0; a < 3; a++) {
+				double c = a == 0 ? x : a == 1 ? y : z;
+				double e = Math.abs(c - nodeCenters[child * 3 + a]) - loose;
+				if (e > 0.0) {
+					d2 += e * e;
+				}
+			}
+			if (d2 <= radius * radius) {
+				count = this.findInSphere(child, x, y, z, radius, dst, count);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Finds the items that may intersect a frustum.<br>
+	 * The handles are written to the destination as long as it has room. The
+	 * return value is the total number found.
+	 * 
+	 * @param frustum
+	 *            Frustum
+	 * @param dst
+	 *            Destination of the handles
+	 * @return Number of items found
+	 * @see #findInSphere(Vector, double, int[])
+	 */
+	public int findInFrustum(Frustum frustum, int[] dst) {
+		return this.findInFrustum(0, frustum, dst, 0);
+	}
+	private int findInFrustum(int node, Frustum frustum, int[] dst, int count) {
+		for (int item = nodeHeads[node]; item != NONE; item = itemNexts[item]) {
+			if (frustum.intersectsSphere(itemCoords[item * 4], itemCoords[item * 4 + 1],
+					itemCoords[item * 4 + 2], itemCoords[item * 4 + 3])) {
+				if (count < dst.length) {
+					dst[count] = item;
+				}
+				count++;
+			}
+		}
+
+		int first = nodeChildren[node];
+		if (first == NONE) {
+			return count;
+		}
+
+		double loose = this.getHalfSize(nodeDepths[node] + 1) * 2.0;
+		for (int child = first; child < first + 8; child++) {
+			if (nodeTotalCounts[child] == 0) {
+				continue;
+			}
+
+			double cx = nodeCenters[child * 3];
+			double cy = nodeCenters[child * 3 + 1];
+			double cz = nodeCenters[child * 3 + 2];
+			if (frustum.intersectsAABB(cx - loose, cy - loose, cz - loose, cx + loose,
+					cy + loose, cz + loose)) {
+				count = this.findInFrustum(child, frustum, dst, count);
+			}
+		}
+
+		return count;
+	}
+}
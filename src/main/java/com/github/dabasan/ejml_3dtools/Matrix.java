@@ -1,23 +1,35 @@
 package com.github.dabasan.ejml_3dtools;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.util.Random;
 
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.data.SingularMatrixException;
 import org.ejml.simple.SimpleMatrix;
 
 /**
- * 4x4 matrix
+ * 4x4 matrix<br>
+ * Elements are stored in a fixed-size row-major array.
+ * A SimpleMatrix view of the array is created only when requested.
  * 
  * @author Daba
  *
  */
 public class Matrix {
-	private SimpleMatrix m;
+	/**
+	 * Tolerance used by {@link #isRigid()} to test orthonormality
+	 */
+	public static final double RIGID_TOLERANCE = 1.0E-10;
+
+	final double[] m;
+	private SimpleMatrix sm;
 
 	/**
 	 * All elements are set to 0.
 	 */
 	public Matrix() {
-		m = new SimpleMatrix(4, 4);
+		m = new double[16];
 	}
 	/**
 	 * All elements are set to the value specified.
@@ -26,12 +38,10 @@ public class Matrix {
 	 *            Value
 	 */
 	public Matrix(double value) {
-		m = new SimpleMatrix(4, 4);
+		m = new double[16];
 
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				m.set(i, j, value);
-			}
+		for (int i = 0; i < 16; i++) {
+			m[i] = value;
 		}
 	}
 	/**
@@ -41,13 +51,8 @@ public class Matrix {
 	 *            Matrix instance
 	 */
 	public Matrix(Matrix mat) {
-		m = new SimpleMatrix(4, 4);
-
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				m.set(i, j, mat.get(i, j));
-			}
-		}
+		m = new double[16];
+		System.arraycopy(mat.m, 0, m, 0, 16);
 	}
 	/**
 	 * Creates a matrix from a SimpleMatrix instance.<br>
@@ -58,18 +63,12 @@ public class Matrix {
 	 *            Instance of SimpleMatrix
 	 */
 	public Matrix(SimpleMatrix sm) {
-		m = new SimpleMatrix(4, 4);
+		m = new double[16];
 
 		if (sm.numRows() == 4 && sm.numCols() == 4) {
 			for (int i = 0; i < 4; i++) {
 				for (int j = 0; j < 4; j++) {
-					m.set(i, j, sm.get(i, j));
-				}
-			}
-		} else {
-			for (int i = 0; i < 4; i++) {
-				for (int j = 0; j < 4; j++) {
-					m.set(i, j, 0.0);
+					m[i * 4 + j] = sm.get(i, j);
 				}
 			}
 		}
@@ -81,7 +80,7 @@ public class Matrix {
 
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 4; j++) {
-				sb.append(this.m.get(i, j));
+				sb.append(m[i * 4 + j]);
 				sb.append(" ");
 			}
 			sb.append("\n");
@@ -93,23 +92,36 @@ public class Matrix {
 	}
 
 	/**
-	 * Returns the underlying SimpleMatrix instance.
+	 * Returns a SimpleMatrix view of this matrix.<br>
+	 * The view is created on the first call and shares its storage with this
+	 * matrix, so changes made through either of them are visible in both.
 	 * 
 	 * @return SimpleMatrix instance
 	 */
 	public SimpleMatrix getSM() {
-		return m;
+		if (sm == null) {
+			sm = SimpleMatrix.wrap(DMatrixRMaj.wrap(4, 4, m));
+		}
+		return sm;
+	}
+
+	private static int index(int row, int col) {
+		if (row < 0 || row >= 4 || col < 0 || col >= 4) {
+			throw new IllegalArgumentException(
+					"Specified element is out of bounds: " + row + " " + col);
+		}
+		return row * 4 + col;
 	}
 
 	public double get(int row, int col) {
-		return m.get(row, col);
+		return m[index(row, col)];
 	}
 	public float getFloat(int row, int col) {
-		return (float) m.get(row, col);
+		return (float) m[index(row, col)];
 	}
 
 	public void set(int row, int col, double value) {
-		m.set(row, col, value);
+		m[index(row, col)] = value;
 	}
 
 	/**
@@ -119,12 +131,7 @@ public class Matrix {
 	 */
 	public double[] toArray() {
 		var ret = new double[16];
-
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				ret[i * 4 + j] = m.get(i, j);
-			}
-		}
+		System.arraycopy(m, 0, ret, 0, 16);
 
 		return ret;
 	}
@@ -139,13 +146,185 @@ public class Matrix {
 
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 4; j++) {
-				ret[i][j] = m.get(i, j);
+				ret[i][j] = m[i * 4 + j];
 			}
 		}
 
 		return ret;
 	}
 
+	/**
+	 * Writes the elements of this matrix to a float array.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param offset
+	 *            Index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public float[] toFloatArray(float[] dst, int offset, boolean columnMajor) {
+		if (offset < 0 || offset + 16 > dst.length) {
+			throw new IndexOutOfBoundsException("Not enough space at offset " + offset);
+		}
+
+		if (columnMajor) {
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < 4; j++) {
+					dst[offset + j * 4 + i] = (float) m[i * 4 + j];
+				}
+			}
+		} else {
+			for (int i = 0; i < 16; i++) {
+				dst[offset + i] = (float) m[i];
+			}
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the elements of this matrix to a FloatBuffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public FloatBuffer toFloatBuffer(FloatBuffer dst, int index, boolean columnMajor) {
+		Vector.checkSpace(index, 16, dst.limit());
+
+		if (columnMajor) {
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < 4; j++) {
+					dst.put(index + j * 4 + i, (float) m[i * 4 + j]);
+				}
+			}
+		} else {
+			for (int i = 0; i < 16; i++) {
+				dst.put(index + i, (float) m[i]);
+			}
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the elements of this matrix to a ByteBuffer as 32-bit floats in
+	 * the byte order of the buffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Byte index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public ByteBuffer toByteBuffer(ByteBuffer dst, int index, boolean columnMajor) {
+		Vector.checkSpace(index, 16 * Float.BYTES, dst.limit());
+
+		if (columnMajor) {
+			for (int i = 0; i < 4; i++) {
+				for (int j = 0; j < 4; j++) {
+					dst.putFloat(index + (j * 4 + i) * Float.BYTES, (float) m[i * 4 + j]);
+				}
+			}
+		} else {
+			for (int i = 0; i < 16; i++) {
+				dst.putFloat(index + i * Float.BYTES, (float) m[i]);
+			}
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the elements of matrices to a float array one after another.
+	 * 
+	 * @param mats
+	 *            Matrices
+	 * @param dst
+	 *            Destination
+	 * @param offset
+	 *            Index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public static float[] toFloatArray(Matrix[] mats, float[] dst, int offset,
+			boolean columnMajor) {
+		Vector.checkSpace(offset, mats.length * 16L, dst.length);
+
+		for (int i = 0; i < mats.length; i++) {
+			mats[i].toFloatArray(dst, offset + i * 16, columnMajor);
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the elements of matrices to a FloatBuffer one after another.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param mats
+	 *            Matrices
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public static FloatBuffer toFloatBuffer(Matrix[] mats, FloatBuffer dst, int index,
+			boolean columnMajor) {
+		Vector.checkSpace(index, mats.length * 16L, dst.limit());
+
+		for (int i = 0; i < mats.length; i++) {
+			mats[i].toFloatBuffer(dst, index + i * 16, columnMajor);
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the elements of matrices to a ByteBuffer one after another as
+	 * 32-bit floats in the byte order of the buffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param mats
+	 *            Matrices
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Byte index of the first element written
+	 * @param columnMajor
+	 *            true to write in column-major order, false for row-major
+	 *            order
+	 * @return Destination
+	 */
+	public static ByteBuffer toByteBuffer(Matrix[] mats, ByteBuffer dst, int index,
+			boolean columnMajor) {
+		Vector.checkSpace(index, mats.length * 16L * Float.BYTES, dst.limit());
+
+		for (int i = 0; i < mats.length; i++) {
+			mats[i].toByteBuffer(dst, index + i * 16 * Float.BYTES, columnMajor);
+		}
+
+		return dst;
+	}
+
 	/**
 	 * Addition
 	 * 
@@ -154,18 +333,37 @@ public class Matrix {
 	 * @return Matrix
 	 */
 	public Matrix add(Matrix mat) {
-		var ret = new Matrix();
-
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				double v1 = this.m.get(i, j);
-				double v2 = mat.m.get(i, j);
-
-				ret.set(i, j, v1 + v2);
-			}
+		return add(this, mat, new Matrix());
+	}
+	/**
+	 * Adds a matrix to this matrix in place.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return This matrix
+	 */
+	public Matrix addInPlace(Matrix mat) {
+		return add(this, mat, this);
+	}
+	/**
+	 * Addition<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param a
+	 *            Matrix
+	 * @param b
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static Matrix add(Matrix a, Matrix b, Matrix dst) {
+		for (int i = 0; i < 16; i++) {
+			dst.m[i] = a.m[i] + b.m[i];
 		}
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Subtraction
@@ -175,18 +373,37 @@ public class Matrix {
 	 * @return Matrix
 	 */
 	public Matrix sub(Matrix mat) {
-		var ret = new Matrix();
-
-		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				double v1 = this.m.get(i, j);
-				double v2 = mat.m.get(i, j);
-
-				ret.set(i, j, v1 - v2);
-			}
+		return sub(this, mat, new Matrix());
+	}
+	/**
+	 * Subtracts a matrix from this matrix in place.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return This matrix
+	 */
+	public Matrix subInPlace(Matrix mat) {
+		return sub(this, mat, this);
+	}
+	/**
+	 * Subtraction<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param a
+	 *            Matrix
+	 * @param b
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static Matrix sub(Matrix a, Matrix b, Matrix dst) {
+		for (int i = 0; i < 16; i++) {
+			dst.m[i] = a.m[i] - b.m[i];
 		}
 
-		return ret;
+		return dst;
 	}
 	/**
 	 * Multiplication
@@ -196,8 +413,141 @@ public class Matrix {
 	 * @return Multiplied matrix
 	 */
 	public Matrix mult(Matrix mat) {
-		SimpleMatrix multSM = this.m.mult(mat.m);
-		return new Matrix(multSM);
+		return mult(this, mat, new Matrix());
+	}
+	/**
+	 * Multiplies this matrix by a matrix in place.<br>
+	 * This matrix is the left-hand side of the multiplication.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return This matrix
+	 */
+	public Matrix multInPlace(Matrix mat) {
+		return mult(this, mat, this);
+	}
+	/**
+	 * Multiplication<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param a
+	 *            Left-hand side
+	 * @param b
+	 *            Right-hand side
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static Matrix mult(Matrix a, Matrix b, Matrix dst) {
+		mult(a.m, b.m, dst.m);
+		return dst;
+	}
+	/**
+	 * Multiplies matrices element by element of the arrays.<br>
+	 * dst[i] is set to a[i] * b[i]. Each destination may be one of its
+	 * operands.
+	 * 
+	 * @param a
+	 *            Left-hand sides
+	 * @param b
+	 *            Right-hand sides
+	 * @param dst
+	 *            Destinations
+	 * @return Destinations
+	 */
+	public static Matrix[] mult(Matrix[] a, Matrix[] b, Matrix[] dst) {
+		checkLengths(a, b, dst);
+		BatchKernels.INSTANCE.mult(a, b, dst, 0, dst.length);
+
+		return dst;
+	}
+	/**
+	 * Multiplies matrices element by element of the arrays in parallel.<br>
+	 * dst[i] is set to a[i] * b[i]. Each destination may be one of its
+	 * operands.
+	 * 
+	 * @param a
+	 *            Left-hand sides
+	 * @param b
+	 *            Right-hand sides
+	 * @param dst
+	 *            Destinations
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destinations
+	 */
+	public static Matrix[] mult(Matrix[] a, Matrix[] b, Matrix[] dst, ParallelConfig config) {
+		checkLengths(a, b, dst);
+		config.run(dst.length, (from, to) -> BatchKernels.INSTANCE.mult(a, b, dst, from, to));
+
+		return dst;
+	}
+	private static void checkLengths(Matrix[] a, Matrix[] b, Matrix[] dst) {
+		if (a.length != dst.length || b.length != dst.length) {
+			throw new IllegalArgumentException("Arrays must have the same length");
+		}
+	}
+	/**
+	 * Multiplies two row-major 4x4 arrays.<br>
+	 * All elements of the inputs are read before the output is written, so
+	 * the output may be one of the inputs.
+	 * 
+	 * @param a
+	 *            Left-hand side
+	 * @param b
+	 *            Right-hand side
+	 * @param c
+	 *            Output
+	 */
+	static void mult(double[] a, double[] b, double[] c) {
+		mult(a, 0, b, 0, c, 0);
+	}
+	/**
+	 * Multiplies two row-major 4x4 matrices stored in arrays at the offsets
+	 * specified.<br>
+	 * All elements of the inputs are read before the output is written, so
+	 * the output may overlap one of the inputs.
+	 * 
+	 * @param a
+	 *            Left-hand side
+	 * @param ai
+	 *            Offset of the left-hand side
+	 * @param b
+	 *            Right-hand side
+	 * @param bi
+	 *            Offset of the right-hand side
+	 * @param c
+	 *            Output
+	 * @param ci
+	 *            Offset of the output
+	 */
+	static void mult(double[] a, int ai, double[] b, int bi, double[] c, int ci) {
+		double a00 = a[ai], a01 = a[ai + 1], a02 = a[ai + 2], a03 = a[ai + 3];
+		double a10 = a[ai + 4], a11 = a[ai + 5], a12 = a[ai + 6], a13 = a[ai + 7];
+		double a20 = a[ai + 8], a21 = a[ai + 9], a22 = a[ai + 10], a23 = a[ai + 11];
+		double a30 = a[ai + 12], a31 = a[ai + 13], a32 = a[ai + 14], a33 = a[ai + 15];
+		double b00 = b[bi], b01 = b[bi + 1], b02 = b[bi + 2], b03 = b[bi + 3];
+		double b10 = b[bi + 4], b11 = b[bi + 5], b12 = b[bi + 6], b13 = b[bi + 7];
+		double b20 = b[bi + 8], b21 = b[bi + 9], b22 = b[bi + 10], b23 = b[bi + 11];
+		double b30 = b[bi + 12], b31 = b[bi + 13], b32 = b[bi + 14], b33 = b[bi + 15];
+
+		c[ci] = a00 * b00 + a01 * b10 + a02 * b20 + a03 * b30;
+		c[ci + 1] = a00 * b01 + a01 * b11 + a02 * b21 + a03 * b31;
+		c[ci + 2] = a00 * b02 + a01 * b12 + a02 * b22 + a03 * b32;
+		c[ci + 3] = a00 * b03 + a01 * b13 + a02 * b23 + a03 * b33;
+		c[ci + 4] = a10 * b00 + a11 * b10 + a12 * b20 + a13 * b30;
+		c[ci + 5] = a10 * b01 + a11 * b11 + a12 * b21 + a13 * b31;
+		c[ci + 6] = a10 * b02 + a11 * b12 + a12 * b22 + a13 * b32;
+		c[ci + 7] = a10 * b03 + a11 * b13 + a12 * b23 + a13 * b33;
+		c[ci + 8] = a20 * b00 + a21 * b10 + a22 * b20 + a23 * b30;
+		c[ci + 9] = a20 * b01 + a21 * b11 + a22 * b21 + a23 * b31;
+		c[ci + 10] = a20 * b02 + a21 * b12 + a22 * b22 + a23 * b32;
+		c[ci + 11] = a20 * b03 + a21 * b13 + a22 * b23 + a23 * b33;
+		c[ci + 12] = a30 * b00 + a31 * b10 + a32 * b20 + a33 * b30;
+		c[ci + 13] = a30 * b01 + a31 * b11 + a32 * b21 + a33 * b31;
+		c[ci + 14] = a30 * b02 + a31 * b12 + a32 * b22 + a33 * b32;
+		c[ci + 15] = a30 * b03 + a31 * b13 + a32 * b23 + a33 * b33;
 	}
 
 	/**
@@ -206,23 +556,271 @@ public class Matrix {
 	 * @return Transposed matrix
 	 */
 	public Matrix transpose() {
-		var ret = new Matrix();
+		return transpose(this, new Matrix());
+	}
+	/**
+	 * Transposes this matrix in place.
+	 * 
+	 * @return This matrix
+	 */
+	public Matrix transposeInPlace() {
+		return transpose(this, this);
+	}
+	/**
+	 * Transposes a matrix.<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static Matrix transpose(Matrix mat, Matrix dst) {
+		double[] a = mat.m;
+		double[] b = dst.m;
 
 		for (int i = 0; i < 4; i++) {
-			for (int j = 0; j < 4; j++) {
-				ret.set(i, j, m.get(j, i));
+			b[i * 5] = a[i * 5];
+			for (int j = i + 1; j < 4; j++) {
+				double upper = a[i * 4 + j];
+				double lower = a[j * 4 + i];
+				b[i * 4 + j] = lower;
+				b[j * 4 + i] = upper;
 			}
 		}
 
-		return ret;
+		return dst;
 	}
 	/**
-	 * Inverts this matrix.
+	 * Inverts this matrix.<br>
+	 * Rigid and affine matrices are detected and inverted with
+	 * {@link #invertRigid()} and {@link #invertAffine()}. Other matrices are
+	 * inverted with the closed-form cofactor expansion.
 	 * 
 	 * @return Inverse matrix
 	 */
 	public Matrix invert() {
-		return new Matrix(m.invert());
+		return invert(this, new Matrix());
+	}
+	/**
+	 * Inverts this matrix in place.
+	 * 
+	 * @return This matrix
+	 */
+	public Matrix invertInPlace() {
+		return invert(this, this);
+	}
+	/**
+	 * Inverts a matrix.<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 * @throws SingularMatrixException
+	 *             If the matrix is singular
+	 */
+	public static Matrix invert(Matrix mat, Matrix dst) {
+		if (mat.isRigid()) {
+			return invertRigid(mat, dst);
+		} else if (mat.isAffine()) {
+			return invertAffine(mat, dst);
+		}
+
+		double[] a = mat.m;
+		double a00 = a[0], a01 = a[1], a02 = a[2], a03 = a[3];
+		double a10 = a[4], a11 = a[5], a12 = a[6], a13 = a[7];
+		double a20 = a[8], a21 = a[9], a22 = a[10], a23 = a[11];
+		double a30 = a[12], a31 = a[13], a32 = a[14], a33 = a[15];
+
+		double s0 = a00 * a11 - a10 * a01;
+		double s1 = a00 * a12 - a10 * a02;
+		double s2 = a00 * a13 - a10 * a03;
+		double s3 = a01 * a12 - a11 * a02;
+		double s4 = a01 * a13 - a11 * a03;
+		double s5 = a02 * a13 - a12 * a03;
+		double c5 = a22 * a33 - a32 * a23;
+		double c4 = a21 * a33 - a31 * a23;
+		double c3 = a21 * a32 - a31 * a22;
+		double c2 = a20 * a33 - a30 * a23;
+		double c1 = a20 * a32 - a30 * a22;
+		double c0 = a20 * a31 - a30 * a21;
+
+		double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+		double invDet = 1.0 / det;
+		if (det == 0.0 || !Double.isFinite(invDet)) {
+			throw new SingularMatrixException();
+		}
+
+		double[] b = dst.m;
+		b[0] = (a11 * c5 - a12 * c4 + a13 * c3) * invDet;
+		b[1] = (-a01 * c5 + a02 * c4 - a03 * c3) * invDet;
+		b[2] = (a31 * s5 - a32 * s4 + a33 * s3) * invDet;
+		b[3] = (-a21 * s5 + a22 * s4 - a23 * s3) * invDet;
+		b[4] = (-a10 * c5 + a12 * c2 - a13 * c1) * invDet;
+		b[5] = (a00 * c5 - a02 * c2 + a03 * c1) * invDet;
+		b[6] = (-a30 * s5 + a32 * s2 - a33 * s1) * invDet;
+		b[7] = (a20 * s5 - a22 * s2 + a23 * s1) * invDet;
+		b[8] = (a10 * c4 - a11 * c2 + a13 * c0) * invDet;
+		b[9] = (-a00 * c4 + a01 * c2 - a03 * c0) * invDet;
+		b[10] = (a30 * s4 - a31 * s2 + a33 * s0) * invDet;
+		b[11] = (-a20 * s4 + a21 * s2 - a23 * s0) * invDet;
+		b[12] = (-a10 * c3 + a11 * c1 - a12 * c0) * invDet;
+		b[13] = (a00 * c3 - a01 * c1 + a02 * c0) * invDet;
+		b[14] = (-a30 * s3 + a31 * s1 - a32 * s0) * invDet;
+		b[15] = (a20 * s3 - a21 * s1 + a22 * s0) * invDet;
+
+		return dst;
+	}
+	/**
+	 * Inverts this matrix assuming it is affine.<br>
+	 * The upper-left 3x3 block and the translation are inverted, and the
+	 * bottom row is set to (0, 0, 0, 1).
+	 * 
+	 * @return Inverse matrix
+	 */
+	public Matrix invertAffine() {
+		return invertAffine(this, new Matrix());
+	}
+	/**
+	 * Inverts a matrix assuming it is affine.<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 * @throws SingularMatrixException
+	 *             If the upper-left 3x3 block is singular
+	 */
+	public static Matrix invertAffine(Matrix mat, Matrix dst) {
+		double[] a = mat.m;
+		double a00 = a[0], a01 = a[1], a02 = a[2], t0 = a[3];
+		double a10 = a[4], a11 = a[5], a12 = a[6], t1 = a[7];
+		double a20 = a[8], a21 = a[9], a22 = a[10], t2 = a[11];
+
+		double c00 = a11 * a22 - a12 * a21;
+		double c01 = a12 * a20 - a10 * a22;
+		double c02 = a10 * a21 - a11 * a20;
+
+		double det = a00 * c00 + a01 * c01 + a02 * c02;
+		double invDet = 1.0 / det;
+		if (det == 0.0 || !Double.isFinite(invDet)) {
+			throw new SingularMatrixException();
+		}
+
+		double b00 = c00 * invDet;
+		double b01 = (a02 * a21 - a01 * a22) * invDet;
+		double b02 = (a01 * a12 - a02 * a11) * invDet;
+		double b10 = c01 * invDet;
+		double b11 = (a00 * a22 - a02 * a20) * invDet;
+		double b12 = (a02 * a10 - a00 * a12) * invDet;
+		double b20 = c02 * invDet;
+		double b21 = (a01 * a20 - a00 * a21) * invDet;
+		double b22 = (a00 * a11 - a01 * a10) * invDet;
+
+		double[] b = dst.m;
+		b[0] = b00;
+		b[1] = b01;
+		b[2] = b02;
+		b[3] = -(b00 * t0 + b01 * t1 + b02 * t2);
+		b[4] = b10;
+		b[5] = b11;
+		b[6] = b12;
+		b[7] = -(b10 * t0 + b11 * t1 + b12 * t2);
+		b[8] = b20;
+		b[9] = b21;
+		b[10] = b22;
+		b[11] = -(b20 * t0 + b21 * t1 + b22 * t2);
+		b[12] = 0.0;
+		b[13] = 0.0;
+		b[14] = 0.0;
+		b[15] = 1.0;
+
+		return dst;
+	}
+	/**
+	 * Inverts this matrix assuming it is rigid (rotation and translation
+	 * only).<br>
+	 * The rotation is transposed and the translation is rotated back and
+	 * negated.
+	 * 
+	 * @return Inverse matrix
+	 */
+	public Matrix invertRigid() {
+		return invertRigid(this, new Matrix());
+	}
+	/**
+	 * Inverts a matrix assuming it is rigid (rotation and translation
+	 * only).<br>
+	 * The result is written to the destination, which may be the input.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public static Matrix invertRigid(Matrix mat, Matrix dst) {
+		double[] a = mat.m;
+		double a00 = a[0], a01 = a[1], a02 = a[2], t0 = a[3];
+		double a10 = a[4], a11 = a[5], a12 = a[6], t1 = a[7];
+		double a20 = a[8], a21 = a[9], a22 = a[10], t2 = a[11];
+
+		double[] b = dst.m;
+		b[0] = a00;
+		b[1] = a10;
+		b[2] = a20;
+		b[3] = -(a00 * t0 + a10 * t1 + a20 * t2);
+		b[4] = a01;
+		b[5] = a11;
+		b[6] = a21;
+		b[7] = -(a01 * t0 + a11 * t1 + a21 * t2);
+		b[8] = a02;
+		b[9] = a12;
+		b[10] = a22;
+		b[11] = -(a02 * t0 + a12 * t1 + a22 * t2);
+		b[12] = 0.0;
+		b[13] = 0.0;
+		b[14] = 0.0;
+		b[15] = 1.0;
+
+		return dst;
+	}
+
+	/**
+	 * Returns true if the bottom row of this matrix is exactly (0, 0, 0, 1).
+	 * 
+	 * @return true if this matrix is affine
+	 */
+	public boolean isAffine() {
+		return m[12] == 0.0 && m[13] == 0.0 && m[14] == 0.0 && m[15] == 1.0;
+	}
+	/**
+	 * Returns true if this matrix is affine and its upper-left 3x3 block is
+	 * orthonormal within {@link #RIGID_TOLERANCE}.
+	 * 
+	 * @return true if this matrix is rigid
+	 */
+	public boolean isRigid() {
+		if (!this.isAffine()) {
+			return false;
+		}
+
+		double a00 = m[0], a01 = m[1], a02 = m[2];
+		double a10 = m[4], a11 = m[5], a12 = m[6];
+		double a20 = m[8], a21 = m[9], a22 = m[10];
+
+		return Math.abs(a00 * a00 + a10 * a10 + a20 * a20 - 1.0) <= RIGID_TOLERANCE
+				&& Math.abs(a01 * a01 + a11 * a11 + a21 * a21 - 1.0) <= RIGID_TOLERANCE
+				&& Math.abs(a02 * a02 + a12 * a12 + a22 * a22 - 1.0) <= RIGID_TOLERANCE
+				&& Math.abs(a00 * a01 + a10 * a11 + a20 * a21) <= RIGID_TOLERANCE
+				&& Math.abs(a00 * a02 + a10 * a12 + a20 * a22) <= RIGID_TOLERANCE
+				&& Math.abs(a01 * a02 + a11 * a12 + a21 * a22) <= RIGID_TOLERANCE;
 	}
 
 	/**
@@ -300,6 +898,99 @@ public class Matrix {
 
 		return ret;
 	}
+	/**
+	 * Creates a perspective projection matrix.<br>
+	 * The camera looks down the negative Z-axis, and the view volume is mapped
+	 * to the cube from -1 to 1 in normalized device coordinates.
+	 * 
+	 * @param fovY
+	 *            Vertical field of view (radian)
+	 * @param aspect
+	 *            Aspect ratio (width / height)
+	 * @param near
+	 *            Distance to the near plane
+	 * @param far
+	 *            Distance to the far plane
+	 * @return Perspective matrix
+	 */
+	public static Matrix createPerspective(double fovY, double aspect, double near,
+			double far) {
+		double f = 1.0 / Math.tan(fovY / 2.0);
+
+		var ret = new Matrix(0.0);
+		ret.set(0, 0, f / aspect);
+		ret.set(1, 1, f);
+		ret.set(2, 2, (far + near) / (near - far));
+		ret.set(2, 3, 2.0 * far * near / (near - far));
+		ret.set(3, 2, -1.0);
+
+		return ret;
+	}
+	/**
+	 * Creates an orthographic projection matrix.<br>
+	 * The camera looks down the negative Z-axis, and the view volume is mapped
+	 * to the cube from -1 to 1 in normalized device coordinates.
+	 * 
+	 * @param left
+	 *            Left plane
+	 * @param right
+	 *            Right plane
+	 * @param bottom
+	 *            Bottom plane
+	 * @param top
+	 *            Top plane
+	 * @param near
+	 *            Distance to the near plane
+	 * @param far
+	 *            Distance to the far plane
+	 * @return Orthographic matrix
+	 */
+	public static Matrix createOrthographic(double left, double right, double bottom,
+			double top, double near, double far) {
+		var ret = new Matrix(0.0);
+		ret.set(0, 0, 2.0 / (right - left));
+		ret.set(0, 3, -(right + left) / (right - left));
+		ret.set(1, 1, 2.0 / (top - bottom));
+		ret.set(1, 3, -(top + bottom) / (top - bottom));
+		ret.set(2, 2, -2.0 / (far - near));
+		ret.set(2, 3, -(far + near) / (far - near));
+		ret.set(3, 3, 1.0);
+
+		return ret;
+	}
+	/**
+	 * Creates a view matrix for a camera at a position looking at a target.
+	 * 
+	 * @param eye
+	 *            Position of the camera
+	 * @param target
+	 *            Point the camera looks at
+	 * @param up
+	 *            Up direction
+	 * @return View matrix
+	 */
+	public static Matrix createLookAt(Vector eye, Vector target, Vector up) {
+		var f = target.sub(eye).normalizeInPlace();
+		var s = f.cross(up).normalizeInPlace();
+		var u = s.cross(f);
+
+		var ret = new Matrix(0.0);
+		ret.set(0, 0, s.getX());
+		ret.set(0, 1, s.getY());
+		ret.set(0, 2, s.getZ());
+		ret.set(0, 3, -s.dot(eye));
+		ret.set(1, 0, u.getX());
+		ret.set(1, 1, u.getY());
+		ret.set(1, 2, u.getZ());
+		ret.set(1, 3, -u.dot(eye));
+		ret.set(2, 0, -f.getX());
+		ret.set(2, 1, -f.getY());
+		ret.set(2, 2, -f.getZ());
+		ret.set(2, 3, f.dot(eye));
+		ret.set(3, 3, 1.0);
+
+		return ret;
+	}
 	/**
 	 * Creates a matrix for rotation around the X-axis.
 	 * 
@@ -308,12 +999,15 @@ public class Matrix {
 	 * @return Rotation matrix
 	 */
 	public static Matrix createRotationXMatrix(double th) {
+		double cosTh = Math.cos(th);
+		double sinTh = Math.sin(th);
+
 		var ret = new Matrix(0.0);
 		ret.set(0, 0, 1.0);
-		ret.set(1, 1, Math.cos(th));
-		ret.set(1, 2, -Math.sin(th));
-		ret.set(2, 1, Math.sin(th));
-		ret.set(2, 2, Math.cos(th));
+		ret.set(1, 1, cosTh);
+		ret.set(1, 2, -sinTh);
+		ret.set(2, 1, sinTh);
+		ret.set(2, 2, cosTh);
 		ret.set(3, 3, 1.0);
 
 		return ret;
@@ -326,12 +1020,15 @@ public class Matrix {
 	 * @return Rotation matrix
 	 */
 	public static Matrix createRotationYMatrix(double th) {
+		double cosTh = Math.cos(th);
+		double sinTh = Math.sin(th);
+
 		var ret = new Matrix(0.0);
-		ret.set(0, 0, Math.cos(th));
-		ret.set(0, 2, Math.sin(th));
+		ret.set(0, 0, cosTh);
+		ret.set(0, 2, sinTh);
 		ret.set(1, 1, 1.0);
-		ret.set(2, 0, -Math.sin(th));
-		ret.set(2, 2, Math.cos(th));
+		ret.set(2, 0, -sinTh);
+		ret.set(2, 2, cosTh);
 		ret.set(3, 3, 1.0);
 
 		return ret;
@@ -344,11 +1041,14 @@ public class Matrix {
 	 * @return Rotation matrix
 	 */
 	public static Matrix createRotationZMatrix(double th) {
+		double cosTh = Math.cos(th);
+		double sinTh = Math.sin(th);
+
 		var ret = new Matrix(0.0);
-		ret.set(0, 0, Math.cos(th));
-		ret.set(0, 1, -Math.sin(th));
-		ret.set(1, 0, Math.sin(th));
-		ret.set(1, 1, Math.cos(th));
+		ret.set(0, 0, cosTh);
+		ret.set(0, 1, -sinTh);
+		ret.set(1, 0, sinTh);
+		ret.set(1, 1, cosTh);
 		ret.set(2, 2, 1.0);
 		ret.set(3, 3, 1.0);
 
@@ -368,27 +1068,49 @@ public class Matrix {
 	 * @return Rotation matrix
 	 */
 	public static Matrix createRotationMatrix(double axisX, double axisY, double axisZ, double th) {
-		double cosTh = Math.cos(th);
-		double sinTh = Math.sin(th);
+		return createRotationMatrix(axisX, axisY, axisZ, Math.cos(th), Math.sin(th),
+				new Matrix());
+	}
+	/**
+	 * Creates a matrix for rotation around an arbitrary axis from the cosine
+	 * and sine of the angle.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param cosTh
+	 *            Cosine of the rotation angle
+	 * @param sinTh
+	 *            Sine of the rotation angle
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	static Matrix createRotationMatrix(double axisX, double axisY, double axisZ, double cosTh,
+			double sinTh, Matrix dst) {
+		double oneMinusCos = 1.0 - cosTh;
 
-		var ret = new Matrix(0.0);
-		ret.set(0, 0, cosTh + axisX * axisX * (1.0f - cosTh));
-		ret.set(0, 1, axisX * axisY * (1.0f - cosTh) - axisZ * sinTh);
-		ret.set(0, 2, axisX * axisZ * (1.0f - cosTh) + axisY * sinTh);
-		ret.set(0, 3, 0.0f);
-		ret.set(1, 0, axisY * axisX * (1.0f - cosTh) + axisZ * sinTh);
-		ret.set(1, 1, cosTh + axisY * axisY * (1.0f - cosTh));
-		ret.set(1, 2, axisY * axisZ * (1.0f - cosTh) - axisX * sinTh);
-		ret.set(1, 3, 0.0f);
-		ret.set(2, 0, axisZ * axisX * (1.0f - cosTh) - axisY * sinTh);
-		ret.set(2, 1, axisZ * axisY * (1.0f - cosTh) + axisX * sinTh);
-		ret.set(2, 2, cosTh + axisZ * axisZ * (1.0f - cosTh));
-		ret.set(2, 3, 0.0f);
-		ret.set(3, 0, 0.0f);
-		ret.set(3, 1, 0.0f);
-		ret.set(3, 2, 0.0f);
-		ret.set(3, 3, 1.0f);
+		double[] m = dst.m;
+		m[0] = cosTh + axisX * axisX * oneMinusCos;
+		m[1] = axisX * axisY * oneMinusCos - axisZ * sinTh;
+		m[2] = axisX * axisZ * oneMinusCos + axisY * sinTh;
+		m[3] = 0.0;
+		m[4] = axisY * axisX * oneMinusCos + axisZ * sinTh;
+		m[5] = cosTh + axisY * axisY * oneMinusCos;
+		m[6] = axisY * axisZ * oneMinusCos - axisX * sinTh;
+		m[7] = 0.0;
+		m[8] = axisZ * axisX * oneMinusCos - axisY * sinTh;
+		m[9] = axisZ * axisY * oneMinusCos + axisX * sinTh;
+		m[10] = cosTh + axisZ * axisZ * oneMinusCos;
+		m[11] = 0.0;
+		m[12] = 0.0;
+		m[13] = 0.0;
+		m[14] = 0.0;
+		m[15] = 1.0;
 
-		return ret;
+		return dst;
 	}
 }
@@ -0,0 +1,685 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipeline that transforms meshes in binary STL and OBJ files<br>
+ * Positions are transformed with the matrix, and normals are transformed
+ * with the inverse-transpose of the matrix and normalized again.<br>
+ * A file is processed in chunks by three stages running on separate
+ * threads: reading, transformation and writing. A fixed number of chunks is
+ * passed around between the stages, so memory use is bounded regardless of
+ * the size of the mesh.
+ * 
+ * @author Daba
+ *
+ */
+public class MeshTransformPipeline {
+	/**
+	 * Default number of triangles (STL) or lines (OBJ) in a chunk
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 12;
+	/**
+	 * Default number of chunks in flight
+	 */
+	public static final int DEFAULT_CHUNK_COUNT = 8;
+
+	private static final int STL_HEADER_SIZE = 80;
+	private static final int STL_TRIANGLE_SIZE = 50;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final Object END = new Object();
+
+	private static final double[] POWERS_OF_TEN = {1.0E0, 1.0E1, 1.0E2, 1.0E3, 1.0E4, 1.0E5,
+			1.0E6, 1.0E7, 1.0E8, 1.0E9, 1.0E10, 1.0E11, 1.0E12, 1.0E13, 1.0E14, 1.0E15, 1.0E16,
+			1.0E17, 1.0E18, 1.0E19, 1.0E20, 1.0E21, 1.0E22};
+
+	private final Matrix matrix;
+	private final Matrix normalMatrix;
+	private final boolean mirrored;
+
+	private int chunkSize;
+	private int chunkCount;
+
+	/**
+	 * Creates a pipeline for a matrix.
+	 * 
+	 * @param matrix
+	 *            Matrix applied to positions
+	 * @throws org.ejml.data.SingularMatrixException
+	 *             If the matrix is singular
+	 */
+	public MeshTransformPipeline(Matrix matrix) {
+		this.matrix = new Matrix(matrix);
+		normalMatrix = matrix.invert().transposeInPlace();
+
+		double[] m = matrix.m;
+		double det = m[0] * (m[5] * m[10] - m[6] * m[9]) - m[1] * (m[4] * m[10] - m[6] * m[8])
+				+ m[2] * (m[4] * m[9] - m[5] * m[8]);
+		mirrored = det < 0.0;
+
+		chunkSize = DEFAULT_CHUNK_SIZE;
+		chunkCount = DEFAULT_CHUNK_COUNT;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+	/**
+	 * Sets the number of triangles (STL) or lines (OBJ) in a chunk.
+	 * 
+	 * @param chunkSize
+	 *            Chunk size
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+	public int getChunkCount() {
+		return chunkCount;
+	}
+	/**
+	 * Sets the number of chunks in flight between the stages.
+	 * 
+	 * @param chunkCount
+	 *            Number of chunks
+	 */
+	public void setChunkCount(int chunkCount) {
+		if (chunkCount <= 0) {
+			throw new IllegalArgumentException("Chunk count must be positive: " + chunkCount);
+		}
+		this.chunkCount = chunkCount;
+	}
+
+	/**
+	 * Transforms a mesh file.<br>
+	 * Files with the extension ".obj" are processed as OBJ, and other files
+	 * are processed as binary STL.
+	 * 
+	 * @param input
+	 *            Input path
+	 * @param output
+	 *            Output path
+	 * @throws IOException
+	 *             If an I/O error occurs or the input has an invalid format
+	 */
+	public void transform(Path input, Path output) throws IOException {
+		if (input.getFileName().toString().toLowerCase().endsWith(".obj")) {
+			this.transformOBJ(input, output);
+		} else {
+			this.transformSTL(input, output);
+		}
+	}
+	/**
+	 * Transforms a binary STL file.
+	 * 
+	 * @param input
+	 *            Input path
+	 * @param output
+	 *            Output path
+	 * @throws IOException
+	 *             If an I/O error occurs or the input has an invalid format
+	 */
+	public void transformSTL(Path input, Path output) throws IOException {
+		try (var in = new BufferedInputStream(Files.newInputStream(input), BUFFER_SIZE);
+				var out = new BufferedOutputStream(Files.newOutputStream(output), BUFFER_SIZE)) {
+			this.transformSTL(in, out);
+		}
+	}
+	/**
+	 * Transforms a binary STL mesh read from a stream.<br>
+	 * The streams are not closed.<br>
+	 * If the matrix is a mirroring, the second and third vertices of each
+	 * triangle are swapped to keep the winding consistent with the normal.
+	 * 
+	 * @param in
+	 *            Input
+	 * @param out
+	 *            Output
+	 * @throws IOException
+	 *             If an I/O error occurs or the input has an invalid format
+	 */
+	public void transformSTL(InputStream in, OutputStream out) throws IOException {
+		byte[] header = in.readNBytes(STL_HEADER_SIZE + Integer.BYTES);
+		if (header.length != STL_HEADER_SIZE + Integer.BYTES) {
+			throw new EOFException("STL header is too short");
+		}
+		out.write(header);
+
+		long count = Integer.toUnsignedLong(
+				ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(STL_HEADER_SIZE));
+		this.run(new STLStage(in, out, count));
+		out.flush();
+	}
+	/**
+	 * Transforms an OBJ file.
+	 * 
+	 * @param input
+	 *            Input path
+	 * @param output
+	 *            Output path
+	 * @throws IOException
+	 *             If an I/O error occurs or the input has an invalid format
+	 */
+	public void transformOBJ(Path input, Path output) throws IOException {
+		try (var in = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+				var out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+			this.transformOBJ(in, out);
+		}
+	}
+	/**
+	 * Transforms an OBJ mesh read from a stream.<br>
+	 * The streams are not closed.<br>
+	 * "v" and "vn" lines are transformed, and other lines are written as they
+	 * are. A "v" line with a fourth coordinate w is divided by w before the
+	 * transformation and written without it.
+	 * 
+	 * @param in
+	 *            Input
+	 * @param out
+	 *            Output
+	 * @throws IOException
+	 *             If an I/O error occurs or the input has an invalid format
+	 */
+	public void transformOBJ(Reader in, Writer out) throws IOException {
+		var reader = in instanceof BufferedReader ? (BufferedReader) in
+				: new BufferedReader(in, BUFFER_SIZE);
+		this.run(new OBJStage(reader, out));
+		out.flush();
+	}
+	/**
+	 * Transforms an OBJ mesh read from a stream in UTF-8.<br>
+	 * The streams are not closed.
+	 * 
+	 * @param in
+	 *            Input
+	 * @param out
+	 *            Output
+	 * @throws IOException
+	 *             If an I/O error occurs or the input has an invalid format
+	 */
+	public void transformOBJ(InputStream in, OutputStream out) throws IOException {
+		var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+				BUFFER_SIZE);
+		this.transformOBJ(new InputStreamReader(in, StandardCharsets.UTF_8), writer);
+	}
+
+	/**
+	 * Work done by the stages of the pipeline for a format
+	 * 
+	 * @param <C>
+	 *            Type of chunks
+	 */
+	private interface Stage<C> {
+		C createChunk();
+		/**
+		 * Fills a chunk with the next part of the input.
+		 * 
+		 * @return false if the input has ended
+		 */
+		boolean read(C chunk) throws IOException;
+		void transform(C chunk) throws IOException;
+		void write(C chunk) throws IOException;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <C> void run(Stage<C> stage) throws IOException {
+		BlockingQueue<Object> free = new ArrayBlockingQueue<>(chunkCount);
+		BlockingQueue<Object> read = new ArrayBlockingQueue<>(chunkCount + 1);
+		BlockingQueue<Object> transformed = new ArrayBlockingQueue<>(chunkCount + 1);
+		for (int i = 0; i < chunkCount; i++) {
+			free.add(stage.createChunk());
+		}
+
+		var error = new AtomicReference<Throwable>();
+
+		var reader = new Thread(() -> {
+			try {
+				while (error.get() == null) {
+					Object chunk = free.take();
+					if (!stage.read((C) chunk)) {
+						break;
+					}
+					read.put(chunk);
+				}
+			} catch (Throwable e) {
+				error.compareAndSet(null, e);
+			} finally {
+				read.offer(END);
+			}
+		}, "MeshTransformPipeline-reader");
+		var transformer = new Thread(() -> {
+			try {
+				Object chunk;
+				while ((chunk = read.take()) != END) {
+					// After a failure, chunks are still passed on so that the
+					// writer returns them to the reader, which is blocked
+					// until a chunk is free and then sees the error.
+					if (error.get() == null) {
+						try {
+							stage.transform((C) chunk);
+						} catch (Throwable e) {
+							error.compareAndSet(null, e);
+						}
+					}
+					transformed.put(chunk);
+				}
+			} catch (Throwable e) {
+				error.compareAndSet(null, e);
+				reader.interrupt();
+			} finally {
+				transformed.offer(END);
+			}
+		}, "MeshTransformPipeline-transformer");
+		reader.setDaemon(true);
+		transformer.setDaemon(true);
+		reader.start();
+		transformer.start();
+
+		try {
+			Object chunk;
+			while ((chunk = transformed.take()) != END) {
+				if (error.get() == null) {
+					stage.write((C) chunk);
+				}
+				free.put(chunk);
+			}
+		} catch (Throwable e) {
+			error.compareAndSet(null, e);
+			reader.interrupt();
+			transformer.interrupt();
+		}
+
+		try {
+			reader.join();
+			transformer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error.compareAndSet(null, e);
+		}
+
+		Throwable e = error.get();
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		} else if (e instanceof InterruptedException) {
+			throw new InterruptedIOException("Interrupted while transforming a mesh");
+		} else if (e != null) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Transforms normals with the normal matrix and normalizes them.<br>
+	 * Zero vectors, which some exporters write for normals, are kept as they
+	 * are.
+	 */
+	private void transformNormals(VectorBatch normals, int count) {
+		double[] x = normals.x;
+		double[] y = normals.y;
+		double[] z = normals.z;
+		BatchKernels.INSTANCE.transformSR(normalMatrix.m, x, y, z, x, y, z, 0, count);
+
+		for (int i = 0; i < count; i++) {
+			double size = Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]);
+			if (size > 0.0) {
+				x[i] /= size;
+				y[i] /= size;
+				z[i] /= size;
+			}
+		}
+	}
+
+	private static class STLChunk {
+		final byte[] data;
+		final ByteBuffer buffer;
+		final VectorBatch positions;
+		final VectorBatch normals;
+		int count;
+
+		STLChunk(int size) {
+			data = new byte[size * STL_TRIANGLE_SIZE];
+			buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+			positions = new VectorBatch(size * 3);
+			normals = new VectorBatch(size);
+		}
+	}
+
+	private class STLStage implements Stage<STLChunk> {
+		private final InputStream in;
+		private final OutputStream out;
+		private long remaining;
+
+		STLStage(InputStream in, OutputStream out, long count) {
+			this.in = in;
+			this.out = out;
+			remaining = count;
+		}
+
+		@Override
+		public STLChunk createChunk() {
+			return new STLChunk(chunkSize);
+		}
+		@Override
+		public boolean read(STLChunk chunk) throws IOException {
+			int count = (int) Math.min(chunkSize, remaining);
+			int length = count * STL_TRIANGLE_SIZE;
+			if (in.readNBytes(chunk.data, 0, length) != length) {
+				throw new EOFException("STL file has fewer triangles than its header says");
+			}
+
+			chunk.count = count;
+			remaining -= count;
+
+			return count > 0;
+		}
+		@Override
+		public void transform(STLChunk chunk) {
+			ByteBuffer buffer = chunk.buffer;
+			VectorBatch normals = chunk.normals;
+			VectorBatch positions = chunk.positions;
+			int count = chunk.count;
+
+			for (int i = 0; i < count; i++) {
+				int p = i * STL_TRIANGLE_SIZE;
+				normals.x[i] = buffer.getFloat(p);
+				normals.y[i] = buffer.getFloat(p + 4);
+				normals.z[i] = buffer.getFloat(p + 8);
+				for (int j = 0; j < 3; j++) {
+					int q = p + 12 + j * 12;
+					positions.x[i * 3 + j] = buffer.getFloat(q);
+					positions.y[i * 3 + j] = buffer.getFloat(q + 4);
+					positions.z[i * 3 + j] = buffer.getFloat(q + 8);
+				}
+			}
+
+			BatchKernels.INSTANCE.transform(matrix.m, positions.x, positions.y, positions.z,
+					positions.x, positions.y, positions.z, 0, count * 3);
+			transformNormals(normals, count);
+
+			for (int i = 0; i < count; i++) {
+				int p = i * STL_TRIANGLE_SIZE;
+				buffer.putFloat(p, (float) normals.x[i]);
+				buffer.putFloat(p + 4, (float) normals.y[i]);
+				buffer.putFloat(p + 8, (float) normals.z[i]);
+				for (int j = 0; j < 3; j++) {
+					// Swaps the second and third vertices to keep the winding
+					int k = mirrored && j > 0 ? 3 - j : j;
+					int q = p + 12 + j * 12;
+					buffer.putFloat(q, (float) positions.x[i * 3 + k]);
+					buffer.putFloat(q + 4, (float) positions.y[i * 3 + k]);
+					buffer.putFloat(q + 8, (float) positions.z[i * 3 + k]);
+				}
+			}
+		}
+		@Override
+		public void write(STLChunk chunk) throws IOException {
+			out.write(chunk.data, 0, chunk.count * STL_TRIANGLE_SIZE);
+		}
+	}
+
+	private static class OBJChunk {
+		static final byte OTHER = 0;
+		static final byte POSITION = 1;
+		static final byte NORMAL = 2;
+
+		final String[] lines;
+		final byte[] kinds;
+		/**
+		 * Range of each line written after the transformed coordinates
+		 */
+		final int[] restStarts;
+		final int[] restEnds;
+		final VectorBatch positions;
+		final VectorBatch normals;
+		final StringBuilder text;
+		int count;
+
+		OBJChunk(int size) {
+			lines = new String[size];
+			kinds = new byte[size];
+			restStarts = new int[size];
+			restEnds = new int[size];
+			positions = new VectorBatch(size);
+			normals = new VectorBatch(size);
+			text = new StringBuilder();
+		}
+	}
+
+	private class OBJStage implements Stage<OBJChunk> {
+		private final BufferedReader in;
+		private final Writer out;
+
+		OBJStage(BufferedReader in, Writer out) {
+			this.in = in;
+			this.out = out;
+		}
+
+		@Override
+		public OBJChunk createChunk() {
+			return new OBJChunk(chunkSize);
+		}
+		@Override
+		public boolean read(OBJChunk chunk) throws IOException {
+			int count = 0;
+			String line;
+			while (count < chunkSize && (line = in.readLine()) != null) {
+				chunk.lines[count++] = line;
+			}
+			chunk.count = count;
+
+			return count > 0;
+		}
+		@Override
+		public void transform(OBJChunk chunk) throws IOException {
+			int positionCount = 0;
+			int normalCount = 0;
+
+			for (int i = 0; i < chunk.count; i++) {
+				String line = chunk.lines[i];
+				int end = line.length();
+				while (end > 0 && line.charAt(end - 1) <= ' ') {
+					end--;
+				}
+
+				int p = skipSpace(line, 0, end);
+				int q = skipToken(line, p, end);
+				boolean position = q - p == 1 && line.charAt(p) == 'v';
+				boolean normal = q - p == 2 && line.startsWith("vn", p);
+				if (!position && !normal) {
+					chunk.kinds[i] = OBJChunk.OTHER;
+					continue;
+				}
+
+				p = skipSpace(line, q, end);
+				q = skipToken(line, p, end);
+				double x = parseCoordinate(line, p, q);
+				p = skipSpace(line, q, end);
+				q = skipToken(line, p, end);
+				double y = parseCoordinate(line, p, q);
+				p = skipSpace(line, q, end);
+				q = skipToken(line, p, end);
+				double z = parseCoordinate(line, p, q);
+
+				int rest = q;
+				if (position) {
+					p = skipSpace(line, q, end);
+					q = skipToken(line, p, end);
+					// A single value after X, Y and Z is W, not a color
+					if (p < end && q == end) {
+						double w = parseCoordinate(line, p, q);
+						if (w == 0.0 || !Double.isFinite(w)) {
+							throw new IOException("Invalid OBJ line: " + line);
+						}
+						x /= w;
+						y /= w;
+						z /= w;
+						rest = end;
+					}
+				}
+
+				VectorBatch batch = position ? chunk.positions : chunk.normals;
+				int index = position ? positionCount++ : normalCount++;
+				batch.x[index] = x;
+				batch.y[index] = y;
+				batch.z[index] = z;
+				chunk.kinds[i] = position ? OBJChunk.POSITION : OBJChunk.NORMAL;
+				chunk.restStarts[i] = rest;
+				chunk.restEnds[i] = end;
+			}
+
+			VectorBatch positions = chunk.positions;
+			BatchKernels.INSTANCE.transform(matrix.m, positions.x, positions.y, positions.z,
+					positions.x, positions.y, positions.z, 0, positionCount);
+			transformNormals(chunk.normals, normalCount);
+
+			StringBuilder text = chunk.text;
+			text.setLength(0);
+			positionCount = 0;
+			normalCount = 0;
+			for (int i = 0; i < chunk.count; i++) {
+				if (chunk.kinds[i] == OBJChunk.OTHER) {
+					text.append(chunk.lines[i]).append('\n');
+					continue;
+				}
+
+				boolean position = chunk.kinds[i] == OBJChunk.POSITION;
+				VectorBatch batch = position ? chunk.positions : chunk.normals;
+				int index = position ? positionCount++ : normalCount++;
+				text.append(position ? "v " : "vn ").append(batch.x[index]).append(' ')
+						.append(batch.y[index]).append(' ').append(batch.z[index])
+						.append(chunk.lines[i], chunk.restStarts[i], chunk.restEnds[i])
+						.append('\n');
+			}
+		}
+		@Override
+		public void write(OBJChunk chunk) throws IOException {
+			out.append(chunk.text);
+		}
+	}
+
+	private static int skipSpace(String s, int i, int end) {
+		while (i < end && s.charAt(i) <= ' ') {
+			i++;
+		}
+		return i;
+	}
+	private static int skipToken(String s, int i, int end) {
+		while (i < end && s.charAt(i) > ' ') {
+			i++;
+		}
+		return i;
+	}
+	private static double parseCoordinate(String line, int start, int end) throws IOException {
+		if (start == end) {
+			throw new IOException("Invalid OBJ line: " + line);
+		}
+
+		try {
+			return parseDouble(line, start, end);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid OBJ line: " + line, e);
+		}
+	}
+	/**
+	 * Parses a number in a part of a string.<br>
+	 * A plain decimal with at most 15 significant digits and an exponent of at
+	 * most 22 is parsed without creating a substring. Its digits and the power
+	 * of ten are both exact doubles, so one multiplication or division rounds
+	 * it correctly. Other numbers are left to Double.parseDouble.
+	 */
+	private static double parseDouble(String s, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+			negative = s.charAt(i) == '-';
+			i++;
+		}
+
+		long digits = 0;
+		int digitCount = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+		boolean point = false;
+		for (; i < end; i++) {
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (digits != 0 || c != '0') {
+					if (++digitCount > 15) {
+						return Double.parseDouble(s.substring(start, end));
+					}
+				}
+				digits = digits * 10 + (c - '0');
+				anyDigit = true;
+				if (point) {
+					exponent--;
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+
+		if (i < end && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+				negativeExponent = s.charAt(i) == '-';
+				i++;
+			}
+
+			int value = 0;
+			int first = i;
+			for (; i < end && i - first < 4; i++) {
+				char c = s.charAt(i);
+				if (c < '0' || c > '9') {
+					break;
+				}
+				value = value * 10 + (c - '0');
+			}
+			if (i == first) {
+				return Double.parseDouble(s.substring(start, end));
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+
+		if (!anyDigit || i != end || exponent < -22 || exponent > 22) {
+			return Double.parseDouble(s.substring(start, end));
+		}
+
+		double value = digits;
+		if (exponent > 0) {
+			value *= POWERS_OF_TEN[exponent];
+		} else if (exponent < 0) {
+			value /= POWERS_OF_TEN[-exponent];
+		}
+
+		return negative ? -value : value;
+	}
+}
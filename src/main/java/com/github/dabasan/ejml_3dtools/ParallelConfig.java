@@ -0,0 +1,225 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Settings for parallel execution of batch operations<br>
+ * Work is split into chunks and run on a ForkJoinPool. Work smaller than the
+ * threshold is run on the calling thread.<br>
+ * The common pool is used when no pool is specified, so that a pool can be
+ * shared across callers.
+ * 
+ * @author Daba
+ *
+ */
+public class ParallelConfig {
+	/**
+	 * Default number of elements below which work is not split
+	 */
+	public static final int DEFAULT_THRESHOLD = 1 << 15;
+	/**
+	 * Default number of elements processed by a single task
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 12;
+
+	private static final ParallelConfig DEFAULT = new ParallelConfig();
+
+	private final ForkJoinPool pool;
+	private final int threshold;
+	private final int chunkSize;
+
+	/**
+	 * Uses the common pool with the default threshold and chunk size.
+	 */
+	public ParallelConfig() {
+		this(null);
+	}
+	/**
+	 * Uses the pool specified with the default threshold and chunk size.
+	 * 
+	 * @param pool
+	 *            Pool (null to use the common pool)
+	 */
+	public ParallelConfig(ForkJoinPool pool) {
+		this(pool, DEFAULT_THRESHOLD, DEFAULT_CHUNK_SIZE);
+	}
+	/**
+	 * Uses the pool, threshold and chunk size specified.
+	 * 
+	 * @param pool
+	 *            Pool (null to use the common pool)
+	 * @param threshold
+	 *            Number of elements below which work is run on the calling
+	 *            thread
+	 * @param chunkSize
+	 *            Number of elements processed by a single task
+	 */
+	public ParallelConfig(ForkJoinPool pool, int threshold, int chunkSize) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+		}
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+
+		this.pool = pool;
+		this.threshold = threshold;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Returns the configuration that uses the common pool with the default
+	 * threshold and chunk size.
+	 * 
+	 * @return Default configuration
+	 */
+	public static ParallelConfig getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the pool used to run tasks.
+	 * 
+	 * @return Pool
+	 */
+	public ForkJoinPool getPool() {
+		return pool != null ? pool : ForkJoinPool.commonPool();
+	}
+	public int getThreshold() {
+		return threshold;
+	}
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Task that processes a range of elements
+	 */
+	@FunctionalInterface
+	interface RangeTask {
+		void run(int from, int to);
+	}
+
+	/**
+	 * Runs a task over the range [0, count).<br>
+	 * The range is split into chunks that are processed in parallel unless
+	 * count is below the threshold.
+	 * 
+	 * @param count
+	 *            Number of elements
+	 * @param task
+	 *            Task
+	 */
+	void run(int count, RangeTask task) {
+		if (count <= 0) {
+			return;
+		}
+		if (count < threshold || count <= chunkSize) {
+			task.run(0, count);
+			return;
+		}
+
+		this.getPool().invoke(new RangeAction(task, 0, count, chunkSize));
+	}
+
+	/**
+	 * Runs a task over the range [0, count) split at multiples of an
+	 * alignment.<br>
+	 * Every range passed to the task except the last one starts and ends at
+	 * a multiple of the alignment, so that tasks writing packed bits do not
+	 * share words.
+	 * 
+	 * @param count
+	 *            Number of elements
+	 * @param alignment
+	 *            Alignment of the ranges
+	 * @param task
+	 *            Task
+	 */
+	void run(int count, int alignment, RangeTask task) {
+		if (count <= 0) {
+			return;
+		}
+		if (count < threshold || count <= chunkSize) {
+			task.run(0, count);
+			return;
+		}
+
+		int blocks = (count - 1) / alignment + 1;
+		RangeTask blockTask = (from, to) -> task.run(from * alignment,
+				(int) Math.min((long) to * alignment, count));
+		this.getPool().invoke(new RangeAction(blockTask, 0, blocks,
+				Math.max(chunkSize / alignment, 1)));
+	}
+
+	/**
+	 * Task that adds the sums over a range of elements to an array
+	 */
+	@FunctionalInterface
+	interface SumTask {
+		void run(int from, int to, double[] sums, int offset);
+	}
+
+	/**
+	 * Sums values over the range [0, count).<br>
+	 * Each chunk adds its sums to its own slots of a partial array, and the
+	 * partial sums are added up in the order of the chunks on the calling
+	 * thread, so the result does not depend on scheduling.
+	 * 
+	 * @param count
+	 *            Number of elements
+	 * @param width
+	 *            Number of sums
+	 * @param task
+	 *            Task
+	 * @return Sums
+	 */
+	double[] sum(int count, int width, SumTask task) {
+		var ret = new double[width];
+		if (count <= 0) {
+			return ret;
+		}
+
+		int blocks = (count - 1) / chunkSize + 1;
+		var partials = new double[blocks * width];
+		this.run(count, chunkSize,
+				(from, to) -> task.run(from, to, partials, from / chunkSize * width));
+
+		for (int b = 0; b < blocks; b++) {
+			for (int i = 0; i < width; i++) {
+				ret[i] += partials[b * width + i];
+			}
+		}
+
+		return ret;
+	}
+
+	private static class RangeAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RangeTask task;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+
+		public RangeAction(RangeTask task, int from, int to, int chunkSize) {
+			this.task = task;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				task.run(from, to);
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new RangeAction(task, from, mid, chunkSize),
+					new RangeAction(task, mid, to, chunkSize));
+		}
+	}
+}
@@ -0,0 +1,468 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary point cloud file accessed through memory mapping<br>
+ * Two formats are supported:
+ * <ul>
+ * <li>Binary XYZ: consecutive X, Y and Z of 32-bit or 64-bit floats in
+ * little-endian without a header</li>
+ * <li>Binary PLY (little-endian or big-endian) whose first element is
+ * "vertex" with float or double x, y and z properties</li>
+ * </ul>
+ * The file is mapped in windows of a fixed size, so files larger than 2 GB can
+ * be read and transformed with constant memory. Points are processed in
+ * chunks through reused arrays, and no object is created per point.
+ * 
+ * @author Daba
+ *
+ */
+public class PointCloudFile implements Closeable {
+	/**
+	 * Default size of a mapped window in bytes
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+	/**
+	 * Number of points transformed at a time
+	 */
+	static final int CHUNK_SIZE = 1 << 12;
+
+	private static final int MAX_HEADER_SIZE = 1 << 16;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final long dataOffset;
+	private final long count;
+	private final int stride;
+	private final int xOffset;
+	private final int yOffset;
+	private final int zOffset;
+	private final boolean doublePrecision;
+	private final ByteOrder order;
+
+	private int windowSize;
+
+	private PointCloudFile(Path path, FileChannel channel, long dataOffset, long count,
+			int stride, int xOffset, int yOffset, int zOffset, boolean doublePrecision,
+			ByteOrder order) {
+		this.path = path;
+		this.channel = channel;
+		this.dataOffset = dataOffset;
+		this.count = count;
+		this.stride = stride;
+		this.xOffset = xOffset;
+		this.yOffset = yOffset;
+		this.zOffset = zOffset;
+		this.doublePrecision = doublePrecision;
+		this.order = order;
+
+		windowSize = DEFAULT_WINDOW_SIZE;
+	}
+
+	/**
+	 * Opens a point cloud file.<br>
+	 * Files with the extension ".ply" are opened as PLY, and other files are
+	 * opened as binary XYZ of 32-bit floats.
+	 * 
+	 * @param path
+	 *            Path
+	 * @return Point cloud file
+	 * @throws IOException
+	 *             If the file cannot be read or has an invalid format
+	 */
+	public static PointCloudFile open(Path path) throws IOException {
+		if (path.getFileName().toString().toLowerCase().endsWith(".ply")) {
+			return openPLY(path);
+		} else {
+			return openXYZ(path, false);
+		}
+	}
+	/**
+	 * Opens a binary XYZ file.
+	 * 
+	 * @param path
+	 *            Path
+	 * @param doublePrecision
+	 *            true if the elements are 64-bit floats, false if they are
+	 *            32-bit floats
+	 * @return Point cloud file
+	 * @throws IOException
+	 *             If the file cannot be read or its size is not a multiple of
+	 *             the point size
+	 */
+	public static PointCloudFile openXYZ(Path path, boolean doublePrecision) throws IOException {
+		int elementSize = doublePrecision ? Double.BYTES : Float.BYTES;
+		int stride = elementSize * 3;
+
+		var channel = FileChannel.open(path, StandardOpenOption.READ);
+		long fileSize = channel.size();
+		if (fileSize % stride != 0) {
+			channel.close();
+			throw new IOException("File size is not a multiple of the point size: " + fileSize);
+		}
+
+		return new PointCloudFile(path, channel, 0, fileSize / stride, stride, 0, elementSize,
+				elementSize * 2, doublePrecision, ByteOrder.LITTLE_ENDIAN);
+	}
+	/**
+	 * Opens a binary PLY file.
+	 * 
+	 * @param path
+	 *            Path
+	 * @return Point cloud file
+	 * @throws IOException
+	 *             If the file cannot be read or has an unsupported format
+	 */
+	public static PointCloudFile openPLY(Path path) throws IOException {
+		var channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return readPLYHeader(path, channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	private static PointCloudFile readPLYHeader(Path path, FileChannel channel)
+			throws IOException {
+		var buffer = ByteBuffer.allocate((int) Math.min(channel.size(), MAX_HEADER_SIZE));
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, buffer.position()) < 0) {
+				break;
+			}
+		}
+		String text = new String(buffer.array(), 0, buffer.position(),
+				StandardCharsets.US_ASCII);
+
+		// The header may have either LF or CRLF line endings.
+		String newline = text.startsWith("ply\r\n") ? "\r\n" : "\n";
+		int end = text.indexOf("end_header" + newline);
+		if (!text.startsWith("ply" + newline) || end < 0) {
+			throw new IOException("Not a PLY file");
+		}
+		long dataOffset = end + ("end_header" + newline).length();
+
+		ByteOrder order = null;
+		long count = -1;
+		boolean inVertex = false;
+		int stride = 0;
+		int xOffset = -1;
+		int yOffset = -1;
+		int zOffset = -1;
+		String coordinateType = null;
+
+		for (String line : text.substring(0, end).split("\n")) {
+			String[] tokens = line.trim().split("\\s+");
+			switch (tokens[0]) {
+				case "format" :
+					if (tokens[1].equals("binary_little_endian")) {
+						order = ByteOrder.LITTLE_ENDIAN;
+					} else if (tokens[1].equals("binary_big_endian")) {
+						order = ByteOrder.BIG_ENDIAN;
+					} else {
+						throw new IOException("Unsupported PLY format: " + tokens[1]);
+					}
+					break;
+				case "element" :
+					if (count < 0) {
+						if (!tokens[1].equals("vertex")) {
+							throw new IOException("First element must be vertex: " + tokens[1]);
+						}
+						count = Long.parseLong(tokens[2]);
+						inVertex = true;
+					} else {
+						inVertex = false;
+					}
+					break;
+				case "property" :
+					if (!inVertex) {
+						break;
+					}
+					if (tokens[1].equals("list")) {
+						throw new IOException("List properties of vertex are not supported");
+					}
+
+					int size = getPLYTypeSize(tokens[1]);
+					String name = tokens[2];
+					if (name.equals("x") || name.equals("y") || name.equals("z")) {
+						if (!tokens[1].startsWith("float") && !tokens[1].equals("double")) {
+							throw new IOException("Coordinates must be float or double");
+						}
+						String type = size == Double.BYTES ? "double" : "float";
+						if (coordinateType != null && !coordinateType.equals(type)) {
+							throw new IOException("Coordinates must have the same type");
+						}
+						coordinateType = type;
+
+						if (name.equals("x")) {
+							xOffset = stride;
+						} else if (name.equals("y")) {
+							yOffset = stride;
+						} else {
+							zOffset = stride;
+						}
+					}
+					stride += size;
+					break;
+				default :
+					break;
+			}
+		}
+
+		if (order == null) {
+			throw new IOException("PLY format is not specified");
+		}
+		if (count < 0 || xOffset < 0 || yOffset < 0 || zOffset < 0) {
+			throw new IOException("Vertex element with x, y and z is not found");
+		}
+		if (dataOffset + count * stride > channel.size()) {
+			throw new IOException("File is shorter than the vertex data");
+		}
+
+		return new PointCloudFile(path, channel, dataOffset, count, stride, xOffset, yOffset,
+				zOffset, "double".equals(coordinateType), order);
+	}
+	private static int getPLYTypeSize(String type) throws IOException {
+		switch (type) {
+			case "char" :
+			case "uchar" :
+			case "int8" :
+			case "uint8" :
+				return 1;
+			case "short" :
+			case "ushort" :
+			case "int16" :
+			case "uint16" :
+				return 2;
+			case "int" :
+			case "uint" :
+			case "int32" :
+			case "uint32" :
+			case "float" :
+			case "float32" :
+				return 4;
+			case "double" :
+			case "float64" :
+				return 8;
+			default :
+				throw new IOException("Unknown PLY type: " + type);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Returns the number of points in this file.
+	 * 
+	 * @return Number of points
+	 */
+	public long size() {
+		return count;
+	}
+	public int getWindowSize() {
+		return windowSize;
+	}
+	/**
+	 * Sets the size of a mapped window.<br>
+	 * The size is rounded down to a multiple of the point size.
+	 * 
+	 * @param windowSize
+	 *            Size in bytes
+	 */
+	public void setWindowSize(int windowSize) {
+		if (windowSize < stride) {
+			throw new IllegalArgumentException("Window size must be at least " + stride);
+		}
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Reads points into a batch.<br>
+	 * Points are read from the index specified until the batch is filled or
+	 * the end of the file is reached.
+	 * 
+	 * @param first
+	 *            Index of the first point
+	 * @param dst
+	 *            Destination
+	 * @return Number of points read
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 */
+	public int read(long first, VectorBatch dst) throws IOException {
+		if (first < 0 || first > count) {
+			throw new IndexOutOfBoundsException("Point index out of range: " + first);
+		}
+
+		int total = (int) Math.min(dst.size(), count - first);
+		long windowPoints = windowSize / stride;
+
+		int read = 0;
+		while (read < total) {
+			int n = (int) Math.min(windowPoints, total - read);
+			var window = this.map(channel, FileChannel.MapMode.READ_ONLY, first + read, n);
+			this.get(window, 0, dst.x, dst.y, dst.z, read, n);
+			read += n;
+		}
+
+		return total;
+	}
+	/**
+	 * Transforms all of the points with a matrix and writes them to another
+	 * file.<br>
+	 * The output is a copy of this file with the coordinates replaced, so the
+	 * header, other properties and other elements are kept as they are. The
+	 * output must be a different file from this one.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param output
+	 *            Output path
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 * @throws IllegalArgumentException
+	 *             If the output is this file
+	 */
+	public void transformTo(Matrix matrix, Path output) throws IOException {
+		// Opening the output would truncate this file before it is read.
+		if (Files.exists(output) && Files.isSameFile(path, output)) {
+			throw new IllegalArgumentException("Output must not be the input file: " + output);
+		}
+
+		try (var out = FileChannel.open(output, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			long dataEnd = dataOffset + count * stride;
+			transfer(channel, 0, dataOffset, out);
+
+			var chunk = new VectorBatch(CHUNK_SIZE);
+			long windowPoints = windowSize / stride;
+			for (long first = 0; first < count; first += windowPoints) {
+				int n = (int) Math.min(windowPoints, count - first);
+				var src = this.map(channel, FileChannel.MapMode.READ_ONLY, first, n);
+				var dst = this.map(out, FileChannel.MapMode.READ_WRITE, first, n);
+				dst.put(src);
+
+				for (int i = 0; i < n; i += CHUNK_SIZE) {
+					int m = Math.min(CHUNK_SIZE, n - i);
+					this.get(dst, i, chunk.x, chunk.y, chunk.z, 0, m);
+					BatchKernels.INSTANCE.transform(matrix.m, chunk.x, chunk.y, chunk.z, chunk.x,
+							chunk.y, chunk.z, 0, m);
+					this.put(dst, i, chunk.x, chunk.y, chunk.z, 0, m);
+				}
+			}
+
+			transfer(channel, dataEnd, channel.size() - dataEnd, out);
+		}
+	}
+
+	private MappedByteBuffer map(FileChannel target, FileChannel.MapMode mode, long first,
+			int n) throws IOException {
+		var buffer = target.map(mode, dataOffset + first * stride, (long) n * stride);
+		buffer.order(order);
+
+		return buffer;
+	}
+	private static void transfer(FileChannel src, long position, long size, FileChannel dst)
+			throws IOException {
+		long done = 0;
+		while (done < size) {
+			done += src.transferTo(position + done, size - done, dst.position(position + done));
+		}
+	}
+	private void get(ByteBuffer buffer, int first, double[] x, double[] y, double[] z,
+			int offset, int n) {
+		for (int i = 0; i < n; i++) {
+			int p = (first + i) * stride;
+			if (doublePrecision) {
+				x[offset + i] = buffer.getDouble(p + xOffset);
+				y[offset + i] = buffer.getDouble(p + yOffset);
+				z[offset + i] = buffer.getDouble(p + zOffset);
+			} else {
+				x[offset + i] = buffer.getFloat(p + xOffset);
+				y[offset + i] = buffer.getFloat(p + yOffset);
+				z[offset + i] = buffer.getFloat(p + zOffset);
+			}
+		}
+	}
+	private void put(ByteBuffer buffer, int first, double[] x, double[] y, double[] z,
+			int offset, int n) {
+		for (int i = 0; i < n; i++) {
+			int p = (first + i) * stride;
+			if (doublePrecision) {
+				buffer.putDouble(p + xOffset, x[offset + i]);
+				buffer.putDouble(p + yOffset, y[offset + i]);
+				buffer.putDouble(p + zOffset, z[offset + i]);
+			} else {
+				buffer.putFloat(p + xOffset, (float) x[offset + i]);
+				buffer.putFloat(p + yOffset, (float) y[offset + i]);
+				buffer.putFloat(p + zOffset, (float) z[offset + i]);
+			}
+		}
+	}
+
+	/**
+	 * Writes points to a binary XYZ file.
+	 * 
+	 * @param path
+	 *            Path
+	 * @param points
+	 *            Points
+	 * @param doublePrecision
+	 *            true to write 64-bit floats, false to write 32-bit floats
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 */
+	public static void writeXYZ(Path path, VectorBatch points, boolean doublePrecision)
+			throws IOException {
+		int elementSize = doublePrecision ? Double.BYTES : Float.BYTES;
+		write(path, new byte[0], points, elementSize, doublePrecision);
+	}
+	/**
+	 * Writes points to a binary little-endian PLY file with float x, y and z.
+	 * 
+	 * @param path
+	 *            Path
+	 * @param points
+	 *            Points
+	 * @throws IOException
+	 *             If an I/O error occurs
+	 */
+	public static void writePLY(Path path, VectorBatch points) throws IOException {
+		String header = "ply\n" + "format binary_little_endian 1.0\n" + "element vertex "
+				+ points.size() + "\n" + "property float x\n" + "property float y\n"
+				+ "property float z\n" + "end_header\n";
+		write(path, header.getBytes(StandardCharsets.US_ASCII), points, Float.BYTES, false);
+	}
+	private static void write(Path path, byte[] header, VectorBatch points, int elementSize,
+			boolean doublePrecision) throws IOException {
+		try (var out = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			out.write(ByteBuffer.wrap(header));
+
+			var file = new PointCloudFile(path, out, header.length, points.size(),
+					elementSize * 3, 0, elementSize, elementSize * 2, doublePrecision,
+					ByteOrder.LITTLE_ENDIAN);
+			long windowPoints = file.windowSize / file.stride;
+			for (int first = 0; first < points.size(); first += windowPoints) {
+				int n = (int) Math.min(windowPoints, points.size() - first);
+				var window = file.map(out, FileChannel.MapMode.READ_WRITE, first, n);
+				file.put(window, 0, points.x, points.y, points.z, first, n);
+			}
+		}
+	}
+}
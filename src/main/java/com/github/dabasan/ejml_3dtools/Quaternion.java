@@ -0,0 +1,615 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Quaternion<br>
+ * Rotations are represented by unit quaternions. Composition follows the
+ * same order as matrix multiplication, so
+ * {@code a.mult(b).toMatrix()} equals {@code a.toMatrix().mult(b.toMatrix())}.
+ * 
+ * @author Daba
+ *
+ */
+public class Quaternion {
+	/**
+	 * Cosine of the angle between two quaternions above which interpolation
+	 * falls back to normalized lerp
+	 */
+	static final double SLERP_THRESHOLD = 0.9995;
+
+	double x;
+	double y;
+	double z;
+	double w;
+
+	/**
+	 * Creates an identity quaternion.
+	 */
+	public Quaternion() {
+		w = 1.0;
+	}
+	/**
+	 * Each element is set to the specified value.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 * @param w
+	 *            W
+	 */
+	public Quaternion(double x, double y, double z, double w) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.w = w;
+	}
+	/**
+	 * Creates a quaternion from a Quaternion instance.
+	 * 
+	 * @param q
+	 *            Quaternion instance
+	 */
+	public Quaternion(Quaternion q) {
+		x = q.x;
+		y = q.y;
+		z = q.z;
+		w = q.w;
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		sb.append("(");
+		sb.append(x);
+		sb.append(", ");
+		sb.append(y);
+		sb.append(", ");
+		sb.append(z);
+		sb.append(", ");
+		sb.append(w);
+		sb.append(")");
+
+		return sb.toString();
+	}
+
+	public double getX() {
+		return x;
+	}
+	public double getY() {
+		return y;
+	}
+	public double getZ() {
+		return z;
+	}
+	public double getW() {
+		return w;
+	}
+
+	public void set(double x, double y, double z, double w) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.w = w;
+	}
+	public void set(Quaternion q) {
+		x = q.x;
+		y = q.y;
+		z = q.z;
+		w = q.w;
+	}
+
+	/**
+	 * Returns an array containing X, Y, Z and W.
+	 * 
+	 * @return Array
+	 */
+	public double[] toArray() {
+		return new double[]{x, y, z, w};
+	}
+
+	/**
+	 * Returns the squared size of this quaternion.
+	 * 
+	 * @return Squared size
+	 */
+	public double getSquareSize() {
+		return x * x + y * y + z * z + w * w;
+	}
+	/**
+	 * Returns the size of this quaternion.
+	 * 
+	 * @return Size
+	 */
+	public double getSize() {
+		return Math.sqrt(x * x + y * y + z * z + w * w);
+	}
+
+	/**
+	 * Normalize
+	 * 
+	 * @return Normalized quaternion
+	 */
+	public Quaternion normalize() {
+		return this.normalize(new Quaternion());
+	}
+	/**
+	 * Normalize<br>
+	 * The result is written to the destination, which may be this quaternion.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Quaternion normalize(Quaternion dst) {
+		double size = this.getSize();
+
+		dst.x = x / size;
+		dst.y = y / size;
+		dst.z = z / size;
+		dst.w = w / size;
+
+		return dst;
+	}
+	/**
+	 * Normalizes this quaternion in place.
+	 * 
+	 * @return This quaternion
+	 */
+	public Quaternion normalizeInPlace() {
+		return this.normalize(this);
+	}
+
+	/**
+	 * Conjugate<br>
+	 * For a unit quaternion, this is the inverse rotation.
+	 * 
+	 * @return Conjugate
+	 */
+	public Quaternion conjugate() {
+		return this.conjugate(new Quaternion());
+	}
+	/**
+	 * Conjugate<br>
+	 * The result is written to the destination, which may be this quaternion.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Quaternion conjugate(Quaternion dst) {
+		dst.x = -x;
+		dst.y = -y;
+		dst.z = -z;
+		dst.w = w;
+
+		return dst;
+	}
+	/**
+	 * Conjugates this quaternion in place.
+	 * 
+	 * @return This quaternion
+	 */
+	public Quaternion conjugateInPlace() {
+		return this.conjugate(this);
+	}
+
+	/**
+	 * Multiplication<br>
+	 * The resulting rotation applies q first and then this quaternion.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @return Quaternion
+	 */
+	public Quaternion mult(Quaternion q) {
+		return this.mult(q, new Quaternion());
+	}
+	/**
+	 * Multiplication<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Quaternion mult(Quaternion q, Quaternion dst) {
+		double ax = x, ay = y, az = z, aw = w;
+		double bx = q.x, by = q.y, bz = q.z, bw = q.w;
+
+		dst.x = aw * bx + ax * bw + ay * bz - az * by;
+		dst.y = aw * by - ax * bz + ay * bw + az * bx;
+		dst.z = aw * bz + ax * by - ay * bx + az * bw;
+		dst.w = aw * bw - ax * bx - ay * by - az * bz;
+
+		return dst;
+	}
+	/**
+	 * Multiplies this quaternion by a quaternion in place.
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @return This quaternion
+	 */
+	public Quaternion multInPlace(Quaternion q) {
+		return this.mult(q, this);
+	}
+	/**
+	 * Dot product
+	 * 
+	 * @param q
+	 *            Quaternion
+	 * @return Dot product (double value)
+	 */
+	public double dot(Quaternion q) {
+		return x * q.x + y * q.y + z * q.z + w * q.w;
+	}
+
+	/**
+	 * Rotates a vector with this quaternion.<br>
+	 * This quaternion must be normalized.
+	 * 
+	 * @param vec
+	 *            Vector
+	 * @return Rotated vector
+	 */
+	public Vector rotate(Vector vec) {
+		return this.rotate(vec, new Vector());
+	}
+	/**
+	 * Rotates a vector with this quaternion.<br>
+	 * This quaternion must be normalized. The result is written to the
+	 * destination, which may be the input vector.
+	 * 
+	 * @param vec
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector rotate(Vector vec, Vector dst) {
+		double vx = vec.v[0];
+		double vy = vec.v[1];
+		double vz = vec.v[2];
+
+		// t = 2 * (q.xyz x v), v' = v + w * t + q.xyz x t
+		double tx = 2.0 * (y * vz - z * vy);
+		double ty = 2.0 * (z * vx - x * vz);
+		double tz = 2.0 * (x * vy - y * vx);
+
+		dst.v[0] = vx + w * tx + (y * tz - z * ty);
+		dst.v[1] = vy + w * ty + (z * tx - x * tz);
+		dst.v[2] = vz + w * tz + (x * ty - y * tx);
+		dst.v[3] = 1.0;
+
+		return dst;
+	}
+
+	/**
+	 * Normalized linear interpolation<br>
+	 * Interpolation takes the shorter path.
+	 * 
+	 * @param q
+	 *            Target quaternion
+	 * @param t
+	 *            Interpolation parameter (0.0 to 1.0)
+	 * @return Interpolated quaternion
+	 */
+	public Quaternion nlerp(Quaternion q, double t) {
+		return this.nlerp(q, t, new Quaternion());
+	}
+	/**
+	 * Normalized linear interpolation<br>
+	 * Interpolation takes the shorter path. The result is written to the
+	 * destination, which may be either of the operands.
+	 * 
+	 * @param q
+	 *            Target quaternion
+	 * @param t
+	 *            Interpolation parameter (0.0 to 1.0)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Quaternion nlerp(Quaternion q, double t, Quaternion dst) {
+		double s = this.dot(q) < 0.0 ? -t : t;
+		double u = 1.0 - t;
+
+		double rx = u * x + s * q.x;
+		double ry = u * y + s * q.y;
+		double rz = u * z + s * q.z;
+		double rw = u * w + s * q.w;
+		double size = Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+
+		dst.x = rx / size;
+		dst.y = ry / size;
+		dst.z = rz / size;
+		dst.w = rw / size;
+
+		return dst;
+	}
+	/**
+	 * Spherical linear interpolation<br>
+	 * Interpolation takes the shorter path. Both quaternions must be
+	 * normalized.
+	 * 
+	 * @param q
+	 *            Target quaternion
+	 * @param t
+	 *            Interpolation parameter (0.0 to 1.0)
+	 * @return Interpolated quaternion
+	 */
+	public Quaternion slerp(Quaternion q, double t) {
+		return this.slerp(q, t, new Quaternion());
+	}
+	/**
+	 * Spherical linear interpolation<br>
+	 * Interpolation takes the shorter path. Both quaternions must be
+	 * normalized. The result is written to the destination, which may be
+	 * either of the operands.
+	 * 
+	 * @param q
+	 *            Target quaternion
+	 * @param t
+	 *            Interpolation parameter (0.0 to 1.0)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Quaternion slerp(Quaternion q, double t, Quaternion dst) {
+		slerp(x, y, z, w, q.x, q.y, q.z, q.w, t, dst);
+		return dst;
+	}
+
+	/**
+	 * Spherical linear interpolation of many quaternions<br>
+	 * Quaternions are stored as consecutive (X, Y, Z, W) groups, so the i-th
+	 * quaternion occupies elements 4 * i to 4 * i + 3. dst[i] is set to the
+	 * interpolation between from[i] and to[i] at t[i]. The destination may be
+	 * either of the inputs.
+	 * 
+	 * @param from
+	 *            Source quaternions
+	 * @param to
+	 *            Target quaternions
+	 * @param t
+	 *            Interpolation parameters
+	 * @param dst
+	 *            Destination
+	 * @param count
+	 *            Number of quaternions
+	 * @return Destination
+	 */
+	public static double[] slerp(double[] from, double[] to, double[] t, double[] dst,
+			int count) {
+		checkLengths(from, to, t, dst, count);
+		slerp(from, to, t, dst, 0, count);
+
+		return dst;
+	}
+	/**
+	 * Spherical linear interpolation of many quaternions in parallel<br>
+	 * See {@link #slerp(double[], double[], double[], double[], int)} for the
+	 * layout.
+	 * 
+	 * @param from
+	 *            Source quaternions
+	 * @param to
+	 *            Target quaternions
+	 * @param t
+	 *            Interpolation parameters
+	 * @param dst
+	 *            Destination
+	 * @param count
+	 *            Number of quaternions
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 */
+	public static double[] slerp(double[] from, double[] to, double[] t, double[] dst,
+			int count, ParallelConfig config) {
+		checkLengths(from, to, t, dst, count);
+		config.run(count, (start, end) -> slerp(from, to, t, dst, start, end));
+
+		return dst;
+	}
+	private static void checkLengths(double[] from, double[] to, double[] t, double[] dst,
+			int count) {
+		if (from.length < count * 4 || to.length < count * 4 || dst.length < count * 4
+				|| t.length < count) {
+			throw new IllegalArgumentException("Arrays are too short for " + count + " elements");
+		}
+	}
+	private static void slerp(double[] from, double[] to, double[] t, double[] dst, int start,
+			int end) {
+		var result = new Quaternion();
+		for (int i = start; i < end; i++) {
+			int j = i * 4;
+			slerp(from[j], from[j + 1], from[j + 2], from[j + 3], to[j], to[j + 1], to[j + 2],
+					to[j + 3], t[i], result);
+
+			dst[j] = result.x;
+			dst[j + 1] = result.y;
+			dst[j + 2] = result.z;
+			dst[j + 3] = result.w;
+		}
+	}
+	/**
+	 * Writes the spherical linear interpolation between two unit quaternions
+	 * to a quaternion.
+	 * 
+	 * @param ax
+	 *            X of the source
+	 * @param ay
+	 *            Y of the source
+	 * @param az
+	 *            Z of the source
+	 * @param aw
+	 *            W of the source
+	 * @param bx
+	 *            X of the target
+	 * @param by
+	 *            Y of the target
+	 * @param bz
+	 *            Z of the target
+	 * @param bw
+	 *            W of the target
+	 * @param t
+	 *            Interpolation parameter
+	 * @param dst
+	 *            Destination
+	 */
+	static void slerp(double ax, double ay, double az, double aw, double bx, double by,
+			double bz, double bw, double t, Quaternion dst) {
+		double cosTh = ax * bx + ay * by + az * bz + aw * bw;
+		if (cosTh < 0.0) {
+			cosTh = -cosTh;
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+			bw = -bw;
+		}
+
+		double s0;
+		double s1;
+		if (cosTh > SLERP_THRESHOLD) {
+			s0 = 1.0 - t;
+			s1 = t;
+		} else {
+			double th = Math.acos(cosTh);
+			double invSinTh = 1.0 / Math.sin(th);
+			s0 = Math.sin((1.0 - t) * th) * invSinTh;
+			s1 = Math.sin(t * th) * invSinTh;
+		}
+
+		double rx = s0 * ax + s1 * bx;
+		double ry = s0 * ay + s1 * by;
+		double rz = s0 * az + s1 * bz;
+		double rw = s0 * aw + s1 * bw;
+		double size = Math.sqrt(rx * rx + ry * ry + rz * rz + rw * rw);
+
+		dst.x = rx / size;
+		dst.y = ry / size;
+		dst.z = rz / size;
+		dst.w = rw / size;
+	}
+
+	/**
+	 * Converts this quaternion to a rotation matrix.<br>
+	 * This quaternion must be normalized.
+	 * 
+	 * @return Rotation matrix
+	 */
+	public Matrix toMatrix() {
+		return this.toMatrix(new Matrix());
+	}
+	/**
+	 * Converts this quaternion to a rotation matrix.<br>
+	 * This quaternion must be normalized.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Matrix toMatrix(Matrix dst) {
+		toMatrix(x, y, z, w, dst.m, 0);
+		return dst;
+	}
+	/**
+	 * Writes the rotation matrix of a unit quaternion to a row-major array.
+	 * 
+	 * @param x
+	 *            X
+	 * @param y
+	 *            Y
+	 * @param z
+	 *            Z
+	 * @param w
+	 *            W
+	 * @param dst
+	 *            Destination
+	 * @param di
+	 *            Offset of the destination
+	 */
+	static void toMatrix(double x, double y, double z, double w, double[] dst, int di) {
+		double xx = x * x, yy = y * y, zz = z * z;
+		double xy = x * y, xz = x * z, yz = y * z;
+		double wx = w * x, wy = w * y, wz = w * z;
+
+		dst[di] = 1.0 - 2.0 * (yy + zz);
+		dst[di + 1] = 2.0 * (xy - wz);
+		dst[di + 2] = 2.0 * (xz + wy);
+		dst[di + 3] = 0.0;
+		dst[di + 4] = 2.0 * (xy + wz);
+		dst[di + 5] = 1.0 - 2.0 * (xx + zz);
+		dst[di + 6] = 2.0 * (yz - wx);
+		dst[di + 7] = 0.0;
+		dst[di + 8] = 2.0 * (xz - wy);
+		dst[di + 9] = 2.0 * (yz + wx);
+		dst[di + 10] = 1.0 - 2.0 * (xx + yy);
+		dst[di + 11] = 0.0;
+		dst[di + 12] = 0.0;
+		dst[di + 13] = 0.0;
+		dst[di + 14] = 0.0;
+		dst[di + 15] = 1.0;
+	}
+
+	/**
+	 * Creates a quaternion for rotation around an arbitrary axis.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return Quaternion
+	 */
+	public static Quaternion createRotation(double axisX, double axisY, double axisZ,
+			double th) {
+		double halfTh = th * 0.5;
+		double sinHalfTh = Math.sin(halfTh);
+
+		return new Quaternion(axisX * sinHalfTh, axisY * sinHalfTh, axisZ * sinHalfTh,
+				Math.cos(halfTh));
+	}
+	/**
+	 * Creates a quaternion from the rotation part of a matrix.<br>
+	 * The upper-left 3x3 block of the matrix must be a rotation.
+	 * 
+	 * @param mat
+	 *            Matrix
+	 * @return Quaternion
+	 */
+	public static Quaternion createFromMatrix(Matrix mat) {
+		double[] m = mat.m;
+		double m00 = m[0], m01 = m[1], m02 = m[2];
+		double m10 = m[4], m11 = m[5], m12 = m[6];
+		double m20 = m[8], m21 = m[9], m22 = m[10];
+
+		var ret = new Quaternion();
+		double trace = m00 + m11 + m22;
+		if (trace > 0.0) {
+			double s = Math.sqrt(trace + 1.0) * 2.0;
+			ret.set((m21 - m12) / s, (m02 - m20) / s, (m10 - m01) / s, 0.25 * s);
+		} else if (m00 > m11 && m00 > m22) {
+			double s = Math.sqrt(1.0 + m00 - m11 - m22) * 2.0;
+			ret.set(0.25 * s, (m01 + m10) / s, (m02 + m20) / s, (m21 - m12) / s);
+		} else if (m11 > m22) {
+			double s = Math.sqrt(1.0 + m11 - m00 - m22) * 2.0;
+			ret.set((m01 + m10) / s, 0.25 * s, (m12 + m21) / s, (m02 - m20) / s);
+		} else {
+			double s = Math.sqrt(1.0 + m22 - m00 - m11) * 2.0;
+			ret.set((m02 + m20) / s, (m12 + m21) / s, 0.25 * s, (m10 - m01) / s);
+		}
+
+		return ret;
+	}
+}
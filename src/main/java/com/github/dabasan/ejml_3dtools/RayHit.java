@@ -0,0 +1,104 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Result of a ray query<br>
+ * Instances are meant to be reused across queries, so that casting rays does
+ * not allocate.
+ * 
+ * @author Daba
+ *
+ */
+public class RayHit {
+	/**
+	 * Primitive index when nothing was hit
+	 */
+	public static final int NO_HIT = -1;
+
+	double distance;
+	int primitive;
+	double u;
+	double v;
+
+	public RayHit() {
+		this.clear(Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		sb.append("primitive=");
+		sb.append(primitive);
+		sb.append(", distance=");
+		sb.append(distance);
+		sb.append(", u=");
+		sb.append(u);
+		sb.append(", v=");
+		sb.append(v);
+
+		return sb.toString();
+	}
+
+	void clear(double maxDistance) {
+		distance = maxDistance;
+		primitive = NO_HIT;
+		u = 0.0;
+		v = 0.0;
+	}
+
+	/**
+	 * Returns true if something was hit.
+	 * 
+	 * @return true if something was hit
+	 */
+	public boolean isHit() {
+		return primitive != NO_HIT;
+	}
+	/**
+	 * Returns the distance to the hit point in units of the ray direction.
+	 * 
+	 * @return Distance
+	 */
+	public double getDistance() {
+		return distance;
+	}
+	/**
+	 * Returns the index of the primitive hit.
+	 * 
+	 * @return Primitive index ({@value #NO_HIT} if nothing was hit)
+	 */
+	public int getPrimitive() {
+		return primitive;
+	}
+	/**
+	 * Returns the barycentric coordinate of the hit point for the second
+	 * vertex of a triangle.
+	 * 
+	 * @return U (0 for boxes)
+	 */
+	public double getU() {
+		return u;
+	}
+	/**
+	 * Returns the barycentric coordinate of the hit point for the third vertex
+	 * of a triangle.
+	 * 
+	 * @return V (0 for boxes)
+	 */
+	public double getV() {
+		return v;
+	}
+	/**
+	 * Returns the hit point.
+	 * 
+	 * @param origin
+	 *            Origin of the ray
+	 * @param direction
+	 *            Direction of the ray
+	 * @return Hit point
+	 */
+	public Vector getPoint(Vector origin, Vector direction) {
+		return new Vector(origin.v[0] + direction.v[0] * distance,
+				origin.v[1] + direction.v[1] * distance, origin.v[2] + direction.v[2] * distance);
+	}
+}
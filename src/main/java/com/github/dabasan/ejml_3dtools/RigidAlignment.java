@@ -0,0 +1,365 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.util.Arrays;
+
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.SingularOps_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
+import org.ejml.interfaces.decomposition.SingularValueDecomposition_F64;
+
+/**
+ * Best-fit rigid and similarity transformations between point sets<br>
+ * Given pairs of corresponding points, finds the matrix T that minimizes the
+ * sum of the squared distances between T * source[i] and target[i] (Kabsch
+ * and Umeyama). The matrix is a rotation followed by a translation, with a
+ * uniform scaling before them if requested. It is never a reflection.<br>
+ * The points are read in two passes, one for the centroids and one for the
+ * 3x3 cross-covariance about them, so that memory use does not grow with the
+ * number of points and coordinates far from the origin do not lose
+ * precision. Only the 3x3 cross-covariance is passed to EJML for the
+ * singular value decomposition.
+ * 
+ * @author Daba
+ *
+ */
+public class RigidAlignment {
+	private static final int CENTROID_WIDTH = 6;
+	private static final int COVARIANCE_WIDTH = 10;
+
+	/**
+	 * Buffers reused across alignments, so that repeated alignments such as
+	 * the iterations of {@link IterativeClosestPoint} do not allocate them
+	 * each time
+	 */
+	static class Workspace {
+		final double[] centroidSums = new double[CENTROID_WIDTH];
+		final double[] covarianceSums = new double[COVARIANCE_WIDTH];
+		final DMatrixRMaj h = new DMatrixRMaj(3, 3);
+		final DMatrixRMaj u = new DMatrixRMaj(3, 3);
+		final DMatrixRMaj w = new DMatrixRMaj(3, 3);
+		final DMatrixRMaj v = new DMatrixRMaj(3, 3);
+		final SingularValueDecomposition_F64<DMatrixRMaj> svd = DecompositionFactory_DDRM
+				.svd(3, 3, true, true, false);
+	}
+
+	private RigidAlignment() {
+
+	}
+
+	/**
+	 * Finds the best-fit rigid transformation from source points to target
+	 * points.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @param target
+	 *            Target points corresponding to the source points
+	 * @return Transformation that maps the source points onto the target
+	 *         points
+	 */
+	public static Matrix align(Vector[] source, Vector[] target) {
+		return align(source, target, false);
+	}
+	/**
+	 * Finds the best-fit rigid or similarity transformation from source
+	 * points to target points.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @param target
+	 *            Target points corresponding to the source points
+	 * @param scaling
+	 *            true to include a uniform scaling
+	 * @return Transformation that maps the source points onto the target
+	 *         points
+	 */
+	public static Matrix align(Vector[] source, Vector[] target, boolean scaling) {
+		return align(new VectorBatch(source), new VectorBatch(target), scaling);
+	}
+	/**
+	 * Finds the best-fit rigid or similarity transformation from source
+	 * points to target points.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @param target
+	 *            Target points corresponding to the source points
+	 * @param scaling
+	 *            true to include a uniform scaling
+	 * @return Transformation that maps the source points onto the target
+	 *         points
+	 */
+	public static Matrix align(VectorBatch source, VectorBatch target, boolean scaling) {
+		return align(source, target, scaling, null);
+	}
+	/**
+	 * Finds the best-fit rigid or similarity transformation from source
+	 * points to target points in parallel.<br>
+	 * Both passes over the points are split into chunks whose sums are added
+	 * up in a fixed order.
+	 * 
+	 * @param source
+	 *            Source points
+	 * @param target
+	 *            Target points corresponding to the source points
+	 * @param scaling
+	 *            true to include a uniform scaling
+	 * @param config
+	 *            Parallel execution settings (null to run on the calling
+	 *            thread)
+	 * @return Transformation that maps the source points onto the target
+	 *         points
+	 */
+	public static Matrix align(VectorBatch source, VectorBatch target, boolean scaling,
+			ParallelConfig config) {
+		return align(source.x, source.y, source.z, target.x, target.y, target.z, scaling,
+				config);
+	}
+	/**
+	 * Finds the best-fit rigid or similarity transformation from source
+	 * points to target points given as arrays of coordinates.
+	 * 
+	 * @param sourceX
+	 *            X of the source points
+	 * @param sourceY
+	 *            Y of the source points
+	 * @param sourceZ
+	 *            Z of the source points
+	 * @param targetX
+	 *            X of the target points
+	 * @param targetY
+	 *            Y of the target points
+	 * @param targetZ
+	 *            Z of the target points
+	 * @param scaling
+	 *            true to include a uniform scaling
+	 * @return Transformation that maps the source points onto the target
+	 *         points
+	 */
+	public static Matrix align(double[] sourceX, double[] sourceY, double[] sourceZ,
+			double[] targetX, double[] targetY, double[] targetZ, boolean scaling) {
+		return align(sourceX, sourceY, sourceZ, targetX, targetY, targetZ, scaling, null);
+	}
+	/**
+	 * Finds the best-fit rigid or similarity transformation from source
+	 * points to target points given as arrays of coordinates in parallel.
+	 * 
+	 * @param sourceX
+	 *            X of the source points
+	 * @param sourceY
+	 *            Y of the source points
+	 * @param sourceZ
+	 *            Z of the source points
+	 * @param targetX
+	 *            X of the target points
+	 * @param targetY
+	 *            Y of the target points
+	 * @param targetZ
+	 *            Z of the target points
+	 * @param scaling
+	 *            true to include a uniform scaling
+	 * @param config
+	 *            Parallel execution settings (null to run on the calling
+	 *            thread)
+	 * @return Transformation that maps the source points onto the target
+	 *         points
+	 */
+	public static Matrix align(double[] sourceX, double[] sourceY, double[] sourceZ,
+			double[] targetX, double[] targetY, double[] targetZ, boolean scaling,
+			ParallelConfig config) {
+		int count = sourceX.length;
+		if (sourceY.length != count || sourceZ.length != count || targetX.length != count
+				|| targetY.length != count || targetZ.length != count) {
+			throw new IllegalArgumentException("Arrays must have the same length");
+		}
+
+		return align(sourceX, sourceY, sourceZ, targetX, targetY, targetZ, count, scaling,
+				config, new Workspace(), new Matrix());
+	}
+	/**
+	 * Finds the best-fit transformation from the first count elements of the
+	 * arrays.
+	 * 
+	 * @param sx
+	 *            X of the source points
+	 * @param sy
+	 *            Y of the source points
+	 * @param sz
+	 *            Z of the source points
+	 * @param tx
+	 *            X of the target points
+	 * @param ty
+	 *            Y of the target points
+	 * @param tz
+	 *            Z of the target points
+	 * @param count
+	 *            Number of point pairs
+	 * @param scaling
+	 *            true to include a uniform scaling
+	 * @param config
+	 *            Parallel execution settings (null to run on the calling
+	 *            thread)
+	 * @param workspace
+	 *            Buffers
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	static Matrix align(double[] sx, double[] sy, double[] sz, double[] tx, double[] ty,
+			double[] tz, int count, boolean scaling, ParallelConfig config, Workspace workspace,
+			Matrix dst) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("At least one point pair is required");
+		}
+
+		double[] c = workspace.centroidSums;
+		if (config == null) {
+			Arrays.fill(c, 0.0);
+			sumCentroids(sx, sy, sz, tx, ty, tz, 0, count, c, 0);
+		} else {
+			c = config.sum(count, CENTROID_WIDTH, (from, to, sums, offset) -> sumCentroids(sx,
+					sy, sz, tx, ty, tz, from, to, sums, offset));
+		}
+		double scx = c[0] / count, scy = c[1] / count, scz = c[2] / count;
+		double tcx = c[3] / count, tcy = c[4] / count, tcz = c[5] / count;
+
+		double[] h = workspace.covarianceSums;
+		if (config == null) {
+			Arrays.fill(h, 0.0);
+			sumCovariance(sx, sy, sz, tx, ty, tz, scx, scy, scz, tcx, tcy, tcz, 0, count, h, 0);
+		} else {
+			h = config.sum(count, COVARIANCE_WIDTH,
+					(from, to, sums, offset) -> sumCovariance(sx, sy, sz, tx, ty, tz, scx, scy,
+							scz, tcx, tcy, tcz, from, to, sums, offset));
+		}
+
+		return solve(h, h[9], scx, scy, scz, tcx, tcy, tcz, scaling, workspace, dst);
+	}
+
+	private static void sumCentroids(double[] sx, double[] sy, double[] sz, double[] tx,
+			double[] ty, double[] tz, int from, int to, double[] sums, int offset) {
+		double ax = 0.0, ay = 0.0, az = 0.0, bx = 0.0, by = 0.0, bz = 0.0;
+		for (int i = from; i < to; i++) {
+			ax += sx[i];
+			ay += sy[i];
+			az += sz[i];
+			bx += tx[i];
+			by += ty[i];
+			bz += tz[i];
+		}
+
+		sums[offset] += ax;
+		sums[offset + 1] += ay;
+		sums[offset + 2] += az;
+		sums[offset + 3] += bx;
+		sums[offset + 4] += by;
+		sums[offset + 5] += bz;
+	}
+	private static void sumCovariance(double[] sx, double[] sy, double[] sz, double[] tx,
+			double[] ty, double[] tz, double scx, double scy, double scz, double tcx,
+			double tcy, double tcz, int from, int to, double[] sums, int offset) {
+		double hxx = 0.0, hxy = 0.0, hxz = 0.0;
+		double hyx = 0.0, hyy = 0.0, hyz = 0.0;
+		double hzx = 0.0, hzy = 0.0, hzz = 0.0;
+		double variance = 0.0;
+		for (int i = from; i < to; i++) {
+			double ax = sx[i] - scx, ay = sy[i] - scy, az = sz[i] - scz;
+			double bx = tx[i] - tcx, by = ty[i] - tcy, bz = tz[i] - tcz;
+			hxx += ax * bx;
+			hxy += ax * by;
+			hxz += ax * bz;
+			hyx += ay * bx;
+			hyy += ay * by;
+			hyz += ay * bz;
+			hzx += az * bx;
+			hzy += az * by;
+			hzz += az * bz;
+			variance += ax * ax + ay * ay + az * az;
+		}
+
+		sums[offset] += hxx;
+		sums[offset + 1] += hxy;
+		sums[offset + 2] += hxz;
+		sums[offset + 3] += hyx;
+		sums[offset + 4] += hyy;
+		sums[offset + 5] += hyz;
+		sums[offset + 6] += hzx;
+		sums[offset + 7] += hzy;
+		sums[offset + 8] += hzz;
+		sums[offset + 9] += variance;
+	}
+
+	/**
+	 * Computes the transformation from the cross-covariance of the centered
+	 * points.
+	 * 
+	 * @param h
+	 *            Sum of (source - source centroid) (target - target
+	 *            centroid)^T, row-major in the first 9 elements
+	 * @param variance
+	 *            Sum of the squared distances of the source points from
+	 *            their centroid (used for the scaling)
+	 * @param scx
+	 *            X of the source centroid
+	 * @param scy
+	 *            Y of the source centroid
+	 * @param scz
+	 *            Z of the source centroid
+	 * @param tcx
+	 *            X of the target centroid
+	 * @param tcy
+	 *            Y of the target centroid
+	 * @param tcz
+	 *            Z of the target centroid
+	 * @param scaling
+	 *            true to include a uniform scaling
+	 * @param workspace
+	 *            Buffers
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	static Matrix solve(double[] h, double variance, double scx, double scy, double scz,
+			double tcx, double tcy, double tcz, boolean scaling, Workspace workspace,
+			Matrix dst) {
+		DMatrixRMaj hm = workspace.h;
+		System.arraycopy(h, 0, hm.data, 0, 9);
+
+		if (!workspace.svd.decompose(hm)) {
+			throw new IllegalArgumentException("Points must be finite");
+		}
+		DMatrixRMaj u = workspace.svd.getU(workspace.u, false);
+		DMatrixRMaj w = workspace.svd.getW(workspace.w);
+		DMatrixRMaj v = workspace.svd.getV(workspace.v, false);
+		SingularOps_DDRM.descendingOrder(u, false, w, v, false);
+
+		// Flipping the axis of the smallest singular value turns a reflection
+		// into the closest rotation.
+		double d = CommonOps_DDRM.det(u) * CommonOps_DDRM.det(v) < 0.0 ? -1.0 : 1.0;
+
+		double scale = 1.0;
+		if (scaling && variance > 0.0) {
+			scale = (w.get(0, 0) + w.get(1, 1) + d * w.get(2, 2)) / variance;
+		}
+
+		// R = V diag(1, 1, d) U^T
+		double[] m = dst.m;
+		for (int r = 0; r < 3; r++) {
+			for (int c = 0; c < 3; c++) {
+				double e = v.get(r, 0) * u.get(c, 0) + v.get(r, 1) * u.get(c, 1)
+						+ d * v.get(r, 2) * u.get(c, 2);
+				m[r * 4 + c] = scale * e;
+			}
+		}
+		m[3] = tcx - (m[0] * scx + m[1] * scy + m[2] * scz);
+		m[7] = tcy - (m[4] * scx + m[5] * scy + m[6] * scz);
+		m[11] = tcz - (m[8] * scx + m[9] * scy + m[10] * scz);
+		m[12] = 0.0;
+		m[13] = 0.0;
+		m[14] = 0.0;
+		m[15] = 1.0;
+
+		return dst;
+	}
+}
@@ -0,0 +1,338 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid hashed into a table of buckets<br>
+ * Space is divided into cubic cells, and each point goes to the bucket for
+ * the hash of its cell. {@link #build(VectorBatch)} sorts the points by
+ * bucket with a counting sort, so the grid consists of primitive arrays only,
+ * and rebuilding it every tick does not allocate once the arrays are large
+ * enough. Points are copied in bucket order, so that the points of a cell
+ * are adjacent in memory.<br>
+ * Different cells may share a bucket. Queries compare the cell of each point
+ * with the cell they look for, so such collisions only cost time.<br>
+ * The cell size should be about the radius of the typical query.
+ * 
+ * @author Daba
+ *
+ */
+public class SpatialHashGrid {
+	/**
+	 * Receiver of point pairs
+	 */
+	@FunctionalInterface
+	public interface PairCallback {
+		/**
+		 * Called for each pair of points.
+		 * 
+		 * @param i
+		 *            Index of a point
+		 * @param j
+		 *            Index of the other point
+		 * @param squaredDistance
+		 *            Squared distance between the points
+		 */
+		void accept(int i, int j, double squaredDistance);
+	}
+
+	private static final int MIN_TABLE_SIZE = 16;
+
+	private final double cellSize;
+	private final double invCellSize;
+
+	private int size;
+	private int mask;
+	private int[] hashes;
+	private int[] starts;
+	private int[] order;
+	private double[] xs;
+	private double[] ys;
+	private double[] zs;
+	private int[] cxs;
+	private int[] cys;
+	private int[] czs;
+
+	/**
+	 * Creates an empty grid.
+	 * 
+	 * @param cellSize
+	 *            Length of the edges of the cells
+	 */
+	public SpatialHashGrid(double cellSize) {
+		if (!(cellSize > 0.0)) {
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+		}
+
+		this.cellSize = cellSize;
+		invCellSize = 1.0 / cellSize;
+
+		mask = MIN_TABLE_SIZE - 1;
+		hashes = new int[0];
+		starts = new int[MIN_TABLE_SIZE + 1];
+		order = new int[0];
+		xs = new double[0];
+		ys = new double[0];
+		zs = new double[0];
+		cxs = new int[0];
+		cys = new int[0];
+		czs = new int[0];
+	}
+
+	public double getCellSize() {
+		return cellSize;
+	}
+	/**
+	 * Returns the number of points in the grid.
+	 * 
+	 * @return Number of points
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int getCell(double coord) {
+		return (int) Math.floor(coord * invCellSize);
+	}
+	private int getHash(int cx, int cy, int cz) {
+		int h = cx * 73856093 ^ cy * 19349663 ^ cz * 83492791;
+		return (h ^ h >>> 16) & mask;
+	}
+
+	private void ensureCapacity(int count) {
+		if (order.length < count) {
+			hashes = new int[count];
+			order = new int[count];
+			xs = new double[count];
+			ys = new double[count];
+			zs = new double[count];
+			cxs = new int[count];
+			cys = new int[count];
+			czs = new int[count];
+		}
+
+		// 2 to 4 buckets per point keep the buckets short.
+		int tableSize = Math.max(Integer.highestOneBit(Math.max(count, 1) - 1) << 2,
+				MIN_TABLE_SIZE);
+		if (tableSize > mask + 1) {
+			mask = tableSize - 1;
+			starts = new int[tableSize + 1];
+		}
+	}
+
+	/**
+	 * Rebuilds the grid from points.<br>
+	 * The positions are copied, so the batch may be changed afterward.
+	 * 
+	 * @param points
+	 *            Points
+	 */
+	public void build(VectorBatch points) {
+		this.build(points, null);
+	}
+	/**
+	 * Rebuilds the grid from points in parallel.<br>
+	 * Hashing the points and copying them into bucket order run in parallel.
+	 * Counting and placing the points into buckets runs on the calling
+	 * thread, since it is a single pass over integer arrays.
+	 * 
+	 * @param points
+	 *            Points
+	 * @param config
+	 *            Parallel execution settings (null to run on the calling
+	 *            thread)
+	 */
+	public void build(VectorBatch points, ParallelConfig config) {
+		int count = points.size();
+		this.ensureCapacity(count);
+		size = count;
+
+		if (config == null) {
+			this.hash(points, 0, count);
+		} else {
+			config.run(count, (from, to) -> this.hash(points, from, to));
+		}
+
+		int tableSize = mask + 1;
+		Arrays.fill(starts, 0, tableSize + 1, 0);
+		for (int i = 0; i < count; i++) {
+			starts[hashes[i] + 1]++;
+		}
+		for (int h = 0; h < tableSize; h++) {
+			starts[h + 1] += starts[h];
+		}
+
+		// Fill each bucket from its end. Afterward, starts[h + 1] holds the
+		// beginning of bucket h, so shifting it by one gives the table.
+		for (int i = count - 1; i >= 0; i--) {
+			order[--starts[hashes[i] + 1]] = i;
+		}
+		System.arraycopy(starts, 1, starts, 0, tableSize);
+		starts[tableSize] = count;
+
+		if (config == null) {
+			this.gather(points, 0, count);
+		} else {
+			config.run(count, (from, to) -> this.gather(points, from, to));
+		}
+	}
+	private void hash(VectorBatch points, int from, int to) {
+		for (int i = from; i < to; i++) {
+			hashes[i] = this.getHash(this.getCell(points.x[i]), this.getCell(points.y[i]),
+					this.getCell(points.z[i]));
+		}
+	}
+	private void gather(VectorBatch points, int from, int to) {
+		for (int s = from; s < to; s++) {
+			int i = order[s];
+			double x = points.x[i], y = points.y[i], z = points.z[i];
+			xs[s] = x;
+			ys[s] = y;
+			zs[s] = z;
+			cxs[s] = this.getCell(x);
+			cys[s] = this.getCell(y);
+			czs[s] = this.getCell(z);
+		}
+	}
+
+	/**
+	 * Finds the points within a radius.<br>
+	 * The indices of the points and their squared distances are written to
+	 * the buffers in no particular order as long as they have room. The
+	 * return value is the total number found, so a return value larger than
+	 * the length of the buffers means that the query should be repeated with
+	 * larger ones.
+	 * 
+	 * @param point
+	 *            Query point
+	 * @param radius
+	 *            Radius (points at exactly this distance are included)
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances (may be null)
+	 * @return Number of points found
+	 */
+	public int findWithinRadius(Vector point, double radius, int[] indices,
+			double[] squaredDistances) {
+		return this.findWithinRadius(point.v[0], point.v[1], point.v[2], radius, indices,
+				squaredDistances);
+	}
+	/**
+	 * Finds the points within a radius.
+	 * 
+	 * @param x
+	 *            X of the query point
+	 * @param y
+	 *            Y of the query point
+	 * @param z
+	 *            Z of the query point
+	 * @param radius
+	 *            Radius
+	 * @param indices
+	 *            Destination of the point indices
+	 * @param squaredDistances
+	 *            Destination of the squared distances (may be null)
+	 * @return Number of points found
+	 * @see #findWithinRadius(Vector, double, int[], double[])
+	 */
+	public int findWithinRadius(double x, double y, double z, double radius, int[] indices,
+			double[] squaredDistances) {
+		if (squaredDistances != null && squaredDistances.length < indices.length) {
+			throw new IllegalArgumentException("Buffers must have the same length");
+		}
+
+		double r2 = radius * radius;
+		int x0 = this.getCell(x - radius), x1 = this.getCell(x + radius);
+		int y0 = this.getCell(y - radius), y1 = this.getCell(y + radius);
+		int z0 = this.getCell(z - radius), z1 = this.getCell(z + radius);
+		int count = 0;
+
+		for (int cz = z0; cz <= z1; cz++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				for (int cx = x0; cx <= x1; cx++) {
+					int h = this.getHash(cx, cy, cz);
+					for (int t = starts[h]; t < starts[h + 1]; t++) {
+						if (cxs[t] != cx || cys[t] != cy || czs[t] != cz) {
+							continue;
+						}
+
+						double dx = xs[t] - x, dy = ys[t] - y, dz = zs[t] - z;
+						double d = dx * dx + dy * dy + dz * dz;
+						if (d <= r2) {
+							if (count < indices.length) {
+								indices[count] = order[t];
+								if (squaredDistances != null) {
+									squaredDistances[count] = d;
+								}
+							}
+							count++;
+						}
+					}
+				}
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Enumerates the pairs of points within a distance of each other.<br>
+	 * Each pair is reported once, in no particular order.
+	 * 
+	 * @param radius
+	 *            Distance (pairs at exactly this distance are included)
+	 * @param callback
+	 *            Receiver of the pairs
+	 */
+	public void forEachPair(double radius, PairCallback callback) {
+		this.forEachPair(radius, callback, 0, size);
+	}
+	/**
+	 * Enumerates the pairs of points within a distance of each other in
+	 * parallel.<br>
+	 * The callback is called from multiple threads at once.
+	 * 
+	 * @param radius
+	 *            Distance
+	 * @param callback
+	 *            Receiver of the pairs
+	 * @param config
+	 *            Parallel execution settings
+	 * @see #forEachPair(double, PairCallback)
+	 */
+	public void forEachPair(double radius, PairCallback callback, ParallelConfig config) {
+		config.run(size, (from, to) -> this.forEachPair(radius, callback, from, to));
+	}
+	private void forEachPair(double radius, PairCallback callback, int from, int to) {
+		double r2 = radius * radius;
+		int range = (int) Math.ceil(radius * invCellSize);
+
+		for (int s = from; s < to; s++) {
+			double x = xs[s], y = ys[s], z = zs[s];
+			int i = order[s];
+
+			for (int cz = czs[s] - range; cz <= czs[s] + range; cz++) {
+				for (int cy = cys[s] - range; cy <= cys[s] + range; cy++) {
+					for (int cx = cxs[s] - range; cx <= cxs[s] + range; cx++) {
+						int h = this.getHash(cx, cy, cz);
+
+						// Only points after s, so that each pair is found
+						// from one side.
+						for (int t = Math.max(starts[h], s + 1); t < starts[h + 1]; t++) {
+							if (cxs[t] != cx || cys[t] != cy || czs[t] != cz) {
+								continue;
+							}
+
+							double dx = xs[t] - x, dy = ys[t] - y, dz = zs[t] - z;
+							double d = dx * dx + dy * dy + dz * dz;
+							if (d <= r2) {
+								callback.accept(i, order[t], d);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,471 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hierarchy of transforms<br>
+ * Each node has a local translation, rotation and scale, and caches its world
+ * matrix and the inverse of it. Nodes are identified by indices and stored in
+ * flat arrays. A parent is always added before its children, so the world
+ * matrices are brought up to date by a single pass in index order.<br>
+ * Changing a local transform marks the node dirty. {@link #update()}
+ * recomputes only the dirty nodes and their descendants.<br>
+ * {@link #update(ParallelConfig)} processes one depth level at a time and
+ * runs the nodes of a level in parallel, since they do not depend on each
+ * other.
+ * 
+ * @author Daba
+ *
+ */
+public class TransformTree {
+	/**
+	 * Parent index of root nodes
+	 */
+	public static final int NO_PARENT = -1;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int size;
+	private int[] parents;
+	private int[] depths;
+	private double[] translations;
+	private double[] rotations;
+	private double[] scales;
+	private double[] worlds;
+	private double[] worldInverses;
+	private boolean[] dirty;
+	private boolean[] changed;
+
+	private int[] levelNodes;
+	private int[] levelOffsets;
+	private boolean levelsValid;
+
+	/**
+	 * Creates an empty tree.
+	 */
+	public TransformTree() {
+		this(DEFAULT_CAPACITY);
+	}
+	/**
+	 * Creates an empty tree with storage reserved for the number of nodes
+	 * specified.
+	 * 
+	 * @param capacity
+	 *            Initial capacity
+	 */
+	public TransformTree(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+		}
+
+		parents = new int[capacity];
+		depths = new int[capacity];
+		translations = new double[capacity * 3];
+		rotations = new double[capacity * 4];
+		scales = new double[capacity * 3];
+		worlds = new double[capacity * 16];
+		worldInverses = new double[capacity * 16];
+		dirty = new boolean[capacity];
+		changed = new boolean[capacity];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= parents.length) {
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, parents.length * 2);
+		parents = Arrays.copyOf(parents, newCapacity);
+		depths = Arrays.copyOf(depths, newCapacity);
+		translations = Arrays.copyOf(translations, newCapacity * 3);
+		rotations = Arrays.copyOf(rotations, newCapacity * 4);
+		scales = Arrays.copyOf(scales, newCapacity * 3);
+		worlds = Arrays.copyOf(worlds, newCapacity * 16);
+		worldInverses = Arrays.copyOf(worldInverses, newCapacity * 16);
+		dirty = Arrays.copyOf(dirty, newCapacity);
+		changed = Arrays.copyOf(changed, newCapacity);
+	}
+	private void checkNode(int node) {
+		if (node < 0 || node >= size) {
+			throw new IndexOutOfBoundsException("Node out of range: " + node);
+		}
+	}
+
+	/**
+	 * Adds a node with the identity transform.
+	 * 
+	 * @param parent
+	 *            Index of the parent node, or {@link #NO_PARENT} for a root
+	 * @return Index of the node
+	 */
+	public int addNode(int parent) {
+		if (parent != NO_PARENT) {
+			this.checkNode(parent);
+		}
+
+		this.ensureCapacity(size + 1);
+
+		int node = size++;
+		parents[node] = parent;
+		depths[node] = parent == NO_PARENT ? 0 : depths[parent] + 1;
+		levelsValid = false;
+		translations[node * 3] = 0.0;
+		translations[node * 3 + 1] = 0.0;
+		translations[node * 3 + 2] = 0.0;
+		rotations[node * 4] = 0.0;
+		rotations[node * 4 + 1] = 0.0;
+		rotations[node * 4 + 2] = 0.0;
+		rotations[node * 4 + 3] = 1.0;
+		scales[node * 3] = 1.0;
+		scales[node * 3 + 1] = 1.0;
+		scales[node * 3 + 2] = 1.0;
+		dirty[node] = true;
+
+		return node;
+	}
+	/**
+	 * Returns the number of nodes.
+	 * 
+	 * @return Number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Returns the parent of a node.
+	 * 
+	 * @param node
+	 *            Node
+	 * @return Index of the parent node, or {@link #NO_PARENT} for a root
+	 */
+	public int getParent(int node) {
+		this.checkNode(node);
+		return parents[node];
+	}
+	/**
+	 * Returns the depth of a node.<br>
+	 * Depth of a root is 0.
+	 * 
+	 * @param node
+	 *            Node
+	 * @return Depth
+	 */
+	public int getDepth(int node) {
+		this.checkNode(node);
+		return depths[node];
+	}
+	/**
+	 * Returns true if the local transform of a node has changed since the
+	 * last update.
+	 * 
+	 * @param node
+	 *            Node
+	 * @return true if the node is dirty
+	 */
+	public boolean isDirty(int node) {
+		this.checkNode(node);
+		return dirty[node];
+	}
+
+	public void setTranslation(int node, double x, double y, double z) {
+		this.checkNode(node);
+
+		translations[node * 3] = x;
+		translations[node * 3 + 1] = y;
+		translations[node * 3 + 2] = z;
+		dirty[node] = true;
+	}
+	public void setTranslation(int node, Vector translation) {
+		this.setTranslation(node, translation.v[0], translation.v[1], translation.v[2]);
+	}
+	public Vector getTranslation(int node) {
+		this.checkNode(node);
+		return new Vector(translations[node * 3], translations[node * 3 + 1],
+				translations[node * 3 + 2]);
+	}
+	/**
+	 * Sets the local rotation of a node.<br>
+	 * The quaternion is normalized before it is stored.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param rotation
+	 *            Rotation
+	 */
+	public void setRotation(int node, Quaternion rotation) {
+		this.checkNode(node);
+
+		double size = rotation.getSize();
+		rotations[node * 4] = rotation.x / size;
+		rotations[node * 4 + 1] = rotation.y / size;
+		rotations[node * 4 + 2] = rotation.z / size;
+		rotations[node * 4 + 3] = rotation.w / size;
+		dirty[node] = true;
+	}
+	public Quaternion getRotation(int node) {
+		this.checkNode(node);
+		return new Quaternion(rotations[node * 4], rotations[node * 4 + 1],
+				rotations[node * 4 + 2], rotations[node * 4 + 3]);
+	}
+	/**
+	 * Sets the local scale of a node.<br>
+	 * Scale factors must not be 0, since the inverse of the world matrix is
+	 * maintained as well.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param x
+	 *            Scale X
+	 * @param y
+	 *            Scale Y
+	 * @param z
+	 *            Scale Z
+	 */
+	public void setScale(int node, double x, double y, double z) {
+		this.checkNode(node);
+		if (x == 0.0 || y == 0.0 || z == 0.0) {
+			throw new IllegalArgumentException("Scale must not be 0");
+		}
+
+		scales[node * 3] = x;
+		scales[node * 3 + 1] = y;
+		scales[node * 3 + 2] = z;
+		dirty[node] = true;
+	}
+	public Vector getScale(int node) {
+		this.checkNode(node);
+		return new Vector(scales[node * 3], scales[node * 3 + 1], scales[node * 3 + 2]);
+	}
+
+	/**
+	 * Returns the local matrix of a node (translation * rotation * scale).
+	 * 
+	 * @param node
+	 *            Node
+	 * @return Local matrix
+	 */
+	public Matrix getLocalMatrix(int node) {
+		this.checkNode(node);
+
+		var ret = new Matrix();
+		this.computeLocal(node, ret.m, 0);
+
+		return ret;
+	}
+	/**
+	 * Returns the world matrix of a node as of the last update.
+	 * 
+	 * @param node
+	 *            Node
+	 * @return World matrix
+	 */
+	public Matrix getWorldMatrix(int node) {
+		return this.getWorldMatrix(node, new Matrix());
+	}
+	/**
+	 * Copies the world matrix of a node as of the last update to the
+	 * destination.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Matrix getWorldMatrix(int node, Matrix dst) {
+		this.checkNode(node);
+		System.arraycopy(worlds, node * 16, dst.m, 0, 16);
+
+		return dst;
+	}
+	/**
+	 * Returns the inverse of the world matrix of a node as of the last update.
+	 * 
+	 * @param node
+	 *            Node
+	 * @return Inverse world matrix
+	 */
+	public Matrix getWorldInverseMatrix(int node) {
+		return this.getWorldInverseMatrix(node, new Matrix());
+	}
+	/**
+	 * Copies the inverse of the world matrix of a node as of the last update
+	 * to the destination.
+	 * 
+	 * @param node
+	 *            Node
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Matrix getWorldInverseMatrix(int node, Matrix dst) {
+		this.checkNode(node);
+		System.arraycopy(worldInverses, node * 16, dst.m, 0, 16);
+
+		return dst;
+	}
+
+	/**
+	 * Recomputes the world matrices of dirty nodes and their descendants.
+	 * 
+	 * @return Number of nodes recomputed
+	 */
+	public int update() {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (this.updateNode(i)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+	/**
+	 * Recomputes the world matrices of dirty nodes and their descendants,
+	 * processing one depth level at a time.<br>
+	 * The nodes of a level are split among the threads of the pool. Levels
+	 * smaller than the threshold are processed on the calling thread.
+	 * 
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Number of nodes recomputed
+	 */
+	public int update(ParallelConfig config) {
+		this.buildLevels();
+
+		var count = new AtomicInteger();
+		for (int level = 0; level + 1 < levelOffsets.length; level++) {
+			int offset = levelOffsets[level];
+			int levelSize = levelOffsets[level + 1] - offset;
+
+			config.run(levelSize, (from, to) -> {
+				int chunkCount = 0;
+				for (int i = from; i < to; i++) {
+					if (this.updateNode(levelNodes[offset + i])) {
+						chunkCount++;
+					}
+				}
+				count.addAndGet(chunkCount);
+			});
+		}
+
+		return count.get();
+	}
+	/**
+	 * Sorts the nodes by depth with a counting sort.
+	 */
+	private void buildLevels() {
+		if (levelsValid) {
+			return;
+		}
+
+		int maxDepth = -1;
+		for (int i = 0; i < size; i++) {
+			maxDepth = Math.max(maxDepth, depths[i]);
+		}
+
+		levelOffsets = new int[maxDepth + 2];
+		for (int i = 0; i < size; i++) {
+			levelOffsets[depths[i] + 1]++;
+		}
+		for (int level = 0; level <= maxDepth; level++) {
+			levelOffsets[level + 1] += levelOffsets[level];
+		}
+
+		levelNodes = new int[size];
+		var cursors = Arrays.copyOf(levelOffsets, maxDepth + 1);
+		for (int i = 0; i < size; i++) {
+			levelNodes[cursors[depths[i]]++] = i;
+		}
+
+		levelsValid = true;
+	}
+	/**
+	 * Recomputes a node if it is dirty or its parent has been recomputed in
+	 * the current update.
+	 * 
+	 * @param node
+	 *            Node
+	 * @return true if the node has been recomputed
+	 */
+	boolean updateNode(int node) {
+		int parent = parents[node];
+		boolean recompute = dirty[node] || (parent != NO_PARENT && changed[parent]);
+		changed[node] = recompute;
+		if (!recompute) {
+			return false;
+		}
+
+		int wi = node * 16;
+		this.computeLocal(node, worlds, wi);
+		this.computeLocalInverse(node, worldInverses, wi);
+		if (parent != NO_PARENT) {
+			int pi = parent * 16;
+			Matrix.mult(worlds, pi, worlds, wi, worlds, wi);
+			Matrix.mult(worldInverses, wi, worldInverses, pi, worldInverses, wi);
+		}
+		dirty[node] = false;
+
+		return true;
+	}
+
+	private void computeLocal(int node, double[] dst, int di) {
+		double tx = translations[node * 3];
+		double ty = translations[node * 3 + 1];
+		double tz = translations[node * 3 + 2];
+		double sx = scales[node * 3];
+		double sy = scales[node * 3 + 1];
+		double sz = scales[node * 3 + 2];
+
+		this.computeRotation(node, dst, di);
+
+		dst[di] *= sx;
+		dst[di + 1] *= sy;
+		dst[di + 2] *= sz;
+		dst[di + 3] = tx;
+		dst[di + 4] *= sx;
+		dst[di + 5] *= sy;
+		dst[di + 6] *= sz;
+		dst[di + 7] = ty;
+		dst[di + 8] *= sx;
+		dst[di + 9] *= sy;
+		dst[di + 10] *= sz;
+		dst[di + 11] = tz;
+	}
+	private void computeLocalInverse(int node, double[] dst, int di) {
+		double tx = translations[node * 3];
+		double ty = translations[node * 3 + 1];
+		double tz = translations[node * 3 + 2];
+		double isx = 1.0 / scales[node * 3];
+		double isy = 1.0 / scales[node * 3 + 1];
+		double isz = 1.0 / scales[node * 3 + 2];
+
+		// (T * R * S)^-1 = S^-1 * R^T * T^-1
+		this.computeRotation(node, dst, di);
+		double r01 = dst[di + 1], r02 = dst[di + 2];
+		double r10 = dst[di + 4], r12 = dst[di + 6];
+		double r20 = dst[di + 8], r21 = dst[di + 9];
+
+		double b00 = dst[di] * isx, b01 = r10 * isx, b02 = r20 * isx;
+		double b10 = r01 * isy, b11 = dst[di + 5] * isy, b12 = r21 * isy;
+		double b20 = r02 * isz, b21 = r12 * isz, b22 = dst[di + 10] * isz;
+
+		dst[di] = b00;
+		dst[di + 1] = b01;
+		dst[di + 2] = b02;
+		dst[di + 3] = -(b00 * tx + b01 * ty + b02 * tz);
+		dst[di + 4] = b10;
+		dst[di + 5] = b11;
+		dst[di + 6] = b12;
+		dst[di + 7] = -(b10 * tx + b11 * ty + b12 * tz);
+		dst[di + 8] = b20;
+		dst[di + 9] = b21;
+		dst[di + 10] = b22;
+		dst[di + 11] = -(b20 * tx + b21 * ty + b22 * tz);
+	}
+	private void computeRotation(int node, double[] dst, int di) {
+		Quaternion.toMatrix(rotations[node * 4], rotations[node * 4 + 1],
+				rotations[node * 4 + 2], rotations[node * 4 + 3], dst, di);
+	}
+}
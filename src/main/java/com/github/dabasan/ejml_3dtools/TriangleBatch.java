@@ -0,0 +1,307 @@
+package com.github.dabasan.ejml_3dtools;
+
+/**
+ * Batch of triangles<br>
+ * The three vertices of the triangles are held in three VectorBatch
+ * instances, so the coordinates are stored as structure of arrays. Ray
+ * intersection uses the Moller-Trumbore algorithm on the primitive arrays
+ * directly, which is the same routine that {@link BVH} uses for its
+ * leaves.<br>
+ * Triangles are hit from both sides. Distances are in units of the ray
+ * direction, which does not need to be normalized.
+ * 
+ * @author Daba
+ *
+ */
+public class TriangleBatch {
+	/**
+	 * Determinants smaller than this are treated as rays parallel to the
+	 * triangle
+	 */
+	static final double EPSILON = 1.0E-12;
+
+	final VectorBatch v0;
+	final VectorBatch v1;
+	final VectorBatch v2;
+	private final int size;
+
+	/**
+	 * Creates a batch of the size specified.<br>
+	 * All vertices are set to 0.
+	 * 
+	 * @param size
+	 *            Number of triangles
+	 */
+	public TriangleBatch(int size) {
+		this(new VectorBatch(size), new VectorBatch(size), new VectorBatch(size));
+	}
+	/**
+	 * Creates a batch that wraps the vertex batches specified.<br>
+	 * The batches are not copied. Triangle i consists of the i-th vectors of
+	 * the batches.
+	 * 
+	 * @param v0
+	 *            First vertices
+	 * @param v1
+	 *            Second vertices
+	 * @param v2
+	 *            Third vertices
+	 */
+	public TriangleBatch(VectorBatch v0, VectorBatch v1, VectorBatch v2) {
+		if (v0.size() != v1.size() || v0.size() != v2.size()) {
+			throw new IllegalArgumentException("Batches must have the same size");
+		}
+
+		this.v0 = v0;
+		this.v1 = v1;
+		this.v2 = v2;
+		size = v0.size();
+	}
+	/**
+	 * Creates a batch from an indexed triangle mesh.<br>
+	 * The vertices are copied.
+	 * 
+	 * @param vertices
+	 *            Vertices
+	 * @param indices
+	 *            Three vertex indices per triangle
+	 */
+	public TriangleBatch(Vector[] vertices, int[] indices) {
+		this(checkIndices(indices) / 3);
+
+		for (int i = 0; i < size; i++) {
+			this.set(i, vertices[indices[i * 3]], vertices[indices[i * 3 + 1]],
+					vertices[indices[i * 3 + 2]]);
+		}
+	}
+	private static int checkIndices(int[] indices) {
+		if (indices.length % 3 != 0) {
+			throw new IllegalArgumentException(
+					"Number of indices must be a multiple of 3: " + indices.length);
+		}
+
+		return indices.length;
+	}
+
+	/**
+	 * Returns the number of triangles in this batch.
+	 * 
+	 * @return Size
+	 */
+	public int size() {
+		return size;
+	}
+
+	public VectorBatch getV0() {
+		return v0;
+	}
+	public VectorBatch getV1() {
+		return v1;
+	}
+	public VectorBatch getV2() {
+		return v2;
+	}
+
+	public void set(int index, Vector p0, Vector p1, Vector p2) {
+		v0.set(index, p0);
+		v1.set(index, p1);
+		v2.set(index, p2);
+	}
+
+	/**
+	 * Returns the bounds of a triangle.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public AABB getBounds(int index, AABB dst) {
+		double x0 = v0.x[index], x1 = v1.x[index], x2 = v2.x[index];
+		double y0 = v0.y[index], y1 = v1.y[index], y2 = v2.y[index];
+		double z0 = v0.z[index], z1 = v1.z[index], z2 = v2.z[index];
+
+		dst.set(Math.min(x0, Math.min(x1, x2)), Math.min(y0, Math.min(y1, y2)),
+				Math.min(z0, Math.min(z1, z2)), Math.max(x0, Math.max(x1, x2)),
+				Math.max(y0, Math.max(y1, y2)), Math.max(z0, Math.max(z1, z2)));
+
+		return dst;
+	}
+
+	/**
+	 * Intersects a ray with one triangle.<br>
+	 * Returns the distance, or -1 if the triangle is not hit within [0,
+	 * tMax]. The hit is recorded in the destination if there is one.
+	 */
+	double intersect(int index, double ox, double oy, double oz, double dx, double dy,
+			double dz, double tMax, RayHit hit) {
+		double ax = v0.x[index], ay = v0.y[index], az = v0.z[index];
+		double e1x = v1.x[index] - ax, e1y = v1.y[index] - ay, e1z = v1.z[index] - az;
+		double e2x = v2.x[index] - ax, e2y = v2.y[index] - ay, e2z = v2.z[index] - az;
+
+		double px = dy * e2z - dz * e2y;
+		double py = dz * e2x - dx * e2z;
+		double pz = dx * e2y - dy * e2x;
+		double det = e1x * px + e1y * py + e1z * pz;
+		if (Math.abs(det) < EPSILON) {
+			return -1.0;
+		}
+
+		double invDet = 1.0 / det;
+		double sx = ox - ax, sy = oy - ay, sz = oz - az;
+		double u = (sx * px + sy * py + sz * pz) * invDet;
+		if (u < 0.0 || u > 1.0) {
+			return -1.0;
+		}
+
+		double qx = sy * e1z - sz * e1y;
+		double qy = sz * e1x - sx * e1z;
+		double qz = sx * e1y - sy * e1x;
+		double v = (dx * qx + dy * qy + dz * qz) * invDet;
+		if (v < 0.0 || u + v > 1.0) {
+			return -1.0;
+		}
+
+		double t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+		if (t < 0.0 || t > tMax) {
+			return -1.0;
+		}
+
+		if (hit != null) {
+			hit.distance = t;
+			hit.primitive = index;
+			hit.u = u;
+			hit.v = v;
+		}
+
+		return t;
+	}
+
+	/**
+	 * Finds the closest triangle hit by a ray by testing all of them.
+	 * 
+	 * @param origin
+	 *            Origin
+	 * @param direction
+	 *            Direction
+	 * @param maxDistance
+	 *            Maximum distance
+	 * @param dst
+	 *            Destination of the result
+	 * @return true if something was hit
+	 */
+	public boolean intersectRay(Vector origin, Vector direction, double maxDistance,
+			RayHit dst) {
+		dst.clear(maxDistance);
+
+		double[] o = origin.v;
+		double[] d = direction.v;
+		for (int i = 0; i < size; i++) {
+			this.intersect(i, o[0], o[1], o[2], d[0], d[1], d[2], dst.distance, dst);
+		}
+
+		return dst.isHit();
+	}
+
+	/**
+	 * Finds the closest triangle hit by each ray by testing all of them.<br>
+	 * For ray i, the distance, the triangle index and the barycentric
+	 * coordinates of the second and third vertices are written to index i of
+	 * the output arrays. Rays that hit nothing get a distance of positive
+	 * infinity and a triangle index of {@value RayHit#NO_HIT}.
+	 * 
+	 * @param origins
+	 *            Origins
+	 * @param directions
+	 *            Directions
+	 * @param maxDistance
+	 *            Maximum distance
+	 * @param distances
+	 *            Destination of the distances
+	 * @param triangles
+	 *            Destination of the triangle indices
+	 * @param us
+	 *            Destination of the barycentric coordinates of the second
+	 *            vertices
+	 * @param vs
+	 *            Destination of the barycentric coordinates of the third
+	 *            vertices
+	 */
+	public void intersectRays(VectorBatch origins, VectorBatch directions, double maxDistance,
+			double[] distances, int[] triangles, double[] us, double[] vs) {
+		int count = checkRays(origins, directions, distances, triangles, us, vs);
+		this.intersectRays(origins, directions, maxDistance, distances, triangles, us, vs, 0,
+				count);
+	}
+	/**
+	 * Finds the closest triangle hit by each ray in parallel.<br>
+	 * The rays are split into ranges, and each range tests all of the
+	 * triangles.
+	 * 
+	 * @param origins
+	 *            Origins
+	 * @param directions
+	 *            Directions
+	 * @param maxDistance
+	 *            Maximum distance
+	 * @param distances
+	 *            Destination of the distances
+	 * @param triangles
+	 *            Destination of the triangle indices
+	 * @param us
+	 *            Destination of the barycentric coordinates of the second
+	 *            vertices
+	 * @param vs
+	 *            Destination of the barycentric coordinates of the third
+	 *            vertices
+	 * @param config
+	 *            Parallel execution settings
+	 * @see #intersectRays(VectorBatch, VectorBatch, double, double[], int[],
+	 *      double[], double[])
+	 */
+	public void intersectRays(VectorBatch origins, VectorBatch directions, double maxDistance,
+			double[] distances, int[] triangles, double[] us, double[] vs,
+			ParallelConfig config) {
+		int count = checkRays(origins, directions, distances, triangles, us, vs);
+		config.run(count, (from, to) -> this.intersectRays(origins, directions, maxDistance,
+				distances, triangles, us, vs, from, to));
+	}
+
+	private static int checkRays(VectorBatch origins, VectorBatch directions,
+			double[] distances, int[] triangles, double[] us, double[] vs) {
+		int count = origins.size();
+		if (directions.size() != count || distances.length != count
+				|| triangles.length != count || us.length != count || vs.length != count) {
+			throw new IllegalArgumentException("Number of rays and outputs must be the same");
+		}
+
+		return count;
+	}
+	private void intersectRays(VectorBatch origins, VectorBatch directions, double maxDistance,
+			double[] distances, int[] triangles, double[] us, double[] vs, int from, int to) {
+		var hit = new RayHit();
+
+		for (int r = from; r < to; r++) {
+			double ox = origins.x[r], oy = origins.y[r], oz = origins.z[r];
+			double dx = directions.x[r], dy = directions.y[r], dz = directions.z[r];
+
+			hit.clear(maxDistance);
+			for (int i = 0; i < size; i++) {
+				this.intersect(i, ox, oy, oz, dx, dy, dz, hit.distance, hit);
+			}
+
+			if (hit.isHit()) {
+				distances[r] = hit.distance;
+				triangles[r] = hit.primitive;
+				us[r] = hit.u;
+				vs[r] = hit.v;
+			} else {
+				distances[r] = Double.POSITIVE_INFINITY;
+				triangles[r] = RayHit.NO_HIT;
+				us[r] = 0.0;
+				vs[r] = 0.0;
+			}
+		}
+	}
+}
@@ -1,22 +1,29 @@
 package com.github.dabasan.ejml_3dtools;
 
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.ejml.data.DMatrixRMaj;
 import org.ejml.simple.SimpleMatrix;
 
 /**
- * Vector
+ * Vector<br>
+ * Elements are stored in a fixed-size array of X, Y, Z and W.
+ * A SimpleMatrix view of the array is created only when requested.
  * 
  * @author Daba
  *
  */
 public class Vector {
-	private SimpleMatrix v;
+	final double[] v;
+	private SimpleMatrix sm;
 
 	/**
 	 * X, Y and Z elements are set to 0.
 	 */
 	public Vector() {
-		v = new SimpleMatrix(4, 1);
-		v.set(3, 0, 1.0);
+		v = new double[4];
+		v[3] = 1.0;
 	}
 	/**
 	 * Each element is set to the specified value.
@@ -29,11 +36,11 @@ public class Vector {
 	 *            Z
 	 */
 	public Vector(double x, double y, double z) {
-		v = new SimpleMatrix(4, 1);
-		v.set(0, 0, x);
-		v.set(1, 0, y);
-		v.set(2, 0, z);
-		v.set(3, 0, 1.0);
+		v = new double[4];
+		v[0] = x;
+		v[1] = y;
+		v[2] = z;
+		v[3] = 1.0;
 	}
 	/**
 	 * Creates a normalized vector from its angles.
@@ -44,17 +51,17 @@ public class Vector {
 	 *            Horizontal angle (radian)
 	 */
 	public Vector(double angleV, double angleH) {
-		v = new SimpleMatrix(4, 1);
+		v = new double[4];
 
 		double x = Math.cos(angleH);
 		double y = Math.sin(angleV);
 		double z = -Math.sin(angleH);
 		double size = Math.sqrt(x * x + y * y + z * z);
 
-		v.set(0, 0, x / size);
-		v.set(1, 0, y / size);
-		v.set(2, 0, z / size);
-		v.set(3, 0, 1.0);
+		v[0] = x / size;
+		v[1] = y / size;
+		v[2] = z / size;
+		v[3] = 1.0;
 	}
 	/**
 	 * Creates a vector from a Vector instance.
@@ -63,12 +70,12 @@ public class Vector {
 	 *            Vector instance
 	 */
 	public Vector(Vector vec) {
-		v = new SimpleMatrix(4, 1);
+		v = new double[4];
 
-		v.set(0, 0, vec.getX());
-		v.set(1, 0, vec.getY());
-		v.set(2, 0, vec.getZ());
-		v.set(3, 0, 1.0);
+		v[0] = vec.v[0];
+		v[1] = vec.v[1];
+		v[2] = vec.v[2];
+		v[3] = 1.0;
 	}
 	/**
 	 * Creates a vector from a SimpleMatrix instance.<br>
@@ -80,18 +87,14 @@ public class Vector {
 	 *            SimpleMatrix instance
 	 */
 	public Vector(SimpleMatrix sm) {
-		v = new SimpleMatrix(4, 1);
+		v = new double[4];
 
 		if ((sm.numRows() == 3 || sm.numRows() == 4) && sm.numCols() == 1) {
-			v.set(0, 0, sm.get(0, 0));
-			v.set(1, 0, sm.get(1, 0));
-			v.set(2, 0, sm.get(2, 0));
-		} else {
-			v.set(0, 0, 0.0);
-			v.set(1, 0, 0.0);
-			v.set(2, 0, 0.0);
+			v[0] = sm.get(0, 0);
+			v[1] = sm.get(1, 0);
+			v[2] = sm.get(2, 0);
 		}
-		v.set(3, 0, 1.0);
+		v[3] = 1.0;
 	}
 
 	@Override
@@ -110,55 +113,60 @@ public class Vector {
 	}
 
 	/**
-	 * Returns the underlying SimpleMatrix instance.
+	 * Returns a 4x1 SimpleMatrix view of this vector.<br>
+	 * The view is created on the first call and shares its storage with this
+	 * vector, so changes made through either of them are visible in both.
 	 * 
 	 * @return SimpleMatrix instance
 	 */
 	public SimpleMatrix getSM() {
-		return v;
+		if (sm == null) {
+			sm = SimpleMatrix.wrap(DMatrixRMaj.wrap(4, 1, v));
+		}
+		return sm;
 	}
 
 	public double getX() {
-		return v.get(0, 0);
+		return v[0];
 	}
 	public double getY() {
-		return v.get(1, 0);
+		return v[1];
 	}
 	public double getZ() {
-		return v.get(2, 0);
+		return v[2];
 	}
 	public double getW() {
-		return v.get(3, 0);
+		return v[3];
 	}
 	public float getXFloat() {
-		return (float) v.get(0, 0);
+		return (float) v[0];
 	}
 	public float getYFloat() {
-		return (float) v.get(1, 0);
+		return (float) v[1];
 	}
 	public float getZFloat() {
-		return (float) v.get(2, 0);
+		return (float) v[2];
 	}
 	public float getWFloat() {
-		return (float) v.get(3, 0);
+		return (float) v[3];
 	}
 
 	public void set(double x, double y, double z) {
-		v.set(0, 0, x);
-		v.set(1, 0, y);
-		v.set(2, 0, z);
+		v[0] = x;
+		v[1] = y;
+		v[2] = z;
 	}
 	public void setX(double value) {
-		v.set(0, 0, value);
+		v[0] = value;
 	}
 	public void setY(double value) {
-		v.set(1, 0, value);
+		v[1] = value;
 	}
 	public void setZ(double value) {
-		v.set(2, 0, value);
+		v[2] = value;
 	}
 	public void setW(double value) {
-		v.set(3, 0, value);
+		v[3] = value;
 	}
 
 	/**
@@ -169,22 +177,167 @@ public class Vector {
 	public double[] toArray() {
 		var ret = new double[3];
 
-		ret[0] = v.get(0, 0);
-		ret[1] = v.get(1, 0);
-		ret[2] = v.get(2, 0);
+		ret[0] = v[0];
+		ret[1] = v[1];
+		ret[2] = v[2];
 
 		return ret;
 	}
 
+	/**
+	 * Writes X, Y and Z of this vector to a float array.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param offset
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public float[] toFloatArray(float[] dst, int offset) {
+		if (offset < 0 || offset + 3 > dst.length) {
+			throw new IndexOutOfBoundsException("Not enough space at offset " + offset);
+		}
+
+		dst[offset] = (float) v[0];
+		dst[offset + 1] = (float) v[1];
+		dst[offset + 2] = (float) v[2];
+
+		return dst;
+	}
+	/**
+	 * Writes X, Y and Z of this vector to a FloatBuffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public FloatBuffer toFloatBuffer(FloatBuffer dst, int index) {
+		checkSpace(index, 3, dst.limit());
+
+		dst.put(index, (float) v[0]);
+		dst.put(index + 1, (float) v[1]);
+		dst.put(index + 2, (float) v[2]);
+
+		return dst;
+	}
+	/**
+	 * Writes X, Y and Z of this vector to a ByteBuffer as 32-bit floats in
+	 * the byte order of the buffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Byte index of the first element written
+	 * @return Destination
+	 */
+	public ByteBuffer toByteBuffer(ByteBuffer dst, int index) {
+		checkSpace(index, 3 * Float.BYTES, dst.limit());
+
+		dst.putFloat(index, (float) v[0]);
+		dst.putFloat(index + Float.BYTES, (float) v[1]);
+		dst.putFloat(index + Float.BYTES * 2, (float) v[2]);
+
+		return dst;
+	}
+	/**
+	 * Writes X, Y and Z of vectors to a float array one after another.
+	 * 
+	 * @param vecs
+	 *            Vectors
+	 * @param dst
+	 *            Destination
+	 * @param offset
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public static float[] toFloatArray(Vector[] vecs, float[] dst, int offset) {
+		checkSpace(offset, vecs.length * 3L, dst.length);
+
+		for (int i = 0; i < vecs.length; i++) {
+			vecs[i].toFloatArray(dst, offset + i * 3);
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes X, Y and Z of vectors to a FloatBuffer one after another.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param vecs
+	 *            Vectors
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public static FloatBuffer toFloatBuffer(Vector[] vecs, FloatBuffer dst, int index) {
+		checkSpace(index, vecs.length * 3L, dst.limit());
+
+		for (int i = 0; i < vecs.length; i++) {
+			vecs[i].toFloatBuffer(dst, index + i * 3);
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes X, Y and Z of vectors to a ByteBuffer one after another as 32-bit
+	 * floats in the byte order of the buffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param vecs
+	 *            Vectors
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Byte index of the first element written
+	 * @return Destination
+	 */
+	public static ByteBuffer toByteBuffer(Vector[] vecs, ByteBuffer dst, int index) {
+		checkSpace(index, vecs.length * 3L * Float.BYTES, dst.limit());
+
+		for (int i = 0; i < vecs.length; i++) {
+			vecs[i].toByteBuffer(dst, index + i * 3 * Float.BYTES);
+		}
+
+		return dst;
+	}
+	/**
+	 * Checks that a range of elements fits in a destination before anything
+	 * is written to it.
+	 * 
+	 * @param index
+	 *            Index of the first element written
+	 * @param size
+	 *            Number of elements written
+	 * @param limit
+	 *            Length or limit of the destination
+	 * @throws IndexOutOfBoundsException
+	 *             If the range does not fit
+	 */
+	static void checkSpace(int index, long size, int limit) {
+		if (index < 0 || index + size > limit) {
+			throw new IndexOutOfBoundsException("Not enough space at index " + index);
+		}
+	}
+
 	/**
 	 * Returns the squared size of this vector.
 	 * 
 	 * @return Squared size
 	 */
 	public double getSquareSize() {
-		double x = v.get(0, 0);
-		double y = v.get(1, 0);
-		double z = v.get(2, 0);
+		double x = v[0];
+		double y = v[1];
+		double z = v[2];
 
 		return x * x + y * y + z * z;
 	}
@@ -194,9 +347,9 @@ public class Vector {
 	 * @return Size
 	 */
 	public double getSize() {
-		double x = v.get(0, 0);
-		double y = v.get(1, 0);
-		double z = v.get(2, 0);
+		double x = v[0];
+		double y = v[1];
+		double z = v[2];
 
 		return Math.sqrt(x * x + y * y + z * z);
 	}
@@ -207,13 +360,36 @@ public class Vector {
 	 * @return Normalized vector
 	 */
 	public Vector normalize() {
-		double size = this.getSize();
+		return this.normalize(new Vector());
+	}
+	/**
+	 * Normalize<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector normalize(Vector dst) {
+		double x = v[0];
+		double y = v[1];
+		double z = v[2];
+		double size = Math.sqrt(x * x + y * y + z * z);
 
-		double x = v.get(0, 0) / size;
-		double y = v.get(1, 0) / size;
-		double z = v.get(2, 0) / size;
+		dst.v[0] = x / size;
+		dst.v[1] = y / size;
+		dst.v[2] = z / size;
+		dst.v[3] = 1.0;
 
-		return new Vector(x, y, z);
+		return dst;
+	}
+	/**
+	 * Normalizes this vector in place.
+	 * 
+	 * @return This vector
+	 */
+	public Vector normalizeInPlace() {
+		return this.normalize(this);
 	}
 
 	/**
@@ -224,11 +400,36 @@ public class Vector {
 	 * @return Vector
 	 */
 	public Vector add(Vector v) {
-		double x = this.getX() + v.getX();
-		double y = this.getY() + v.getY();
-		double z = this.getZ() + v.getZ();
+		return this.add(v, new Vector());
+	}
+	/**
+	 * Addition<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector add(Vector v, Vector dst) {
+		dst.v[0] = this.v[0] + v.v[0];
+		dst.v[1] = this.v[1] + v.v[1];
+		dst.v[2] = this.v[2] + v.v[2];
+		dst.v[3] = 1.0;
 
-		return new Vector(x, y, z);
+		return dst;
+	}
+	/**
+	 * Adds a vector to this vector in place.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return This vector
+	 */
+	public Vector addInPlace(Vector v) {
+		return this.add(v, this);
 	}
 	/**
 	 * Subtraction
@@ -238,11 +439,36 @@ public class Vector {
 	 * @return Vector
 	 */
 	public Vector sub(Vector v) {
-		double x = this.getX() - v.getX();
-		double y = this.getY() - v.getY();
-		double z = this.getZ() - v.getZ();
+		return this.sub(v, new Vector());
+	}
+	/**
+	 * Subtraction<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector sub(Vector v, Vector dst) {
+		dst.v[0] = this.v[0] - v.v[0];
+		dst.v[1] = this.v[1] - v.v[1];
+		dst.v[2] = this.v[2] - v.v[2];
+		dst.v[3] = 1.0;
 
-		return new Vector(x, y, z);
+		return dst;
+	}
+	/**
+	 * Subtracts a vector from this vector in place.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return This vector
+	 */
+	public Vector subInPlace(Vector v) {
+		return this.sub(v, this);
 	}
 	/**
 	 * Scales this vector.
@@ -252,11 +478,35 @@ public class Vector {
 	 * @return Scaled vector
 	 */
 	public Vector scale(double scale) {
-		double x = this.getX() * scale;
-		double y = this.getY() * scale;
-		double z = this.getZ() * scale;
+		return this.scale(scale, new Vector());
+	}
+	/**
+	 * Scales this vector.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector scale(double scale, Vector dst) {
+		dst.v[0] = v[0] * scale;
+		dst.v[1] = v[1] * scale;
+		dst.v[2] = v[2] * scale;
+		dst.v[3] = 1.0;
 
-		return new Vector(x, y, z);
+		return dst;
+	}
+	/**
+	 * Scales this vector in place.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @return This vector
+	 */
+	public Vector scaleInPlace(double scale) {
+		return this.scale(scale, this);
 	}
 	/**
 	 * Cross product
@@ -266,18 +516,43 @@ public class Vector {
 	 * @return Vector
 	 */
 	public Vector cross(Vector v) {
-		double a1 = this.getX();
-		double a2 = this.getY();
-		double a3 = this.getZ();
-		double b1 = v.getX();
-		double b2 = v.getY();
-		double b3 = v.getZ();
+		return this.cross(v, new Vector());
+	}
+	/**
+	 * Cross product<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector cross(Vector v, Vector dst) {
+		double a1 = this.v[0];
+		double a2 = this.v[1];
+		double a3 = this.v[2];
+		double b1 = v.v[0];
+		double b2 = v.v[1];
+		double b3 = v.v[2];
 
-		double x = a2 * b3 - b2 * a3;
-		double y = a3 * b1 - b3 * a1;
-		double z = a1 * b2 - b1 * a2;
+		dst.v[0] = a2 * b3 - b2 * a3;
+		dst.v[1] = a3 * b1 - b3 * a1;
+		dst.v[2] = a1 * b2 - b1 * a2;
+		dst.v[3] = 1.0;
 
-		return new Vector(x, y, z);
+		return dst;
+	}
+	/**
+	 * Replaces this vector with its cross product with another vector.
+	 * 
+	 * @param v
+	 *            Vector
+	 * @return This vector
+	 */
+	public Vector crossInPlace(Vector v) {
+		return this.cross(v, this);
 	}
 	/**
 	 * Dot product
@@ -323,15 +598,83 @@ public class Vector {
 	}
 
 	/**
-	 * Transforms a vector with a matrix.
+	 * Transforms a vector with a matrix.<br>
+	 * W of the result is the W computed by the multiplication, which is 1 for
+	 * affine matrices. Use {@link #project(Matrix)} to divide by W.
 	 * 
 	 * @param matrix
 	 *            Matrix
 	 * @return Transformed vector
 	 */
 	public Vector transform(Matrix matrix) {
-		var transformedSM = matrix.getSM().mult(this.v);
-		return new Vector(transformedSM);
+		return this.transform(matrix, new Vector());
+	}
+	/**
+	 * Transforms a vector with a matrix.<br>
+	 * W of the result is the W computed by the multiplication. The result is
+	 * written to the destination, which may be this vector.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector transform(Matrix matrix, Vector dst) {
+		double[] m = matrix.m;
+		double x = v[0];
+		double y = v[1];
+		double z = v[2];
+		double w = v[3];
+
+		dst.v[0] = m[0] * x + m[1] * y + m[2] * z + m[3] * w;
+		dst.v[1] = m[4] * x + m[5] * y + m[6] * z + m[7] * w;
+		dst.v[2] = m[8] * x + m[9] * y + m[10] * z + m[11] * w;
+		dst.v[3] = m[12] * x + m[13] * y + m[14] * z + m[15] * w;
+
+		return dst;
+	}
+	/**
+	 * Transforms this vector with a matrix in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This vector
+	 */
+	public Vector transformInPlace(Matrix matrix) {
+		return this.transform(matrix, this);
+	}
+	/**
+	 * Transforms a vector with a matrix and divides the result by W.<br>
+	 * This gives normalized device coordinates for a projection matrix.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Projected vector
+	 */
+	public Vector project(Matrix matrix) {
+		return this.project(matrix, new Vector());
+	}
+	/**
+	 * Transforms a vector with a matrix and divides the result by W.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector project(Matrix matrix, Vector dst) {
+		this.transform(matrix, dst);
+
+		double invW = 1.0 / dst.v[3];
+		dst.v[0] *= invW;
+		dst.v[1] *= invW;
+		dst.v[2] *= invW;
+		dst.v[3] = 1.0;
+
+		return dst;
 	}
 	/**
 	 * Applies scaling and rotation to this vector (no translation).
@@ -341,12 +684,40 @@ public class Vector {
 	 * @return Transformed vector
 	 */
 	public Vector transformSR(Matrix matrix) {
-		var matTemp = new SimpleMatrix(this.v);
-		matTemp.set(3, 0, 0.0);
+		return this.transformSR(matrix, new Vector());
+	}
+	/**
+	 * Applies scaling and rotation to this vector (no translation).<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector transformSR(Matrix matrix, Vector dst) {
+		double[] m = matrix.m;
+		double x = v[0];
+		double y = v[1];
+		double z = v[2];
 
-		var transformedSM = matrix.getSM().mult(matTemp);
+		dst.v[0] = m[0] * x + m[1] * y + m[2] * z;
+		dst.v[1] = m[4] * x + m[5] * y + m[6] * z;
+		dst.v[2] = m[8] * x + m[9] * y + m[10] * z;
+		dst.v[3] = 1.0;
 
-		return new Vector(transformedSM);
+		return dst;
+	}
+	/**
+	 * Applies scaling and rotation to this vector in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This vector
+	 */
+	public Vector transformSRInPlace(Matrix matrix) {
+		return this.transformSR(matrix, this);
 	}
 
 	/**
@@ -357,8 +728,40 @@ public class Vector {
 	 * @return Rotated vector
 	 */
 	public Vector rotX(double th) {
-		var rotMat = Matrix.createRotationXMatrix(th);
-		return this.transform(rotMat);
+		return this.rotX(th, new Vector());
+	}
+	/**
+	 * Rotates this vector around the X axis.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector rotX(double th, Vector dst) {
+		double cosTh = Math.cos(th);
+		double sinTh = Math.sin(th);
+		double y = v[1];
+		double z = v[2];
+
+		dst.v[0] = v[0];
+		dst.v[1] = cosTh * y - sinTh * z;
+		dst.v[2] = sinTh * y + cosTh * z;
+		dst.v[3] = 1.0;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around the X axis in place.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return This vector
+	 */
+	public Vector rotXInPlace(double th) {
+		return this.rotX(th, this);
 	}
 	/**
 	 * Rotates this vector around the Y axis.
@@ -368,8 +771,40 @@ public class Vector {
 	 * @return Rotated vector
 	 */
 	public Vector rotY(double th) {
-		var rotMat = Matrix.createRotationYMatrix(th);
-		return this.transform(rotMat);
+		return this.rotY(th, new Vector());
+	}
+	/**
+	 * Rotates this vector around the Y axis.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector rotY(double th, Vector dst) {
+		double cosTh = Math.cos(th);
+		double sinTh = Math.sin(th);
+		double x = v[0];
+		double z = v[2];
+
+		dst.v[0] = cosTh * x + sinTh * z;
+		dst.v[1] = v[1];
+		dst.v[2] = -sinTh * x + cosTh * z;
+		dst.v[3] = 1.0;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around the Y axis in place.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return This vector
+	 */
+	public Vector rotYInPlace(double th) {
+		return this.rotY(th, this);
 	}
 	/**
 	 * Rotates this vector around the Z axis.
@@ -379,8 +814,40 @@ public class Vector {
 	 * @return Rotated vector
 	 */
 	public Vector rotZ(double th) {
-		var rotMat = Matrix.createRotationZMatrix(th);
-		return this.transform(rotMat);
+		return this.rotZ(th, new Vector());
+	}
+	/**
+	 * Rotates this vector around the Z axis.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector rotZ(double th, Vector dst) {
+		double cosTh = Math.cos(th);
+		double sinTh = Math.sin(th);
+		double x = v[0];
+		double y = v[1];
+
+		dst.v[0] = cosTh * x - sinTh * y;
+		dst.v[1] = sinTh * x + cosTh * y;
+		dst.v[2] = v[2];
+		dst.v[3] = 1.0;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around the Z axis in place.
+	 * 
+	 * @param th
+	 *            Angle (radian)
+	 * @return This vector
+	 */
+	public Vector rotZInPlace(double th) {
+		return this.rotZ(th, this);
 	}
 	/**
 	 * Rotates this vector around an axis specified.
@@ -396,7 +863,80 @@ public class Vector {
 	 * @return Rotated vector
 	 */
 	public Vector rot(double axisX, double axisY, double axisZ, double th) {
-		var rotMat = Matrix.createRotationMatrix(axisX, axisY, axisZ, th);
-		return this.transform(rotMat);
+		return this.rot(axisX, axisY, axisZ, th, new Vector());
+	}
+	/**
+	 * Rotates this vector around an axis specified.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector rot(double axisX, double axisY, double axisZ, double th, Vector dst) {
+		return this.rot(axisX, axisY, axisZ, Math.cos(th), Math.sin(th), dst);
+	}
+	/**
+	 * Rotates this vector around an axis specified, from the cosine and sine
+	 * of the angle.<br>
+	 * The result is written to the destination, which may be this vector.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param cosTh
+	 *            Cosine of the rotation angle
+	 * @param sinTh
+	 *            Sine of the rotation angle
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	Vector rot(double axisX, double axisY, double axisZ, double cosTh, double sinTh,
+			Vector dst) {
+		double x = v[0];
+		double y = v[1];
+		double z = v[2];
+		double oneMinusCos = 1.0 - cosTh;
+		double xy = axisX * axisY * oneMinusCos;
+		double xz = axisX * axisZ * oneMinusCos;
+		double yz = axisY * axisZ * oneMinusCos;
+
+		dst.v[0] = (cosTh + axisX * axisX * oneMinusCos) * x + (xy - axisZ * sinTh) * y
+				+ (xz + axisY * sinTh) * z;
+		dst.v[1] = (xy + axisZ * sinTh) * x + (cosTh + axisY * axisY * oneMinusCos) * y
+				+ (yz - axisX * sinTh) * z;
+		dst.v[2] = (xz - axisY * sinTh) * x + (yz + axisX * sinTh) * y
+				+ (cosTh + axisZ * axisZ * oneMinusCos) * z;
+		dst.v[3] = 1.0;
+
+		return dst;
+	}
+	/**
+	 * Rotates this vector around an axis specified in place.
+	 * 
+	 * @param axisX
+	 *            X-component of the axis
+	 * @param axisY
+	 *            Y-component of the axis
+	 * @param axisZ
+	 *            Z-component of the axis
+	 * @param th
+	 *            Rotation angle (radian)
+	 * @return This vector
+	 */
+	public Vector rotInPlace(double axisX, double axisY, double axisZ, double th) {
+		return this.rot(axisX, axisY, axisZ, th, this);
 	}
 }
@@ -0,0 +1,656 @@
+package com.github.dabasan.ejml_3dtools;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Batch of vectors<br>
+ * X, Y and Z elements are stored in separate arrays (structure of arrays),
+ * and each operation runs as a single loop over them.<br>
+ * Results agree with the corresponding methods of Vector applied to each
+ * element.
+ * 
+ * @author Daba
+ *
+ */
+public class VectorBatch {
+	final double[] x;
+	final double[] y;
+	final double[] z;
+	private final int size;
+
+	/**
+	 * Creates a batch of the size specified.<br>
+	 * All elements are set to 0.
+	 * 
+	 * @param size
+	 *            Number of vectors
+	 */
+	public VectorBatch(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Size must not be negative: " + size);
+		}
+
+		x = new double[size];
+		y = new double[size];
+		z = new double[size];
+		this.size = size;
+	}
+	/**
+	 * Creates a batch that wraps the arrays specified.<br>
+	 * The arrays are not copied, so changes made to them are visible in this
+	 * batch.
+	 * 
+	 * @param x
+	 *            X elements
+	 * @param y
+	 *            Y elements
+	 * @param z
+	 *            Z elements
+	 */
+	public VectorBatch(double[] x, double[] y, double[] z) {
+		if (x.length != y.length || x.length != z.length) {
+			throw new IllegalArgumentException("Arrays must have the same length");
+		}
+
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		size = x.length;
+	}
+	/**
+	 * Creates a batch from Vector instances.
+	 * 
+	 * @param vecs
+	 *            Vector instances
+	 */
+	public VectorBatch(Vector[] vecs) {
+		this(vecs.length);
+
+		for (int i = 0; i < size; i++) {
+			x[i] = vecs[i].v[0];
+			y[i] = vecs[i].v[1];
+			z[i] = vecs[i].v[2];
+		}
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+
+		for (int i = 0; i < size; i++) {
+			sb.append("(");
+			sb.append(x[i]);
+			sb.append(", ");
+			sb.append(y[i]);
+			sb.append(", ");
+			sb.append(z[i]);
+			sb.append(")\n");
+		}
+
+		if (size != 0) {
+			sb.setLength(sb.length() - 1);
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the number of vectors in this batch.
+	 * 
+	 * @return Size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the underlying array of X elements.
+	 * 
+	 * @return Array
+	 */
+	public double[] getXArray() {
+		return x;
+	}
+	/**
+	 * Returns the underlying array of Y elements.
+	 * 
+	 * @return Array
+	 */
+	public double[] getYArray() {
+		return y;
+	}
+	/**
+	 * Returns the underlying array of Z elements.
+	 * 
+	 * @return Array
+	 */
+	public double[] getZArray() {
+		return z;
+	}
+
+	public double getX(int index) {
+		return x[index];
+	}
+	public double getY(int index) {
+		return y[index];
+	}
+	public double getZ(int index) {
+		return z[index];
+	}
+
+	/**
+	 * Returns a vector in this batch.
+	 * 
+	 * @param index
+	 *            Index
+	 * @return Vector
+	 */
+	public Vector get(int index) {
+		return new Vector(x[index], y[index], z[index]);
+	}
+	/**
+	 * Copies a vector in this batch to the destination.
+	 * 
+	 * @param index
+	 *            Index
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public Vector get(int index, Vector dst) {
+		dst.v[0] = x[index];
+		dst.v[1] = y[index];
+		dst.v[2] = z[index];
+		dst.v[3] = 1.0;
+
+		return dst;
+	}
+
+	public void set(int index, double x, double y, double z) {
+		this.x[index] = x;
+		this.y[index] = y;
+		this.z[index] = z;
+	}
+	public void set(int index, Vector vec) {
+		x[index] = vec.v[0];
+		y[index] = vec.v[1];
+		z[index] = vec.v[2];
+	}
+
+	/**
+	 * Writes the vectors in this batch to a float array as interleaved X, Y
+	 * and Z.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param offset
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public float[] toFloatArray(float[] dst, int offset) {
+		Vector.checkSpace(offset, size * 3L, dst.length);
+
+		for (int i = 0; i < size; i++) {
+			int j = offset + i * 3;
+			dst[j] = (float) x[i];
+			dst[j + 1] = (float) y[i];
+			dst[j + 2] = (float) z[i];
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the vectors in this batch to a FloatBuffer as interleaved X, Y
+	 * and Z.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Index of the first element written
+	 * @return Destination
+	 */
+	public FloatBuffer toFloatBuffer(FloatBuffer dst, int index) {
+		Vector.checkSpace(index, size * 3L, dst.limit());
+
+		for (int i = 0; i < size; i++) {
+			int j = index + i * 3;
+			dst.put(j, (float) x[i]);
+			dst.put(j + 1, (float) y[i]);
+			dst.put(j + 2, (float) z[i]);
+		}
+
+		return dst;
+	}
+	/**
+	 * Writes the vectors in this batch to a ByteBuffer as interleaved X, Y and
+	 * Z of 32-bit floats in the byte order of the buffer.<br>
+	 * Elements are written at absolute indices, so the position of the buffer
+	 * is not changed.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @param index
+	 *            Byte index of the first element written
+	 * @return Destination
+	 */
+	public ByteBuffer toByteBuffer(ByteBuffer dst, int index) {
+		Vector.checkSpace(index, size * 3L * Float.BYTES, dst.limit());
+
+		for (int i = 0; i < size; i++) {
+			int j = index + i * 3 * Float.BYTES;
+			dst.putFloat(j, (float) x[i]);
+			dst.putFloat(j + Float.BYTES, (float) y[i]);
+			dst.putFloat(j + Float.BYTES * 2, (float) z[i]);
+		}
+
+		return dst;
+	}
+
+	private void checkSize(VectorBatch batch) {
+		if (batch.size != size) {
+			throw new IllegalArgumentException(
+					"Size mismatch: " + size + " and " + batch.size);
+		}
+	}
+
+	/**
+	 * Normalize
+	 * 
+	 * @return Normalized vectors
+	 */
+	public VectorBatch normalize() {
+		return this.normalize(new VectorBatch(size));
+	}
+	/**
+	 * Normalize<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public VectorBatch normalize(VectorBatch dst) {
+		this.checkSize(dst);
+		BatchKernels.INSTANCE.normalize(x, y, z, dst.x, dst.y, dst.z, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Normalizes the vectors in this batch in place.
+	 * 
+	 * @return This batch
+	 */
+	public VectorBatch normalizeInPlace() {
+		return this.normalize(this);
+	}
+
+	/**
+	 * Addition
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @return Batch
+	 */
+	public VectorBatch add(VectorBatch batch) {
+		return this.add(batch, new VectorBatch(size));
+	}
+	/**
+	 * Addition<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public VectorBatch add(VectorBatch batch, VectorBatch dst) {
+		this.checkSize(batch);
+		this.checkSize(dst);
+
+		for (int i = 0; i < size; i++) {
+			dst.x[i] = x[i] + batch.x[i];
+			dst.y[i] = y[i] + batch.y[i];
+			dst.z[i] = z[i] + batch.z[i];
+		}
+
+		return dst;
+	}
+	/**
+	 * Adds a batch to this batch in place.
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @return This batch
+	 */
+	public VectorBatch addInPlace(VectorBatch batch) {
+		return this.add(batch, this);
+	}
+	/**
+	 * Scales the vectors in this batch.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @return Scaled vectors
+	 */
+	public VectorBatch scale(double scale) {
+		return this.scale(scale, new VectorBatch(size));
+	}
+	/**
+	 * Scales the vectors in this batch.<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public VectorBatch scale(double scale, VectorBatch dst) {
+		this.checkSize(dst);
+
+		for (int i = 0; i < size; i++) {
+			dst.x[i] = x[i] * scale;
+			dst.y[i] = y[i] * scale;
+			dst.z[i] = z[i] * scale;
+		}
+
+		return dst;
+	}
+	/**
+	 * Scales the vectors in this batch in place.
+	 * 
+	 * @param scale
+	 *            Scale
+	 * @return This batch
+	 */
+	public VectorBatch scaleInPlace(double scale) {
+		return this.scale(scale, this);
+	}
+	/**
+	 * Cross product
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @return Batch
+	 */
+	public VectorBatch cross(VectorBatch batch) {
+		return this.cross(batch, new VectorBatch(size));
+	}
+	/**
+	 * Cross product<br>
+	 * The result is written to the destination, which may be either of the
+	 * operands.
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public VectorBatch cross(VectorBatch batch, VectorBatch dst) {
+		this.checkSize(batch);
+		this.checkSize(dst);
+
+		for (int i = 0; i < size; i++) {
+			double a1 = x[i];
+			double a2 = y[i];
+			double a3 = z[i];
+			double b1 = batch.x[i];
+			double b2 = batch.y[i];
+			double b3 = batch.z[i];
+
+			dst.x[i] = a2 * b3 - b2 * a3;
+			dst.y[i] = a3 * b1 - b3 * a1;
+			dst.z[i] = a1 * b2 - b1 * a2;
+		}
+
+		return dst;
+	}
+	/**
+	 * Dot product
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @return Dot products
+	 */
+	public double[] dot(VectorBatch batch) {
+		return this.dot(batch, new double[size]);
+	}
+	/**
+	 * Dot product
+	 * 
+	 * @param batch
+	 *            Batch
+	 * @param dst
+	 *            Destination of the dot products
+	 * @return Destination
+	 */
+	public double[] dot(VectorBatch batch, double[] dst) {
+		this.checkSize(batch);
+		if (dst.length < size) {
+			throw new IllegalArgumentException("Destination is too short: " + dst.length);
+		}
+
+		BatchKernels.INSTANCE.dot(x, y, z, batch.x, batch.y, batch.z, dst, 0, size);
+
+		return dst;
+	}
+
+	/**
+	 * Transforms the vectors in this batch with a matrix.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Transformed vectors
+	 */
+	public VectorBatch transform(Matrix matrix) {
+		return this.transform(matrix, new VectorBatch(size));
+	}
+	/**
+	 * Transforms the vectors in this batch with a matrix.<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public VectorBatch transform(Matrix matrix, VectorBatch dst) {
+		this.checkSize(dst);
+		BatchKernels.INSTANCE.transform(matrix.m, x, y, z, dst.x, dst.y, dst.z, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Transforms the vectors in this batch with a matrix in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This batch
+	 */
+	public VectorBatch transformInPlace(Matrix matrix) {
+		return this.transform(matrix, this);
+	}
+	/**
+	 * Transforms the vectors in this batch with a matrix in parallel.<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 */
+	public VectorBatch transform(Matrix matrix, VectorBatch dst, ParallelConfig config) {
+		this.checkSize(dst);
+
+		double[] m = matrix.m;
+		config.run(size, (from, to) -> BatchKernels.INSTANCE.transform(m, x, y, z, dst.x, dst.y,
+				dst.z, from, to));
+
+		return dst;
+	}
+	/**
+	 * Applies scaling and rotation to the vectors in this batch (no
+	 * translation).
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return Transformed vectors
+	 */
+	public VectorBatch transformSR(Matrix matrix) {
+		return this.transformSR(matrix, new VectorBatch(size));
+	}
+	/**
+	 * Applies scaling and rotation to the vectors in this batch (no
+	 * translation).<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public VectorBatch transformSR(Matrix matrix, VectorBatch dst) {
+		this.checkSize(dst);
+		BatchKernels.INSTANCE.transformSR(matrix.m, x, y, z, dst.x, dst.y, dst.z, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Applies scaling and rotation to the vectors in this batch in place.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @return This batch
+	 */
+	public VectorBatch transformSRInPlace(Matrix matrix) {
+		return this.transformSR(matrix, this);
+	}
+	/**
+	 * Applies scaling and rotation to the vectors in this batch in parallel
+	 * (no translation).<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrix
+	 *            Matrix
+	 * @param dst
+	 *            Destination
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 */
+	public VectorBatch transformSR(Matrix matrix, VectorBatch dst, ParallelConfig config) {
+		this.checkSize(dst);
+
+		double[] m = matrix.m;
+		config.run(size, (from, to) -> BatchKernels.INSTANCE.transformSR(m, x, y, z, dst.x,
+				dst.y, dst.z, from, to));
+
+		return dst;
+	}
+
+	/**
+	 * Projects the vectors in this batch to viewport coordinates.<br>
+	 * Each vector is transformed with the matrix, divided by W, and mapped to
+	 * the viewport. X grows to the right and Y grows downward from the
+	 * top-left corner of the viewport, and Z is the depth from 0 (near) to 1
+	 * (far). Vectors with W of 0 or less are behind the camera and are set to
+	 * NaN.<br>
+	 * The result is written to the destination, which may be this batch.
+	 * 
+	 * @param matrix
+	 *            Matrix (usually projection * view)
+	 * @param viewportX
+	 *            Left edge of the viewport
+	 * @param viewportY
+	 *            Top edge of the viewport
+	 * @param viewportWidth
+	 *            Width of the viewport
+	 * @param viewportHeight
+	 *            Height of the viewport
+	 * @param dst
+	 *            Destination
+	 * @return Destination
+	 */
+	public VectorBatch project(Matrix matrix, double viewportX, double viewportY,
+			double viewportWidth, double viewportHeight, VectorBatch dst) {
+		this.checkSize(dst);
+		project(matrix.m, viewportX, viewportY, viewportWidth, viewportHeight, x, y, z, dst.x,
+				dst.y, dst.z, 0, size);
+
+		return dst;
+	}
+	/**
+	 * Projects the vectors in this batch to viewport coordinates in
+	 * parallel.<br>
+	 * See
+	 * {@link #project(Matrix, double, double, double, double, VectorBatch)}
+	 * for the details.
+	 * 
+	 * @param matrix
+	 *            Matrix (usually projection * view)
+	 * @param viewportX
+	 *            Left edge of the viewport
+	 * @param viewportY
+	 *            Top edge of the viewport
+	 * @param viewportWidth
+	 *            Width of the viewport
+	 * @param viewportHeight
+	 *            Height of the viewport
+	 * @param dst
+	 *            Destination
+	 * @param config
+	 *            Parallel execution settings
+	 * @return Destination
+	 */
+	public VectorBatch project(Matrix matrix, double viewportX, double viewportY,
+			double viewportWidth, double viewportHeight, VectorBatch dst,
+			ParallelConfig config) {
+		this.checkSize(dst);
+
+		double[] m = matrix.m;
+		config.run(size, (from, to) -> project(m, viewportX, viewportY, viewportWidth,
+				viewportHeight, x, y, z, dst.x, dst.y, dst.z, from, to));
+
+		return dst;
+	}
+
+	static void project(double[] m, double viewportX, double viewportY, double viewportWidth,
+			double viewportHeight, double[] x, double[] y, double[] z, double[] dx, double[] dy,
+			double[] dz, int from, int to) {
+		double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+		double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+		double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+		double m30 = m[12], m31 = m[13], m32 = m[14], m33 = m[15];
+		double halfWidth = viewportWidth * 0.5;
+		double halfHeight = viewportHeight * 0.5;
+		double centerX = viewportX + halfWidth;
+		double centerY = viewportY + halfHeight;
+
+		for (int i = from; i < to; i++) {
+			double vx = x[i];
+			double vy = y[i];
+			double vz = z[i];
+
+			double cx = m00 * vx + m01 * vy + m02 * vz + m03;
+			double cy = m10 * vx + m11 * vy + m12 * vz + m13;
+			double cz = m20 * vx + m21 * vy + m22 * vz + m23;
+			double cw = m30 * vx + m31 * vy + m32 * vz + m33;
+			double invW = cw > 0.0 ? 1.0 / cw : Double.NaN;
+
+			dx[i] = centerX + cx * invW * halfWidth;
+			dy[i] = centerY - cy * invW * halfHeight;
+			dz[i] = (cz * invW + 1.0) * 0.5;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.github.dabasan.ejml_3dtools;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels behind the batch operations written with the Vector API<br>
+ * This class is loaded by {@link BatchKernels} on JDK 17 or later. Each
+ * kernel processes as many elements as fit in the preferred species and
+ * leaves the rest to the scalar implementation. Multiplications and
+ * additions are not fused, so the results are identical to the scalar ones.
+ * 
+ * @author Daba
+ *
+ */
+class SimdBatchKernels extends BatchKernels {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Double> SPECIES_4 = DoubleVector.SPECIES_256;
+
+	/**
+	 * 4x4 multiplication keeps a row in a vector, so it is only worth it when
+	 * 4 doubles fit in a hardware register.
+	 */
+	private static final boolean MULT_ENABLED = SPECIES.vectorBitSize() >= SPECIES_4
+			.vectorBitSize();
+
+	SimdBatchKernels() {
+		if (SPECIES.length() < 2) {
+			throw new UnsupportedOperationException("No SIMD support");
+		}
+	}
+
+	@Override
+	void normalize(double[] x, double[] y, double[] z, double[] dx, double[] dy, double[] dz,
+			int from, int to) {
+		int bound = from + SPECIES.loopBound(to - from);
+
+		int i = from;
+		for (; i < bound; i += SPECIES.length()) {
+			var vx = DoubleVector.fromArray(SPECIES, x, i);
+			var vy = DoubleVector.fromArray(SPECIES, y, i);
+			var vz = DoubleVector.fromArray(SPECIES, z, i);
+			var size = vx.mul(vx).add(vy.mul(vy)).add(vz.mul(vz)).lanewise(VectorOperators.SQRT);
+
+			vx.div(size).intoArray(dx, i);
+			vy.div(size).intoArray(dy, i);
+			vz.div(size).intoArray(dz, i);
+		}
+
+		super.normalize(x, y, z, dx, dy, dz, i, to);
+	}
+	@Override
+	void dot(double[] ax, double[] ay, double[] az, double[] bx, double[] by, double[] bz,
+			double[] dst, int from, int to) {
+		int bound = from + SPECIES.loopBound(to - from);
+
+		int i = from;
+		for (; i < bound; i += SPECIES.length()) {
+			var vax = DoubleVector.fromArray(SPECIES, ax, i);
+			var vay = DoubleVector.fromArray(SPECIES, ay, i);
+			var vaz = DoubleVector.fromArray(SPECIES, az, i);
+			var vbx = DoubleVector.fromArray(SPECIES, bx, i);
+			var vby = DoubleVector.fromArray(SPECIES, by, i);
+			var vbz = DoubleVector.fromArray(SPECIES, bz, i);
+
+			vax.mul(vbx).add(vay.mul(vby)).add(vaz.mul(vbz)).intoArray(dst, i);
+		}
+
+		super.dot(ax, ay, az, bx, by, bz, dst, i, to);
+	}
+	@Override
+	void transform(double[] m, double[] x, double[] y, double[] z, double[] dx, double[] dy,
+			double[] dz, int from, int to) {
+		double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+		double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+		double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+		int bound = from + SPECIES.loopBound(to - from);
+
+		int i = from;
+		for (; i < bound; i += SPECIES.length()) {
+			var vx = DoubleVector.fromArray(SPECIES, x, i);
+			var vy = DoubleVector.fromArray(SPECIES, y, i);
+			var vz = DoubleVector.fromArray(SPECIES, z, i);
+
+			vx.mul(m00).add(vy.mul(m01)).add(vz.mul(m02)).add(m03).intoArray(dx, i);
+			vx.mul(m10).add(vy.mul(m11)).add(vz.mul(m12)).add(m13).intoArray(dy, i);
+			vx.mul(m20).add(vy.mul(m21)).add(vz.mul(m22)).add(m23).intoArray(dz, i);
+		}
+
+		super.transform(m, x, y, z, dx, dy, dz, i, to);
+	}
+	@Override
+	void transformSR(double[] m, double[] x, double[] y, double[] z, double[] dx, double[] dy,
+			double[] dz, int from, int to) {
+		double m00 = m[0], m01 = m[1], m02 = m[2];
+		double m10 = m[4], m11 = m[5], m12 = m[6];
+		double m20 = m[8], m21 = m[9], m22 = m[10];
+		int bound = from + SPECIES.loopBound(to - from);
+
+		int i = from;
+		for (; i < bound; i += SPECIES.length()) {
+			var vx = DoubleVector.fromArray(SPECIES, x, i);
+			var vy = DoubleVector.fromArray(SPECIES, y, i);
+			var vz = DoubleVector.fromArray(SPECIES, z, i);
+
+			vx.mul(m00).add(vy.mul(m01)).add(vz.mul(m02)).intoArray(dx, i);
+			vx.mul(m10).add(vy.mul(m11)).add(vz.mul(m12)).intoArray(dy, i);
+			vx.mul(m20).add(vy.mul(m21)).add(vz.mul(m22)).intoArray(dz, i);
+		}
+
+		super.transformSR(m, x, y, z, dx, dy, dz, i, to);
+	}
+	@Override
+	void mult(Matrix[] a, Matrix[] b, Matrix[] c, int from, int to) {
+		if (!MULT_ENABLED) {
+			super.mult(a, b, c, from, to);
+			return;
+		}
+
+		for (int i = from; i < to; i++) {
+			double[] am = a[i].m;
+			double[] bm = b[i].m;
+			var b0 = DoubleVector.fromArray(SPECIES_4, bm, 0);
+			var b1 = DoubleVector.fromArray(SPECIES_4, bm, 4);
+			var b2 = DoubleVector.fromArray(SPECIES_4, bm, 8);
+			var b3 = DoubleVector.fromArray(SPECIES_4, bm, 12);
+
+			var c0 = b0.mul(am[0]).add(b1.mul(am[1])).add(b2.mul(am[2])).add(b3.mul(am[3]));
+			var c1 = b0.mul(am[4]).add(b1.mul(am[5])).add(b2.mul(am[6])).add(b3.mul(am[7]));
+			var c2 = b0.mul(am[8]).add(b1.mul(am[9])).add(b2.mul(am[10])).add(b3.mul(am[11]));
+			var c3 = b0.mul(am[12]).add(b1.mul(am[13])).add(b2.mul(am[14]))
+					.add(b3.mul(am[15]));
+
+			double[] cm = c[i].m;
+			c0.intoArray(cm, 0);
+			c1.intoArray(cm, 4);
+			c2.intoArray(cm, 8);
+			c3.intoArray(cm, 12);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for AABBBatch
+ * 
+ * @author Daba
+ *
+ */
+public class AABBBatchTest {
+	private static AABB[] createRandomBoxes(int size) {
+		var random = new Random(0);
+		var ret = new AABB[size];
+		for (int i = 0; i < size; i++) {
+			double x = random.nextDouble() * 10.0 - 5.0;
+			double y = random.nextDouble() * 10.0 - 5.0;
+			double z = random.nextDouble() * 10.0 - 5.0;
+			ret[i] = new AABB(x, y, z, x + random.nextDouble(), y + random.nextDouble(),
+					z + random.nextDouble());
+		}
+
+		return ret;
+	}
+	private static AABB[] toArray(AABBBatch batch) {
+		var ret = new AABB[batch.size()];
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = batch.get(i);
+		}
+
+		return ret;
+	}
+	private static void assertBatchEquals(AABB[] expected, AABBBatch actual) {
+		assertEquals(expected.length, actual.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].toString(), actual.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testConstructor() {
+		var batch = new AABBBatch(3);
+		for (int i = 0; i < 3; i++) {
+			assertTrue(batch.get(i).isEmpty());
+		}
+
+		var boxes = createRandomBoxes(10);
+		assertBatchEquals(boxes, new AABBBatch(boxes));
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_Arrays_InvalidLength() {
+		new AABBBatch(new double[3], new double[3], new double[3], new double[3], new double[3],
+				new double[2]);
+	}
+
+	@Test
+	public void testGetBounds() {
+		var boxes = createRandomBoxes(100);
+		var expected = new AABB();
+		for (var box : boxes) {
+			expected.unionInPlace(box);
+		}
+
+		assertEquals(expected.toString(), new AABBBatch(boxes).getBounds().toString());
+		assertTrue(new AABBBatch(0).getBounds().isEmpty());
+	}
+	@Test
+	public void testUnion() {
+		var a = createRandomBoxes(50);
+		var b = createRandomBoxes(100);
+		var bFirst = new AABB[50];
+		var expected = new AABB[50];
+		for (int i = 0; i < 50; i++) {
+			bFirst[i] = b[50 + i];
+			expected[i] = a[i].union(bFirst[i]);
+		}
+
+		assertBatchEquals(expected, new AABBBatch(a).union(new AABBBatch(bFirst)));
+	}
+	@Test
+	public void testTransform() {
+		var boxes = createRandomBoxes(100);
+		var matrix = Matrix.createRotationMatrix(1.0, 2.0, -1.0, 0.8)
+				.mult(Matrix.createTranslationMatrix(1.0, -2.0, 3.0));
+
+		var expected = new AABB[boxes.length];
+		for (int i = 0; i < boxes.length; i++) {
+			expected[i] = boxes[i].transform(matrix);
+		}
+
+		var batch = new AABBBatch(boxes);
+		assertBatchEquals(expected, batch.transform(matrix));
+		assertBatchEquals(expected, batch.transformInPlace(matrix));
+	}
+	@Test
+	public void testTransform_Empty() {
+		var batch = new AABBBatch(4);
+		batch.transformInPlace(Matrix.createTranslationMatrix(1.0, 2.0, 3.0));
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(batch.get(i).isEmpty());
+		}
+	}
+	@Test
+	public void testTransform_Matrices() {
+		var boxes = createRandomBoxes(100);
+		var matrices = new Matrix[boxes.length];
+		var expected = new AABB[boxes.length];
+		for (int i = 0; i < boxes.length; i++) {
+			matrices[i] = Matrix.createRotationYMatrix(0.1 * i)
+					.mult(Matrix.createScalingMatrix(1.0, 0.5 * i, 2.0));
+			expected[i] = boxes[i].transform(matrices[i]);
+		}
+
+		var batch = new AABBBatch(boxes);
+		assertBatchEquals(expected, batch.transform(matrices, new AABBBatch(boxes.length)));
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testTransform_Matrices_InvalidLength() {
+		new AABBBatch(3).transform(new Matrix[2], new AABBBatch(3));
+	}
+	@Test
+	public void testTransform_Parallel() {
+		var boxes = createRandomBoxes(5000);
+		var matrices = new Matrix[boxes.length];
+		for (int i = 0; i < boxes.length; i++) {
+			matrices[i] = Matrix.createRotationXMatrix(0.01 * i);
+		}
+		var matrix = Matrix.createRotationZMatrix(0.5);
+		var config = new ParallelConfig(null, 100, 64);
+
+		var batch = new AABBBatch(boxes);
+		var expected = batch.transform(matrix);
+		var actual = batch.transform(matrix, new AABBBatch(boxes.length), config);
+		assertBatchEquals(toArray(expected), actual);
+
+		expected = batch.transform(matrices, new AABBBatch(boxes.length));
+		actual = batch.transform(matrices, new AABBBatch(boxes.length), config);
+		assertBatchEquals(toArray(expected), actual);
+	}
+}
@@ -0,0 +1,114 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test class for AABB
+ * 
+ * @author Daba
+ *
+ */
+public class AABBTest {
+	private static final double EPSILON = 1.0E-10;
+
+	private static void assertBoxEquals(AABB expected, AABB actual, double delta) {
+		assertEquals(expected.getMinX(), actual.getMinX(), delta);
+		assertEquals(expected.getMinY(), actual.getMinY(), delta);
+		assertEquals(expected.getMinZ(), actual.getMinZ(), delta);
+		assertEquals(expected.getMaxX(), actual.getMaxX(), delta);
+		assertEquals(expected.getMaxY(), actual.getMaxY(), delta);
+		assertEquals(expected.getMaxZ(), actual.getMaxZ(), delta);
+	}
+	private static AABB transformCorners(AABB box, Matrix matrix) {
+		var ret = new AABB();
+		for (int i = 0; i < 8; i++) {
+			var corner = new Vector((i & 1) == 0 ? box.getMinX() : box.getMaxX(),
+					(i & 2) == 0 ? box.getMinY() : box.getMaxY(),
+					(i & 4) == 0 ? box.getMinZ() : box.getMaxZ());
+			ret.expand(corner.transform(matrix));
+		}
+
+		return ret;
+	}
+
+	@Test
+	public void testEmpty() {
+		var box = new AABB();
+		assertTrue(box.isEmpty());
+		assertEquals(0.0, box.getSurfaceArea(), 0.0);
+
+		box.expand(1.0, 2.0, 3.0);
+		assertFalse(box.isEmpty());
+		assertBoxEquals(new AABB(1.0, 2.0, 3.0, 1.0, 2.0, 3.0), box, 0.0);
+	}
+	@Test
+	public void testCreateFromPoints() {
+		var points = new VectorBatch(new double[]{1.0, -2.0, 3.0}, new double[]{0.0, 5.0, -1.0},
+				new double[]{4.0, 2.0, -6.0});
+		var box = AABB.createFromPoints(points);
+
+		assertBoxEquals(new AABB(-2.0, -1.0, -6.0, 3.0, 5.0, 4.0), box, 0.0);
+	}
+	@Test
+	public void testUnion() {
+		var a = new AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0);
+		var b = new AABB(-1.0, 0.5, 0.5, 0.5, 2.0, 3.0);
+
+		assertBoxEquals(new AABB(-1.0, 0.0, 0.0, 1.0, 2.0, 3.0), a.union(b), 0.0);
+		assertBoxEquals(a, a.union(new AABB()), 0.0);
+
+		a.unionInPlace(b);
+		assertBoxEquals(new AABB(-1.0, 0.0, 0.0, 1.0, 2.0, 3.0), a, 0.0);
+	}
+	@Test
+	public void testIntersects() {
+		var a = new AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0);
+
+		assertTrue(a.intersects(new AABB(0.5, 0.5, 0.5, 2.0, 2.0, 2.0)));
+		assertTrue(a.intersects(new AABB(1.0, 0.0, 0.0, 2.0, 1.0, 1.0)));
+		assertFalse(a.intersects(new AABB(1.5, 0.0, 0.0, 2.0, 1.0, 1.0)));
+		assertFalse(a.intersects(new AABB(0.0, 0.0, -2.0, 1.0, 1.0, -1.0)));
+		assertFalse(a.intersects(new AABB()));
+
+		assertBoxEquals(new AABB(0.5, 0.5, 0.5, 1.0, 1.0, 1.0),
+				a.intersection(new AABB(0.5, 0.5, 0.5, 2.0, 2.0, 2.0)), 0.0);
+		assertTrue(a.intersection(new AABB(1.5, 0.0, 0.0, 2.0, 1.0, 1.0)).isEmpty());
+	}
+	@Test
+	public void testContains() {
+		var a = new AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0);
+
+		assertTrue(a.contains(0.5, 1.0, 0.0));
+		assertFalse(a.contains(0.5, 1.5, 0.0));
+		assertTrue(a.contains(new AABB(0.2, 0.2, 0.2, 0.8, 0.8, 0.8)));
+		assertFalse(a.contains(new AABB(0.2, 0.2, 0.2, 1.8, 0.8, 0.8)));
+	}
+	@Test
+	public void testTransform() {
+		var box = new AABB(-1.0, 2.0, 0.5, 3.0, 4.0, 1.5);
+		for (int i = 0; i < 20; i++) {
+			var matrix = Matrix.createRotationMatrix(0.3 * i, 1.0, -0.5 * i, 0.7 * i)
+					.mult(Matrix.createScalingMatrix(1.0 + i, 0.5, -2.0))
+					.mult(Matrix.createTranslationMatrix(i, -i, 2.0));
+
+			assertBoxEquals(transformCorners(box, matrix), box.transform(matrix), EPSILON);
+		}
+	}
+	@Test
+	public void testTransform_Empty() {
+		var matrix = Matrix.createTranslationMatrix(1.0, 2.0, 3.0);
+
+		assertTrue(new AABB().transform(matrix).isEmpty());
+	}
+	@Test
+	public void testTransformInPlace() {
+		var box = new AABB(0.0, 0.0, 0.0, 1.0, 2.0, 3.0);
+		var matrix = Matrix.createTranslationMatrix(1.0, 2.0, 3.0);
+		var expected = box.transform(matrix);
+
+		assertSame(box, box.transformInPlace(matrix));
+		assertBoxEquals(expected, box, 0.0);
+	}
+}
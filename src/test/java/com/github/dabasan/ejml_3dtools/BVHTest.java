@@ -0,0 +1,270 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Test class for BVH
+ * 
+ * @author Daba
+ *
+ */
+public class BVHTest {
+	private static final double EPSILON = 1.0E-9;
+
+	private static VectorBatch[] createRandomTriangles(int size, Random random) {
+		var ret = new VectorBatch[]{new VectorBatch(size), new VectorBatch(size),
+				new VectorBatch(size)};
+		for (int i = 0; i < size; i++) {
+			double cx = random.nextDouble() * 20.0 - 10.0;
+			double cy = random.nextDouble() * 20.0 - 10.0;
+			double cz = random.nextDouble() * 20.0 - 10.0;
+			for (var batch : ret) {
+				batch.set(i, cx + random.nextDouble() - 0.5, cy + random.nextDouble() - 0.5,
+						cz + random.nextDouble() - 0.5);
+			}
+		}
+
+		return ret;
+	}
+	private static AABB[] createRandomBoxes(int size, Random random) {
+		var ret = new AABB[size];
+		for (int i = 0; i < size; i++) {
+			double x = random.nextDouble() * 20.0 - 10.0;
+			double y = random.nextDouble() * 20.0 - 10.0;
+			double z = random.nextDouble() * 20.0 - 10.0;
+			ret[i] = new AABB(x, y, z, x + random.nextDouble(), y + random.nextDouble(),
+					z + random.nextDouble());
+		}
+
+		return ret;
+	}
+	private static Vector createRandomDirection(Random random) {
+		return new Vector(random.nextGaussian(), random.nextGaussian(), random.nextGaussian());
+	}
+
+	/**
+	 * Reference implementation with Vector operations
+	 */
+	private static double intersectTriangle(Vector origin, Vector direction, Vector a, Vector b,
+			Vector c) {
+		var e1 = b.sub(a);
+		var e2 = c.sub(a);
+		var p = direction.cross(e2);
+		double det = e1.dot(p);
+		if (Math.abs(det) < 1.0E-12) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		var s = origin.sub(a);
+		double u = s.dot(p) / det;
+		var q = s.cross(e1);
+		double v = direction.dot(q) / det;
+		double t = e2.dot(q) / det;
+		if (u < 0.0 || v < 0.0 || u + v > 1.0 || t < 0.0) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return t;
+	}
+
+	@Test
+	public void testIntersectRay_Triangles() {
+		var random = new Random(0);
+		var tris = createRandomTriangles(2000, random);
+		var bvh = BVH.createFromTriangles(tris[0], tris[1], tris[2]);
+		assertTrue(bvh.isTriangles());
+		assertEquals(2000, bvh.size());
+
+		var hit = new RayHit();
+		int hitCount = 0;
+		for (int r = 0; r < 200; r++) {
+			var origin = new Vector(random.nextDouble() * 30.0 - 15.0,
+					random.nextDouble() * 30.0 - 15.0, 15.0);
+			var direction = createRandomDirection(random);
+
+			double expected = Double.POSITIVE_INFINITY;
+			int expectedIndex = RayHit.NO_HIT;
+			for (int i = 0; i < tris[0].size(); i++) {
+				double t = intersectTriangle(origin, direction, tris[0].get(i), tris[1].get(i),
+						tris[2].get(i));
+				if (t < expected) {
+					expected = t;
+					expectedIndex = i;
+				}
+			}
+
+			boolean found = bvh.intersectRay(origin, direction, Double.POSITIVE_INFINITY, hit);
+			assertEquals(expectedIndex != RayHit.NO_HIT, found);
+			assertEquals(found, bvh.intersectsRay(origin, direction, Double.POSITIVE_INFINITY));
+			if (found) {
+				hitCount++;
+				assertEquals(expectedIndex, hit.getPrimitive());
+				assertEquals(expected, hit.getDistance(), EPSILON);
+
+				var point = hit.getPoint(origin, direction);
+				var a = tris[0].get(expectedIndex);
+				var expectedPoint = a
+						.add(tris[1].get(expectedIndex).sub(a).scale(hit.getU()))
+						.add(tris[2].get(expectedIndex).sub(a).scale(hit.getV()));
+				assertArrayEquals(expectedPoint.toArray(), point.toArray(), EPSILON);
+
+				assertFalse(bvh.intersectsRay(origin, direction, expected * 0.999));
+			}
+		}
+
+		assertTrue(hitCount > 0);
+	}
+	@Test
+	public void testIntersectRay_Boxes() {
+		var random = new Random(1);
+		var boxes = createRandomBoxes(1000, random);
+		var bvh = BVH.createFromBoxes(boxes);
+		assertFalse(bvh.isTriangles());
+
+		var hit = new RayHit();
+		var origin = new Vector(-20.0, 0.3, 0.2);
+		var direction = new Vector(1.0, 0.0, 0.0);
+
+		double expected = Double.POSITIVE_INFINITY;
+		int expectedIndex = RayHit.NO_HIT;
+		for (int i = 0; i < boxes.length; i++) {
+			var box = boxes[i];
+			if (box.contains(box.getMinX(), 0.3, 0.2) && box.getMinX() + 20.0 < expected) {
+				expected = box.getMinX() + 20.0;
+				expectedIndex = i;
+			}
+		}
+
+		assertEquals(expectedIndex != RayHit.NO_HIT,
+				bvh.intersectRay(origin, direction, 100.0, hit));
+		assertEquals(expectedIndex, hit.getPrimitive());
+		if (hit.isHit()) {
+			assertEquals(expected, hit.getDistance(), EPSILON);
+		}
+	}
+	@Test
+	public void testIntersectRay_BoxFace() {
+		var bvh = BVH.createFromBoxes(new AABB[]{new AABB(1.0, 0.0, 0.0, 2.0, 1.0, 1.0),
+				new AABB(5.0, -1.0, -1.0, 6.0, 0.0, 0.0)});
+		var hit = new RayHit();
+
+		// Rays parallel to the faces, starting on their planes
+		assertTrue(bvh.intersectRay(new Vector(0.0, 0.0, 0.5), new Vector(1.0, 0.0, 0.0),
+				Double.POSITIVE_INFINITY, hit));
+		assertEquals(0, hit.getPrimitive());
+		assertEquals(1.0, hit.getDistance(), 0.0);
+
+		assertTrue(bvh.intersectRay(new Vector(0.0, 1.0, 1.0), new Vector(1.0, 0.0, 0.0),
+				Double.POSITIVE_INFINITY, hit));
+		assertEquals(0, hit.getPrimitive());
+
+		assertTrue(bvh.intersectRay(new Vector(3.0, 0.0, 0.0), new Vector(1.0, 0.0, 0.0),
+				Double.POSITIVE_INFINITY, hit));
+		assertEquals(1, hit.getPrimitive());
+		assertEquals(2.0, hit.getDistance(), 0.0);
+
+		assertTrue(bvh.intersectsRay(new Vector(1.5, 0.5, 0.0), new Vector(0.0, 0.0, -1.0),
+				Double.POSITIVE_INFINITY));
+		assertFalse(bvh.intersectsRay(new Vector(0.0, 1.0 + 1.0E-9, 0.5),
+				new Vector(1.0, 0.0, 0.0), Double.POSITIVE_INFINITY));
+	}
+	@Test
+	public void testOverlap() {
+		var random = new Random(2);
+		var boxes = createRandomBoxes(1000, random);
+		var bvh = BVH.createFromBoxes(boxes);
+
+		var dst = new int[boxes.length];
+		for (int q = 0; q < 50; q++) {
+			double x = random.nextDouble() * 20.0 - 10.0;
+			double y = random.nextDouble() * 20.0 - 10.0;
+			double z = random.nextDouble() * 20.0 - 10.0;
+			var query = new AABB(x, y, z, x + 3.0, y + 3.0, z + 3.0);
+
+			int count = bvh.overlap(query, dst);
+			int[] actual = Arrays.copyOf(dst, count);
+			Arrays.sort(actual);
+			int[] expected = IntStream.range(0, boxes.length)
+					.filter(i -> boxes[i].intersects(query)).toArray();
+			assertArrayEquals(expected, actual);
+
+			if (count > 1) {
+				assertEquals(count, bvh.overlap(query, new int[1]));
+			}
+		}
+	}
+	@Test
+	public void testRefit() {
+		var random = new Random(3);
+		var tris = createRandomTriangles(500, random);
+		var bvh = BVH.createFromTriangles(tris[0], tris[1], tris[2]);
+
+		var offset = new Vector(5.0, -3.0, 2.0);
+		for (var batch : tris) {
+			for (int i = 0; i < batch.size(); i++) {
+				batch.set(i, batch.get(i).add(offset));
+			}
+		}
+		bvh.refit();
+
+		var expected = new AABB();
+		for (var batch : tris) {
+			expected.unionInPlace(AABB.createFromPoints(batch));
+		}
+		assertEquals(expected.toString(), bvh.getBounds().toString());
+
+		var hit = new RayHit();
+		var origin = tris[0].get(7).add(tris[1].get(7)).add(tris[2].get(7)).scale(1.0 / 3.0)
+				.add(new Vector(0.0, 0.0, 100.0));
+		assertTrue(bvh.intersectRay(origin, new Vector(0.0, 0.0, -1.0), 200.0, hit));
+		assertTrue(hit.getDistance() <= 100.0);
+	}
+	@Test
+	public void testSetBox() {
+		var bvh = BVH.createFromBoxes(new AABB[]{new AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0),
+				new AABB(2.0, 0.0, 0.0, 3.0, 1.0, 1.0)});
+		bvh.setBox(1, new AABB(10.0, 0.0, 0.0, 11.0, 1.0, 1.0));
+		bvh.build();
+
+		var dst = new int[2];
+		assertEquals(1, bvh.overlap(new AABB(9.0, 0.0, 0.0, 12.0, 1.0, 1.0), dst));
+		assertEquals(1, dst[0]);
+	}
+	@Test
+	public void testCreateFromTriangles_Indexed() {
+		var vertices = new Vector[]{new Vector(0.0, 0.0, 0.0), new Vector(1.0, 0.0, 0.0),
+				new Vector(0.0, 1.0, 0.0), new Vector(1.0, 1.0, 0.0)};
+		var bvh = BVH.createFromTriangles(vertices, new int[]{0, 1, 2, 1, 3, 2});
+
+		var hit = new RayHit();
+		assertTrue(bvh.intersectRay(new Vector(0.8, 0.8, 1.0), new Vector(0.0, 0.0, -2.0), 10.0,
+				hit));
+		assertEquals(1, hit.getPrimitive());
+		assertEquals(0.5, hit.getDistance(), EPSILON);
+	}
+	@Test
+	public void testEmpty() {
+		var bvh = BVH.createFromBoxes(new AABB[0]);
+
+		assertEquals(0, bvh.getNodeCount());
+		assertTrue(bvh.getBounds().isEmpty());
+		assertFalse(bvh.intersectRay(new Vector(), new Vector(1.0, 0.0, 0.0), 10.0,
+				new RayHit()));
+		assertEquals(0, bvh.overlap(new AABB(-1.0, -1.0, -1.0, 1.0, 1.0, 1.0), new int[1]));
+	}
+	@Test
+	public void testBuild_Coincident() {
+		var boxes = new AABB[100];
+		Arrays.fill(boxes, new AABB(0.0, 0.0, 0.0, 1.0, 1.0, 1.0));
+		var bvh = BVH.createFromBoxes(boxes);
+
+		assertEquals(1, bvh.getNodeCount());
+		assertEquals(100, bvh.overlap(new AABB(0.5, 0.5, 0.5, 2.0, 2.0, 2.0), new int[100]));
+	}
+}
@@ -0,0 +1,121 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for BatchKernels<br>
+ * The kernels selected at class-load time must give exactly the same results
+ * as the scalar implementation.
+ * 
+ * @author Daba
+ *
+ */
+public class BatchKernelsTest {
+	private static final int SIZE = 37;
+
+	private static final BatchKernels SCALAR = new BatchKernels();
+
+	private static double[] createRandomArray(Random random) {
+		var ret = new double[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			ret[i] = random.nextDouble() * 10.0 - 5.0;
+		}
+
+		return ret;
+	}
+
+	@Test
+	public void testSelection() {
+		boolean vectorApiAvailable = ModuleLayer.boot().findModule("jdk.incubator.vector")
+				.isPresent();
+		if (vectorApiAvailable) {
+			assertEquals("SimdBatchKernels", BatchKernels.INSTANCE.getClass().getSimpleName());
+		} else {
+			assertEquals(BatchKernels.class, BatchKernels.INSTANCE.getClass());
+		}
+	}
+
+	@Test
+	public void testNormalize() {
+		var random = new Random(0);
+		double[] x = createRandomArray(random);
+		double[] y = createRandomArray(random);
+		double[] z = createRandomArray(random);
+
+		var expected = new double[3][SIZE];
+		var actual = new double[3][SIZE];
+		SCALAR.normalize(x, y, z, expected[0], expected[1], expected[2], 1, SIZE);
+		BatchKernels.INSTANCE.normalize(x, y, z, actual[0], actual[1], actual[2], 1, SIZE);
+
+		assertArrayEquals(expected, actual);
+	}
+	@Test
+	public void testDot() {
+		var random = new Random(1);
+		double[] ax = createRandomArray(random);
+		double[] ay = createRandomArray(random);
+		double[] az = createRandomArray(random);
+		double[] bx = createRandomArray(random);
+		double[] by = createRandomArray(random);
+		double[] bz = createRandomArray(random);
+
+		var expected = new double[SIZE];
+		var actual = new double[SIZE];
+		SCALAR.dot(ax, ay, az, bx, by, bz, expected, 3, SIZE);
+		BatchKernels.INSTANCE.dot(ax, ay, az, bx, by, bz, actual, 3, SIZE);
+
+		assertArrayEquals(expected, actual, 0.0);
+	}
+	@Test
+	public void testTransform() {
+		var random = new Random(2);
+		double[] m = Matrix.createRandomMatrix().m;
+		double[] x = createRandomArray(random);
+		double[] y = createRandomArray(random);
+		double[] z = createRandomArray(random);
+
+		var expected = new double[3][SIZE];
+		var actual = new double[3][SIZE];
+		SCALAR.transform(m, x, y, z, expected[0], expected[1], expected[2], 0, SIZE);
+		BatchKernels.INSTANCE.transform(m, x, y, z, actual[0], actual[1], actual[2], 0, SIZE);
+		assertArrayEquals(expected, actual);
+
+		SCALAR.transformSR(m, x, y, z, expected[0], expected[1], expected[2], 2, SIZE);
+		BatchKernels.INSTANCE.transformSR(m, x, y, z, actual[0], actual[1], actual[2], 2, SIZE);
+		assertArrayEquals(expected, actual);
+	}
+	@Test
+	public void testMult() {
+		var a = new Matrix[SIZE];
+		var b = new Matrix[SIZE];
+		var expected = new Matrix[SIZE];
+		var actual = new Matrix[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			a[i] = Matrix.createRandomMatrix();
+			b[i] = Matrix.createRandomMatrix();
+			expected[i] = new Matrix();
+			actual[i] = new Matrix();
+		}
+
+		SCALAR.mult(a, b, expected, 0, SIZE);
+		BatchKernels.INSTANCE.mult(a, b, actual, 0, SIZE);
+
+		for (int i = 0; i < SIZE; i++) {
+			assertArrayEquals(expected[i].m, actual[i].m, 0.0);
+		}
+	}
+	@Test
+	public void testMult_InPlace() {
+		var a = new Matrix[]{Matrix.createRandomMatrix()};
+		var b = new Matrix[]{Matrix.createRandomMatrix()};
+		var expected = a[0].mult(b[0]);
+
+		BatchKernels.INSTANCE.mult(a, b, b, 0, 1);
+
+		assertArrayEquals(expected.m, b[0].m, 0.0);
+	}
+}
@@ -0,0 +1,137 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.ejml.data.SingularMatrixException;
+import org.junit.Test;
+
+/**
+ * Test class for FloatMatrix4
+ * 
+ * @author Daba
+ *
+ */
+public class FloatMatrix4Test {
+	private static void assertMatrixEquals(Matrix expected, FloatMatrix4 actual, double delta) {
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), actual.get(i, j), delta);
+			}
+		}
+	}
+
+	@Test
+	public void testConversion() {
+		var mat = Matrix.createRandomMatrix();
+		var fmat = new FloatMatrix4(mat);
+
+		assertMatrixEquals(mat, fmat, 1.0E-7);
+		assertMatrixEquals(fmat.toMatrix(), fmat, 0.0);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testGet_OutOfBounds() {
+		new FloatMatrix4().get(4, 0);
+	}
+
+	@Test
+	public void testArithmetic() {
+		var a = Matrix.createRandomMatrix();
+		var b = Matrix.createRandomMatrix();
+		var fa = new FloatMatrix4(a);
+		var fb = new FloatMatrix4(b);
+
+		assertMatrixEquals(a.add(b), fa.add(fb), 1.0E-5);
+		assertMatrixEquals(a.sub(b), fa.sub(fb), 1.0E-5);
+		assertMatrixEquals(a.mult(b), fa.mult(fb), 1.0E-5);
+		assertMatrixEquals(a.transpose(), fa.transpose(), 1.0E-7);
+	}
+	@Test
+	public void testMultInPlace() {
+		var a = new FloatMatrix4(Matrix.createRandomMatrix());
+		var b = new FloatMatrix4(Matrix.createRandomMatrix());
+		var expected = a.mult(b);
+
+		assertSame(a, a.multInPlace(b));
+		assertArrayEquals(expected.toArray(), a.toArray(), 0.0f);
+	}
+
+	@Test
+	public void testInvert() {
+		var mat = Matrix.createPerspective(1.0, 1.5, 0.1, 100.0);
+		var fmat = new FloatMatrix4(mat);
+
+		assertMatrixEquals(Matrix.createIdentityMatrix(), fmat.mult(fmat.invert()), 1.0E-4);
+	}
+	@Test
+	public void testInvertRigid() {
+		var fmat = FloatMatrix4.createTranslationMatrix(1.0f, 2.0f, 3.0f)
+				.mult(FloatMatrix4.createRotationMatrix(0.0f, 0.6f, 0.8f, 0.7f));
+
+		assertTrue(fmat.isRigid());
+		assertMatrixEquals(Matrix.createIdentityMatrix(), fmat.mult(fmat.invertRigid()), 1.0E-5);
+	}
+	@Test(expected = SingularMatrixException.class)
+	public void testInvert_Singular() {
+		new FloatMatrix4(1.0f).invert();
+	}
+
+	@Test
+	public void testCreate() {
+		assertMatrixEquals(Matrix.createRotationXMatrix(0.4),
+				FloatMatrix4.createRotationXMatrix(0.4f), 1.0E-6);
+		assertMatrixEquals(Matrix.createRotationYMatrix(0.4),
+				FloatMatrix4.createRotationYMatrix(0.4f), 1.0E-6);
+		assertMatrixEquals(Matrix.createRotationZMatrix(0.4),
+				FloatMatrix4.createRotationZMatrix(0.4f), 1.0E-6);
+		assertMatrixEquals(Matrix.createScalingMatrix(2.0, 3.0, 4.0),
+				FloatMatrix4.createScalingMatrix(2.0f, 3.0f, 4.0f), 0.0);
+		assertMatrixEquals(Matrix.createPerspective(1.0, 1.5, 0.1, 100.0),
+				FloatMatrix4.createPerspective(1.0f, 1.5f, 0.1f, 100.0f), 1.0E-5);
+		assertMatrixEquals(Matrix.createOrthographic(-2.0, 2.0, -1.0, 1.0, 0.1, 10.0),
+				FloatMatrix4.createOrthographic(-2.0f, 2.0f, -1.0f, 1.0f, 0.1f, 10.0f), 1.0E-6);
+		assertMatrixEquals(
+				Matrix.createLookAt(new Vector(1.0, 2.0, 3.0), new Vector(0.0, 0.0, 0.0),
+						new Vector(0.0, 1.0, 0.0)),
+				FloatMatrix4.createLookAt(new FloatVector3(1.0f, 2.0f, 3.0f), new FloatVector3(),
+						new FloatVector3(0.0f, 1.0f, 0.0f)),
+				1.0E-5);
+	}
+
+	@Test
+	public void testToFloatBuffer() {
+		var mat = Matrix.createRandomMatrix();
+		var fmat = new FloatMatrix4(mat);
+		var buffer = FloatBuffer.allocate(16);
+		fmat.toFloatBuffer(buffer, 0, true);
+
+		assertArrayEquals(mat.toFloatArray(new float[16], 0, true), buffer.array(), 0.0f);
+		assertArrayEquals(mat.toFloatArray(new float[16], 0, false),
+				fmat.toFloatArray(new float[16], 0, false), 0.0f);
+	}
+	@Test
+	public void testToFloatBuffer_OutOfBounds() {
+		var buffer = FloatBuffer.allocate(16);
+		buffer.limit(15);
+
+		try {
+			new FloatMatrix4(Matrix.createRandomMatrix()).toFloatBuffer(buffer, 0, true);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new float[16], buffer.array(), 0.0f);
+		}
+	}
+	@Test
+	public void testToByteBuffer_OutOfBounds() {
+		var buffer = ByteBuffer.allocate(16 * Float.BYTES);
+
+		try {
+			new FloatMatrix4(Matrix.createRandomMatrix()).toByteBuffer(buffer, 1, false);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new byte[16 * Float.BYTES], buffer.array());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import org.junit.Test;
+
+/**
+ * Test class for FloatVector3
+ * 
+ * @author Daba
+ *
+ */
+public class FloatVector3Test {
+	private static void assertVectorEquals(Vector expected, FloatVector3 actual, double delta) {
+		assertEquals(expected.getX(), actual.getX(), delta);
+		assertEquals(expected.getY(), actual.getY(), delta);
+		assertEquals(expected.getZ(), actual.getZ(), delta);
+	}
+
+	@Test
+	public void testConversion() {
+		var vec = new Vector(1.0, 2.5, -3.0);
+		var fvec = new FloatVector3(vec);
+
+		assertVectorEquals(vec, fvec, 0.0);
+		assertArrayEquals(vec.toArray(), fvec.toVector().toArray(), 0.0);
+	}
+
+	@Test
+	public void testAngles() {
+		var vec = new Vector(0.4, -1.1);
+		var fvec = new FloatVector3(0.4f, -1.1f);
+
+		assertVectorEquals(vec, fvec, 1.0E-6);
+		assertEquals(1.0f, fvec.getSize(), 1.0E-6f);
+	}
+	@Test
+	public void testToFloatBuffer_OutOfBounds() {
+		var buffer = FloatBuffer.allocate(3);
+
+		try {
+			new FloatVector3(1.0f, 2.0f, 3.0f).toFloatBuffer(buffer, 1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new float[3], buffer.array(), 0.0f);
+		}
+	}
+	@Test
+	public void testToByteBuffer_OutOfBounds() {
+		var buffer = ByteBuffer.allocate(3 * Float.BYTES - 1);
+
+		try {
+			new FloatVector3(1.0f, 2.0f, 3.0f).toByteBuffer(buffer, 0);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new byte[3 * Float.BYTES - 1], buffer.array());
+		}
+	}
+
+	@Test
+	public void testArithmetic() {
+		var a = new Vector(1.0, 2.0, 3.0);
+		var b = new Vector(-4.0, 0.5, 2.0);
+		var fa = new FloatVector3(a);
+		var fb = new FloatVector3(b);
+
+		assertVectorEquals(a.add(b), fa.add(fb), 1.0E-5);
+		assertVectorEquals(a.sub(b), fa.sub(fb), 1.0E-6);
+		assertVectorEquals(a.scale(1.5), fa.scale(1.5f), 1.0E-6);
+		assertVectorEquals(a.cross(b), fa.cross(fb), 1.0E-6);
+		assertVectorEquals(a.normalize(), fa.normalize(), 1.0E-6);
+		assertEquals(a.dot(b), fa.dot(fb), 1.0E-6);
+		assertEquals(a.getSize(), fa.getSize(), 1.0E-6);
+		assertEquals(a.getAngleV(), fa.getAngleV(), 1.0E-5);
+		assertEquals(a.getAngleH(), fa.getAngleH(), 1.0E-5);
+	}
+	@Test
+	public void testInPlace() {
+		var fa = new FloatVector3(1.0f, 2.0f, 3.0f);
+		var fb = new FloatVector3(4.0f, 5.0f, 6.0f);
+
+		assertSame(fa, fa.crossInPlace(fb));
+		assertEquals(-3.0f, fa.getX(), 0.0f);
+		assertEquals(6.0f, fa.getY(), 0.0f);
+		assertEquals(-3.0f, fa.getZ(), 0.0f);
+	}
+
+	@Test
+	public void testTransform() {
+		var mat = Matrix.createTranslationMatrix(1.0, 2.0, 3.0)
+				.mult(Matrix.createRotationMatrix(0.0, 0.6, 0.8, 0.7));
+		var fmat = new FloatMatrix4(mat);
+		var vec = new Vector(2.0, -1.0, 0.5);
+		var fvec = new FloatVector3(vec);
+
+		assertVectorEquals(vec.transform(mat), fvec.transform(fmat), 1.0E-5);
+		assertVectorEquals(vec.transformSR(mat), fvec.transformSR(fmat), 1.0E-5);
+	}
+	@Test
+	public void testProject() {
+		var proj = Matrix.createPerspective(Math.PI / 3.0, 1.5, 0.1, 100.0);
+		var vec = new Vector(1.0, -2.0, -10.0);
+		var fvec = new FloatVector3(vec);
+
+		assertVectorEquals(vec.project(proj), fvec.project(new FloatMatrix4(proj)), 1.0E-5);
+	}
+	@Test
+	public void testRot() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var fvec = new FloatVector3(vec);
+
+		assertVectorEquals(vec.rotX(0.3), fvec.rotX(0.3f), 1.0E-5);
+		assertVectorEquals(vec.rotY(0.3), fvec.rotY(0.3f), 1.0E-5);
+		assertVectorEquals(vec.rotZ(0.3), fvec.rotZ(0.3f), 1.0E-5);
+		assertVectorEquals(vec.rot(0.0, 0.6, 0.8, 0.3), fvec.rot(0.0f, 0.6f, 0.8f, 0.3f),
+				1.0E-5);
+	}
+}
@@ -0,0 +1,180 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Test class for Frustum
+ * 
+ * @author Daba
+ *
+ */
+public class FrustumTest {
+	private static final double EPSILON = 1.0E-10;
+
+	private static Matrix createViewProjection() {
+		var projection = Matrix.createPerspective(Math.toRadians(60.0), 1.5, 1.0, 100.0);
+		var view = Matrix.createLookAt(new Vector(1.0, 2.0, 3.0), new Vector(0.0, 0.0, -10.0),
+				new Vector(0.0, 1.0, 0.0));
+
+		return projection.mult(view);
+	}
+	private static boolean isInsideClipVolume(Matrix viewProjection, Vector point) {
+		double[] m = viewProjection.toArray();
+		double x = point.getX(), y = point.getY(), z = point.getZ();
+		double cx = m[0] * x + m[1] * y + m[2] * z + m[3];
+		double cy = m[4] * x + m[5] * y + m[6] * z + m[7];
+		double cz = m[8] * x + m[9] * y + m[10] * z + m[11];
+		double cw = m[12] * x + m[13] * y + m[14] * z + m[15];
+
+		return Math.abs(cx) <= cw && Math.abs(cy) <= cw && Math.abs(cz) <= cw;
+	}
+
+	@Test
+	public void testSet() {
+		var frustum = new Frustum(Matrix.createOrthographic(-1.0, 2.0, -3.0, 4.0, 5.0, 6.0));
+
+		assertArrayEquals(new double[]{1.0, 0.0, 0.0, 1.0}, frustum.getPlane(Frustum.LEFT),
+				EPSILON);
+		assertArrayEquals(new double[]{-1.0, 0.0, 0.0, 2.0}, frustum.getPlane(Frustum.RIGHT),
+				EPSILON);
+		assertArrayEquals(new double[]{0.0, 1.0, 0.0, 3.0}, frustum.getPlane(Frustum.BOTTOM),
+				EPSILON);
+		assertArrayEquals(new double[]{0.0, -1.0, 0.0, 4.0}, frustum.getPlane(Frustum.TOP),
+				EPSILON);
+		assertArrayEquals(new double[]{0.0, 0.0, -1.0, -5.0}, frustum.getPlane(Frustum.NEAR),
+				EPSILON);
+		assertArrayEquals(new double[]{0.0, 0.0, 1.0, 6.0}, frustum.getPlane(Frustum.FAR),
+				EPSILON);
+	}
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetPlane_InvalidIndex() {
+		new Frustum(Matrix.createIdentityMatrix()).getPlane(6);
+	}
+	@Test
+	public void testContains() {
+		var viewProjection = createViewProjection();
+		var frustum = new Frustum(viewProjection);
+		var random = new Random(0);
+
+		int inside = 0;
+		for (int i = 0; i < 1000; i++) {
+			var point = new Vector(random.nextDouble() * 80.0 - 40.0,
+					random.nextDouble() * 80.0 - 40.0, random.nextDouble() * -100.0);
+			boolean expected = isInsideClipVolume(viewProjection, point);
+			assertEquals(expected, frustum.contains(point));
+			if (expected) {
+				inside++;
+			}
+		}
+
+		assertTrue(inside > 0);
+	}
+	@Test
+	public void testIntersectsSphere() {
+		var frustum = new Frustum(Matrix.createOrthographic(-1.0, 1.0, -1.0, 1.0, 1.0, 10.0));
+
+		assertTrue(frustum.intersectsSphere(new Vector(0.0, 0.0, -5.0), 0.1));
+		assertTrue(frustum.intersectsSphere(new Vector(1.5, 0.0, -5.0), 0.6));
+		assertFalse(frustum.intersectsSphere(new Vector(1.5, 0.0, -5.0), 0.4));
+		assertFalse(frustum.intersectsSphere(new Vector(0.0, 0.0, 1.0), 1.5));
+		assertTrue(frustum.intersectsSphere(new Vector(0.0, 0.0, 1.0), 2.5));
+	}
+	@Test
+	public void testIntersectsAABB() {
+		var frustum = new Frustum(Matrix.createOrthographic(-1.0, 1.0, -1.0, 1.0, 1.0, 10.0));
+
+		assertTrue(frustum.intersectsAABB(new AABB(-0.5, -0.5, -5.0, 0.5, 0.5, -4.0)));
+		assertTrue(frustum.intersectsAABB(new AABB(0.5, 0.5, -20.0, 3.0, 3.0, 0.0)));
+		assertFalse(frustum.intersectsAABB(new AABB(1.5, -0.5, -5.0, 2.0, 0.5, -4.0)));
+		assertFalse(frustum.intersectsAABB(new AABB(-0.5, -0.5, -20.0, 0.5, 0.5, -11.0)));
+	}
+	@Test
+	public void testCullSpheres() {
+		var frustum = new Frustum(createViewProjection());
+		var random = new Random(1);
+		int size = 1000;
+		var centers = new VectorBatch(size);
+		var radii = new double[size];
+		for (int i = 0; i < size; i++) {
+			centers.set(i, random.nextDouble() * 80.0 - 40.0, random.nextDouble() * 80.0 - 40.0,
+					random.nextDouble() * -100.0);
+			radii[i] = random.nextDouble() * 5.0;
+		}
+
+		var expected = IntStream.range(0, size)
+				.filter(i -> frustum.intersectsSphere(centers.get(i), radii[i])).toArray();
+		assertTrue(expected.length > 0 && expected.length < size);
+
+		var bits = new long[16];
+		Arrays.fill(bits, -1L);
+		frustum.cullSpheres(centers, radii, bits);
+		assertArrayEquals(expected, toIndices(bits));
+
+		var config = new ParallelConfig(null, 100, 100);
+		var pBits = new long[16];
+		frustum.cullSpheres(centers, radii, pBits, config);
+		assertArrayEquals(bits, pBits);
+
+		var indices = new int[size];
+		int count = frustum.cullSpheres(centers, radii, indices);
+		assertArrayEquals(expected, Arrays.copyOf(indices, count));
+		assertEquals(count, frustum.cullSpheres(centers, radii, indices, config));
+		assertArrayEquals(expected, Arrays.copyOf(indices, count));
+		assertEquals(count, frustum.cullSpheres(centers, radii, new int[1]));
+	}
+	@Test
+	public void testCullAABBs() {
+		var frustum = new Frustum(createViewProjection());
+		var random = new Random(2);
+		int size = 1000;
+		var boxes = new AABBBatch(size);
+		for (int i = 0; i < size - 1; i++) {
+			double x = random.nextDouble() * 80.0 - 40.0;
+			double y = random.nextDouble() * 80.0 - 40.0;
+			double z = random.nextDouble() * -100.0;
+			boxes.set(i, x, y, z, x + random.nextDouble() * 5.0, y + random.nextDouble() * 5.0,
+					z + random.nextDouble() * 5.0);
+		}
+		boxes.setEmpty(size - 1);
+
+		var expected = IntStream.range(0, size - 1)
+				.filter(i -> frustum.intersectsAABB(boxes.get(i))).toArray();
+		assertTrue(expected.length > 0 && expected.length < size);
+
+		var bits = new long[16];
+		frustum.cullAABBs(boxes, bits);
+		assertArrayEquals(expected, toIndices(bits));
+
+		var config = new ParallelConfig(null, 100, 100);
+		var pBits = new long[16];
+		frustum.cullAABBs(boxes, pBits, config);
+		assertArrayEquals(bits, pBits);
+
+		var indices = new int[size];
+		int count = frustum.cullAABBs(boxes, indices);
+		assertArrayEquals(expected, Arrays.copyOf(indices, count));
+		assertEquals(count, frustum.cullAABBs(boxes, indices, config));
+		assertArrayEquals(expected, Arrays.copyOf(indices, count));
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testCullSpheres_InvalidBitset() {
+		var frustum = new Frustum(createViewProjection());
+		frustum.cullSpheres(new VectorBatch(65), new double[65], new long[1]);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testCullSpheres_InvalidRadii() {
+		var frustum = new Frustum(createViewProjection());
+		frustum.cullSpheres(new VectorBatch(3), new double[2], new int[3]);
+	}
+
+	private static int[] toIndices(long[] bits) {
+		return IntStream.range(0, bits.length * 64)
+				.filter(i -> (bits[i >>> 6] & 1L << (i & 63)) != 0L).toArray();
+	}
+}
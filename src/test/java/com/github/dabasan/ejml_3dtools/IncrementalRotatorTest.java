@@ -0,0 +1,48 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test class for IncrementalRotator
+ * 
+ * @author Daba
+ *
+ */
+public class IncrementalRotatorTest {
+	@Test
+	public void testStep() {
+		var rotator = new IncrementalRotator(0.0, 1.0, 0.0, 0.001);
+		for (int i = 0; i < 100000; i++) {
+			rotator.step();
+		}
+
+		assertEquals(Math.cos(100.0), rotator.getCos(), 1.0E-9);
+		assertEquals(Math.sin(100.0), rotator.getSin(), 1.0E-9);
+		assertEquals(1.0, rotator.getCos() * rotator.getCos() + rotator.getSin() * rotator.getSin(),
+				1.0E-12);
+	}
+	@Test
+	public void testRotate() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var rotator = new IncrementalRotator(0.48, 0.6, 0.64, 0.1);
+		for (int i = 0; i < 7; i++) {
+			rotator.step();
+		}
+
+		var expected = vec.rot(0.48, 0.6, 0.64, 0.7);
+
+		assertArrayEquals(expected.toArray(), rotator.rotate(vec).toArray(), 1.0E-9);
+		assertArrayEquals(Matrix.createRotationMatrix(0.48, 0.6, 0.64, 0.7).toArray(),
+				rotator.toMatrix().toArray(), 1.0E-9);
+	}
+	@Test
+	public void testReset() {
+		var rotator = new IncrementalRotator(0.0, 0.0, 1.0, 0.5);
+		rotator.step();
+		rotator.reset();
+
+		assertEquals(0.0, rotator.getAngle(), 0.0);
+	}
+}
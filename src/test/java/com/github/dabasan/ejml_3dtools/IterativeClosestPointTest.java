@@ -0,0 +1,169 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for IterativeClosestPoint
+ * 
+ * @author Daba
+ *
+ */
+public class IterativeClosestPointTest {
+	private static VectorBatch createSurface(int resolution, Random random) {
+		var ret = new VectorBatch(resolution * resolution);
+		for (int i = 0; i < resolution; i++) {
+			for (int j = 0; j < resolution; j++) {
+				double x = (i + random.nextDouble() * 0.5) * 6.0 / resolution - 3.0;
+				double y = (j + random.nextDouble() * 0.5) * 6.0 / resolution - 3.0;
+				ret.set(i * resolution + j, x, y, Math.sin(x) * Math.cos(y) + 0.2 * x * y);
+			}
+		}
+
+		return ret;
+	}
+	private static Matrix createTransformation() {
+		return Matrix.createTranslationMatrix(0.15, -0.1, 0.05)
+				.mult(Matrix.createRotationMatrix(0.48, 0.6, 0.64, 0.08));
+	}
+
+	@Test
+	public void testRegister_PointToPoint() {
+		var random = new Random(0);
+		var target = createSurface(60, random);
+		var expected = createTransformation();
+		var source = target.transform(expected.invert());
+
+		var icp = new IterativeClosestPoint(target);
+		icp.setMaxIterations(200);
+		var result = icp.register(source);
+
+		assertTrue(result.isConverged());
+		assertEquals(target.size(), result.getCorrespondenceCount());
+		assertTrue(result.getRMSError() < 1.0E-3);
+		assertArrayEquals(expected.toArray(), result.getMatrix().toArray(), 1.0E-3);
+	}
+	@Test
+	public void testRegister_PointToPlane() {
+		var random = new Random(1);
+		var target = createSurface(60, random);
+		var expected = createTransformation();
+		// Points sampled independently of the target, so that no point has
+		// an exact counterpart.
+		var source = createSurface(50, random).transformInPlace(expected.invert());
+
+		var icp = new IterativeClosestPoint(target);
+		icp.setMethod(IterativeClosestPoint.Method.POINT_TO_PLANE);
+		var result = icp.register(source);
+
+		assertTrue(result.isConverged());
+		assertTrue(result.getIterations() < 30);
+		assertTrue(result.getMatrix().isRigid());
+		assertArrayEquals(expected.toArray(), result.getMatrix().toArray(), 0.01);
+	}
+	@Test
+	public void testRegister_Outliers() {
+		var random = new Random(2);
+		var target = createSurface(60, random);
+		var expected = createTransformation();
+		var source = new VectorBatch(target.size());
+		target.transform(expected.invert(), source);
+		for (int i = 0; i < source.size(); i += 10) {
+			source.set(i, random.nextDouble() * 6.0 - 3.0, random.nextDouble() * 6.0 - 3.0,
+					random.nextDouble() * 4.0 + 3.0);
+		}
+
+		var icp = new IterativeClosestPoint(target);
+		icp.setMaxIterations(200);
+		icp.setSampleStep(3);
+		icp.setTrimRatio(0.8);
+		icp.setMaxCorrespondenceDistance(1.0);
+		var result = icp.register(source);
+
+		assertTrue(result.getCorrespondenceCount() <= Math.ceil(source.size() / 3 * 0.8) + 1);
+		assertArrayEquals(expected.toArray(), result.getMatrix().toArray(), 1.0E-3);
+	}
+	@Test
+	public void testRegister_InitialEstimate() {
+		var random = new Random(3);
+		var target = createSurface(40, random);
+		var expected = createTransformation();
+		var source = target.transform(expected.invert());
+
+		var icp = new IterativeClosestPoint(target);
+		icp.setMaxIterations(1);
+		var result = icp.register(source, expected);
+
+		assertEquals(1, result.getIterations());
+		assertEquals(0.0, result.getRMSError(), 1.0E-12);
+		assertArrayEquals(expected.toArray(), result.getMatrix().toArray(), 1.0E-12);
+	}
+	@Test
+	public void testRegister_NoCorrespondences() {
+		var target = createSurface(10, new Random(4));
+		var source = target.transform(Matrix.createTranslationMatrix(0.0, 0.0, 10.0));
+
+		var icp = new IterativeClosestPoint(target);
+		icp.setMaxCorrespondenceDistance(1.0);
+		var result = icp.register(source);
+
+		assertEquals(0, result.getIterations());
+		assertFalse(result.isConverged());
+		assertTrue(Double.isNaN(result.getRMSError()));
+		assertArrayEquals(Matrix.createIdentityMatrix().toArray(),
+				result.getMatrix().toArray(), 0.0);
+	}
+	@Test
+	public void testRegister_Parallel() {
+		var random = new Random(5);
+		var target = createSurface(100, random);
+		var expected = createTransformation();
+		var source = createSurface(80, random).transformInPlace(expected.invert());
+
+		var serial = new IterativeClosestPoint(target);
+		serial.setMethod(IterativeClosestPoint.Method.POINT_TO_PLANE);
+		var parallel = new IterativeClosestPoint(target);
+		parallel.setMethod(IterativeClosestPoint.Method.POINT_TO_PLANE);
+		parallel.setParallelConfig(new ParallelConfig(null, 100, 64));
+
+		var a = serial.register(source);
+		var b = parallel.register(source);
+		assertEquals(a.getIterations(), b.getIterations());
+		assertArrayEquals(a.getMatrix().toArray(), b.getMatrix().toArray(), 1.0E-9);
+	}
+	@Test
+	public void testGetTargetNormals() {
+		var random = new Random(6);
+		var target = new VectorBatch(500);
+		for (int i = 0; i < target.size(); i++) {
+			double x = random.nextDouble(), y = random.nextDouble();
+			target.set(i, x, y, 0.5 * x + 0.25 * y);
+		}
+		var expected = new Vector(-0.5, -0.25, 1.0).normalize();
+
+		var normals = new IterativeClosestPoint(target).getTargetNormals();
+		for (int i = 0; i < normals.size(); i++) {
+			assertEquals(1.0, Math.abs(normals.get(i).dot(expected)), 1.0E-9);
+		}
+	}
+	@Test
+	public void testGetSmallestEigenvector_Degenerate() {
+		var dst = new double[3];
+
+		// Points on the X axis
+		IterativeClosestPoint.getSmallestEigenvector(new double[]{2.0, 0.0, 0.0, 0.0, 0.0, 0.0},
+				dst);
+		assertEquals(0.0, dst[0], 1.0E-12);
+		assertEquals(1.0, dst[0] * dst[0] + dst[1] * dst[1] + dst[2] * dst[2], 1.0E-12);
+
+		IterativeClosestPoint.getSmallestEigenvector(new double[6], dst);
+		assertArrayEquals(new double[]{0.0, 0.0, 1.0}, dst, 0.0);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetTrimRatio_Invalid() {
+		new IterativeClosestPoint(new Vector[]{new Vector()}).setTrimRatio(0.0);
+	}
+}
@@ -0,0 +1,176 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Test class for KDTree
+ * 
+ * @author Daba
+ *
+ */
+public class KDTreeTest {
+	private static VectorBatch createRandomPoints(int size, Random random) {
+		var ret = new VectorBatch(size);
+		for (int i = 0; i < size; i++) {
+			ret.set(i, random.nextDouble() * 10.0 - 5.0, random.nextDouble() * 10.0 - 5.0,
+					random.nextDouble() * 10.0 - 5.0);
+		}
+
+		return ret;
+	}
+	private static double getSquaredDistance(VectorBatch points, int i, Vector point) {
+		return points.get(i).sub(point).getSquareSize();
+	}
+	private static int[] findNearestBruteForce(VectorBatch points, Vector point, int k) {
+		return IntStream.range(0, points.size()).boxed()
+				.sorted(Comparator.comparingDouble(i -> getSquaredDistance(points, i, point)))
+				.limit(k).mapToInt(Integer::intValue).toArray();
+	}
+
+	@Test
+	public void testFindNearest() {
+		var random = new Random(0);
+		var points = createRandomPoints(1000, random);
+		var tree = new KDTree(points);
+		assertEquals(1000, tree.size());
+
+		var indices = new int[8];
+		var distances = new double[8];
+		for (int q = 0; q < 100; q++) {
+			var query = new Vector(random.nextDouble() * 12.0 - 6.0,
+					random.nextDouble() * 12.0 - 6.0, random.nextDouble() * 12.0 - 6.0);
+
+			assertEquals(8, tree.findNearest(query, 8, indices, distances));
+			assertArrayEquals(findNearestBruteForce(points, query, 8), indices);
+			for (int j = 0; j < 8; j++) {
+				assertEquals(getSquaredDistance(points, indices[j], query), distances[j], 1.0E-12);
+			}
+		}
+	}
+	@Test
+	public void testFindNearest_FewerPoints() {
+		var tree = new KDTree(new Vector[]{new Vector(1.0, 0.0, 0.0), new Vector(3.0, 0.0, 0.0)});
+
+		var indices = new int[5];
+		var distances = new double[5];
+		assertEquals(2, tree.findNearest(new Vector(), 5, indices, distances));
+		assertArrayEquals(new int[]{0, 1}, Arrays.copyOf(indices, 2));
+		assertArrayEquals(new double[]{1.0, 9.0}, Arrays.copyOf(distances, 2), 0.0);
+
+		assertEquals(0, new KDTree(new Vector[0]).findNearest(new Vector(), 1, indices,
+				distances));
+	}
+	@Test
+	public void testFindNearest_Duplicates() {
+		var points = new Vector[100];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = new Vector(i % 3, 0.0, 0.0);
+		}
+		var tree = new KDTree(points);
+
+		var indices = new int[34];
+		var distances = new double[34];
+		assertEquals(34, tree.findNearest(new Vector(2.0, 0.0, 0.0), 34, indices, distances));
+		for (int j = 0; j < 33; j++) {
+			assertEquals(0.0, distances[j], 0.0);
+			assertEquals(2, indices[j] % 3);
+		}
+		assertEquals(1.0, distances[33], 0.0);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testFindNearest_InvalidBuffer() {
+		var tree = new KDTree(new Vector[]{new Vector()});
+		tree.findNearest(0.0, 0.0, 0.0, 3, new int[3], new double[2]);
+	}
+	@Test
+	public void testFindNearest_Batch() {
+		var random = new Random(1);
+		var points = createRandomPoints(5000, random);
+		var queries = createRandomPoints(2000, random);
+		var config = new ParallelConfig(null, 100, 64);
+		var tree = new KDTree(points, config);
+
+		int k = 4;
+		var indices = new int[queries.size() * k];
+		var distances = new double[queries.size() * k];
+		tree.findNearest(queries, k, indices, distances);
+
+		var pIndices = new int[queries.size() * k];
+		var pDistances = new double[queries.size() * k];
+		tree.findNearest(queries, k, pIndices, pDistances, config);
+		assertArrayEquals(indices, pIndices);
+		assertArrayEquals(distances, pDistances, 0.0);
+
+		var row = new int[k];
+		for (int q = 0; q < 50; q++) {
+			System.arraycopy(indices, q * k, row, 0, k);
+			assertArrayEquals(findNearestBruteForce(points, queries.get(q), k), row);
+		}
+	}
+	@Test
+	public void testFindNearest_Batch_FewerPoints() {
+		var tree = new KDTree(new double[]{0.0}, new double[]{0.0}, new double[]{0.0});
+		var queries = new VectorBatch(2);
+
+		var indices = new int[4];
+		var distances = new double[4];
+		tree.findNearest(queries, 2, indices, distances);
+		assertArrayEquals(new int[]{0, -1, 0, -1}, indices);
+		assertEquals(Double.POSITIVE_INFINITY, distances[3], 0.0);
+	}
+	@Test
+	public void testFindWithinRadius() {
+		var random = new Random(2);
+		var points = createRandomPoints(2000, random);
+		var tree = new KDTree(points);
+
+		var indices = new int[points.size()];
+		var distances = new double[points.size()];
+		for (int q = 0; q < 50; q++) {
+			var query = new Vector(random.nextDouble() * 10.0 - 5.0,
+					random.nextDouble() * 10.0 - 5.0, random.nextDouble() * 10.0 - 5.0);
+			double radius = random.nextDouble() * 2.0;
+
+			int count = tree.findWithinRadius(query, radius, indices, distances);
+			int[] actual = Arrays.copyOf(indices, count);
+			Arrays.sort(actual);
+			int[] expected = IntStream.range(0, points.size())
+					.filter(i -> getSquaredDistance(points, i, query) <= radius * radius)
+					.toArray();
+			assertArrayEquals(expected, actual);
+
+			for (int j = 0; j < count; j++) {
+				assertEquals(getSquaredDistance(points, indices[j], query), distances[j], 1.0E-12);
+			}
+			if (count > 1) {
+				assertEquals(count, tree.findWithinRadius(query, radius, new int[1], null));
+			}
+		}
+	}
+	@Test
+	public void testBuild_Parallel() {
+		var random = new Random(3);
+		var points = createRandomPoints(10000, random);
+		var serial = new KDTree(points);
+		var parallel = new KDTree(points, new ParallelConfig(null, 100, 64));
+
+		var a = new int[3];
+		var b = new int[3];
+		var da = new double[3];
+		var db = new double[3];
+		for (int q = 0; q < 100; q++) {
+			var query = points.get(q * 7);
+			serial.findNearest(query, 3, a, da);
+			parallel.findNearest(query, 3, b, db);
+			assertArrayEquals(a, b);
+			assertEquals(q * 7, a[0]);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for LooseOctree
+ * 
+ * @author Daba
+ *
+ */
+public class LooseOctreeTest {
+	private static Vector createRandomPoint(Random random, double extent) {
+		return new Vector((random.nextDouble() - 0.5) * extent,
+				(random.nextDouble() - 0.5) * extent, (random.nextDouble() - 0.5) * extent);
+	}
+	private static int[] findInSphere(LooseOctree tree, Vector center, double radius) {
+		var dst = new int[tree.size()];
+		int count = tree.findInSphere(center, radius, dst);
+		var ret = Arrays.copyOf(dst, count);
+		Arrays.sort(ret);
+
+		return ret;
+	}
+	private static int[] findInSphereBruteForce(Map<Integer, double[]> items, Vector center,
+			double radius) {
+		return items.entrySet().stream().filter(e -> {
+			double[] v = e.getValue();
+			double r = radius + v[3];
+			return new Vector(v[0], v[1], v[2]).sub(center).getSquareSize() <= r * r;
+		}).mapToInt(Map.Entry::getKey).sorted().toArray();
+	}
+
+	@Test
+	public void testInsertRemoveMove() {
+		var random = new Random(0);
+		var tree = new LooseOctree(new Vector(), 32.0, 6);
+		var items = new HashMap<Integer, double[]>();
+
+		for (int step = 0; step < 5000; step++) {
+			int op = random.nextInt(3);
+			if (op == 0 || items.isEmpty()) {
+				var p = createRandomPoint(random, 70.0);
+				double radius = random.nextBoolean() ? 0.0 : random.nextDouble() * 4.0;
+				int item = tree.insert(p, radius);
+				assertFalse(items.containsKey(item));
+				items.put(item, new double[]{p.getX(), p.getY(), p.getZ(), radius});
+			} else {
+				int item = items.keySet().stream().skip(random.nextInt(items.size())).findFirst()
+						.get();
+				if (op == 1) {
+					tree.remove(item);
+					items.remove(item);
+					assertFalse(tree.contains(item));
+				} else {
+					var p = createRandomPoint(random, 70.0);
+					double radius = random.nextDouble() * 2.0;
+					tree.move(item, p, radius);
+					items.put(item, new double[]{p.getX(), p.getY(), p.getZ(), radius});
+				}
+			}
+
+			if (step % 250 == 0) {
+				var center = createRandomPoint(random, 60.0);
+				double radius = random.nextDouble() * 10.0;
+				assertArrayEquals(findInSphereBruteForce(items, center, radius),
+						findInSphere(tree, center, radius));
+			}
+		}
+
+		assertEquals(items.size(), tree.size());
+		for (var e : items.entrySet()) {
+			double[] v = e.getValue();
+			assertArrayEquals(new double[]{v[0], v[1], v[2]},
+					tree.getPosition(e.getKey()).toArray(), 0.0);
+			assertEquals(v[3], tree.getRadius(e.getKey()), 0.0);
+		}
+	}
+	@Test
+	public void testRemove_ReturnsNodes() {
+		var tree = new LooseOctree(new Vector(), 16.0, 5);
+		assertEquals(1, tree.getNodeCount());
+
+		var random = new Random(1);
+		var items = new int[200];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = tree.insert(createRandomPoint(random, 30.0));
+		}
+		int nodeCount = tree.getNodeCount();
+		assertTrue(nodeCount > 1);
+
+		for (int item : items) {
+			tree.remove(item);
+		}
+		assertEquals(0, tree.size());
+		assertEquals(1, tree.getNodeCount());
+
+		// Reinserting the same points reuses the pooled nodes and handles.
+		random = new Random(1);
+		for (int i = 0; i < items.length; i++) {
+			int item = tree.insert(createRandomPoint(random, 30.0));
+			assertTrue(item < items.length);
+		}
+		assertEquals(nodeCount, tree.getNodeCount());
+	}
+	@Test
+	public void testMove_SameNode() {
+		var tree = new LooseOctree(new Vector(), 8.0, 3);
+		int item = tree.insert(new Vector(1.1, 1.1, 1.1));
+		int nodeCount = tree.getNodeCount();
+
+		tree.move(item, new Vector(1.2, 1.3, 1.4));
+		assertEquals(nodeCount, tree.getNodeCount());
+		assertArrayEquals(new int[]{item}, findInSphere(tree, new Vector(1.2, 1.3, 1.4), 0.0));
+		assertArrayEquals(new int[0], findInSphere(tree, new Vector(1.1, 1.1, 1.1), 0.05));
+	}
+	@Test
+	public void testOutsideRoot() {
+		var tree = new LooseOctree(new Vector(), 1.0, 4);
+		int item = tree.insert(new Vector(100.0, 0.0, 0.0), 2.0);
+
+		assertArrayEquals(new int[]{item}, findInSphere(tree, new Vector(97.0, 0.0, 0.0), 1.5));
+		tree.move(item, new Vector(0.5, 0.5, 0.5), 0.0);
+		assertArrayEquals(new int[]{item}, findInSphere(tree, new Vector(), 1.0));
+	}
+	@Test
+	public void testFindInFrustum() {
+		var random = new Random(2);
+		var tree = new LooseOctree(new Vector(), 64.0, 6);
+		var items = new HashMap<Integer, double[]>();
+		for (int i = 0; i < 2000; i++) {
+			var p = createRandomPoint(random, 120.0);
+			double radius = random.nextDouble();
+			items.put(tree.insert(p, radius), new double[]{p.getX(), p.getY(), p.getZ(), radius});
+		}
+
+		var frustum = new Frustum(Matrix.createPerspective(Math.toRadians(60.0), 1.0, 1.0, 50.0)
+				.mult(Matrix.createLookAt(new Vector(0.0, 0.0, 10.0), new Vector(),
+						new Vector(0.0, 1.0, 0.0))));
+		var dst = new int[items.size()];
+		int count = tree.findInFrustum(frustum, dst);
+		var actual = Arrays.copyOf(dst, count);
+		Arrays.sort(actual);
+
+		var expected = items.entrySet().stream().filter(e -> {
+			double[] v = e.getValue();
+			return frustum.intersectsSphere(v[0], v[1], v[2], v[3]);
+		}).mapToInt(Map.Entry::getKey).sorted().toArray();
+		assertTrue(expected.length > 0);
+		assertArrayEquals(expected, actual);
+	}
+	@Test
+	public void testClear() {
+		var tree = new LooseOctree(new Vector(), 4.0, 3);
+		int item = tree.insert(new Vector(1.0, 1.0, 1.0));
+		tree.clear();
+
+		assertEquals(0, tree.size());
+		assertEquals(1, tree.getNodeCount());
+		assertFalse(tree.contains(item));
+		assertEquals(0, tree.insert(new Vector()));
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testRemove_Invalid() {
+		var tree = new LooseOctree(new Vector(), 4.0, 3);
+		tree.remove(tree.insert(new Vector()));
+		tree.remove(0);
+	}
+}
@@ -2,8 +2,13 @@ package com.github.dabasan.ejml_3dtools;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 import java.util.Random;
 
+import org.ejml.data.SingularMatrixException;
 import org.ejml.simple.SimpleMatrix;
 import org.junit.Test;
 
@@ -47,6 +52,23 @@ public class MatrixTest {
 		// System.out.println(mat);
 	}
 
+	@Test
+	public void testGetSM() {
+		var mat = Matrix.createRandomMatrix();
+		var sm = mat.getSM();
+
+		sm.set(1, 2, 5.0);
+		assertEquals(5.0, mat.get(1, 2), 1.0E-6);
+
+		mat.set(3, 0, -2.0);
+		assertEquals(-2.0, sm.get(3, 0), 1.0E-6);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testGet_OutOfBounds() {
+		var mat = new Matrix();
+		mat.get(0, 4);
+	}
+
 	@Test
 	public void testToArray() {
 		var mat = Matrix.createRandomMatrix();
@@ -78,6 +100,81 @@ public class MatrixTest {
 		}
 	}
 
+	@Test
+	public void testToFloatArray() {
+		var mat = Matrix.createRandomMatrix();
+		float[] rowMajor = mat.toFloatArray(new float[18], 2, false);
+		float[] columnMajor = mat.toFloatArray(new float[16], 0, true);
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals((float) mat.get(i, j), rowMajor[2 + i * 4 + j], 0.0f);
+				assertEquals((float) mat.get(i, j), columnMajor[j * 4 + i], 0.0f);
+			}
+		}
+	}
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testToFloatArray_OutOfBounds() {
+		new Matrix().toFloatArray(new float[16], 1, false);
+	}
+	@Test
+	public void testToFloatBuffer() {
+		var mat = Matrix.createRandomMatrix();
+		var buffer = FloatBuffer.allocate(20);
+		buffer.position(3);
+		mat.toFloatBuffer(buffer, 4, true);
+
+		assertEquals(3, buffer.position());
+		assertArrayEquals(mat.toFloatArray(new float[16], 0, true),
+				Arrays.copyOfRange(buffer.array(), 4, 20), 0.0f);
+	}
+	@Test
+	public void testToByteBuffer() {
+		var mats = new Matrix[]{Matrix.createRandomMatrix(), Matrix.createRandomMatrix()};
+		var buffer = ByteBuffer.allocateDirect(8 + 32 * Float.BYTES)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		Matrix.toByteBuffer(mats, buffer, 8, false);
+
+		assertEquals(0, buffer.position());
+		float[] expected = Matrix.toFloatArray(mats, new float[32], 0, false);
+		for (int i = 0; i < 32; i++) {
+			assertEquals(expected[i], buffer.getFloat(8 + i * Float.BYTES), 0.0f);
+		}
+	}
+	@Test
+	public void testToFloatBuffer_Batch() {
+		var mats = new Matrix[]{Matrix.createRandomMatrix(), Matrix.createRandomMatrix()};
+		var buffer = FloatBuffer.allocate(32);
+		Matrix.toFloatBuffer(mats, buffer, 0, true);
+
+		assertArrayEquals(Matrix.toFloatArray(mats, new float[32], 0, true), buffer.array(),
+				0.0f);
+	}
+	@Test
+	public void testToFloatBuffer_OutOfBounds() {
+		var mats = new Matrix[]{Matrix.createRandomMatrix(), Matrix.createRandomMatrix()};
+		var buffer = FloatBuffer.allocate(32);
+		buffer.limit(31);
+
+		try {
+			Matrix.toFloatBuffer(mats, buffer, 0, false);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new float[32], buffer.array(), 0.0f);
+		}
+	}
+	@Test
+	public void testToByteBuffer_OutOfBounds() {
+		var buffer = ByteBuffer.allocate(16 * Float.BYTES);
+
+		try {
+			Matrix.createRandomMatrix().toByteBuffer(buffer, 1, true);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new byte[16 * Float.BYTES], buffer.array());
+		}
+	}
+
 	@Test
 	public void testAdd() {
 		var mat1 = Matrix.createRandomMatrix();
@@ -115,6 +212,85 @@ public class MatrixTest {
 		// System.out.println(mat2);
 		// System.out.println(mult);
 	}
+	@Test
+	public void testMult_SimpleMatrix() {
+		var mat1 = Matrix.createRandomMatrix();
+		var mat2 = Matrix.createRandomMatrix();
+
+		var mult = mat1.mult(mat2);
+		var expected = mat1.getSM().mult(mat2.getSM());
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), mult.get(i, j), 1.0E-6);
+			}
+		}
+	}
+
+	@Test
+	public void testMult_Destination() {
+		var mat1 = Matrix.createRandomMatrix();
+		var mat2 = Matrix.createRandomMatrix();
+		var expected = mat1.mult(mat2);
+
+		var dst = new Matrix();
+		Matrix.mult(mat1, mat2, dst);
+		mat1.multInPlace(mat2);
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), dst.get(i, j), 1.0E-6);
+				assertEquals(expected.get(i, j), mat1.get(i, j), 1.0E-6);
+			}
+		}
+	}
+	@Test
+	public void testMult_AliasedRightHandSide() {
+		var mat1 = Matrix.createRandomMatrix();
+		var mat2 = Matrix.createRandomMatrix();
+		var expected = mat1.mult(mat2);
+
+		Matrix.mult(mat1, mat2, mat2);
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), mat2.get(i, j), 1.0E-6);
+			}
+		}
+	}
+	@Test
+	public void testMult_Arrays() {
+		int count = 1000;
+		var a = new Matrix[count];
+		var b = new Matrix[count];
+		var dst = new Matrix[count];
+		for (int i = 0; i < count; i++) {
+			a[i] = Matrix.createRandomMatrix();
+			b[i] = Matrix.createRandomMatrix();
+			dst[i] = new Matrix();
+		}
+
+		Matrix.mult(a, b, dst, new ParallelConfig(null, 10, 16));
+
+		for (int i = 0; i < count; i++) {
+			var expected = a[i].mult(b[i]);
+			assertArrayEquals(expected.toArray(), dst[i].toArray(), 0.0);
+		}
+	}
+	@Test
+	public void testAddInPlace() {
+		var mat1 = Matrix.createRandomMatrix();
+		var mat2 = Matrix.createRandomMatrix();
+		var expected = mat1.add(mat2);
+
+		mat1.addInPlace(mat2);
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), mat1.get(i, j), 1.0E-6);
+			}
+		}
+	}
 
 	@Test
 	public void testTranspose() {
@@ -132,6 +308,84 @@ public class MatrixTest {
 		// System.out.println(mat);
 		// System.out.println(inverse);
 	}
+	@Test
+	public void testInvert_General() {
+		var mat = Matrix.createRandomMatrix();
+		var expected = mat.getSM().invert();
+		var inverse = mat.invert();
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), inverse.get(i, j), 1.0E-6);
+			}
+		}
+	}
+	@Test
+	public void testInvertAffine() {
+		var mat = Matrix.createRandomMatrix();
+		mat.set(3, 0, 0.0);
+		mat.set(3, 1, 0.0);
+		mat.set(3, 2, 0.0);
+		mat.set(3, 3, 1.0);
+		assertTrue(mat.isAffine());
+
+		var expected = mat.getSM().invert();
+		var inverse = mat.invertAffine();
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), inverse.get(i, j), 1.0E-6);
+			}
+		}
+	}
+	@Test
+	public void testInvertRigid() {
+		var mat = Matrix.createTranslationMatrix(1.0, -2.0, 3.0)
+				.mult(Matrix.createRotationMatrix(0.48, 0.6, 0.64, 1.2));
+		assertTrue(mat.isRigid());
+		assertFalse(Matrix.createScalingMatrix(2.0, 1.0, 1.0).isRigid());
+
+		var expected = mat.getSM().invert();
+		var inverse = mat.invertRigid();
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), inverse.get(i, j), 1.0E-6);
+			}
+		}
+	}
+	@Test(expected = SingularMatrixException.class)
+	public void testInvert_Singular() {
+		var mat = new Matrix(1.0);
+		mat.invert();
+	}
+	@Test
+	public void testTransposeInPlace() {
+		var mat = Matrix.createRandomMatrix();
+		var expected = mat.transpose();
+
+		mat.transposeInPlace();
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.get(i, j), mat.get(i, j), 1.0E-6);
+			}
+		}
+	}
+	@Test
+	public void testInvertInPlace() {
+		var mat = Matrix.createRandomMatrix();
+		var original = new Matrix(mat);
+
+		mat.invertInPlace();
+		var identity = original.mult(mat);
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				assertEquals(i == j ? 1.0 : 0.0, identity.get(i, j), 1.0E-6);
+			}
+		}
+	}
 
 	@Test
 	public void testCreateIdentityMatrix() {
@@ -154,6 +408,34 @@ public class MatrixTest {
 		// System.out.println(mat);
 	}
 	@Test
+	public void testCreatePerspective() {
+		var mat = Matrix.createPerspective(Math.PI / 2.0, 2.0, 1.0, 100.0);
+
+		var near = new Vector(2.0, 1.0, -1.0).project(mat);
+		assertArrayEquals(new double[]{1.0, 1.0, -1.0}, near.toArray(), 1.0E-9);
+
+		var far = new Vector(0.0, 0.0, -100.0).project(mat);
+		assertEquals(1.0, far.getZ(), 1.0E-9);
+	}
+	@Test
+	public void testCreateOrthographic() {
+		var mat = Matrix.createOrthographic(-2.0, 2.0, -1.0, 1.0, 0.5, 10.0);
+
+		var corner = new Vector(2.0, -1.0, -10.0).transform(mat);
+		assertArrayEquals(new double[]{1.0, -1.0, 1.0}, corner.toArray(), 1.0E-9);
+		assertEquals(1.0, corner.getW(), 0.0);
+	}
+	@Test
+	public void testCreateLookAt() {
+		var eye = new Vector(1.0, 2.0, 3.0);
+		var target = new Vector(4.0, 2.0, 3.0);
+		var mat = Matrix.createLookAt(eye, target, new Vector(0.0, 1.0, 0.0));
+
+		assertArrayEquals(new double[]{0.0, 0.0, 0.0}, eye.transform(mat).toArray(), 1.0E-9);
+		assertArrayEquals(new double[]{0.0, 0.0, -3.0}, target.transform(mat).toArray(), 1.0E-9);
+		assertTrue(mat.isRigid());
+	}
+	@Test
 	public void testCreateRotationXMatrix() {
 		var mat = Matrix.createRotationXMatrix(Math.PI / 4.0);
 		// System.out.println(mat);
@@ -0,0 +1,177 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for MeshTransformPipeline
+ * 
+ * @author Daba
+ *
+ */
+public class MeshTransformPipelineTest {
+	private static final int TRIANGLE_COUNT = 25;
+
+	private static byte[] createSTL(int count) {
+		var buffer = ByteBuffer.allocate(84 + count * 50).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(80);
+		buffer.putInt(count);
+		for (int i = 0; i < count; i++) {
+			buffer.putFloat(0.0f).putFloat(0.0f).putFloat(1.0f);
+			buffer.putFloat(i).putFloat(0.0f).putFloat(0.0f);
+			buffer.putFloat(i + 1.0f).putFloat(0.0f).putFloat(0.0f);
+			buffer.putFloat(i).putFloat(1.0f).putFloat(0.0f);
+			buffer.putShort((short) i);
+		}
+
+		return buffer.array();
+	}
+	private static void assertVector(Vector expected, ByteBuffer buffer, int p) {
+		assertEquals(expected.getX(), buffer.getFloat(p), 1.0E-5);
+		assertEquals(expected.getY(), buffer.getFloat(p + 4), 1.0E-5);
+		assertEquals(expected.getZ(), buffer.getFloat(p + 8), 1.0E-5);
+	}
+
+	@Test
+	public void testSTL() throws IOException {
+		var matrix = Matrix.createTranslationMatrix(1.0, 2.0, 3.0)
+				.mult(Matrix.createRotationXMatrix(Math.PI / 2.0))
+				.mult(Matrix.createScalingMatrix(2.0, 1.0, 1.0));
+		var pipeline = new MeshTransformPipeline(matrix);
+		pipeline.setChunkSize(4);
+		pipeline.setChunkCount(2);
+
+		var out = new ByteArrayOutputStream();
+		pipeline.transformSTL(new ByteArrayInputStream(createSTL(TRIANGLE_COUNT)), out);
+
+		var result = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(84 + TRIANGLE_COUNT * 50, result.capacity());
+		assertEquals(TRIANGLE_COUNT, result.getInt(80));
+		for (int i = 0; i < TRIANGLE_COUNT; i++) {
+			int p = 84 + i * 50;
+			assertVector(new Vector(0.0, -1.0, 0.0), result, p);
+			assertVector(new Vector(i, 0.0, 0.0).transform(matrix), result, p + 12);
+			assertVector(new Vector(i + 1.0, 0.0, 0.0).transform(matrix), result, p + 24);
+			assertVector(new Vector(i, 1.0, 0.0).transform(matrix), result, p + 36);
+			assertEquals(i, result.getShort(p + 48));
+		}
+	}
+	@Test
+	public void testSTL_Mirrored() throws IOException {
+		var pipeline = new MeshTransformPipeline(Matrix.createScalingMatrix(1.0, 1.0, -1.0));
+
+		var out = new ByteArrayOutputStream();
+		pipeline.transformSTL(new ByteArrayInputStream(createSTL(1)), out);
+
+		var result = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		assertVector(new Vector(0.0, 0.0, -1.0), result, 84);
+		assertVector(new Vector(0.0, 0.0, 0.0), result, 96);
+		assertVector(new Vector(0.0, 1.0, 0.0), result, 108);
+		assertVector(new Vector(1.0, 0.0, 0.0), result, 120);
+	}
+	@Test(expected = EOFException.class)
+	public void testSTL_Truncated() throws IOException {
+		byte[] stl = createSTL(TRIANGLE_COUNT);
+		var in = new ByteArrayInputStream(stl, 0, stl.length - 10);
+
+		var pipeline = new MeshTransformPipeline(Matrix.createIdentityMatrix());
+		pipeline.setChunkSize(3);
+		pipeline.transformSTL(in, new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void testOBJ() throws IOException {
+		String obj = "# comment\n" + "v 1 0 0\n" + "v 0 1 0 0.5 0.5 0.5\n" + "vt 0.5 0.5\n"
+				+ "vn 1 0 0\n" + "f 1/1/1 2/1/1 1/1/1\n";
+		var pipeline = new MeshTransformPipeline(Matrix.createTranslationMatrix(1.0, 0.0, 0.0)
+				.mult(Matrix.createScalingMatrix(2.0, 1.0, 1.0)));
+		pipeline.setChunkSize(2);
+
+		var out = new StringWriter();
+		pipeline.transformOBJ(new StringReader(obj), out);
+
+		assertEquals("# comment\n" + "v 3.0 0.0 0.0\n" + "v 1.0 1.0 0.0 0.5 0.5 0.5\n"
+				+ "vt 0.5 0.5\n" + "vn 1.0 0.0 0.0\n" + "f 1/1/1 2/1/1 1/1/1\n", out.toString());
+	}
+	@Test
+	public void testOBJ_DoublePrecision() throws IOException {
+		var random = new Random(1);
+		var values = new String[3000];
+		for (int i = 0; i < values.length; i++) {
+			double value = (random.nextDouble() - 0.5) * Math.pow(10.0, random.nextInt(40) - 20);
+			switch (i % 3) {
+				case 0 :
+					values[i] = Double.toString(value);
+					break;
+				case 1 :
+					values[i] = String.format(Locale.ROOT, "%.6f", value);
+					break;
+				default :
+					values[i] = String.format(Locale.ROOT, "%.17e", value);
+					break;
+			}
+		}
+
+		var obj = new StringBuilder("v 6378137.123456789\t-0.1 1e-7 \n");
+		for (int i = 0; i < values.length; i += 3) {
+			obj.append("v ").append(values[i]).append(' ').append(values[i + 1]).append(' ')
+					.append(values[i + 2]).append('\n');
+		}
+
+		var out = new StringWriter();
+		new MeshTransformPipeline(Matrix.createIdentityMatrix())
+				.transformOBJ(new StringReader(obj.toString()), out);
+
+		String[] lines = out.toString().split("\n");
+		assertEquals("v 6378137.123456789 -0.1 1.0E-7", lines[0]);
+		for (int i = 0; i < values.length; i++) {
+			String[] tokens = lines[i / 3 + 1].split(" ");
+			assertEquals(values[i], Double.parseDouble(values[i]),
+					Double.parseDouble(tokens[i % 3 + 1]), 0.0);
+		}
+	}
+	@Test
+	public void testOBJ_W() throws IOException {
+		var pipeline = new MeshTransformPipeline(Matrix.createTranslationMatrix(1.0, 0.0, 0.0));
+		var out = new StringWriter();
+		pipeline.transformOBJ(new StringReader("v 2 4 6 2\n"), out);
+
+		assertEquals("v 2.0 2.0 3.0\n", out.toString());
+	}
+	@Test(expected = IOException.class)
+	public void testOBJ_ZeroW() throws IOException {
+		var pipeline = new MeshTransformPipeline(Matrix.createIdentityMatrix());
+		pipeline.transformOBJ(new StringReader("v 1 2 3 0\n"), new StringWriter());
+	}
+	@Test(expected = IOException.class)
+	public void testOBJ_Invalid() throws IOException {
+		var pipeline = new MeshTransformPipeline(Matrix.createIdentityMatrix());
+		pipeline.transformOBJ(new StringReader("v 1 x 0\n"), new StringWriter());
+	}
+	@Test(expected = IOException.class, timeout = 10000)
+	public void testOBJ_InvalidLongInput() throws IOException {
+		// More lines than fit in the chunks in flight, so that the reader is
+		// still running when the transformation fails.
+		var sb = new StringBuilder("v 1 x 0\n");
+		for (int i = 0; i < 100000; i++) {
+			sb.append("v 1 2 3\n");
+		}
+
+		var pipeline = new MeshTransformPipeline(Matrix.createIdentityMatrix());
+		pipeline.setChunkSize(16);
+		pipeline.setChunkCount(2);
+		pipeline.transformOBJ(new StringReader(sb.toString()), new StringWriter());
+	}
+}
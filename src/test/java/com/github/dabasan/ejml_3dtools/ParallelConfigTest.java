@@ -0,0 +1,62 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test class for ParallelConfig
+ * 
+ * @author Daba
+ *
+ */
+public class ParallelConfigTest {
+	@Test
+	public void testRun() {
+		int count = 100000;
+		var visited = new int[count];
+		var calls = new AtomicInteger();
+
+		var config = new ParallelConfig(null, 1000, 1000);
+		config.run(count, (from, to) -> {
+			assertTrue(to - from <= 1000);
+			calls.incrementAndGet();
+			for (int i = from; i < to; i++) {
+				visited[i]++;
+			}
+		});
+
+		for (int i = 0; i < count; i++) {
+			assertEquals(1, visited[i]);
+		}
+		assertTrue(calls.get() > 1);
+	}
+	@Test
+	public void testRun_BelowThreshold() {
+		var caller = Thread.currentThread();
+
+		var config = new ParallelConfig(null, 1000, 10);
+		config.run(999, (from, to) -> {
+			assertEquals(0, from);
+			assertEquals(999, to);
+			assertSame(caller, Thread.currentThread());
+		});
+	}
+	@Test
+	public void testGetPool() {
+		var pool = new ForkJoinPool(2);
+		try {
+			assertSame(pool, new ParallelConfig(pool).getPool());
+			assertSame(ForkJoinPool.commonPool(), ParallelConfig.getDefault().getPool());
+		} finally {
+			pool.shutdown();
+		}
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_InvalidChunkSize() {
+		new ParallelConfig(null, 0, 0);
+	}
+}
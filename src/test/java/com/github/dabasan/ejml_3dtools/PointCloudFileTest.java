@@ -0,0 +1,197 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class for PointCloudFile
+ * 
+ * @author Daba
+ *
+ */
+public class PointCloudFileTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static VectorBatch createRandomBatch(int size) {
+		var random = new Random(0);
+		var ret = new VectorBatch(size);
+		for (int i = 0; i < size; i++) {
+			ret.set(i, random.nextInt(200) - 100, random.nextInt(200) - 100,
+					random.nextInt(200) - 100);
+		}
+
+		return ret;
+	}
+
+	@Test
+	public void testXYZ() throws IOException {
+		var points = createRandomBatch(1000);
+		var path = folder.newFile("points.xyz").toPath();
+		PointCloudFile.writeXYZ(path, points, false);
+
+		assertEquals(1000 * 3 * Float.BYTES, Files.size(path));
+		try (var file = PointCloudFile.open(path)) {
+			file.setWindowSize(100);
+			assertEquals(1000, file.size());
+
+			var read = new VectorBatch(1000);
+			assertEquals(1000, file.read(0, read));
+			assertArrayEquals(points.getXArray(), read.getXArray(), 0.0);
+			assertArrayEquals(points.getYArray(), read.getYArray(), 0.0);
+			assertArrayEquals(points.getZArray(), read.getZArray(), 0.0);
+
+			var tail = new VectorBatch(10);
+			assertEquals(4, file.read(996, tail));
+			assertEquals(points.getX(999), tail.getX(3), 0.0);
+		}
+	}
+	@Test
+	public void testXYZ_Transform() throws IOException {
+		var points = createRandomBatch(10000);
+		var input = folder.newFile("in.xyz").toPath();
+		var output = folder.newFile("out.xyz").toPath();
+		PointCloudFile.writeXYZ(input, points, true);
+
+		var matrix = Matrix.createTranslationMatrix(1.0, 2.0, 3.0)
+				.mult(Matrix.createRotationYMatrix(0.5));
+		try (var file = PointCloudFile.openXYZ(input, true)) {
+			file.setWindowSize(24 * 1001);
+			file.transformTo(matrix, output);
+		}
+
+		var expected = points.transform(matrix);
+		try (var file = PointCloudFile.openXYZ(output, true)) {
+			var read = new VectorBatch(10000);
+			file.read(0, read);
+
+			assertArrayEquals(expected.getXArray(), read.getXArray(), 0.0);
+			assertArrayEquals(expected.getYArray(), read.getYArray(), 0.0);
+			assertArrayEquals(expected.getZArray(), read.getZArray(), 0.0);
+		}
+	}
+	@Test
+	public void testPLY() throws IOException {
+		var points = createRandomBatch(100);
+		var path = folder.newFile("points.ply").toPath();
+		PointCloudFile.writePLY(path, points);
+
+		try (var file = PointCloudFile.open(path)) {
+			var read = new VectorBatch(100);
+			file.read(0, read);
+
+			assertArrayEquals(points.getXArray(), read.getXArray(), 0.0);
+			assertArrayEquals(points.getZArray(), read.getZArray(), 0.0);
+		}
+	}
+	@Test
+	public void testPLY_Transform() throws IOException {
+		String header = "ply\n" + "format binary_big_endian 1.0\n" + "comment test\n"
+				+ "element vertex 3\n" + "property uchar red\n" + "property float x\n"
+				+ "property float y\n" + "property float z\n" + "element face 1\n"
+				+ "property list uchar int vertex_indices\n" + "end_header\n";
+		byte[] headerBytes = header.getBytes(StandardCharsets.US_ASCII);
+		var buffer = ByteBuffer.allocate(headerBytes.length + 3 * 13 + 13)
+				.order(ByteOrder.BIG_ENDIAN);
+		buffer.put(headerBytes);
+		for (int i = 0; i < 3; i++) {
+			buffer.put((byte) (10 + i));
+			buffer.putFloat(i);
+			buffer.putFloat(i * 2.0f);
+			buffer.putFloat(i * 3.0f);
+		}
+		buffer.put((byte) 3).putInt(0).putInt(1).putInt(2);
+
+		var input = folder.newFile("in.ply").toPath();
+		var output = folder.newFile("out.ply").toPath();
+		Files.write(input, buffer.array());
+
+		try (var file = PointCloudFile.openPLY(input)) {
+			file.setWindowSize(13);
+			file.transformTo(Matrix.createTranslationMatrix(1.0, 0.0, 0.0), output);
+		}
+
+		byte[] in = Files.readAllBytes(input);
+		byte[] out = Files.readAllBytes(output);
+		assertEquals(in.length, out.length);
+		assertArrayEquals(headerBytes, Arrays.copyOf(out, headerBytes.length));
+		assertArrayEquals(Arrays.copyOfRange(in, in.length - 13, in.length),
+				Arrays.copyOfRange(out, out.length - 13, out.length));
+
+		var result = ByteBuffer.wrap(out).order(ByteOrder.BIG_ENDIAN);
+		for (int i = 0; i < 3; i++) {
+			int p = headerBytes.length + i * 13;
+			assertEquals(10 + i, result.get(p));
+			assertEquals(i + 1.0f, result.getFloat(p + 1), 0.0f);
+			assertEquals(i * 2.0f, result.getFloat(p + 5), 0.0f);
+			assertEquals(i * 3.0f, result.getFloat(p + 9), 0.0f);
+		}
+	}
+	@Test(expected = IOException.class)
+	public void testPLY_Ascii() throws IOException {
+		var path = folder.newFile("ascii.ply").toPath();
+		Files.write(path, ("ply\n" + "format ascii 1.0\n" + "element vertex 1\n"
+				+ "property float x\n" + "end_header\n" + "0\n")
+						.getBytes(StandardCharsets.US_ASCII));
+
+		PointCloudFile.openPLY(path).close();
+	}
+	@Test
+	public void testPLY_CRLF() throws IOException {
+		String header = "ply\r\n" + "format binary_little_endian 1.0\r\n"
+				+ "element vertex 2\r\n" + "property float x\r\n" + "property float y\r\n"
+				+ "property float z\r\n" + "end_header\r\n";
+		byte[] headerBytes = header.getBytes(StandardCharsets.US_ASCII);
+		var buffer = ByteBuffer.allocate(headerBytes.length + 2 * 12)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(headerBytes);
+		buffer.putFloat(1.0f).putFloat(2.0f).putFloat(3.0f);
+		buffer.putFloat(4.0f).putFloat(5.0f).putFloat(6.0f);
+
+		var path = folder.newFile("crlf.ply").toPath();
+		Files.write(path, buffer.array());
+
+		try (var file = PointCloudFile.openPLY(path)) {
+			assertEquals(2, file.size());
+			var read = new VectorBatch(2);
+			file.read(0, read);
+
+			assertArrayEquals(new double[]{1.0, 4.0}, read.getXArray(), 0.0);
+			assertArrayEquals(new double[]{3.0, 6.0}, read.getZArray(), 0.0);
+		}
+	}
+	@Test
+	public void testTransformTo_SameFile() throws IOException {
+		var points = createRandomBatch(100);
+		var path = folder.newFile("same.xyz").toPath();
+		PointCloudFile.writeXYZ(path, points, false);
+
+		try (var file = PointCloudFile.open(path)) {
+			try {
+				file.transformTo(Matrix.createIdentityMatrix(), path.getParent().resolve(
+						"../" + path.getParent().getFileName() + "/same.xyz"));
+				fail();
+			} catch (IllegalArgumentException e) {
+				// The input must be left as it was.
+			}
+		}
+
+		assertEquals(100 * 3 * Float.BYTES, Files.size(path));
+		try (var file = PointCloudFile.open(path)) {
+			var read = new VectorBatch(100);
+			file.read(0, read);
+			assertArrayEquals(points.getXArray(), read.getXArray(), 0.0);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test class for Quaternion
+ * 
+ * @author Daba
+ *
+ */
+public class QuaternionTest {
+	private static final double AXIS_X = 0.48;
+	private static final double AXIS_Y = 0.6;
+	private static final double AXIS_Z = 0.64;
+
+	private static void assertMatrixEquals(Matrix expected, Matrix actual, double delta) {
+		assertArrayEquals(expected.toArray(), actual.toArray(), delta);
+	}
+
+	@Test
+	public void testConstructor() {
+		var q = new Quaternion();
+		assertArrayEquals(new double[]{0.0, 0.0, 0.0, 1.0}, q.toArray(), 1.0E-6);
+	}
+
+	@Test
+	public void testToMatrix() {
+		var q = Quaternion.createRotation(AXIS_X, AXIS_Y, AXIS_Z, 1.1);
+		var expected = Matrix.createRotationMatrix(AXIS_X, AXIS_Y, AXIS_Z, 1.1);
+
+		assertMatrixEquals(expected, q.toMatrix(), 1.0E-6);
+	}
+	@Test
+	public void testCreateFromMatrix() {
+		double[] angles = new double[]{0.3, 2.0, 3.1, -2.9};
+		for (double th : angles) {
+			var mat = Matrix.createRotationMatrix(AXIS_X, AXIS_Y, AXIS_Z, th);
+			var q = Quaternion.createFromMatrix(mat);
+
+			assertEquals(1.0, q.getSize(), 1.0E-6);
+			assertMatrixEquals(mat, q.toMatrix(), 1.0E-6);
+		}
+	}
+
+	@Test
+	public void testMult() {
+		var q1 = Quaternion.createRotation(AXIS_X, AXIS_Y, AXIS_Z, 0.7);
+		var q2 = Quaternion.createRotation(0.0, 0.0, 1.0, -1.3);
+		var expected = q1.toMatrix().mult(q2.toMatrix());
+
+		assertMatrixEquals(expected, q1.mult(q2).toMatrix(), 1.0E-6);
+
+		q1.multInPlace(q2);
+		assertMatrixEquals(expected, q1.toMatrix(), 1.0E-6);
+	}
+	@Test
+	public void testConjugate() {
+		var q = Quaternion.createRotation(AXIS_X, AXIS_Y, AXIS_Z, 0.7);
+		var identity = q.mult(q.conjugate());
+
+		assertArrayEquals(new double[]{0.0, 0.0, 0.0, 1.0}, identity.toArray(), 1.0E-6);
+	}
+	@Test
+	public void testConjugateInPlace() {
+		var q = Quaternion.createRotation(AXIS_X, AXIS_Y, AXIS_Z, 0.7);
+		var expected = q.conjugate();
+
+		assertSame(q, q.conjugateInPlace());
+		assertArrayEquals(expected.toArray(), q.toArray(), 0.0);
+	}
+
+	@Test
+	public void testRotate() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var q = Quaternion.createRotation(AXIS_X, AXIS_Y, AXIS_Z, 0.9);
+		var expected = vec.rot(AXIS_X, AXIS_Y, AXIS_Z, 0.9);
+
+		assertArrayEquals(expected.toArray(), q.rotate(vec).toArray(), 1.0E-6);
+
+		q.rotate(vec, vec);
+		assertArrayEquals(expected.toArray(), vec.toArray(), 1.0E-6);
+	}
+
+	@Test
+	public void testSlerp() {
+		var q1 = Quaternion.createRotation(0.0, 1.0, 0.0, 0.2);
+		var q2 = Quaternion.createRotation(0.0, 1.0, 0.0, 1.4);
+		var expected = Quaternion.createRotation(0.0, 1.0, 0.0, 0.5);
+
+		assertArrayEquals(expected.toArray(), q1.slerp(q2, 0.25).toArray(), 1.0E-6);
+	}
+	@Test
+	public void testSlerp_ShorterPath() {
+		var q1 = Quaternion.createRotation(0.0, 0.0, 1.0, 0.2);
+		var q2 = Quaternion.createRotation(0.0, 0.0, 1.0, 0.6);
+		var negated = new Quaternion(-q2.getX(), -q2.getY(), -q2.getZ(), -q2.getW());
+		var expected = Quaternion.createRotation(0.0, 0.0, 1.0, 0.4);
+
+		assertMatrixEquals(expected.toMatrix(), q1.slerp(negated, 0.5).toMatrix(), 1.0E-6);
+	}
+	@Test
+	public void testSlerp_Destination() {
+		var q1 = Quaternion.createRotation(0.0, 1.0, 0.0, 0.2);
+		var q2 = Quaternion.createRotation(0.0, 1.0, 0.0, 1.4);
+		var expected = q1.slerp(q2, 0.25);
+
+		assertSame(q1, q1.slerp(q2, 0.25, q1));
+		assertArrayEquals(expected.toArray(), q1.toArray(), 0.0);
+	}
+	@Test
+	public void testNlerp() {
+		var q1 = Quaternion.createRotation(0.0, 1.0, 0.0, 0.2);
+		var q2 = Quaternion.createRotation(0.0, 1.0, 0.0, 0.4);
+		var expected = Quaternion.createRotation(0.0, 1.0, 0.0, 0.3);
+
+		assertArrayEquals(expected.toArray(), q1.nlerp(q2, 0.5).toArray(), 1.0E-6);
+	}
+	@Test
+	public void testSlerp_Batch() {
+		int count = 1000;
+		var from = new double[count * 4];
+		var to = new double[count * 4];
+		var t = new double[count];
+		var dst = new double[count * 4];
+		for (int i = 0; i < count; i++) {
+			var q1 = Quaternion.createRotation(AXIS_X, AXIS_Y, AXIS_Z, i * 0.01);
+			var q2 = Quaternion.createRotation(0.0, 1.0, 0.0, -i * 0.02);
+			System.arraycopy(q1.toArray(), 0, from, i * 4, 4);
+			System.arraycopy(q2.toArray(), 0, to, i * 4, 4);
+			t[i] = (i % 11) / 10.0;
+		}
+
+		Quaternion.slerp(from, to, t, dst, count, new ParallelConfig(null, 10, 64));
+
+		for (int i = 0; i < count; i++) {
+			var q1 = new Quaternion(from[i * 4], from[i * 4 + 1], from[i * 4 + 2], from[i * 4 + 3]);
+			var q2 = new Quaternion(to[i * 4], to[i * 4 + 1], to[i * 4 + 2], to[i * 4 + 3]);
+			var expected = q1.slerp(q2, t[i]);
+
+			for (int j = 0; j < 4; j++) {
+				assertEquals(expected.toArray()[j], dst[i * 4 + j], 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for RigidAlignment
+ * 
+ * @author Daba
+ *
+ */
+public class RigidAlignmentTest {
+	private static final double EPSILON = 1.0E-9;
+
+	private static VectorBatch createRandomPoints(int size, Random random, double offset) {
+		var ret = new VectorBatch(size);
+		for (int i = 0; i < size; i++) {
+			ret.set(i, random.nextDouble() * 10.0 + offset, random.nextDouble() * 4.0 + offset,
+					random.nextDouble() * 2.0 + offset);
+		}
+
+		return ret;
+	}
+	private static Matrix createTransformation(double scale) {
+		return Matrix.createTranslationMatrix(3.0, -2.0, 7.0)
+				.mult(Matrix.createRotationMatrix(0.48, 0.6, 0.64, 2.0))
+				.mult(Matrix.createScalingMatrix(scale, scale, scale));
+	}
+
+	@Test
+	public void testAlign_Rigid() {
+		var random = new Random(0);
+		var source = createRandomPoints(500, random, 0.0);
+		var expected = createTransformation(1.0);
+		var target = source.transform(expected);
+
+		assertArrayEquals(expected.toArray(),
+				RigidAlignment.align(source, target, false).toArray(), EPSILON);
+	}
+	@Test
+	public void testAlign_Similarity() {
+		var random = new Random(1);
+		var source = createRandomPoints(500, random, 0.0);
+		var expected = createTransformation(2.5);
+		var target = source.transform(expected);
+
+		assertArrayEquals(expected.toArray(),
+				RigidAlignment.align(source, target, true).toArray(), EPSILON);
+	}
+	@Test
+	public void testAlign_Vector() {
+		var source = new Vector[]{new Vector(0.0, 0.0, 0.0), new Vector(1.0, 0.0, 0.0),
+				new Vector(0.0, 2.0, 0.0), new Vector(0.0, 0.0, 3.0)};
+		var expected = createTransformation(1.0);
+		var target = new Vector[source.length];
+		for (int i = 0; i < source.length; i++) {
+			target[i] = source[i].transform(expected);
+		}
+
+		assertArrayEquals(expected.toArray(), RigidAlignment.align(source, target).toArray(),
+				EPSILON);
+	}
+	@Test
+	public void testAlign_FarFromOrigin() {
+		var random = new Random(2);
+		var source = createRandomPoints(1000, random, 1.0E6);
+		var expected = createTransformation(1.0);
+		var target = source.transform(expected);
+
+		var actual = RigidAlignment.align(source, target, false);
+		for (int i = 0; i < source.size(); i++) {
+			assertArrayEquals(target.get(i).toArray(), source.get(i).transform(actual).toArray(),
+					1.0E-6);
+		}
+	}
+	@Test
+	public void testAlign_Noise() {
+		var random = new Random(3);
+		var source = createRandomPoints(2000, random, 0.0);
+		var expected = createTransformation(1.0);
+		var target = source.transform(expected);
+		for (int i = 0; i < target.size(); i++) {
+			var p = target.get(i);
+			target.set(i, p.getX() + random.nextGaussian() * 0.01,
+					p.getY() + random.nextGaussian() * 0.01,
+					p.getZ() + random.nextGaussian() * 0.01);
+		}
+
+		var actual = RigidAlignment.align(source, target, false);
+		assertTrue(actual.isRigid());
+		assertArrayEquals(expected.toArray(), actual.toArray(), 0.01);
+	}
+	@Test
+	public void testAlign_NoReflection() {
+		var random = new Random(4);
+		var source = createRandomPoints(100, random, 0.0);
+		var target = source.transform(Matrix.createScalingMatrix(-1.0, 1.0, 1.0));
+
+		var actual = RigidAlignment.align(source, target, false);
+		double[] m = actual.toArray();
+		double det = m[0] * (m[5] * m[10] - m[6] * m[9]) - m[1] * (m[4] * m[10] - m[6] * m[8])
+				+ m[2] * (m[4] * m[9] - m[5] * m[8]);
+		assertEquals(1.0, det, EPSILON);
+	}
+	@Test
+	public void testAlign_Parallel() {
+		var random = new Random(5);
+		var source = createRandomPoints(10000, random, 0.0);
+		var target = source.transform(createTransformation(1.5));
+		var config = new ParallelConfig(null, 100, 64);
+
+		var serial = RigidAlignment.align(source, target, true);
+		var parallel = RigidAlignment.align(source.getXArray(), source.getYArray(),
+				source.getZArray(), target.getXArray(), target.getYArray(), target.getZArray(),
+				true, config);
+		assertArrayEquals(serial.toArray(), parallel.toArray(), EPSILON);
+		assertArrayEquals(parallel.toArray(), RigidAlignment.align(source, target, true,
+				config).toArray(), 0.0);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testAlign_SizeMismatch() {
+		RigidAlignment.align(new VectorBatch(3), new VectorBatch(4), false);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testAlign_Empty() {
+		RigidAlignment.align(new Vector[0], new Vector[0]);
+	}
+}
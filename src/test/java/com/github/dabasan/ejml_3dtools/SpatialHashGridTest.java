@@ -0,0 +1,124 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Test class for SpatialHashGrid
+ * 
+ * @author Daba
+ *
+ */
+public class SpatialHashGridTest {
+	private static VectorBatch createRandomPoints(int size, double extent, Random random) {
+		var ret = new VectorBatch(size);
+		for (int i = 0; i < size; i++) {
+			ret.set(i, (random.nextDouble() - 0.5) * extent, (random.nextDouble() - 0.5) * extent,
+					(random.nextDouble() - 0.5) * extent);
+		}
+
+		return ret;
+	}
+	private static Set<Long> findPairsBruteForce(VectorBatch points, double radius) {
+		var ret = new HashSet<Long>();
+		for (int i = 0; i < points.size(); i++) {
+			for (int j = i + 1; j < points.size(); j++) {
+				if (points.get(i).sub(points.get(j)).getSquareSize() <= radius * radius) {
+					ret.add(getKey(i, j));
+				}
+			}
+		}
+
+		return ret;
+	}
+	private static long getKey(int i, int j) {
+		return (long) Math.min(i, j) << 32 | Math.max(i, j);
+	}
+
+	@Test
+	public void testForEachPair() {
+		var random = new Random(0);
+		var points = createRandomPoints(1500, 20.0, random);
+		var grid = new SpatialHashGrid(1.0);
+		grid.build(points);
+		assertEquals(1500, grid.size());
+
+		for (double radius : new double[]{0.5, 1.0, 2.5}) {
+			var actual = new HashSet<Long>();
+			grid.forEachPair(radius, (i, j, d) -> {
+				assertNotEquals(i, j);
+				assertEquals(points.get(i).sub(points.get(j)).getSquareSize(), d, 1.0E-12);
+				assertTrue("Duplicate pair", actual.add(getKey(i, j)));
+			});
+
+			assertEquals(findPairsBruteForce(points, radius), actual);
+		}
+	}
+	@Test
+	public void testForEachPair_Parallel() {
+		var random = new Random(1);
+		var points = createRandomPoints(3000, 30.0, random);
+		var grid = new SpatialHashGrid(1.0);
+		grid.build(points, new ParallelConfig(null, 100, 64));
+
+		var actual = ConcurrentHashMap.<Long>newKeySet();
+		grid.forEachPair(1.0, (i, j, d) -> assertTrue(actual.add(getKey(i, j))),
+				new ParallelConfig(null, 100, 64));
+
+		assertEquals(findPairsBruteForce(points, 1.0), actual);
+	}
+	@Test
+	public void testFindWithinRadius() {
+		var random = new Random(2);
+		var points = createRandomPoints(2000, 20.0, random);
+		var grid = new SpatialHashGrid(0.7);
+		grid.build(points);
+
+		var indices = new int[points.size()];
+		var distances = new double[points.size()];
+		for (int q = 0; q < 50; q++) {
+			var query = new Vector((random.nextDouble() - 0.5) * 20.0,
+					(random.nextDouble() - 0.5) * 20.0, (random.nextDouble() - 0.5) * 20.0);
+			double radius = random.nextDouble() * 2.0;
+
+			int count = grid.findWithinRadius(query, radius, indices, distances);
+			int[] actual = Arrays.copyOf(indices, count);
+			Arrays.sort(actual);
+			int[] expected = IntStream.range(0, points.size()).filter(
+					i -> points.get(i).sub(query).getSquareSize() <= radius * radius).toArray();
+			assertArrayEquals(expected, actual);
+			if (count > 1) {
+				assertEquals(count, grid.findWithinRadius(query, radius, new int[1], null));
+			}
+		}
+	}
+	@Test
+	public void testBuild_Rebuild() {
+		var random = new Random(3);
+		var grid = new SpatialHashGrid(1.0);
+		grid.build(createRandomPoints(1000, 10.0, random));
+
+		var points = createRandomPoints(100, 10.0, random);
+		grid.build(points);
+		assertEquals(100, grid.size());
+
+		var actual = new HashSet<Long>();
+		grid.forEachPair(1.5, (i, j, d) -> actual.add(getKey(i, j)));
+		assertEquals(findPairsBruteForce(points, 1.5), actual);
+
+		grid.build(new VectorBatch(0));
+		grid.forEachPair(1.0, (i, j, d) -> fail());
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_InvalidCellSize() {
+		new SpatialHashGrid(0.0);
+	}
+}
@@ -0,0 +1,111 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for TransformTree
+ * 
+ * @author Daba
+ *
+ */
+public class TransformTreeTest {
+	private static void assertMatrixEquals(Matrix expected, Matrix actual) {
+		assertArrayEquals(expected.toArray(), actual.toArray(), 1.0E-9);
+	}
+	private static Matrix createLocalMatrix(double tx, double ty, double tz, Quaternion rotation,
+			double sx, double sy, double sz) {
+		return Matrix.createTranslationMatrix(tx, ty, tz).mult(rotation.toMatrix())
+				.mult(Matrix.createScalingMatrix(sx, sy, sz));
+	}
+
+	@Test
+	public void testUpdate() {
+		var tree = new TransformTree(1);
+		int root = tree.addNode(TransformTree.NO_PARENT);
+		int child = tree.addNode(root);
+		int grandChild = tree.addNode(child);
+
+		var q1 = Quaternion.createRotation(0.0, 1.0, 0.0, 0.5);
+		var q2 = Quaternion.createRotation(0.48, 0.6, 0.64, -1.2);
+		tree.setTranslation(root, 1.0, 2.0, 3.0);
+		tree.setRotation(root, q1);
+		tree.setScale(root, 2.0, 2.0, 2.0);
+		tree.setTranslation(child, -4.0, 0.5, 0.0);
+		tree.setRotation(child, q2);
+		tree.setScale(child, 1.0, 3.0, 0.5);
+		tree.setTranslation(grandChild, 0.0, 0.0, 7.0);
+
+		assertEquals(3, tree.update());
+
+		var expectedRoot = createLocalMatrix(1.0, 2.0, 3.0, q1, 2.0, 2.0, 2.0);
+		var expectedChild = expectedRoot.mult(createLocalMatrix(-4.0, 0.5, 0.0, q2, 1.0, 3.0, 0.5));
+		var expectedGrandChild = expectedChild
+				.mult(Matrix.createTranslationMatrix(0.0, 0.0, 7.0));
+
+		assertMatrixEquals(expectedRoot, tree.getWorldMatrix(root));
+		assertMatrixEquals(expectedChild, tree.getWorldMatrix(child));
+		assertMatrixEquals(expectedGrandChild, tree.getWorldMatrix(grandChild));
+		assertMatrixEquals(expectedGrandChild.invert(), tree.getWorldInverseMatrix(grandChild));
+	}
+	@Test
+	public void testUpdate_DirtySubtree() {
+		var tree = new TransformTree();
+		int root = tree.addNode(TransformTree.NO_PARENT);
+		int left = tree.addNode(root);
+		int right = tree.addNode(root);
+		int leftChild = tree.addNode(left);
+		tree.update();
+
+		assertEquals(0, tree.update());
+
+		tree.setTranslation(left, 1.0, 0.0, 0.0);
+		assertTrue(tree.isDirty(left));
+		assertEquals(2, tree.update());
+		assertFalse(tree.isDirty(left));
+
+		assertMatrixEquals(Matrix.createTranslationMatrix(1.0, 0.0, 0.0),
+				tree.getWorldMatrix(leftChild));
+		assertMatrixEquals(Matrix.createIdentityMatrix(), tree.getWorldMatrix(right));
+	}
+	@Test
+	public void testUpdate_Parallel() {
+		var sequential = new TransformTree();
+		var parallel = new TransformTree();
+		var random = new Random(0);
+		for (int i = 0; i < 5000; i++) {
+			int parent = i < 10 ? TransformTree.NO_PARENT : random.nextInt(i);
+			sequential.addNode(parent);
+			parallel.addNode(parent);
+
+			double tx = random.nextDouble(), ty = random.nextDouble(), tz = random.nextDouble();
+			var q = Quaternion.createRotation(0.0, 1.0, 0.0, random.nextDouble());
+			sequential.setTranslation(i, tx, ty, tz);
+			parallel.setTranslation(i, tx, ty, tz);
+			sequential.setRotation(i, q);
+			parallel.setRotation(i, q);
+		}
+
+		var config = new ParallelConfig(null, 16, 16);
+		assertEquals(sequential.update(), parallel.update(config));
+
+		sequential.setScale(3, 2.0, 2.0, 2.0);
+		parallel.setScale(3, 2.0, 2.0, 2.0);
+		assertEquals(sequential.update(), parallel.update(config));
+
+		for (int i = 0; i < sequential.size(); i++) {
+			assertArrayEquals(sequential.getWorldMatrix(i).toArray(),
+					parallel.getWorldMatrix(i).toArray(), 0.0);
+			assertArrayEquals(sequential.getWorldInverseMatrix(i).toArray(),
+					parallel.getWorldInverseMatrix(i).toArray(), 0.0);
+		}
+	}
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testAddNode_InvalidParent() {
+		var tree = new TransformTree();
+		tree.addNode(0);
+	}
+}
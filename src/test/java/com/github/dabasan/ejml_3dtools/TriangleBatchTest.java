@@ -0,0 +1,134 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for TriangleBatch
+ * 
+ * @author Daba
+ *
+ */
+public class TriangleBatchTest {
+	private static final double EPSILON = 1.0E-9;
+
+	private static TriangleBatch createRandomTriangles(int size, Random random) {
+		var ret = new TriangleBatch(size);
+		for (int i = 0; i < size; i++) {
+			double cx = random.nextDouble() * 20.0 - 10.0;
+			double cy = random.nextDouble() * 20.0 - 10.0;
+			double cz = random.nextDouble() * 20.0 - 10.0;
+			ret.set(i, createAround(cx, cy, cz, random), createAround(cx, cy, cz, random),
+					createAround(cx, cy, cz, random));
+		}
+
+		return ret;
+	}
+	private static Vector createAround(double x, double y, double z, Random random) {
+		return new Vector(x + random.nextDouble() * 2.0 - 1.0, y + random.nextDouble() * 2.0 - 1.0,
+				z + random.nextDouble() * 2.0 - 1.0);
+	}
+	private static VectorBatch[] createRandomRays(int size, Random random) {
+		var origins = new VectorBatch(size);
+		var directions = new VectorBatch(size);
+		for (int i = 0; i < size; i++) {
+			origins.set(i, random.nextDouble() * 20.0 - 10.0, random.nextDouble() * 20.0 - 10.0,
+					15.0);
+			directions.set(i, random.nextGaussian() * 0.3, random.nextGaussian() * 0.3, -1.0);
+		}
+
+		return new VectorBatch[]{origins, directions};
+	}
+
+	@Test
+	public void testIntersectRay() {
+		var tris = new TriangleBatch(new Vector[]{new Vector(0.0, 0.0, 0.0),
+				new Vector(2.0, 0.0, 0.0), new Vector(0.0, 2.0, 0.0), new Vector(0.0, 0.0, -1.0),
+				new Vector(2.0, 0.0, -1.0), new Vector(0.0, 2.0, -1.0)},
+				new int[]{3, 4, 5, 0, 1, 2});
+
+		var hit = new RayHit();
+		assertTrue(tris.intersectRay(new Vector(0.5, 0.25, 2.0), new Vector(0.0, 0.0, -1.0),
+				10.0, hit));
+		assertEquals(1, hit.getPrimitive());
+		assertEquals(2.0, hit.getDistance(), EPSILON);
+		assertEquals(0.25, hit.getU(), EPSILON);
+		assertEquals(0.125, hit.getV(), EPSILON);
+
+		assertFalse(tris.intersectRay(new Vector(0.5, 0.25, 2.0), new Vector(0.0, 0.0, -1.0),
+				1.5, hit));
+		assertFalse(tris.intersectRay(new Vector(1.5, 1.5, 2.0), new Vector(0.0, 0.0, -1.0),
+				10.0, hit));
+		assertFalse(tris.intersectRay(new Vector(0.5, 0.25, 2.0), new Vector(1.0, 0.0, 0.0),
+				10.0, hit));
+	}
+	@Test
+	public void testIntersectRays() {
+		var random = new Random(0);
+		var tris = createRandomTriangles(300, random);
+		var rays = createRandomRays(500, random);
+
+		int n = rays[0].size();
+		var distances = new double[n];
+		var indices = new int[n];
+		var us = new double[n];
+		var vs = new double[n];
+		tris.intersectRays(rays[0], rays[1], 100.0, distances, indices, us, vs);
+
+		var bvh = BVH.createFromTriangles(tris);
+		var hit = new RayHit();
+		int hitCount = 0;
+		for (int r = 0; r < n; r++) {
+			boolean found = bvh.intersectRay(rays[0].get(r), rays[1].get(r), 100.0, hit);
+			assertEquals(hit.getPrimitive(), indices[r]);
+			if (found) {
+				hitCount++;
+				assertEquals(hit.getDistance(), distances[r], EPSILON);
+				assertEquals(hit.getU(), us[r], EPSILON);
+				assertEquals(hit.getV(), vs[r], EPSILON);
+			} else {
+				assertEquals(Double.POSITIVE_INFINITY, distances[r], 0.0);
+			}
+		}
+
+		assertTrue(hitCount > 0);
+	}
+	@Test
+	public void testIntersectRays_Parallel() {
+		var random = new Random(1);
+		var tris = createRandomTriangles(100, random);
+		var rays = createRandomRays(2000, random);
+
+		int n = rays[0].size();
+		var distances = new double[n];
+		var indices = new int[n];
+		var us = new double[n];
+		var vs = new double[n];
+		tris.intersectRays(rays[0], rays[1], 100.0, distances, indices, us, vs);
+
+		var pDistances = new double[n];
+		var pIndices = new int[n];
+		var pUs = new double[n];
+		var pVs = new double[n];
+		tris.intersectRays(rays[0], rays[1], 100.0, pDistances, pIndices, pUs, pVs,
+				new ParallelConfig(null, 100, 64));
+
+		assertArrayEquals(distances, pDistances, 0.0);
+		assertArrayEquals(indices, pIndices);
+		assertArrayEquals(us, pUs, 0.0);
+		assertArrayEquals(vs, pVs, 0.0);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testIntersectRays_InvalidLength() {
+		var tris = new TriangleBatch(1);
+		tris.intersectRays(new VectorBatch(2), new VectorBatch(2), 1.0, new double[2],
+				new int[1], new double[2], new double[2]);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_InvalidIndices() {
+		new TriangleBatch(new Vector[3], new int[4]);
+	}
+}
@@ -0,0 +1,244 @@
+package com.github.dabasan.ejml_3dtools;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for VectorBatch
+ * 
+ * @author Daba
+ *
+ */
+public class VectorBatchTest {
+	private static Vector[] createRandomVectors(int size) {
+		var random = new Random(0);
+		var ret = new Vector[size];
+		for (int i = 0; i < size; i++) {
+			ret[i] = new Vector(random.nextDouble() * 10.0 - 5.0, random.nextDouble() * 10.0 - 5.0,
+					random.nextDouble() * 10.0 - 5.0);
+		}
+
+		return ret;
+	}
+	private static void assertBatchEquals(Vector[] expected, VectorBatch actual) {
+		assertEquals(expected.length, actual.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertArrayEquals(expected[i].toArray(), actual.get(i).toArray(), 0.0);
+		}
+	}
+
+	@Test
+	public void testConstructor_Vectors() {
+		var vecs = createRandomVectors(10);
+		var batch = new VectorBatch(vecs);
+
+		assertBatchEquals(vecs, batch);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructor_Arrays_InvalidLength() {
+		new VectorBatch(new double[3], new double[3], new double[2]);
+	}
+
+	@Test
+	public void testNormalize() {
+		var vecs = createRandomVectors(100);
+		var batch = new VectorBatch(vecs).normalize();
+
+		var expected = new Vector[vecs.length];
+		for (int i = 0; i < vecs.length; i++) {
+			expected[i] = vecs[i].normalize();
+		}
+
+		assertBatchEquals(expected, batch);
+	}
+	@Test
+	public void testAdd() {
+		var vecs1 = createRandomVectors(100);
+		var vecs2 = createRandomVectors(100);
+		var batch = new VectorBatch(vecs1);
+		batch.addInPlace(new VectorBatch(vecs2));
+
+		var expected = new Vector[vecs1.length];
+		for (int i = 0; i < vecs1.length; i++) {
+			expected[i] = vecs1[i].add(vecs2[i]);
+		}
+
+		assertBatchEquals(expected, batch);
+	}
+	@Test
+	public void testScale() {
+		var vecs = createRandomVectors(100);
+		var batch = new VectorBatch(vecs).scale(-2.5);
+
+		var expected = new Vector[vecs.length];
+		for (int i = 0; i < vecs.length; i++) {
+			expected[i] = vecs[i].scale(-2.5);
+		}
+
+		assertBatchEquals(expected, batch);
+	}
+	@Test
+	public void testCross() {
+		var vecs1 = createRandomVectors(100);
+		var vecs2 = createRandomVectors(100);
+		var batch2 = new VectorBatch(vecs2);
+		new VectorBatch(vecs1).cross(batch2, batch2);
+
+		var expected = new Vector[vecs1.length];
+		for (int i = 0; i < vecs1.length; i++) {
+			expected[i] = vecs1[i].cross(vecs2[i]);
+		}
+
+		assertBatchEquals(expected, batch2);
+	}
+	@Test
+	public void testDot() {
+		var vecs1 = createRandomVectors(100);
+		var vecs2 = createRandomVectors(100);
+		double[] actual = new VectorBatch(vecs1).dot(new VectorBatch(vecs2));
+
+		for (int i = 0; i < vecs1.length; i++) {
+			assertEquals(vecs1[i].dot(vecs2[i]), actual[i], 0.0);
+		}
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void testDot_SizeMismatch() {
+		new VectorBatch(3).dot(new VectorBatch(4));
+	}
+
+	@Test
+	public void testTransform() {
+		var vecs = createRandomVectors(100);
+		var matrix = Matrix.createRandomMatrix();
+		var batch = new VectorBatch(vecs);
+		batch.transformInPlace(matrix);
+
+		var expected = new Vector[vecs.length];
+		for (int i = 0; i < vecs.length; i++) {
+			expected[i] = vecs[i].transform(matrix);
+		}
+
+		assertBatchEquals(expected, batch);
+	}
+	@Test
+	public void testTransformSR() {
+		var vecs = createRandomVectors(100);
+		var matrix = Matrix.createRandomMatrix();
+		var batch = new VectorBatch(vecs).transformSR(matrix);
+
+		var expected = new Vector[vecs.length];
+		for (int i = 0; i < vecs.length; i++) {
+			expected[i] = vecs[i].transformSR(matrix);
+		}
+
+		assertBatchEquals(expected, batch);
+	}
+	@Test
+	public void testTransform_Parallel() {
+		var vecs = createRandomVectors(10000);
+		var matrix = Matrix.createRandomMatrix();
+		var batch = new VectorBatch(vecs);
+		var expected = batch.transform(matrix);
+		var expectedSR = batch.transformSR(matrix);
+
+		var config = new ParallelConfig(null, 100, 64);
+		var actual = batch.transform(matrix, new VectorBatch(vecs.length), config);
+		var actualSR = batch.transformSR(matrix, new VectorBatch(vecs.length), config);
+
+		assertArrayEquals(expected.getXArray(), actual.getXArray(), 0.0);
+		assertArrayEquals(expected.getYArray(), actual.getYArray(), 0.0);
+		assertArrayEquals(expected.getZArray(), actual.getZArray(), 0.0);
+		assertArrayEquals(expectedSR.getXArray(), actualSR.getXArray(), 0.0);
+		assertArrayEquals(expectedSR.getYArray(), actualSR.getYArray(), 0.0);
+		assertArrayEquals(expectedSR.getZArray(), actualSR.getZArray(), 0.0);
+	}
+	@Test
+	public void testProject() {
+		var vecs = createRandomVectors(1000);
+		var view = Matrix.createLookAt(new Vector(0.0, 0.0, 10.0), new Vector(),
+				new Vector(0.0, 1.0, 0.0));
+		var matrix = Matrix.createPerspective(Math.PI / 3.0, 1.5, 0.1, 100.0).mult(view);
+
+		var batch = new VectorBatch(vecs);
+		var actual = batch.project(matrix, 10.0, 20.0, 640.0, 480.0, new VectorBatch(vecs.length));
+		var actualParallel = batch.project(matrix, 10.0, 20.0, 640.0, 480.0,
+				new VectorBatch(vecs.length), new ParallelConfig(null, 10, 64));
+
+		for (int i = 0; i < vecs.length; i++) {
+			var ndc = vecs[i].project(matrix);
+			double[] expected = new double[]{10.0 + (ndc.getX() + 1.0) * 320.0,
+					20.0 + (1.0 - ndc.getY()) * 240.0, (ndc.getZ() + 1.0) * 0.5};
+
+			assertArrayEquals(expected, actual.get(i).toArray(), 1.0E-9);
+			assertArrayEquals(actual.get(i).toArray(), actualParallel.get(i).toArray(), 0.0);
+		}
+	}
+	@Test
+	public void testProject_BehindCamera() {
+		var matrix = Matrix.createPerspective(Math.PI / 3.0, 1.0, 0.1, 100.0);
+		var batch = new VectorBatch(new Vector[]{new Vector(0.0, 0.0, 5.0)});
+		batch.project(matrix, 0.0, 0.0, 100.0, 100.0, batch);
+
+		assertTrue(Double.isNaN(batch.getX(0)));
+	}
+	@Test
+	public void testToFloatArray() {
+		var vecs = createRandomVectors(10);
+		var batch = new VectorBatch(vecs);
+
+		assertArrayEquals(Vector.toFloatArray(vecs, new float[32], 2),
+				batch.toFloatArray(new float[32], 2), 0.0f);
+	}
+	@Test
+	public void testToFloatBuffer() {
+		var vecs = createRandomVectors(10);
+		var batch = new VectorBatch(vecs);
+		var buffer = FloatBuffer.allocate(30);
+		batch.toFloatBuffer(buffer, 0);
+
+		assertArrayEquals(Vector.toFloatArray(vecs, new float[30], 0), buffer.array(), 0.0f);
+	}
+	@Test
+	public void testToByteBuffer() {
+		var vecs = createRandomVectors(10);
+		var batch = new VectorBatch(vecs);
+		var buffer = ByteBuffer.allocate(4 + 30 * Float.BYTES).order(ByteOrder.BIG_ENDIAN);
+		batch.toByteBuffer(buffer, 4);
+
+		float[] expected = Vector.toFloatArray(vecs, new float[30], 0);
+		for (int i = 0; i < 30; i++) {
+			assertEquals(expected[i], buffer.getFloat(4 + i * Float.BYTES), 0.0f);
+		}
+	}
+	@Test
+	public void testToFloatBuffer_OutOfBounds() {
+		var batch = new VectorBatch(createRandomVectors(10));
+		var buffer = FloatBuffer.allocate(30);
+		buffer.limit(29);
+
+		try {
+			batch.toFloatBuffer(buffer, 0);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new float[30], buffer.array(), 0.0f);
+		}
+	}
+	@Test
+	public void testToByteBuffer_OutOfBounds() {
+		var batch = new VectorBatch(createRandomVectors(10));
+		var buffer = ByteBuffer.allocate(30 * Float.BYTES);
+
+		try {
+			batch.toByteBuffer(buffer, 1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new byte[30 * Float.BYTES], buffer.array());
+		}
+	}
+}
@@ -2,6 +2,10 @@ package com.github.dabasan.ejml_3dtools;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
 import org.ejml.simple.SimpleMatrix;
 import org.junit.Test;
 
@@ -79,6 +83,20 @@ public class VectorTest {
 		assertArrayEquals(expected, actual, 1.0E-6);
 	}
 
+	@Test
+	public void testGetSM() {
+		var vec = new Vector(1.0, 2.0, 3.0);
+		var sm = vec.getSM();
+
+		assertEquals(1.0, sm.get(3, 0), 1.0E-6);
+
+		sm.set(0, 0, 7.0);
+		assertEquals(7.0, vec.getX(), 1.0E-6);
+
+		vec.setZ(-4.0);
+		assertEquals(-4.0, sm.get(2, 0), 1.0E-6);
+	}
+
 	@Test
 	public void testToString() {
 		// System.out.println(new Vector(1.0, 2.0, 3.0));
@@ -158,6 +176,27 @@ public class VectorTest {
 		assertArrayEquals(expected, actual, 1.0E-6);
 	}
 	@Test
+	public void testAddInPlace() {
+		double[] expected = new double[]{5.0, 9.0, 1.0};
+
+		var v1 = new Vector(1.0, 2.0, 3.0);
+		var v2 = new Vector(4.0, 7.0, -2.0);
+		var ret = v1.addInPlace(v2);
+
+		assertSame(v1, ret);
+		assertArrayEquals(expected, v1.toArray(), 1.0E-6);
+	}
+	@Test
+	public void testCross_Aliased() {
+		double[] expected = new double[]{13.0, -12.0, 9.0};
+
+		var v1 = new Vector(3.0, 4.0, 1.0);
+		var v2 = new Vector(3.0, 7.0, 5.0);
+		v1.cross(v2, v2);
+
+		assertArrayEquals(expected, v2.toArray(), 1.0E-6);
+	}
+	@Test
 	public void testDot() {
 		double expected = 42.0;
 
@@ -195,12 +234,49 @@ public class VectorTest {
 		// System.out.println(transformed);
 	}
 	@Test
+	public void testTransform_Translation() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var transformed = vec.transform(Matrix.createTranslationMatrix(1.0, 2.0, 3.0));
+
+		assertArrayEquals(new double[]{3.0, 5.0, 7.0}, transformed.toArray(), 1.0E-6);
+	}
+	@Test
+	public void testTransformInPlace() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var dst = new Vector();
+		vec.transform(Matrix.createTranslationMatrix(1.0, 2.0, 3.0), dst);
+		vec.transformInPlace(Matrix.createTranslationMatrix(1.0, 2.0, 3.0));
+
+		assertArrayEquals(new double[]{3.0, 5.0, 7.0}, dst.toArray(), 1.0E-6);
+		assertArrayEquals(new double[]{3.0, 5.0, 7.0}, vec.toArray(), 1.0E-6);
+	}
+	@Test
+	public void testTransform_W() {
+		var mat = Matrix.createPerspective(Math.PI / 2.0, 1.0, 1.0, 100.0);
+		var vec = new Vector(1.0, 2.0, -4.0);
+
+		var transformed = vec.transform(mat);
+		assertEquals(4.0, transformed.getW(), 1.0E-9);
+
+		var projected = vec.project(mat);
+		assertArrayEquals(new double[]{0.25, 0.5, transformed.getZ() / 4.0}, projected.toArray(),
+				1.0E-9);
+		assertEquals(1.0, projected.getW(), 0.0);
+	}
+	@Test
 	public void testTransformSR() {
 		var vec = new Vector(2.0, 3.0, 4.0);
 		var transformed = vec.transformSR(Matrix.createScalingMatrix(1.0, 2.0, 3.0));
 
 		// System.out.println(transformed);
 	}
+	@Test
+	public void testTransformSR_Scaling() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var transformed = vec.transformSR(Matrix.createScalingMatrix(1.0, 2.0, 3.0));
+
+		assertArrayEquals(new double[]{2.0, 6.0, 12.0}, transformed.toArray(), 1.0E-6);
+	}
 
 	@Test
 	public void testRotX() {
@@ -210,6 +286,14 @@ public class VectorTest {
 		// System.out.println(rotated);
 	}
 	@Test
+	public void testRotX_Matrix() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var rotated = vec.rotX(Math.PI / 4.0);
+		var expected = vec.transform(Matrix.createRotationXMatrix(Math.PI / 4.0));
+
+		assertArrayEquals(expected.toArray(), rotated.toArray(), 1.0E-6);
+	}
+	@Test
 	public void testRotY() {
 		var vec = new Vector(2.0, 3.0, 4.0);
 		var rotated = vec.rotY(Math.PI / 4.0);
@@ -217,6 +301,14 @@ public class VectorTest {
 		// System.out.println(rotated);
 	}
 	@Test
+	public void testRotY_Matrix() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var rotated = vec.rotY(Math.PI / 4.0);
+		var expected = vec.transform(Matrix.createRotationYMatrix(Math.PI / 4.0));
+
+		assertArrayEquals(expected.toArray(), rotated.toArray(), 1.0E-6);
+	}
+	@Test
 	public void testRotZ() {
 		var vec = new Vector(2.0, 3.0, 4.0);
 		var rotated = vec.rotZ(Math.PI / 4.0);
@@ -224,10 +316,76 @@ public class VectorTest {
 		// System.out.println(rotated);
 	}
 	@Test
+	public void testRotZ_Matrix() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var rotated = vec.rotZ(Math.PI / 4.0);
+		var expected = vec.transform(Matrix.createRotationZMatrix(Math.PI / 4.0));
+
+		assertArrayEquals(expected.toArray(), rotated.toArray(), 1.0E-6);
+	}
+	@Test
 	public void testRot() {
 		var vec = new Vector(2.0, 3.0, 4.0);
 		var rotated = vec.rot(1.0, 1.0, 1.0, Math.PI / 4.0);
 
 		// System.out.println(rotated);
 	}
+	@Test
+	public void testRot_Matrix() {
+		var vec = new Vector(2.0, 3.0, 4.0);
+		var rotated = vec.rot(1.0, 1.0, 1.0, Math.PI / 4.0);
+		var expected = vec.transform(Matrix.createRotationMatrix(1.0, 1.0, 1.0, Math.PI / 4.0));
+
+		assertArrayEquals(expected.toArray(), rotated.toArray(), 1.0E-6);
+	}
+	@Test
+	public void testToFloatArray() {
+		var vecs = new Vector[]{new Vector(1.0, 2.0, 3.0), new Vector(4.0, 5.0, 6.0)};
+		float[] arr = Vector.toFloatArray(vecs, new float[7], 1);
+
+		assertArrayEquals(new float[]{0.0f, 1.0f, 2.0f, 3.0f, 4.0f, 5.0f, 6.0f}, arr, 0.0f);
+	}
+	@Test
+	public void testToFloatBuffer() {
+		var vecs = new Vector[]{new Vector(1.0, 2.0, 3.0), new Vector(4.0, 5.0, 6.0)};
+		var buffer = FloatBuffer.allocate(6);
+		Vector.toFloatBuffer(vecs, buffer, 0);
+
+		assertEquals(0, buffer.position());
+		assertArrayEquals(new float[]{1.0f, 2.0f, 3.0f, 4.0f, 5.0f, 6.0f}, buffer.array(), 0.0f);
+	}
+	@Test
+	public void testToByteBuffer() {
+		var vecs = new Vector[]{new Vector(1.0, 2.0, 3.0), new Vector(4.0, 5.0, 6.0)};
+		var buffer = ByteBuffer.allocateDirect(6 * Float.BYTES).order(ByteOrder.nativeOrder());
+		Vector.toByteBuffer(vecs, buffer, 0);
+
+		var floats = buffer.asFloatBuffer();
+		for (int i = 0; i < 6; i++) {
+			assertEquals(i + 1.0f, floats.get(i), 0.0f);
+		}
+	}
+	@Test
+	public void testToFloatBuffer_OutOfBounds() {
+		var buffer = FloatBuffer.allocate(3);
+
+		try {
+			new Vector(1.0, 2.0, 3.0).toFloatBuffer(buffer, 1);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new float[3], buffer.array(), 0.0f);
+		}
+	}
+	@Test
+	public void testToByteBuffer_OutOfBounds() {
+		var vecs = new Vector[]{new Vector(1.0, 2.0, 3.0), new Vector(4.0, 5.0, 6.0)};
+		var buffer = ByteBuffer.allocate(6 * Float.BYTES - 1);
+
+		try {
+			Vector.toByteBuffer(vecs, buffer, 0);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			assertArrayEquals(new byte[6 * Float.BYTES - 1], buffer.array());
+		}
+	}
 }